@@ -12,16 +12,24 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.PushbackInputStream;
 import java.io.PushbackReader;
 import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
@@ -41,6 +49,13 @@ public class RemoteTestRunnerClient {
 			JUnitCorePlugin.log(exception);
 		}
 	}
+
+	/**
+	 * A test event to be reported to each listener.
+	 */
+	private abstract static class ListenerNotification {
+		abstract void run(ITestRunListener2 listener);
+	}
 	/**
 	 * A simple state machine to process requests from the RemoteTestRunner
 	 */
@@ -240,6 +255,12 @@ public class RemoteTestRunnerClient {
 
 	private boolean fDebug= false;
 
+	/**
+	 * The notifications of the frame that is currently processed, or <code>null</code> if
+	 * listeners are notified immediately.
+	 */
+	private List/*<ListenerNotification>*/ fPendingNotifications;
+
 	/**
 	 * Reads the message stream from the RemoteTestRunner
 	 */
@@ -257,19 +278,28 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+
+				// the first message tells whether the runner sends frames
+				PushbackInputStream in= new PushbackInputStream(fSocket.getInputStream());
+				String message= readFirstMessage(in);
+				if (message != null && message.startsWith(MessageIds.FRAMED_PROTOCOL)) {
+					readFrames(new DataInputStream(new BufferedInputStream(in, 64 * 1024)));
+				} else {
+					try {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in, "UTF-8"))); //$NON-NLS-1$
+					} catch (UnsupportedEncodingException e) {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in)));
+					}
+					if (message != null)
+						receiveMessage(message);
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -371,10 +401,129 @@ public class RemoteTestRunnerClient {
 		return buf.toString();
 	}
 
+	/**
+	 * Reads the first message byte by byte, so that no bytes of a following frame are consumed.
+	 *
+	 * @param in the stream from the runner
+	 * @return the message, or <code>null</code> if the stream has ended
+	 * @throws IOException if the stream could not be read
+	 */
+	private String readFirstMessage(PushbackInputStream in) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream(128);
+		int b;
+		while ((b= in.read()) != -1) {
+			if (b == '\n') {
+				fLastLineDelimiter= "\n"; //$NON-NLS-1$
+				return bytes.toString("UTF-8"); //$NON-NLS-1$
+			} else if (b == '\r') {
+				b= in.read();
+				if (b == '\n') {
+					fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
+				} else {
+					if (b != -1)
+						in.unread(b);
+					fLastLineDelimiter= "\r"; //$NON-NLS-1$
+				}
+				return bytes.toString("UTF-8"); //$NON-NLS-1$
+			} else {
+				bytes.write(b);
+			}
+		}
+		fLastLineDelimiter= null;
+		if (bytes.size() == 0)
+			return null;
+		return bytes.toString("UTF-8"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reads the frames sent by a runner that uses the framed protocol. The listeners are notified
+	 * about the events of a frame after the whole frame has been processed.
+	 *
+	 * @param in the stream from the runner
+	 * @throws IOException if the stream could not be read
+	 * @see MessageIds#FRAMED_PROTOCOL
+	 */
+	private void readFrames(DataInputStream in) throws IOException {
+		while (isRunning()) {
+			int length;
+			try {
+				length= in.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			int recordCount= in.readInt();
+			byte[] frame= new byte[length];
+			in.readFully(frame);
+
+			DataInputStream records= new DataInputStream(new ByteArrayInputStream(frame));
+			fPendingNotifications= new ArrayList(recordCount);
+			try {
+				for (int i= 0; i < recordCount; i++) {
+					byte type= records.readByte();
+					if (type == MessageIds.RECORD_MESSAGE) {
+						fLastLineDelimiter= null;
+						receiveMessage(readString(records));
+					} else if (type == MessageIds.RECORD_BLOCK) {
+						String start= readString(records);
+						String content= readString(records);
+						String end= readString(records);
+						// the content already contains the line delimiters
+						fLastLineDelimiter= null;
+						receiveMessage(start);
+						receiveMessage(content);
+						receiveMessage(end);
+					} else {
+						break; // unknown record, skip the rest of the frame
+					}
+				}
+			} finally {
+				List notifications= fPendingNotifications;
+				fPendingNotifications= null;
+				dispatchNotifications(notifications);
+			}
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes= new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+
 	private void receiveMessage(String message) {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
 
+	private void notifyListeners(ListenerNotification notification) {
+		if (fPendingNotifications != null) {
+			fPendingNotifications.add(notification);
+		} else {
+			List notifications= new ArrayList(1);
+			notifications.add(notification);
+			dispatchNotifications(notifications);
+		}
+	}
+
+	private void dispatchNotifications(final List/*<ListenerNotification>*/ notifications) {
+		if (notifications.isEmpty())
+			return;
+		for (int i= 0; i < fListeners.length; i++) {
+			final ITestRunListener2 listener= fListeners[i];
+			SafeRunner.run(new ListenerSafeRunnable() {
+				public void run() {
+					for (int j= 0; j < notifications.size(); j++) {
+						try {
+							((ListenerNotification) notifications.get(j)).run(listener);
+						} catch (RuntimeException e) {
+							// don't let a failing notification suppress the remaining ones
+							handleException(e);
+						}
+					}
+				}
+			});
+		}
+	}
+
 	private void scanOldReranMessage(String arg) {
 		// OLD V1 format
 		// format: className" "testName" "status
@@ -455,26 +604,24 @@ public class RemoteTestRunnerClient {
 	}
 
 	private void notifyTestReran(final String testId, final String className, final String testName, final int statusCode, final String trace) {
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					listener.testReran(testId,
-								className, testName, statusCode, trace,
-								nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
-		}
+		final String expected= nullifyEmpty(fExpectedResult);
+		final String actual= nullifyEmpty(fActualResult);
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testReran(testId,
+							className, testName, statusCode, trace,
+							expected, actual);
+			}
+		});
 	}
 
-	private void notifyTestTreeEntry(final String treeEntry) {
-		for (int i= 0; i < fListeners.length; i++) {
-			ITestRunListener2 listener= fListeners[i];
-			if (!hasTestId())
-				listener.testTreeEntry(fakeTestId(treeEntry));
-			else
-				listener.testTreeEntry(treeEntry);
-		}
+	private void notifyTestTreeEntry(String treeEntry) {
+		final String entry= hasTestId() ? treeEntry : fakeTestId(treeEntry);
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testTreeEntry(entry);
+			}
+		});
 	}
 
 	private String fakeTestId(String treeEntry) {
@@ -487,82 +634,69 @@ public class RemoteTestRunnerClient {
 	private void notifyTestRunStopped(final long elapsedTime) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					listener.testRunStopped(elapsedTime);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testRunStopped(elapsedTime);
+			}
+		});
 	}
 
 	private void testRunEnded(final long elapsedTime) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					listener.testRunEnded(elapsedTime);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testRunEnded(elapsedTime);
+			}
+		});
 	}
 
-	private void notifyTestEnded(final String test) {
+	private void notifyTestEnded(String test) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testEnded(s[0], s[1]);
-				}
-			});
-		}
+		final String s[]= extractTestId(test);
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testEnded(s[0], s[1]);
+			}
+		});
 	}
 
-	private void notifyTestStarted(final String test) {
+	private void notifyTestStarted(String test) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testStarted(s[0], s[1]);
-				}
-			});
-		}
+		final String s[]= extractTestId(test);
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testStarted(s[0], s[1]);
+			}
+		});
 	}
 
 	private void notifyTestRunStarted(final int count) {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					listener.testRunStarted(count);
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testRunStarted(count);
+			}
+		});
 	}
 
 	private void notifyTestFailed() {
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-			        listener.testFailed(fFailureKind, fFailedTestId,
-			        		fFailedTest, fFailedTrace.toString(), nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
-		}
+		final int failureKind= fFailureKind;
+		final String failedTestId= fFailedTestId;
+		final String failedTest= fFailedTest;
+		final String trace= fFailedTrace.toString();
+		final String expected= nullifyEmpty(fExpectedResult);
+		final String actual= nullifyEmpty(fActualResult);
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+		        listener.testFailed(failureKind, failedTestId, failedTest, trace, expected, actual);
+			}
+		});
 	}
 
 	/**
@@ -594,14 +728,11 @@ public class RemoteTestRunnerClient {
 		// fix for 77771 RemoteTestRunnerClient doing work after junit shutdown [JUnit]
 		if (JUnitCorePlugin.isStopped())
 			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				public void run() {
-					listener.testRunTerminated();
-				}
-			});
-		}
+		notifyListeners(new ListenerNotification() {
+			void run(ITestRunListener2 listener) {
+				listener.testRunTerminated();
+			}
+		});
 	}
 
 	public void rerunTest(String testId, String className, String testName) {
@@ -288,6 +288,22 @@ public abstract class TestElement implements ITestElement {
 		setStatus(status);
 	}
 
+	/**
+	 * Restores the status of an element that is read from a swap file, without notifying the
+	 * parent.
+	 *
+	 * @param status the status
+	 * @param trace the failure trace, or <code>null</code>
+	 * @param expected the expected value, or <code>null</code>
+	 * @param actual the actual value, or <code>null</code>
+	 */
+	void restoreStatus(Status status, String trace, String expected, String actual) {
+		fStatus= status;
+		fTrace= trace;
+		fExpected= expected;
+		fActual= actual;
+	}
+
 	public Status getStatus() {
 		return fStatus;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.junit.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -88,6 +89,17 @@ public class TestRunSession implements ITestRunSession {
 	 */
 	private HashMap/*<String, TestElement>*/ fIdToTest;
 
+	/**
+	 * <code>true</code> iff the swap file contains the current test tree, so that the tree can be
+	 * swapped out without writing it again.
+	 */
+	private boolean fIsSwapFileCurrent;
+
+	/**
+	 * The swap file the test tree has been swapped in from, or <code>null</code>.
+	 */
+	private TestRunSessionStore fSwapStore;
+
 	/**
 	 * The TestSuites for which additional children are expected.
 	 */
@@ -216,6 +228,8 @@ public class TestRunSession implements ITestRunSession {
 		fTestRoot= new TestRoot(this);
 		fTestResult= null;
 		fIdToTest= new HashMap();
+		fIsSwapFileCurrent= false;
+		fSwapStore= null;
 	}
 
 	/* (non-Javadoc)
@@ -353,11 +367,15 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		try {
-			File swapFile= getSwapFile();
+			if (! fIsSwapFileCurrent) {
+				File swapFile= getSwapFile();
 
-			JUnitModel.exportTestRunSession(this, swapFile);
+				TestRunSessionStore.write(fTestRoot, swapFile);
+				fIsSwapFileCurrent= true;
+			}
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
+			fSwapStore= null;
 			fTestRunnerClient= null;
 			fIdToTest= new HashMap();
 			fIncompleteTestSuites= null;
@@ -365,7 +383,7 @@ public class TestRunSession implements ITestRunSession {
 
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 		}
 	}
@@ -375,7 +393,8 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 
-	public void removeSwapFile() {
+	public synchronized void removeSwapFile() {
+		fIsSwapFileCurrent= false;
 		File swapFile= getSwapFile();
 		if (swapFile.exists())
 			swapFile.delete();
@@ -384,7 +403,7 @@ public class TestRunSession implements ITestRunSession {
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -394,15 +413,21 @@ public class TestRunSession implements ITestRunSession {
 			return;
 
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			// the children of the suites are paged in and registered on first access
+			fIdToTest= new HashMap();
+			fSwapStore= TestRunSessionStore.open(this, getSwapFile());
+			fTestRoot= fSwapStore.getRoot();
+			fTestResult= null;
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
-		} catch (CoreException e) {
+			fIsSwapFileCurrent= false;
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
+			fIsSwapFileCurrent= false;
 		}
 	}
 
@@ -491,7 +516,26 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	public TestElement getTestElement(String id) {
-		return (TestElement) fIdToTest.get(id);
+		TestElement testElement= (TestElement) fIdToTest.get(id);
+		TestRunSessionStore swapStore= fSwapStore;
+		if (testElement == null && fIsSwapFileCurrent && fTestRoot != null && swapStore != null) {
+			// the element may not have been paged in yet, page in the suites that contain it
+			TestSuiteElement parent= swapStore.findParent(id);
+			if (parent != null) {
+				parent.getChildren();
+				testElement= (TestElement) fIdToTest.get(id);
+			}
+		}
+		return testElement;
+	}
+
+	/**
+	 * Registers an element that has been paged in from the swap file.
+	 *
+	 * @param testElement the element
+	 */
+	void registerTestElement(TestElement testElement) {
+		fIdToTest.put(testElement.getId(), testElement);
 	}
 
 	private TestElement addTreeEntry(String treeEntry) {
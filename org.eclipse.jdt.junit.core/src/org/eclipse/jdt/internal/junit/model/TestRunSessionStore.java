@@ -0,0 +1,509 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+
+/**
+ * Binary swap file of a {@link TestRunSession}.
+ * <p>
+ * The test tree is written in a single pass, the children of a suite before the suite itself, so
+ * that the children of every suite form a contiguous block that can be read without reading the
+ * rest of the file. When the session is swapped in, only the root is read and the children of a
+ * suite are paged in when they are accessed for the first time. Test and class names are stored
+ * once in a string table at the end of the file. An index maps the id of every element to the id of
+ * its parent, so that an element can be looked up by paging in only the suites that contain it.
+ * </p>
+ * <p>
+ * Layout (all integers are big-endian):
+ * <pre>
+ * int       magic
+ * int       version
+ * block*    the blocks of children, each: int count, followed by count element records
+ * record    the root
+ * index     int count, followed by count pairs of the id of an element and the id of its parent
+ * table     the strings: int count, followed by count strings
+ * int       offset of the root
+ * int       offset of the index
+ * int       offset of the string table
+ * int       magic
+ * </pre>
+ * An element record consists of a byte kind, a byte of flags, the id (an int, or the index of a
+ * string), the name (the index of a string, or the indices of the method and class name), a byte
+ * status, a double time, the optional children status, trace, expected and actual value, and for
+ * suites the number of children and the offset of their block. In the index, an id is stored as an
+ * int, or as the negative index of a string minus one. The parent id of the children of the root
+ * is {@link #ROOT_ID}. Strings are stored as an int length followed by the UTF-8 bytes.
+ * </p>
+ *
+ * @since 3.7
+ */
+final class TestRunSessionStore {
+
+	private static final int MAGIC= 0x4A545253; // "JTRS"
+	private static final int VERSION= 2;
+
+	/**
+	 * The id stored in the index for the parent of the children of the root.
+	 */
+	private static final int ROOT_ID= Integer.MIN_VALUE;
+
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	private static final byte KIND_CASE= 0;
+	private static final byte KIND_SUITE= 1;
+
+	private static final int FLAG_NUMERIC_ID= 1 << 0;
+	private static final int FLAG_SPLIT_NAME= 1 << 1;
+	private static final int FLAG_IGNORED= 1 << 2;
+	private static final int FLAG_TRACE= 1 << 3;
+	private static final int FLAG_EXPECTED= 1 << 4;
+	private static final int FLAG_ACTUAL= 1 << 5;
+	private static final int FLAG_CHILDREN_STATUS= 1 << 6;
+
+	private static final Status[] STATUSES= {
+		Status.OK, Status.ERROR, Status.FAILURE, Status.RUNNING, Status.NOT_RUN, Status.RUNNING_ERROR, Status.RUNNING_FAILURE
+	};
+
+	private final File fFile;
+	private final TestRunSession fSession;
+	private String[] fStrings;
+	private TestRoot fRoot;
+	private int fIndexOffset;
+
+	/**
+	 * Map from the id of an element to the id of its parent, or to <code>null</code> for the
+	 * children of the root. Read on the first lookup of an element that has not been paged in.
+	 */
+	private Map/*<String, String>*/ fParentIds;
+
+	private TestRunSessionStore(File file, TestRunSession session) {
+		fFile= file;
+		fSession= session;
+	}
+
+	/**
+	 * Writes the given test tree to a swap file.
+	 *
+	 * @param root the root of the test tree
+	 * @param file the swap file
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(TestRoot root, File file) throws IOException {
+		DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+		try {
+			new Writer(out).write(root);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads the root of the test tree from the given swap file. The children of the suites are
+	 * read when they are accessed.
+	 *
+	 * @param session the session
+	 * @param file the swap file
+	 * @return the store, see {@link #getRoot()}
+	 * @throws IOException if the file could not be read
+	 */
+	public static TestRunSessionStore open(TestRunSession session, File file) throws IOException {
+		TestRunSessionStore store= new TestRunSessionStore(file, session);
+		int rootOffset;
+		RandomAccessFile raf= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			long length= raf.length();
+			if (length < 24 || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+				throw new IOException("Not a test run swap file: " + file); //$NON-NLS-1$
+			raf.seek(length - 16);
+			rootOffset= raf.readInt();
+			store.fIndexOffset= raf.readInt();
+			int stringTableOffset= raf.readInt();
+			if (raf.readInt() != MAGIC)
+				throw new IOException("Incomplete test run swap file: " + file); //$NON-NLS-1$
+
+			DataInputStream in= store.openAt(stringTableOffset);
+			try {
+				String[] strings= new String[in.readInt()];
+				for (int i= 0; i < strings.length; i++)
+					strings[i]= readString(in);
+				store.fStrings= strings;
+			} finally {
+				in.close();
+			}
+		} finally {
+			raf.close();
+		}
+
+		TestRoot root= new TestRoot(session);
+		DataInputStream in= store.openAt(rootOffset);
+		try {
+			store.readRecord(in, null, root);
+		} finally {
+			in.close();
+		}
+		store.fRoot= root;
+		return store;
+	}
+
+	/**
+	 * Returns the root of the test tree.
+	 *
+	 * @return the root
+	 */
+	public TestRoot getRoot() {
+		return fRoot;
+	}
+
+	/**
+	 * Returns the suite that contains the element with the given id. The suite and the suites that
+	 * contain it are paged in, but not necessarily the children of the suite.
+	 *
+	 * @param id the id of the element
+	 * @return the parent suite, or <code>null</code> if the swap file does not contain the element
+	 */
+	synchronized TestSuiteElement findParent(String id) {
+		if (fParentIds == null) {
+			fParentIds= new HashMap();
+			try {
+				readIndex();
+			} catch (IOException e) {
+				JUnitCorePlugin.log(e);
+			}
+		}
+		if (!fParentIds.containsKey(id))
+			return null;
+		String parentId= (String) fParentIds.get(id);
+		if (parentId == null)
+			return fRoot;
+		TestElement parent= fSession.getTestElement(parentId);
+		return parent instanceof TestSuiteElement ? (TestSuiteElement) parent : null;
+	}
+
+	private void readIndex() throws IOException {
+		DataInputStream in= openAt(fIndexOffset);
+		try {
+			int count= in.readInt();
+			for (int i= 0; i < count; i++) {
+				String id= getId(in.readInt());
+				int parentId= in.readInt();
+				fParentIds.put(id, parentId == ROOT_ID ? null : getId(parentId));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private String getId(int value) throws IOException {
+		return value >= 0 ? String.valueOf(value) : getString(-1 - value);
+	}
+
+	/**
+	 * Pages in the children of the given suite.
+	 *
+	 * @param suite the suite
+	 * @param offset the offset of the block of children
+	 */
+	void loadChildren(TestSuiteElement suite, int offset) {
+		try {
+			DataInputStream in= openAt(offset);
+			try {
+				int count= in.readInt();
+				for (int i= 0; i < count; i++)
+					readRecord(in, suite, null);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			JUnitCorePlugin.log(e);
+		}
+	}
+
+	private DataInputStream openAt(int offset) throws IOException {
+		FileInputStream in= new FileInputStream(fFile);
+		try {
+			in.getChannel().position(offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return new DataInputStream(new BufferedInputStream(in, 8 * 1024));
+	}
+
+	/**
+	 * Reads an element record.
+	 *
+	 * @param in the input positioned at the record
+	 * @param parent the parent of the element to create, or <code>null</code> if
+	 *            <code>root</code> is given
+	 * @param root the root to restore, or <code>null</code>
+	 * @throws IOException if the file could not be read
+	 */
+	private void readRecord(DataInput in, TestSuiteElement parent, TestRoot root) throws IOException {
+		byte kind= in.readByte();
+		int flags= in.readByte();
+		String id= (flags & FLAG_NUMERIC_ID) != 0 ? String.valueOf(in.readInt()) : getString(in.readInt());
+		String name;
+		if ((flags & FLAG_SPLIT_NAME) != 0) {
+			String methodName= getString(in.readInt());
+			String className= getString(in.readInt());
+			name= methodName + '(' + className + ')';
+		} else {
+			name= getString(in.readInt());
+		}
+		Status status= getStatus(in.readByte());
+		double time= in.readDouble();
+		Status childrenStatus= (flags & FLAG_CHILDREN_STATUS) != 0 ? getStatus(in.readByte()) : null;
+		String trace= (flags & FLAG_TRACE) != 0 ? readString(in) : null;
+		String expected= (flags & FLAG_EXPECTED) != 0 ? readString(in) : null;
+		String actual= (flags & FLAG_ACTUAL) != 0 ? readString(in) : null;
+
+		TestElement element;
+		if (kind == KIND_SUITE) {
+			int childCount= in.readInt();
+			int childrenOffset= in.readInt();
+			TestSuiteElement suite= root != null ? root : new TestSuiteElement(parent, id, name, childCount);
+			suite.restoreChildrenStatus(childrenStatus);
+			if (childCount > 0)
+				suite.setPagedChildren(this, childrenOffset);
+			element= suite;
+		} else if (kind == KIND_CASE && parent != null) {
+			TestCaseElement testCase= new TestCaseElement(parent, id, name);
+			testCase.setIgnored((flags & FLAG_IGNORED) != 0);
+			element= testCase;
+		} else {
+			throw new IOException("Corrupt test run swap file: " + fFile); //$NON-NLS-1$
+		}
+		element.restoreStatus(status, trace, expected, actual);
+		element.setElapsedTimeInSeconds(time);
+		if (root == null)
+			fSession.registerTestElement(element);
+	}
+
+	private String getString(int index) throws IOException {
+		if (index < 0 || index >= fStrings.length)
+			throw new IOException("Corrupt test run swap file: " + fFile); //$NON-NLS-1$
+		return fStrings[index];
+	}
+
+	private Status getStatus(int code) throws IOException {
+		if (code < 0 || code >= STATUSES.length)
+			throw new IOException("Corrupt test run swap file: " + fFile); //$NON-NLS-1$
+		return STATUSES[code];
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		byte[] bytes= new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes= string.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static int getStatusCode(Status status) {
+		for (int i= 0; i < STATUSES.length; i++) {
+			if (STATUSES[i] == status)
+				return i;
+		}
+		throw new IllegalArgumentException(String.valueOf(status));
+	}
+
+	private static final class Writer {
+
+		private final DataOutputStream fOut;
+		private final Map/*<String, Integer>*/ fStringIndices= new HashMap();
+		private final List/*<String>*/ fStrings= new ArrayList();
+		/** The ids of the elements and of their parents, as stored in the index. */
+		private final List/*<int[]>*/ fIndex= new ArrayList();
+
+		Writer(DataOutputStream out) {
+			fOut= out;
+		}
+
+		void write(TestRoot root) throws IOException {
+			fOut.writeInt(MAGIC);
+			fOut.writeInt(VERSION);
+			int rootChildrenOffset= writeChildren(root);
+
+			int rootOffset= fOut.size();
+			writeRecord(root, rootChildrenOffset);
+
+			int indexOffset= fOut.size();
+			fOut.writeInt(fIndex.size());
+			for (int i= 0; i < fIndex.size(); i++) {
+				int[] entry= (int[]) fIndex.get(i);
+				fOut.writeInt(entry[0]);
+				fOut.writeInt(entry[1]);
+			}
+
+			int stringTableOffset= fOut.size();
+			fOut.writeInt(fStrings.size());
+			for (int i= 0; i < fStrings.size(); i++)
+				writeString(fOut, (String) fStrings.get(i));
+
+			fOut.writeInt(rootOffset);
+			fOut.writeInt(indexOffset);
+			fOut.writeInt(stringTableOffset);
+			fOut.writeInt(MAGIC);
+		}
+
+		/**
+		 * Writes the blocks of the descendants of the given suite, followed by the block of its
+		 * children.
+		 *
+		 * @param suite the suite
+		 * @return the offset of the block of children, or -1 if the suite has no children
+		 * @throws IOException if the file could not be written
+		 */
+		private int writeChildren(TestSuiteElement suite) throws IOException {
+			ITestElement[] children= suite.getChildren();
+			if (children.length == 0)
+				return -1;
+
+			int[] childrenOffsets= new int[children.length];
+			for (int i= 0; i < children.length; i++) {
+				ITestElement child= children[i];
+				childrenOffsets[i]= child instanceof TestSuiteElement ? writeChildren((TestSuiteElement) child) : -1;
+			}
+
+			int parentId= suite instanceof TestRoot ? ROOT_ID : getIndexId(suite.getId());
+			int offset= fOut.size();
+			fOut.writeInt(children.length);
+			for (int i= 0; i < children.length; i++) {
+				TestElement child= (TestElement) children[i];
+				writeRecord(child, childrenOffsets[i]);
+				fIndex.add(new int[] { getIndexId(child.getId()), parentId });
+			}
+			return offset;
+		}
+
+		private void writeRecord(TestElement element, int childrenOffset) throws IOException {
+			TestSuiteElement suite= element instanceof TestSuiteElement ? (TestSuiteElement) element : null;
+			String id= element.getId();
+			String name= element.getTestName();
+			int numericId= parseId(id);
+			int split= suite == null ? getSplitIndex(name) : -1;
+			Status childrenStatus= suite != null ? suite.getChildrenStatus() : null;
+
+			int flags= 0;
+			if (numericId >= 0)
+				flags|= FLAG_NUMERIC_ID;
+			if (split > 0)
+				flags|= FLAG_SPLIT_NAME;
+			if (suite == null && ((TestCaseElement) element).isIgnored())
+				flags|= FLAG_IGNORED;
+			if (element.getTrace() != null)
+				flags|= FLAG_TRACE;
+			if (element.getExpected() != null)
+				flags|= FLAG_EXPECTED;
+			if (element.getActual() != null)
+				flags|= FLAG_ACTUAL;
+			if (childrenStatus != null)
+				flags|= FLAG_CHILDREN_STATUS;
+
+			fOut.writeByte(suite != null ? KIND_SUITE : KIND_CASE);
+			fOut.writeByte(flags);
+			fOut.writeInt(numericId >= 0 ? numericId : getIndex(id));
+			if (split > 0) {
+				fOut.writeInt(getIndex(name.substring(0, split)));
+				fOut.writeInt(getIndex(name.substring(split + 1, name.length() - 1)));
+			} else {
+				fOut.writeInt(getIndex(name));
+			}
+			fOut.writeByte(getStatusCode(suite != null ? suite.getSuiteStatus() : element.getStatus()));
+			fOut.writeDouble(element.fTime);
+			if (childrenStatus != null)
+				fOut.writeByte(getStatusCode(childrenStatus));
+			if (element.getTrace() != null)
+				writeString(fOut, element.getTrace());
+			if (element.getExpected() != null)
+				writeString(fOut, element.getExpected());
+			if (element.getActual() != null)
+				writeString(fOut, element.getActual());
+			if (suite != null) {
+				fOut.writeInt(childrenOffset == -1 ? 0 : suite.getChildren().length);
+				fOut.writeInt(childrenOffset);
+			}
+		}
+
+		private int getIndexId(String id) {
+			int numericId= parseId(id);
+			return numericId >= 0 ? numericId : -1 - getIndex(id);
+		}
+
+		private int getIndex(String string) {
+			Integer index= (Integer) fStringIndices.get(string);
+			if (index == null) {
+				index= new Integer(fStrings.size());
+				fStringIndices.put(string, index);
+				fStrings.add(string);
+			}
+			return index.intValue();
+		}
+
+		/**
+		 * Returns the value of an id that is the canonical representation of a non-negative int.
+		 *
+		 * @param id the id
+		 * @return the value, or -1 if the id is not stored as an int
+		 */
+		private static int parseId(String id) {
+			int length= id.length();
+			if (length == 0 || length > 9 || length > 1 && id.charAt(0) == '0')
+				return -1;
+			int value= 0;
+			for (int i= 0; i < length; i++) {
+				char ch= id.charAt(i);
+				if (ch < '0' || ch > '9')
+					return -1;
+				value= value * 10 + ch - '0';
+			}
+			return value;
+		}
+
+		/**
+		 * Returns the index of the opening parenthesis in a test name of the form
+		 * <code>method(class)</code>.
+		 *
+		 * @param name the test name
+		 * @return the index, or -1 if the name has another form
+		 */
+		private static int getSplitIndex(String name) {
+			int index= name.indexOf('(');
+			if (index <= 0 || name.charAt(name.length() - 1) != ')' || name.indexOf(')') != name.length() - 1)
+				return -1;
+			return index;
+		}
+	}
+}
@@ -23,6 +23,12 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	private List/*<TestElement>*/ fChildren;
 	private Status fChildrenStatus;
 
+	/**
+	 * The swap file to page in the children from, or <code>null</code> if the children are loaded.
+	 */
+	private TestRunSessionStore fPagedChildrenStore;
+	private int fPagedChildrenOffset;
+
 	public TestSuiteElement(TestSuiteElement parent, String id, String testName, int childrenCount) {
 		super(parent, id, testName);
 		fChildren= new ArrayList(childrenCount);
@@ -50,6 +56,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	 * @see org.eclipse.jdt.junit.model.ITestSuiteElement#getChildren()
 	 */
 	public ITestElement[] getChildren() {
+		loadPagedChildren();
 		return (ITestElement[]) fChildren.toArray(new ITestElement[fChildren.size()]);
 	}
 
@@ -68,6 +75,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	private Status getCumulatedStatus() {
+		loadPagedChildren();
 		TestElement[] children= (TestElement[]) fChildren.toArray(new TestElement[fChildren.size()]); // copy list to avoid concurreny problems
 		if (children.length == 0)
 			return getSuiteStatus();
@@ -89,6 +97,7 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	}
 
 	public void childChangedStatus(TestElement child, Status childStatus) {
+		loadPagedChildren();
 		int childCount= fChildren.size();
 		if (child == fChildren.get(0) && childStatus.isRunning()) {
 			// is first child, and is running -> copy status
@@ -124,6 +133,33 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 		}
 	}
 
+	Status getChildrenStatus() {
+		return fChildrenStatus;
+	}
+
+	void restoreChildrenStatus(Status status) {
+		fChildrenStatus= status;
+	}
+
+	/**
+	 * Defers reading the children of this suite from a swap file until they are accessed.
+	 *
+	 * @param store the swap file
+	 * @param offset the offset of the children in the swap file
+	 */
+	void setPagedChildren(TestRunSessionStore store, int offset) {
+		fPagedChildrenStore= store;
+		fPagedChildrenOffset= offset;
+	}
+
+	private synchronized void loadPagedChildren() {
+		if (fPagedChildrenStore == null)
+			return;
+		TestRunSessionStore store= fPagedChildrenStore;
+		fPagedChildrenStore= null;
+		store.loadChildren(this, fPagedChildrenOffset);
+	}
+
 	private void internalSetChildrenStatus(Status status) {
 		if (fChildrenStatus == status)
 			return;
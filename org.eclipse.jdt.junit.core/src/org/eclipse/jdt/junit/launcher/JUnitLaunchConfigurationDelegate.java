@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -80,6 +80,11 @@ import org.eclipse.jdt.launching.VMRunnerConfiguration;
  */
 public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigurationDelegate {
 
+	/**
+	 * The main type of the test runner bundled with JDT.
+	 */
+	private static final String REMOTE_TEST_RUNNER= "org.eclipse.jdt.internal.junit.runner.RemoteTestRunner"; //$NON-NLS-1$
+
 	private boolean fKeepAlive= false;
 
 	private int fPort;
@@ -236,7 +241,7 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 	 * @see org.eclipse.jdt.launching.AbstractJavaLaunchConfigurationDelegate#verifyMainTypeName(org.eclipse.debug.core.ILaunchConfiguration)
 	 */
 	public String verifyMainTypeName(ILaunchConfiguration configuration) throws CoreException {
-		return "org.eclipse.jdt.internal.junit.runner.RemoteTestRunner"; //$NON-NLS-1$
+		return REMOTE_TEST_RUNNER;
 	}
 
 	/**
@@ -347,6 +352,11 @@ public class JUnitLaunchConfigurationDelegate extends AbstractJavaLaunchConfigur
 		programArguments.add("-port"); //$NON-NLS-1$
 		programArguments.add(String.valueOf(fPort));
 
+		// runners of subclasses may reject unknown arguments, the bundled runner answers with
+		// MessageIds.FRAMED_PROTOCOL
+		if (REMOTE_TEST_RUNNER.equals(verifyMainTypeName(configuration)))
+			programArguments.add("-framed"); //$NON-NLS-1$
+
 		if (fKeepAlive)
 			programArguments.add(0, "-keepalive"); //$NON-NLS-1$
 
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sends the messages of the {@link RemoteTestRunner} in frames.
+ * <p>
+ * Messages are collected in a frame until the frame is full or until it has been
+ * flushed and no frame has been sent for {@link #FLUSH_INTERVAL} milliseconds, so that
+ * many test events are sent together when tests run fast. Traces, expected and actual
+ * values are sent as a single block record instead of line by line.
+ * </p>
+ *
+ * @see MessageIds#FRAMED_PROTOCOL
+ */
+class MessageFrameWriter {
+
+	/**
+	 * Minimal time between two frames that are sent because of a flush, in milliseconds.
+	 */
+	static final int FLUSH_INTERVAL= 50;
+
+	private static final int MAX_FRAME_SIZE= 32 * 1024;
+
+	private static final String[] BLOCK_STARTS= {
+		MessageIds.TRACE_START, MessageIds.EXPECTED_START, MessageIds.ACTUAL_START, MessageIds.RTRACE_START
+	};
+	private static final String[] BLOCK_ENDS= {
+		MessageIds.TRACE_END, MessageIds.EXPECTED_END, MessageIds.ACTUAL_END, MessageIds.RTRACE_END
+	};
+
+	private static final String LINE_SEPARATOR= System.getProperty("line.separator"); //$NON-NLS-1$
+
+	private final DataOutputStream fOut;
+
+	private final ByteArrayOutputStream fFrameBytes= new ByteArrayOutputStream(MAX_FRAME_SIZE + 1024);
+	private final DataOutputStream fFrame= new DataOutputStream(fFrameBytes);
+	private int fRecordCount;
+
+	/**
+	 * The start message of the block that is currently collected, or <code>null</code>.
+	 */
+	private String fBlockStart;
+	private String fBlockEnd;
+	private final StringBuffer fBlock= new StringBuffer();
+
+	private boolean fFlushRequested;
+	private long fLastFrameTime;
+	private boolean fClosed;
+
+	/**
+	 * Creates a writer and sends the {@link MessageIds#FRAMED_PROTOCOL} message.
+	 *
+	 * @param out the stream to the test runner client
+	 * @throws IOException if the stream could not be written
+	 */
+	public MessageFrameWriter(OutputStream out) throws IOException {
+		fOut= new DataOutputStream(new BufferedOutputStream(out, MAX_FRAME_SIZE + 1024));
+		fOut.write((MessageIds.FRAMED_PROTOCOL + MessageIds.FRAMED_PROTOCOL_VERSION + '\n').getBytes("UTF-8")); //$NON-NLS-1$
+		fOut.flush();
+
+		Thread flushThread= new Thread("MessageFrameWriter") { //$NON-NLS-1$
+			public void run() {
+				flushPeriodically();
+			}
+		};
+		flushThread.setDaemon(true);
+		flushThread.start();
+	}
+
+	public synchronized void sendMessage(String msg) {
+		if (fClosed)
+			return;
+		try {
+			if (fBlockStart != null) {
+				if (msg.startsWith(fBlockEnd)) {
+					fFrame.writeByte(MessageIds.RECORD_BLOCK);
+					writeString(fBlockStart);
+					writeString(fBlock.toString());
+					writeString(msg);
+					fRecordCount++;
+					fBlockStart= null;
+					fBlock.setLength(0);
+				} else {
+					fBlock.append(msg).append(LINE_SEPARATOR);
+					return;
+				}
+			} else {
+				for (int i= 0; i < BLOCK_STARTS.length; i++) {
+					if (msg.startsWith(BLOCK_STARTS[i])) {
+						fBlockStart= msg;
+						fBlockEnd= BLOCK_ENDS[i];
+						return;
+					}
+				}
+				fFrame.writeByte(MessageIds.RECORD_MESSAGE);
+				writeString(msg);
+				fRecordCount++;
+			}
+
+			if (fFrameBytes.size() >= MAX_FRAME_SIZE)
+				sendFrame();
+		} catch (IOException e) {
+			fClosed= true;
+		}
+	}
+
+	/**
+	 * Requests the pending messages to be sent. They are sent immediately unless a frame has
+	 * been sent during the last {@link #FLUSH_INTERVAL} milliseconds.
+	 */
+	public synchronized void flush() {
+		if (fClosed || fRecordCount == 0)
+			return;
+		if (System.currentTimeMillis() - fLastFrameTime >= FLUSH_INTERVAL) {
+			try {
+				sendFrame();
+			} catch (IOException e) {
+				fClosed= true;
+			}
+		} else {
+			fFlushRequested= true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Sends the pending messages and closes the stream.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (!fClosed) {
+				try {
+					if (fRecordCount > 0)
+						sendFrame();
+				} catch (IOException e) {
+					// closed below
+				}
+				fClosed= true;
+			}
+			notifyAll();
+		}
+		try {
+			fOut.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+
+	private synchronized void flushPeriodically() {
+		while (!fClosed) {
+			try {
+				if (fFlushRequested) {
+					long delay= fLastFrameTime + FLUSH_INTERVAL - System.currentTimeMillis();
+					if (delay > 0) {
+						wait(delay);
+						continue;
+					}
+					if (fRecordCount > 0)
+						sendFrame();
+					fFlushRequested= false;
+				}
+				wait();
+			} catch (InterruptedException e) {
+				// check again
+			} catch (IOException e) {
+				fClosed= true;
+			}
+		}
+	}
+
+	private void sendFrame() throws IOException {
+		fOut.writeInt(fFrameBytes.size());
+		fOut.writeInt(fRecordCount);
+		fFrameBytes.writeTo(fOut);
+		fOut.flush();
+		fFrameBytes.reset();
+		fRecordCount= 0;
+		fFlushRequested= false;
+		fLastFrameTime= System.currentTimeMillis();
+	}
+
+	private void writeString(String string) throws IOException {
+		byte[] bytes= string.getBytes("UTF-8"); //$NON-NLS-1$
+		fFrame.writeInt(bytes.length);
+		fFrame.write(bytes);
+	}
+}
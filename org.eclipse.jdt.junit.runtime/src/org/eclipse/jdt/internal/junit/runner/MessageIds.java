@@ -120,6 +120,34 @@ public class MessageIds {
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
 
+	/**
+	 * Notification that the rest of the test run is sent in frames.
+	 * FRAMED_PROTOCOL + version, sent as the first message if the
+	 * runner has been started with the <code>-framed</code> argument.
+	 * <p>
+	 * A frame consists of an int length, an int number of records and
+	 * the records. A record starts with its byte type and consists of a
+	 * {@link #RECORD_MESSAGE} or {@link #RECORD_BLOCK}. Strings are sent as
+	 * an int length followed by the UTF-8 bytes.
+	 * </p>
+	 */
+	public static final String FRAMED_PROTOCOL= "%FRAMED "; //$NON-NLS-1$
+	/**
+	 * Version of the framed protocol.
+	 */
+	public static final String FRAMED_PROTOCOL_VERSION= "1"; //$NON-NLS-1$
+	/**
+	 * Frame record for a single message.
+	 * RECORD_MESSAGE + message
+	 */
+	public static final byte RECORD_MESSAGE= 0;
+	/**
+	 * Frame record for a multi-line message like a trace, which is sent
+	 * as a whole instead of line by line.
+	 * RECORD_BLOCK + startMessage + content + endMessage
+	 */
+	public static final byte RECORD_BLOCK= 1;
+
 	/**
 	 * MessageFormat to encode test method identifiers:
 	 * testMethod(testClass)
@@ -83,6 +83,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Reader for incoming messages
 	 */
 	private BufferedReader fReader;
+	/**
+	 * Writer for the framed protocol, or <code>null</code> if messages are sent line by line.
+	 */
+	private MessageFrameWriter fFrameWriter;
 	/**
 	 * Host to connect to, default is the localhost
 	 */
@@ -100,6 +104,7 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * This allows to rerun tests.
 	 */
 	private boolean fKeepAlive= false;
+	private boolean fFramed= false;
 	/**
 	 * Has the server been stopped
 	 */
@@ -278,6 +283,9 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			else if(args[i].toLowerCase().equals("-keepalive")) { //$NON-NLS-1$
 				fKeepAlive= true;
 			}
+			else if(args[i].toLowerCase().equals("-framed")) { //$NON-NLS-1$
+				fFramed= true;
+			}
 			else if(args[i].toLowerCase().equals("-debugging") || args[i].toLowerCase().equals("-debug")){ //$NON-NLS-1$ //$NON-NLS-2$
 			    fDebugMode= true;
 			}
@@ -568,11 +576,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		for (int i= 1; i < 20; i++) {
 			try{
 				fClientSocket= new Socket(fHost, fPort);
-				try {
-				    fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
-	            } catch (UnsupportedEncodingException e1) {
-	                fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
-	            }
+				if (fFramed) {
+					fFrameWriter= new MessageFrameWriter(fClientSocket.getOutputStream());
+				} else {
+					try {
+					    fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
+		            } catch (UnsupportedEncodingException e1) {
+		                fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
+		            }
+				}
 				try {
 				    fReader= new BufferedReader(new InputStreamReader(fClientSocket.getInputStream(), "UTF-8")); //$NON-NLS-1$
                 } catch (UnsupportedEncodingException e1) {
@@ -601,6 +613,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 			fWriter.close();
 			fWriter= null;
 		}
+		if (fFrameWriter != null) {
+			fFrameWriter.close();
+			fFrameWriter= null;
+		}
 		try {
 			if (fReaderThread != null)   {
 				// interrupt reader thread so that we don't block on close
@@ -632,6 +648,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
+		if (fFrameWriter != null) {
+			fFrameWriter.sendMessage(msg);
+			return;
+		}
 		if(fWriter == null)
 			return;
 		fWriter.println(msg);
@@ -671,7 +691,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
-	    fWriter.flush();
+		if (fFrameWriter != null)
+			fFrameWriter.flush();
+		else
+			fWriter.flush();
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -139,11 +139,31 @@ public class AbstractSemanticHighlightingTest extends TestCase {
 
 	protected void setUpSemanticHighlighting(String semanticHighlighting) {
 		enableSemanticHighlighting(semanticHighlighting);
-		EditorTestHelper.forceReconcile(fSourceViewer);
+		reconcile(true);
+	}
+
+	/**
+	 * Waits until the reconciler has processed the document changes and the semantic highlighting
+	 * positions have been updated.
+	 *
+	 * @param full <code>true</code> to force a reconcile of the whole compilation unit
+	 */
+	protected void reconcile(boolean full) {
+		if (full)
+			EditorTestHelper.forceReconcile(fSourceViewer);
 		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 10000, 100));
 		EditorTestHelper.runEventQueue(100);
 	}
 
+	protected IDocument getDocument() {
+		return fSourceViewer.getDocument();
+	}
+
+	protected void revertEditor() {
+		EditorTestHelper.revertEditor(fEditor, true);
+		reconcile(true);
+	}
+
 	private void enableSemanticHighlighting(String preferenceKey) {
 		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
 		store.setValue(getEnabledPreferenceKey(preferenceKey), true);
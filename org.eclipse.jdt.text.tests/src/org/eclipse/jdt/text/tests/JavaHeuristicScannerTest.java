@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1104,4 +1104,45 @@ public class JavaHeuristicScannerTest extends TestCase {
 		indent= fScanner.computeIndentation(offset).toString();
 		Assert.assertEquals("\t\t\t", indent);
 	}
+
+	public void testFindOpeningPeerInBatch() throws Exception {
+		fDocument.set("class A {\n" +
+				"	int[] a= { 1, 2 };\n" +
+				"	void foo(int i) { // }\n" +
+				"		if (bar(\")\", ']') ) {\n" +
+				"			/* { ( [ */ a[i]= (i + 1);\n" +
+				"		} } )\n" +
+				"	}\n" +
+				"	/** ( */\n" +
+				"}\n");
+
+		JavaHeuristicScanner batchScanner= new JavaHeuristicScanner(fDocument);
+		batchScanner.beginBatch();
+		try {
+			assertSameOpeningPeers(batchScanner);
+			for (int line= 1; line < fDocument.getNumberOfLines(); line++) {
+				int offset= fDocument.getLineOffset(line);
+				int end= fHeuristicScanner.findNonWhitespaceForwardInAnyPartition(offset, offset + fDocument.getLineLength(line));
+				if (end == JavaHeuristicScanner.NOT_FOUND)
+					continue;
+				fDocument.replace(offset, end - offset, line % 2 == 0 ? "" : "\t\t  ");
+				assertSameOpeningPeers(batchScanner);
+			}
+			fDocument.replace(fDocument.get().indexOf("bar"), 0, "{");
+			assertSameOpeningPeers(batchScanner);
+		} finally {
+			batchScanner.endBatch();
+		}
+	}
+
+	private void assertSameOpeningPeers(JavaHeuristicScanner batchScanner) {
+		char[][] peers= new char[][] { { '(', ')' }, { '[', ']' }, { '{', '}' } };
+		for (int i= 0; i < peers.length; i++) {
+			for (int start= 0; start < fDocument.getLength(); start++) {
+				int expected= new JavaHeuristicScanner(fDocument).findOpeningPeer(start, peers[i][0], peers[i][1]);
+				int actual= batchScanner.findOpeningPeer(start, peers[i][0], peers[i][1]);
+				Assert.assertEquals("peer of " + peers[i][0] + " from " + start, expected, actual);
+			}
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 
 package org.eclipse.jdt.text.tests;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 
 import junit.framework.Test;
@@ -25,6 +27,8 @@ import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.RGB;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 
 import org.eclipse.core.resources.IFile;
@@ -52,12 +56,19 @@ import org.eclipse.ui.texteditor.AnnotationPreference;
 
 import org.eclipse.ui.editors.text.EditorsUI;
 
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.PreferenceConstants;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
 import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder;
+import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder.OccurrenceLocation;
+import org.eclipse.jdt.internal.ui.search.OccurrencesFinder;
 import org.eclipse.jdt.internal.ui.viewsupport.ISelectionListenerWithAST;
 import org.eclipse.jdt.internal.ui.viewsupport.SelectionListenerWithASTManager;
 
@@ -406,4 +417,84 @@ public class MarkOccurrenceTest extends TestCase {
 		assertTrue(helper.waitForCondition(EditorTestHelper.getActiveDisplay(), 80000));
 	}
 
+	private static CompilationUnit createAST(ASTParser parser) {
+		parser.setProject(JUnitProjectTestSetup.getProject());
+		parser.setResolveBindings(true);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	private static int[] getOffsets(OccurrenceLocation[] locations) {
+		Arrays.sort(locations, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((OccurrenceLocation) o1).getOffset() - ((OccurrenceLocation) o2).getOffset();
+			}
+		});
+		int[] offsets= new int[locations.length];
+		for (int i= 0; i < locations.length; i++)
+			offsets[i]= locations[i].getOffset();
+		return offsets;
+	}
+
+	private static int[] findAll(String s, String pattern) {
+		int count= 0;
+		int[] offsets= new int[s.length()];
+		for (int idx= s.indexOf(pattern); idx != -1; idx= s.indexOf(pattern, idx + 1))
+			offsets[count++]= idx;
+		int[] result= new int[count];
+		System.arraycopy(offsets, 0, result, 0, count);
+		return result;
+	}
+
+	public void testMarkOccurrencesInSameAST() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("class A{\n");
+		buf.append("   int fField;\n");
+		buf.append("   A fNext;\n");
+		buf.append("   void foo(A a) {\n");
+		buf.append("      fField= 1;\n");
+		buf.append("      a.fNext.fField++;\n");
+		buf.append("      int i= fField + a.fField;\n");
+		buf.append("   }\n");
+		buf.append("}\n");
+		String s= buf.toString();
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setSource(s.toCharArray());
+		parser.setUnitName("A.java");
+		CompilationUnit root= createAST(parser);
+
+		OccurrencesFinder finder= new OccurrencesFinder();
+		assertNull(finder.initialize(root, s.indexOf("fField +"), 0));
+		OccurrenceLocation[] locations= finder.getOccurrences();
+		assertTrue(Arrays.equals(findAll(s, "fField"), getOffsets(locations)));
+		for (int i= 0; i < locations.length; i++) {
+			int flags= i < 3 ? IOccurrencesFinder.F_WRITE_OCCURRENCE : IOccurrencesFinder.F_READ_OCCURRENCE;
+			assertEquals(flags, locations[i].getFlags());
+		}
+
+		// the second lookup in the same AST
+		finder= new OccurrencesFinder();
+		assertNull(finder.initialize(root, s.indexOf("fNext"), 0));
+		assertTrue(Arrays.equals(findAll(s, "fNext"), getOffsets(finder.getOccurrences())));
+	}
+
+	public void testCancelMarkOccurrences() throws Exception {
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setSource((ICompilationUnit) JavaUI.getEditorInputTypeRoot(fEditor.getEditorInput()));
+		CompilationUnit root= createAST(parser);
+		fMatch= fFindReplaceDocumentAdapter.find(0, "fName", true, true, true, false);
+		assertNotNull(fMatch);
+
+		OccurrencesFinder finder= new OccurrencesFinder();
+		assertNull(finder.initialize(root, fMatch.getOffset(), fMatch.getLength()));
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			finder.getOccurrences(monitor);
+			fail("marking occurrences not canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		// a canceled search does not leave an incomplete index behind
+		assertEquals(9, finder.getOccurrences(new NullProgressMonitor()).length);
+	}
 }
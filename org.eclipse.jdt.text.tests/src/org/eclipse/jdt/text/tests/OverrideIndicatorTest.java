@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.text.tests;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import junit.framework.Test;
@@ -137,6 +138,19 @@ public class OverrideIndicatorTest extends TestCase {
 		}
 	}
 
+	public void testOverrideIndicatorsKeptOnChange() throws Exception {
+		testCountOverrideIndicators();
+		Annotation[] annotations= fOverrideAnnotations;
+
+		fDocument.replace(fDocument.getLength(), 0, "\n");
+		EditorTestHelper.joinReconciler(EditorTestHelper.getSourceViewer(fEditor), 100, 10000, 100);
+
+		computeOverrideIndicators();
+		assertEquals(annotations.length, fOverrideAnnotations.length);
+		for (int i= 0; i < annotations.length; i++)
+			assertTrue(Arrays.asList(fOverrideAnnotations).contains(annotations[i]));
+	}
+
 	private void computeOverrideIndicators() {
 		ArrayList annotations= new ArrayList();
 		Iterator iter= fAnnotationModel.getAnnotationIterator();
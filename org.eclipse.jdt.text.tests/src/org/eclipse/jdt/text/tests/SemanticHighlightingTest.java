@@ -15,6 +15,7 @@ package org.eclipse.jdt.text.tests;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.Position;
 
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
@@ -327,4 +328,59 @@ public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
 		assertEqualPositions(expected, actual);
 	}
 
+	private Position[] copyPositions() throws Exception {
+		Position[] positions= getSemanticHighlightingPositions();
+		Position[] copy= new Position[positions.length];
+		for (int i= 0; i < positions.length; i++)
+			copy[i]= new Position(positions[i].getOffset(), positions[i].getLength());
+		return copy;
+	}
+
+	private void replace(String oldText, String newText) throws Exception {
+		IDocument document= getDocument();
+		int offset= document.get().indexOf(oldText);
+		assertTrue(offset != -1);
+		document.replace(offset, oldText.length(), newText);
+	}
+
+	/*
+	 * Changes inside a method body are reconciled incrementally. The positions must be the same
+	 * as after a reconcile of the whole compilation unit.
+	 */
+	private void assertIncrementalReconcile(String oldText, String newText) throws Exception {
+		replace(oldText, newText);
+		reconcile(false);
+		Position[] incremental= copyPositions();
+		reconcile(true);
+		assertEqualPositions(copyPositions(), incremental);
+	}
+
+	public void testIncrementalReconcile() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE_DECLARATION);
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		setUpSemanticHighlighting(SemanticHighlightings.PARAMETER_VARIABLE);
+		setUpSemanticHighlighting(SemanticHighlightings.FIELD);
+		setUpSemanticHighlighting(SemanticHighlightings.STATIC_METHOD_INVOCATION);
+		setUpSemanticHighlighting(SemanticHighlightings.ABSTRACT_METHOD_INVOCATION);
+		try {
+			assertIncrementalReconcile("\t\tlocal++;\n", "\t\tint added= field + param;\n\t\tlocal++;\n");
+			int offset= getDocument().get().indexOf("added=");
+			assertEqualPositions(new Position[] { new Position(offset, 5) }, getPositionsAt(offset));
+
+			assertIncrementalReconcile("staticMethod();", "added+= staticField + local;");
+			assertIncrementalReconcile("\t\tabstractMethod();\n", "");
+			assertIncrementalReconcile("int added= field + param;", "");
+		} finally {
+			revertEditor();
+		}
+	}
+
+	private Position[] getPositionsAt(int offset) throws Exception {
+		Position[] positions= copyPositions();
+		for (int i= 0; i < positions.length; i++) {
+			if (positions[i].getOffset() == offset)
+				return new Position[] { positions[i] };
+		}
+		return new Position[0];
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,5 +27,6 @@ public class DocumentPerformanceTestSuite extends TestSuite {
 		addTest(DocumentPerformanceTest.suite());
 		addTest(GapTextStorePerformanceTest.suite());
 		addTest(LineTrackerPerformanceTest.suite());
+		addTest(JavaPartitionerPerformanceTest.suite());
 	}
 }
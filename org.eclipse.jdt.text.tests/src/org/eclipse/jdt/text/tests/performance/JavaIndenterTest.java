@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,11 +21,21 @@ import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.jface.action.IAction;
 
+import org.eclipse.jface.preference.PreferenceStore;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.eclipse.ui.texteditor.ITextEditorActionConstants;
 
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+import org.eclipse.jdt.ui.text.JavaTextTools;
+
+import org.eclipse.jdt.internal.ui.text.JavaHeuristicScanner;
+import org.eclipse.jdt.internal.ui.text.JavaIndenter;
+
 public class JavaIndenterTest extends TextPerformanceTestCase {
 
 	private static final Class THIS= JavaIndenterTest.class;
@@ -97,6 +107,53 @@ public class JavaIndenterTest extends TextPerformanceTestCase {
 		}
 	}
 
+	public void testIndentAllLines() throws Exception {
+		IDocument document= createDocument();
+		measureIndentAllLines(getNullPerformanceMeter(), getWarmUpRuns(), document, false);
+		measureIndentAllLines(createPerformanceMeter(), getMeasuredRuns(), document, false);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testIndentAllLinesInBatch() throws Exception {
+		IDocument document= createDocument();
+		String[] expected= measureIndentAllLines(getNullPerformanceMeter(), 1, document, false);
+		String[] actual= measureIndentAllLines(getNullPerformanceMeter(), getWarmUpRuns(), document, true);
+		for (int line= 0; line < expected.length; line++)
+			assertEquals("indentation of line " + line, expected[line], actual[line]);
+
+		measureIndentAllLines(createPerformanceMeter(), getMeasuredRuns(), document, true);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private IDocument createDocument() throws Exception {
+		IDocument document= new Document(ResourceTestHelper.read(FILE).toString());
+		new JavaTextTools(new PreferenceStore()).setupJavaDocumentPartitioner(document, IJavaPartitions.JAVA_PARTITIONING);
+		return document;
+	}
+
+	private String[] measureIndentAllLines(PerformanceMeter performanceMeter, int runs, IDocument document, boolean inBatch) throws BadLocationException {
+		String[] indentations= new String[document.getNumberOfLines()];
+		for (int i= 0; i < runs; i++) {
+			performanceMeter.start();
+			JavaHeuristicScanner scanner= new JavaHeuristicScanner(document);
+			JavaIndenter indenter= new JavaIndenter(document, scanner);
+			if (inBatch)
+				scanner.beginBatch();
+			try {
+				for (int line= 0; line < indentations.length; line++) {
+					StringBuffer indentation= indenter.computeIndentation(document.getLineOffset(line));
+					indentations[line]= indentation == null ? null : indentation.toString();
+				}
+			} finally {
+				scanner.endBatch();
+			}
+			performanceMeter.stop();
+		}
+		return indentations;
+	}
+
 	private void runAction(IAction action) {
 		action.run();
 		EditorTestHelper.runEventQueue();
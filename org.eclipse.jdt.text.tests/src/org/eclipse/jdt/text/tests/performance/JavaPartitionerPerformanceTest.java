@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jface.preference.PreferenceStore;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocumentPartitioner;
+
+import org.eclipse.jdt.ui.text.JavaTextTools;
+
+
+/**
+ * Performance tests for the Java document partitioner.
+ *
+ * @since 3.9
+ */
+public class JavaPartitionerPerformanceTest extends TextPerformanceTestCase2 {
+
+	private static final int TYPES_IN_DOCUMENT= 2000;
+
+	private static final String TYPE=
+		"/**\n" +
+		" * A type with a Javadoc comment.\n" +
+		" */\n" +
+		"class Type {\n" +
+		"	/* a multi-line comment */\n" +
+		"	private String fString= \"a string with a /* comment */ in it\";\n" +
+		"	private char fChar= '\\'';\n" +
+		"\n" +
+		"	// a single-line comment\n" +
+		"	int compute(int value) {\n" +
+		"		return value * 2; // doubled\n" +
+		"	}\n" +
+		"}\n";
+
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new PerfTestSuite(JavaPartitionerPerformanceTest.class));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new PerformanceTestSetup(test);
+	}
+
+
+	private JavaTextTools fTextTools;
+	private String fContent;
+	private Document fDocument;
+
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fTextTools= new JavaTextTools(new PreferenceStore());
+		StringBuffer buffer= new StringBuffer();
+		for (int i= 0; i < TYPES_IN_DOCUMENT; i++)
+			buffer.append(TYPE);
+		fContent= buffer.toString();
+		fDocument= new Document();
+	}
+
+	protected void tearDown() throws Exception {
+		disconnect();
+		fTextTools.dispose();
+		fTextTools= null;
+		fDocument= null;
+		super.tearDown();
+	}
+
+	private void connect() {
+		IDocumentPartitioner partitioner= fTextTools.createDocumentPartitioner();
+		partitioner.connect(fDocument);
+		fDocument.setDocumentPartitioner(partitioner);
+	}
+
+	private void disconnect() {
+		IDocumentPartitioner partitioner= fDocument.getDocumentPartitioner();
+		if (partitioner != null) {
+			partitioner.disconnect();
+			fDocument.setDocumentPartitioner(null);
+		}
+	}
+
+	/**
+	 * Measures partitioning the whole document.
+	 *
+	 * @param meter the meter
+	 */
+	public void measureInitialPartitioning(PerformanceMeter meter) {
+		disconnect();
+		fDocument.set(fContent);
+
+		meter.start();
+		connect();
+		fDocument.computePartitioning(0, fDocument.getLength());
+		meter.stop();
+	}
+
+	/**
+	 * Measures typing at the top of the document, where the partitioning converges shortly after
+	 * each change.
+	 *
+	 * @param meter the meter
+	 * @throws BadLocationException if the edit fails
+	 */
+	public void measureTypingAtTop(PerformanceMeter meter) throws BadLocationException {
+		disconnect();
+		fDocument.set(fContent);
+		connect();
+		fDocument.computePartitioning(0, fDocument.getLength());
+		int offset= TYPE.indexOf("compute");
+
+		meter.start();
+		for (int i= 0; i < 200; i++) {
+			fDocument.replace(offset, 0, "x");
+			fDocument.replace(offset, 1, "");
+		}
+		meter.stop();
+	}
+
+	/**
+	 * Measures opening and closing a comment at the top of the document, which changes the
+	 * partitioning of the whole document.
+	 *
+	 * @param meter the meter
+	 * @throws BadLocationException if the edit fails
+	 */
+	public void measureCommentingAtTop(PerformanceMeter meter) throws BadLocationException {
+		disconnect();
+		fDocument.set(fContent);
+		connect();
+		fDocument.computePartitioning(0, fDocument.getLength());
+		int offset= TYPE.indexOf("class");
+
+		meter.start();
+		for (int i= 0; i < 10; i++) {
+			fDocument.replace(offset, 0, "/*");
+			fDocument.replace(offset, 2, "");
+		}
+		meter.stop();
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompactSpellDictionaryIndex;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompactSpellDictionaryIndex.SourceStamp;
+
+public class CompactSpellDictionaryIndexTest extends TestCase {
+
+	private static final String KEY= "key"; //$NON-NLS-1$
+
+	private static final SourceStamp STAMP= new SourceStamp(42, 1000);
+
+	public static Test suite() {
+		return new TestSuite(CompactSpellDictionaryIndexTest.class);
+	}
+
+	private File fFile;
+
+	public CompactSpellDictionaryIndexTest(String name) {
+		super(name);
+	}
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFile= File.createTempFile("spelling", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		List hashes= new ArrayList();
+		List words= new ArrayList();
+		hashes.add(bytes("ABC")); //$NON-NLS-1$
+		words.add(Arrays.asList(new byte[][] { bytes("abc"), bytes("abk") })); //$NON-NLS-1$ //$NON-NLS-2$
+		hashes.add(bytes("TRK")); //$NON-NLS-1$
+		words.add(Arrays.asList(new byte[][] { bytes("truck") })); //$NON-NLS-1$
+		hashes.add(bytes("\u00DCB")); //$NON-NLS-1$
+		words.add(Arrays.asList(new byte[][] { bytes("\u00FCber") })); //$NON-NLS-1$
+		CompactSpellDictionaryIndex.write(fFile, STAMP, KEY, hashes, words);
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		super.tearDown();
+	}
+
+	private static byte[] bytes(String string) throws Exception {
+		return string.getBytes("UTF-8"); //$NON-NLS-1$
+	}
+
+	private static List strings(List words) throws Exception {
+		if (words == null)
+			return null;
+		List result= new ArrayList();
+		for (int i= 0; i < words.size(); i++)
+			result.add(new String((byte[]) words.get(i), "UTF-8")); //$NON-NLS-1$
+		return result;
+	}
+
+	public void testLookup() throws Exception {
+		CompactSpellDictionaryIndex index= CompactSpellDictionaryIndex.open(fFile, STAMP, KEY);
+		assertNotNull(index);
+		assertFalse(index.isEmpty());
+
+		assertTrue(index.contains(bytes("ABC"), new byte[][] { bytes("abk") })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(index.contains(bytes("TRK"), new byte[][] { bytes("Truck"), bytes("truck") })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(index.contains(bytes("\u00DCB"), new byte[][] { bytes("\u00FCber") })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(index.contains(bytes("TRK"), new byte[][] { bytes("Truck") })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(index.contains(bytes("AB"), new byte[][] { bytes("abc") })); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertEquals(Arrays.asList(new String[] { "abc", "abk" }), strings(index.getWords(bytes("ABC"), Integer.MAX_VALUE))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList(new String[] { "abc" }), strings(index.getWords(bytes("ABC"), 1))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList(new String[] { "\u00FCber" }), strings(index.getWords(bytes("\u00DCB"), 1))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(index.getWords(bytes("XYZ"), Integer.MAX_VALUE)); //$NON-NLS-1$
+	}
+
+	public void testOutdatedIndex() throws Exception {
+		assertNull(CompactSpellDictionaryIndex.open(fFile, new SourceStamp(43, 1000), KEY));
+		assertNull(CompactSpellDictionaryIndex.open(fFile, new SourceStamp(42, 1001), KEY));
+		assertNull(CompactSpellDictionaryIndex.open(fFile, STAMP, "other")); //$NON-NLS-1$
+		assertNull(CompactSpellDictionaryIndex.open(new File(fFile.getPath() + ".missing"), STAMP, KEY)); //$NON-NLS-1$
+	}
+
+	public void testCorruptIndex() throws Exception {
+		long length= fFile.length();
+		RandomAccessFile file= new RandomAccessFile(fFile, "rw"); //$NON-NLS-1$
+		try {
+			file.setLength(length - 1);
+			assertNull(CompactSpellDictionaryIndex.open(fFile, STAMP, KEY));
+
+			// the number of words no longer fits the tables
+			file.setLength(length);
+			int position= 24 + 4 + KEY.length() + 4;
+			file.seek(position);
+			int wordCount= file.readInt();
+			file.seek(position);
+			file.writeInt(wordCount + 1000);
+			assertNull(CompactSpellDictionaryIndex.open(fFile, STAMP, KEY));
+		} finally {
+			file.close();
+		}
+	}
+
+	public void testSourceStamp() throws Exception {
+		File source= File.createTempFile("spelling", ".dictionary"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			source.setLastModified(1000000);
+			SourceStamp stamp= SourceStamp.of(source.toURI().toURL());
+			assertNotNull(stamp);
+			CompactSpellDictionaryIndex.write(fFile, stamp, KEY, new ArrayList(), new ArrayList());
+			assertNotNull(CompactSpellDictionaryIndex.open(fFile, SourceStamp.of(source.toURI().toURL()), KEY));
+
+			// a modified word list invalidates the index
+			source.setLastModified(2000000);
+			assertNull(CompactSpellDictionaryIndex.open(fFile, SourceStamp.of(source.toURI().toURL()), KEY));
+		} finally {
+			source.delete();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package p;
+class A0 {
+	void /*target*/m(int i) { }
+}
+class A1 extends A0 {
+	void /*ripple*/m(int i) { }
+}
+class A2 extends A1 {
+	void /*ripple*/m(int i) { }
+}
+class A3 extends A2 {
+	void /*ripple*/m(int i) { }
+}
+class A4 extends A3 {
+	void /*ripple*/m(int i) { }
+}
+class A5 extends A4 {
+	void /*ripple*/m(int i) { }
+}
+class A6 extends A5 {
+	void /*ripple*/m(int i) { }
+}
+class A7 extends A6 {
+	void /*ripple*/m(int i) { }
+}
+class A8 extends A7 {
+	void /*ripple*/m(int i) { }
+}
+class A9 extends A8 {
+	void /*ripple*/m(int i) { }
+}
+class A10 extends A9 {
+	void /*ripple*/m(int i) { }
+}
+class A11 extends A10 {
+	void /*ripple*/m(int i) { }
+}
+class A12 extends A11 {
+	void /*ripple*/m(int i) { }
+}
+class A13 extends A12 {
+	void /*ripple*/m(int i) { }
+}
+class A14 extends A13 {
+	void /*ripple*/m(int i) { }
+}
+class A15 extends A14 {
+	void /*ripple*/m(int i) { }
+}
+class A16 extends A15 {
+	void /*ripple*/m(int i) { }
+}
+class A17 extends A16 {
+	void /*ripple*/m(int i) { }
+}
+class A18 extends A17 {
+	void /*ripple*/m(int i) { }
+}
+class A19 extends A18 {
+	void /*ripple*/m(int i) { }
+}
+class B extends A10 {
+	void /*ripple*/m(int i) { }
+}
+interface J {
+	void /*ripple*/m(int i);
+}
+interface K extends J {
+	void /*ripple*/m(int i);
+}
+class C extends A19 implements K {
+}
+class X {
+	void m(int i) { }
+}
+interface L {
+	void m(int i);
+}
+class Y extends X implements L {
+}
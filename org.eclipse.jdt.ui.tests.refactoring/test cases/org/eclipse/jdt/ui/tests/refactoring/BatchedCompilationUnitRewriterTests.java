@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.TextChange;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import org.eclipse.jdt.internal.corext.refactoring.structure.BatchedCompilationUnitRewriter;
+import org.eclipse.jdt.internal.corext.refactoring.structure.CompilationUnitRewrite;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+
+public class BatchedCompilationUnitRewriterTests extends RefactoringTest {
+
+	private static final Class clazz= BatchedCompilationUnitRewriterTests.class;
+
+	/** More units per project than fit into one batch. */
+	private static final int UNIT_COUNT= BatchedCompilationUnitRewriter.BATCH_SIZE + 5;
+
+	private IJavaProject fProject2;
+
+	public BatchedCompilationUnitRewriterTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new RefactoringTestSetup(test);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject2= JavaProjectHelper.createJavaProject("TestProject2", "bin");
+		JavaProjectHelper.addRTJar(fProject2);
+	}
+
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fProject2);
+		super.tearDown();
+	}
+
+	/*
+	 * Creates units that extend a type in another unit of the same project and refer to a
+	 * type that does not exist.
+	 */
+	private void createUnits(IPackageFragment pack, List result) throws Exception {
+		String name= pack.getElementName();
+		createCU(pack, "Base.java", "package " + name + ";\npublic class Base {\n}\n");
+		for (int i= 0; i < UNIT_COUNT; i++)
+			result.add(createCU(pack, "A" + i + ".java", "package " + name + ";\nclass A" + i + " extends Base {\n\tMissing fMissing;\n}\n"));
+	}
+
+	public void testRewriteInBatches() throws Exception {
+		final List cus= new ArrayList();
+		createUnits(getPackageP(), cus);
+		createUnits(JavaProjectHelper.addSourceContainer(fProject2, "src").createPackageFragment("q", true, null), cus);
+
+		final List rewritten= new ArrayList();
+		TextChangeManager manager= new TextChangeManager();
+		BatchedCompilationUnitRewriter rewriter= new BatchedCompilationUnitRewriter(new BatchedCompilationUnitRewriter.IRewriteRequestor() {
+			public void rewrite(CompilationUnitRewrite cuRewrite) throws CoreException {
+				rewritten.add(cuRewrite.getCu());
+				TypeDeclaration type= (TypeDeclaration) cuRewrite.getRoot().types().get(0);
+				ITypeBinding binding= type.resolveBinding();
+				assertNotNull(binding);
+				assertEquals(cuRewrite.getCu().getParent().getElementName() + ".Base", binding.getSuperclass().getQualifiedName());
+				// bindings are recovered like by RefactoringASTParser
+				FieldDeclaration field= type.getFields()[0];
+				assertNotNull(field.getType().resolveBinding());
+				cuRewrite.getImportRewrite().addImport("java.util.List");
+			}
+		}, manager);
+		rewriter.rewrite((ICompilationUnit[]) cus.toArray(new ICompilationUnit[cus.size()]), new NullProgressMonitor());
+
+		assertEquals(cus, rewritten);
+		assertEquals(2 * UNIT_COUNT, manager.getAllCompilationUnits().length);
+		for (int i= 0; i < cus.size(); i++) {
+			TextChange change= manager.get((ICompilationUnit) cus.get(i));
+			assertTrue(change.getPreviewContent(new NullProgressMonitor()).indexOf("import java.util.List;") != -1);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.text.edits.InsertEdit;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenameAnalyzeUtil;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+
+public class RenameAnalyzeUtilTests extends RefactoringTest {
+
+	private static final Class clazz= RenameAnalyzeUtilTests.class;
+
+	private static final int UNIT_COUNT= 20;
+
+	public RenameAnalyzeUtilTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new RefactoringTestSetup(test);
+	}
+
+	private ICompilationUnit[] createUnits() throws Exception {
+		ICompilationUnit[] cus= new ICompilationUnit[UNIT_COUNT];
+		for (int i= 0; i < cus.length; i++)
+			cus[i]= createCU(getPackageP(), "A" + i + ".java", "package p;\nclass A" + i + " {\n}\n");
+		return cus;
+	}
+
+	private TextChangeManager createChangeManager(ICompilationUnit[] cus) {
+		TextChangeManager manager= new TextChangeManager();
+		for (int i= 0; i < cus.length; i++) {
+			CompilationUnitChange change= new CompilationUnitChange(cus[i].getElementName(), cus[i]);
+			change.setEdit(new InsertEdit(0, "// changed\n"));
+			manager.manage(cus[i], change);
+		}
+		return manager;
+	}
+
+	public void testCreateNewWorkingCopies() throws Exception {
+		ICompilationUnit[] cus= createUnits();
+		WorkingCopyOwner owner= new WorkingCopyOwner() {};
+		ICompilationUnit[] workingCopies= RenameAnalyzeUtil.createNewWorkingCopies(cus, createChangeManager(cus), owner, new SubProgressMonitor(new NullProgressMonitor(), 1));
+		try {
+			assertEquals(UNIT_COUNT, workingCopies.length);
+			for (int i= 0; i < workingCopies.length; i++) {
+				assertEquals(cus[i], workingCopies[i].getPrimary());
+				assertTrue(workingCopies[i].getSource().startsWith("// changed\n"));
+			}
+			assertEquals(UNIT_COUNT, JavaCore.getWorkingCopies(owner).length);
+		} finally {
+			for (int i= 0; i < workingCopies.length; i++)
+				workingCopies[i].discardWorkingCopy();
+		}
+	}
+
+	public void testCancelDiscardsWorkingCopies() throws Exception {
+		ICompilationUnit[] cus= createUnits();
+		WorkingCopyOwner owner= new WorkingCopyOwner() {};
+		// cancels while the first working copies are being created
+		NullProgressMonitor monitor= new NullProgressMonitor() {
+			private int fWorked;
+			public void internalWorked(double work) {
+				if (++fWorked == 5)
+					setCanceled(true);
+			}
+		};
+		try {
+			RenameAnalyzeUtil.createNewWorkingCopies(cus, createChangeManager(cus), owner, new SubProgressMonitor(monitor, 1));
+			fail("analysis not canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertEquals(0, JavaCore.getWorkingCopies(owner).length);
+	}
+}
@@ -84,6 +84,22 @@ public class RippleMethodFinderTests extends AbstractCUTestCase {
 		}
 
 		IMethod[] result= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null);
+		assertRippleMethods(rippleMethods, result);
+
+		// the hierarchies of a refactoring are reused by the following searches
+		RippleMethodFinder2.HierarchyCache hierarchyCache= new RippleMethodFinder2.HierarchyCache();
+		try {
+			for (int i= 0; i < 2; i++) {
+				result= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null, hierarchyCache);
+				assertRippleMethods(rippleMethods, result);
+			}
+		} finally {
+			hierarchyCache.dispose();
+		}
+	}
+
+	private static void assertRippleMethods(List/*<IMethod>*/ expected, IMethod[] result) {
+		List/*<IMethod>*/ rippleMethods= new ArrayList(expected);
 		for (int i= 0; i < result.length; i++) {
 			IMethod method= result[i];
 			assertTrue("method not found: " + method, rippleMethods.remove(method));
@@ -127,5 +143,9 @@ public class RippleMethodFinderTests extends AbstractCUTestCase {
 	public void test12() throws Exception {
 		perform();
 	}
+	public void test13() throws Exception {
+		// more declaring types than the initial capacity of the union-find
+		perform();
+	}
 
 }
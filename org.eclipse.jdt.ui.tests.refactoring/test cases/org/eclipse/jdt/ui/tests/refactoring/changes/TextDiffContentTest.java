@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.refactoring.changes;
 
+import java.io.ByteArrayInputStream;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -19,6 +21,10 @@ import junit.framework.TestSuite;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+
 import org.eclipse.text.edits.MultiTextEdit;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEditGroup;
@@ -28,6 +34,7 @@ import org.eclipse.jface.text.IRegion;
 
 import org.eclipse.ltk.core.refactoring.DocumentChange;
 import org.eclipse.ltk.core.refactoring.TextEditChangeGroup;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
 
 /**
  * Ensure that the diffs between text edits do not include
@@ -189,5 +196,118 @@ public class TextDiffContentTest extends TestCase {
 
 	}
 
+	public void testRegionPreviewMatchesFullPreview() throws Exception {
+		TextEditChangeGroup[] groups= { fChange1, fChange2, fChange3 };
+		for (int context= 0; context < 4; context++) {
+			for (int i= 0; i < groups.length; i++) {
+				String preview= getPreview(groups[i], context);
+				fDocumentChange.setKeepPreviewEdits(true);
+				try {
+					assertEquals(preview, getPreview(groups[i], context));
+				} finally {
+					fDocumentChange.setKeepPreviewEdits(false);
+				}
+			}
+		}
+	}
+
+	public void testRegionPreviewOfDisabledGroup() throws Exception {
+		fChange1.setEnabled(false);
+		assertEquals("", getPreview(fChange1, 0));
+		assertEquals("\tMagicCall();\n" +
+				"\t// ]]] end\n" +
+				"\t}\n",
+			getPreview(fChange1, 2));
+	}
+
+	public void testCachedPreviewContent() throws Exception {
+		String preview= fDocumentChange.getPreviewContent(new NullProgressMonitor());
+		assertEquals("// add comment\n" +
+				"// my file\n" +
+				"\n" +
+				"CMyClass::CMyClass()\n" +
+				"\t{\n" +
+				"\tGoodCall();\n" +
+				"\t// [[[ begin\n" +
+				"\tMagicCall();\n" +
+				"\t// ]]] end\n" +
+				"\tFinalCall();\n" +
+				"\t}\n" +
+				"\n" +
+				"// other stuff\n",
+			preview);
+		assertEquals(preview, fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+		assertEquals(preview, fDocumentChange.getPreviewDocument(new NullProgressMonitor()).get());
+
+		fChange2.setEnabled(false);
+		assertEquals(preview.substring("// add comment\n".length()), fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+		fChange2.setEnabled(true);
+		assertEquals(preview, fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+
+		fDocument.replace(fDocument.getLength(), 0, "// more stuff\n");
+		assertEquals(preview + "// more stuff\n", fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+		assertEquals(preview + "// more stuff\n", fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+	}
+
+	public void testCachedPreviewInvalidation() throws Exception {
+		// the preview is only cached for documents with a modification stamp
+		fDocument.replace(0, 0, "");
+		String preview= fDocumentChange.getPreviewContent(new NullProgressMonitor());
+		assertSame(preview, fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+
+		fChange2.setEnabled(false);
+		fChange2.setEnabled(true);
+		String recomputed= fDocumentChange.getPreviewContent(new NullProgressMonitor());
+		assertEquals(preview, recomputed);
+		assertNotSame(preview, recomputed);
+
+		fDocumentChange.dispose();
+		String afterDispose= fDocumentChange.getPreviewContent(new NullProgressMonitor());
+		assertEquals(preview, afterDispose);
+		assertNotSame(recomputed, afterDispose);
+	}
+
+	public void testCachedPreviewKeepsEdits() throws Exception {
+		// the preview is only cached for documents with a modification stamp
+		fDocument.replace(0, 0, "");
+		String preview= fDocumentChange.getPreviewContent(new NullProgressMonitor());
+		fDocumentChange.setKeepPreviewEdits(true);
+		try {
+			assertEquals(preview, fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+			IRegion region= fDocumentChange.getPreviewEdit(fEdit1).getRegion();
+			assertEquals("\tFinalCall();\n", preview.substring(region.getOffset(), region.getOffset() + region.getLength()));
+			assertEquals(preview, fDocumentChange.getPreviewContent(new NullProgressMonitor()));
+			region= fDocumentChange.getPreviewEdit(fEdit2).getRegion();
+			assertEquals(0, region.getOffset());
+			assertEquals("// add comment\n".length(), region.getLength());
+		} finally {
+			fDocumentChange.setKeepPreviewEdits(false);
+		}
+	}
+
+	public void testCachedPreviewOfTextFileChange() throws Exception {
+		IProject project= ResourcesPlugin.getWorkspace().getRoot().getProject("TextDiffContentTest");
+		project.create(null);
+		try {
+			project.open(null);
+			IFile file= project.getFile("file.txt");
+			file.create(new ByteArrayInputStream(MODIFIED_SOURCE_CONTENTS.getBytes()), true, null);
+			TextFileChange change= new TextFileChange("Changes to file", file);
+			change.setEdit(new ReplaceEdit(0, 0, "// add comment\n"));
+
+			// the document of the file is acquired again for each preview
+			String preview= change.getPreviewContent(new NullProgressMonitor());
+			assertEquals("// add comment\n" + MODIFIED_SOURCE_CONTENTS, preview);
+			assertSame(preview, change.getPreviewContent(new NullProgressMonitor()));
+
+			file.setContents(new ByteArrayInputStream(("// more stuff\n" + MODIFIED_SOURCE_CONTENTS).getBytes()), true, false, null);
+			String recomputed= change.getPreviewContent(new NullProgressMonitor());
+			assertEquals("// add comment\n// more stuff\n" + MODIFIED_SOURCE_CONTENTS, recomputed);
+			assertSame(recomputed, change.getPreviewContent(new NullProgressMonitor()));
+			change.dispose();
+		} finally {
+			project.delete(true, true, null);
+		}
+	}
 }
 
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
+
+import org.eclipse.jdt.ui.tests.refactoring.infra.RefactoringPerformanceTestSetup;
+
+/**
+ * Measures finding the ripple methods of an interface method in a wide hierarchy: every
+ * implementor of the interface has a subclass that marries the method with another interface.
+ */
+public class RippleMethodFinderPerfTests extends RepeatingRefactoringPerformanceTestCase {
+
+	public static Test suite() {
+		// we must make sure that cold is executed before warm
+		OrderedTestSuite suite= new OrderedTestSuite(RippleMethodFinderPerfTests.class, new String[] {
+			"testCold_10",
+			"test_10",
+			"test_100",
+			"test_500",
+		});
+		return new RefactoringPerformanceTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringPerformanceTestSetup(someTest);
+	}
+
+	public RippleMethodFinderPerfTests(String name) {
+		super(name);
+	}
+
+	public void testCold_10() throws Exception {
+		executeRefactoring(10, 0, false, 10);
+	}
+
+	public void test_10() throws Exception {
+		executeRefactoring(10, 0, true, 10);
+	}
+
+	public void test_100() throws Exception {
+		tagAsSummary("Find ripple methods in a wide hierarchy", Dimension.ELAPSED_PROCESS);
+		executeRefactoring(100, 0, true, 10);
+	}
+
+	public void test_500() throws Exception {
+		executeRefactoring(500, 0, true, 5);
+	}
+
+	protected void doExecuteRefactoring(int numberOfCus, int numberOfRefs, boolean measure) throws Exception {
+		ICompilationUnit cunit= generateSources(numberOfCus);
+		IMethod method= cunit.findPrimaryType().getMethod("run", new String[0]);
+		joinBackgroudActivities();
+		if (measure)
+			startMeasuring();
+		IMethod[] rippleMethods= RippleMethodFinder2.getRelatedMethods(method, new NullProgressMonitor(), null);
+		if (measure)
+			stopMeasuring();
+		// I.run(), and C<i>.run() and J<i>.run() for each implementor
+		assertEquals(1 + 2 * numberOfCus, rippleMethods.length);
+	}
+
+	private ICompilationUnit generateSources(int numberOfCus) throws Exception {
+		IPackageFragment pack= getTestProject().getSourceFolder().createPackageFragment("wide", false, null);
+		ICompilationUnit result= pack.createCompilationUnit("I.java", "package wide;\npublic interface I {\n    void run();\n}\n", false, null);
+		for (int i= 0; i < numberOfCus; i++) {
+			pack.createCompilationUnit("J" + i + ".java", "package wide;\npublic interface J" + i + " {\n    void run();\n}\n", false, null);
+			pack.createCompilationUnit("C" + i + ".java", "package wide;\npublic class C" + i + " implements I {\n    public void run() {\n    }\n}\n", false, null);
+			pack.createCompilationUnit("D" + i + ".java", "package wide;\npublic class D" + i + " extends C" + i + " implements J" + i + " {\n}\n", false, null);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
+import org.eclipse.jdt.internal.junit.runner.TestExecution;
+
+/**
+ * Measures the throughput of the line based and the framed protocol between the
+ * {@link RemoteTestRunner} and the {@link RemoteTestRunnerClient}. A runner that sends the events
+ * of a fast test run without running any tests stands in for the test VM.
+ */
+public class JUnitProtocolPerfTest extends JdtPerformanceTestCase {
+
+	private static final int TEST_COUNT= 20000;
+	private static final int FAILURE_INTERVAL= 100;
+	private static final long TIMEOUT= 5 * 60 * 1000;
+
+	private class StandInRunner extends RemoteTestRunner {
+
+		StandInRunner(int port, boolean framed) {
+			List args= new ArrayList();
+			args.add("-classNames");
+			args.add("p.StandIn");
+			args.add("-port");
+			args.add(String.valueOf(port));
+			if (framed)
+				args.add("-framed");
+			init((String[]) args.toArray(new String[args.size()]));
+		}
+
+		public void runTests(TestExecution execution) {
+			startMeasuring();
+			long startTime= System.currentTimeMillis();
+			notifyTestRunStarted(TEST_COUNT);
+			for (int i= 0; i < TEST_COUNT; i++)
+				notifyTestTreeEntry(i + ",test" + i + "(p.StandIn),false,1");
+
+			for (int i= 0; i < TEST_COUNT; i++) {
+				String test= i + ",test" + i + "(p.StandIn)";
+				sendMessage(MessageIds.TEST_START + test);
+				flush();
+				if (i % FAILURE_INTERVAL == 0) {
+					sendMessage(MessageIds.TEST_FAILED + test);
+					sendMessage(MessageIds.TRACE_START);
+					sendMessage("junit.framework.AssertionFailedError: test" + i + "\n\tat p.StandIn.test" + i + "(StandIn.java:" + i + ")");
+					sendMessage(MessageIds.TRACE_END);
+					flush();
+				}
+				sendMessage(MessageIds.TEST_END + test);
+			}
+			notifyListenersOfTestEnd(execution, startTime);
+		}
+
+		void start() {
+			new Thread("StandInRunner") {
+				public void run() {
+					StandInRunner.this.run();
+				}
+			}.start();
+		}
+	}
+
+	private class CountingListener implements ITestRunListener2 {
+
+		int fTreeEntries;
+		int fStarted;
+		int fEnded;
+		int fFailed;
+		boolean fDone;
+
+		public void testRunStarted(int testCount) {
+		}
+
+		public void testRunEnded(long elapsedTime) {
+			stopMeasuring();
+			done();
+		}
+
+		public void testRunStopped(long elapsedTime) {
+			done();
+		}
+
+		public void testRunTerminated() {
+			done();
+		}
+
+		public void testStarted(String testId, String testName) {
+			fStarted++;
+		}
+
+		public void testEnded(String testId, String testName) {
+			fEnded++;
+		}
+
+		public void testTreeEntry(String description) {
+			fTreeEntries++;
+		}
+
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			assertTrue(trace, trace.startsWith("junit.framework.AssertionFailedError: test" + testId));
+			fFailed++;
+		}
+
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+		}
+
+		private synchronized void done() {
+			fDone= true;
+			notifyAll();
+		}
+
+		synchronized void waitUntilDone() throws InterruptedException {
+			long end= System.currentTimeMillis() + TIMEOUT;
+			while (!fDone && System.currentTimeMillis() < end)
+				wait(1000);
+			assertTrue("test run did not end", fDone);
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(JUnitProtocolPerfTest.class);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return someTest;
+	}
+
+	public JUnitProtocolPerfTest(String name) {
+		super(name);
+	}
+
+	public void testLineProtocol() throws Exception {
+		measure(false);
+	}
+
+	public void testFramedProtocol() throws Exception {
+		measure(true);
+	}
+
+	private void measure(boolean framed) throws Exception {
+		for (int i= 0; i < 5; i++) {
+			CountingListener listener= new CountingListener();
+			int port= findFreePort();
+			new RemoteTestRunnerClient().startListening(new ITestRunListener2[] { listener }, port);
+			new StandInRunner(port, framed).start();
+			listener.waitUntilDone();
+
+			assertEquals(TEST_COUNT, listener.fTreeEntries);
+			assertEquals(TEST_COUNT, listener.fStarted);
+			assertEquals(TEST_COUNT, listener.fEnded);
+			assertEquals(TEST_COUNT / FAILURE_INTERVAL, listener.fFailed);
+		}
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	private static int findFreePort() throws IOException {
+		ServerSocket socket= new ServerSocket(0);
+		try {
+			return socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -34,6 +34,7 @@ public class JUnitJUnitTests {
 
 		suite.addTest(TestRunSessionSerializationTests3.suite());
 		suite.addTest(TestRunSessionSerializationTests4.suite());
+		suite.addTestSuite(TestRunSessionSwapTest.class);
 
 		suite.addTestSuite(JUnit3TestFinderTest.class);
 		suite.addTestSuite(JUnit4TestFinderTest.class);
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.junit.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestElement.Result;
+
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRoot;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+public class TestRunSessionSwapTest extends TestCase {
+
+	private TestRunSession fSession;
+
+	protected void setUp() throws Exception {
+		fSession= new TestRunSession("TestRunSessionSwapTest", null);
+		TestRoot root= fSession.getTestRoot();
+
+		TestSuiteElement suite= (TestSuiteElement) fSession.createTestElement(root, "1", "p.ATest", true, 0);
+		TestElement ok= fSession.createTestElement(suite, "2", "testOk(p.ATest)", false, 0);
+		TestElement failed= fSession.createTestElement(suite, "3", "testFailed(p.ATest)", false, 0);
+		TestCaseElement ignored= (TestCaseElement) fSession.createTestElement(suite, "4", "testIgnored(p.ATest)", false, 0);
+		TestSuiteElement nested= (TestSuiteElement) fSession.createTestElement(suite, "5", "p.BTest", true, 0);
+		TestElement parameterized= fSession.createTestElement(nested, "6", "[0] (x)", false, 0);
+		TestElement error= fSession.createTestElement(nested, "id-7", "testError(p.BTest)", false, 0);
+		fSession.createTestElement(root, "8", "p.CTest", true, 0);
+
+		fSession.registerTestEnded(ok, true);
+		fSession.registerTestFailureStatus(failed, Status.FAILURE, "junit.framework.ComparisonFailure: \u00e4\n\tat p.ATest.testFailed(ATest.java:10)", "expected", "actual");
+		fSession.registerTestEnded(failed, true);
+		ignored.setIgnored(true);
+		fSession.registerTestEnded(ignored, true);
+		fSession.registerTestEnded(parameterized, true);
+		fSession.registerTestFailureStatus(error, Status.ERROR, "java.lang.NullPointerException", null, null);
+		fSession.registerTestEnded(error, true);
+	}
+
+	protected void tearDown() throws Exception {
+		fSession.removeSwapFile();
+		fSession= null;
+	}
+
+	public void testSwapOutAndIn() throws Exception {
+		String expected= dump(fSession.getTestRoot());
+		Result result= fSession.getTestResult(true);
+		int failures= fSession.getAllFailedTestElements().length;
+
+		fSession.swapOut();
+		assertEquals(result, fSession.getTestResult(true));
+		assertTrue(Double.isNaN(fSession.getElapsedTimeInSeconds()));
+
+		assertEquals(expected, dump(fSession.getTestRoot()));
+		assertEquals(5, fSession.getStartedCount());
+		assertEquals(1, fSession.getFailureCount());
+		assertEquals(1, fSession.getErrorCount());
+		assertEquals(1, fSession.getIgnoredCount());
+		assertEquals(failures, fSession.getAllFailedTestElements().length);
+
+		// swapped in elements are swapped out again without rewriting the swap file
+		fSession.swapOut();
+		assertEquals(expected, dump(fSession.getTestRoot()));
+	}
+
+	public void testGetTestElementAfterSwapIn() throws Exception {
+		fSession.swapOut();
+		TestRoot root= fSession.getTestRoot();
+
+		// the nested suite has not been paged in yet
+		TestElement parameterized= fSession.getTestElement("6");
+		assertNotNull(parameterized);
+		assertEquals("[0] (x)", parameterized.getTestName());
+		assertEquals("p.BTest", parameterized.getParent().getTestName());
+
+		TestElement error= fSession.getTestElement("id-7");
+		assertNotNull(error);
+		assertEquals(Status.ERROR, error.getStatus());
+		assertEquals("testError", ((TestCaseElement) error).getTestMethodName());
+		assertEquals("p.BTest", ((TestCaseElement) error).getTestClassName());
+
+		TestSuiteElement suite= (TestSuiteElement) root.getChildren()[0];
+		assertSame(suite, fSession.getTestElement("1"));
+		assertSame(parameterized, ((TestSuiteElement) suite.getChildren()[3]).getChildren()[0]);
+		assertNull(fSession.getTestElement("42"));
+	}
+
+	private static String dump(TestSuiteElement root) {
+		StringBuffer buf= new StringBuffer();
+		dump(root, 0, buf);
+		return buf.toString();
+	}
+
+	private static void dump(TestElement element, int indent, StringBuffer buf) {
+		for (int i= 0; i < indent; i++)
+			buf.append("  ");
+		buf.append(element.getId()).append(" | ").append(element.getTestName());
+		buf.append(" | ").append(element.getStatus()).append(" | ").append(element.getTestResult(false)).append(" | ").append(element.getTestResult(true));
+		buf.append(" | ").append(element.getProgressState()).append(" | ").append(element.getElapsedTimeInSeconds());
+		buf.append(" | ").append(element.getTrace()).append(" | ").append(element.getExpected()).append(" | ").append(element.getActual());
+		buf.append('\n');
+		if (element instanceof TestSuiteElement) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			for (int i= 0; i < children.length; i++)
+				dump((TestElement) children[i], indent + 1, buf);
+		}
+	}
+}
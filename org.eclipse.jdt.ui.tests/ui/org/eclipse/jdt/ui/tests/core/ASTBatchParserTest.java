@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+
+public class ASTBatchParserTest extends TestCase {
+
+	private static final Class THIS= ASTBatchParserTest.class;
+
+	private static final int UNIT_COUNT= 12;
+
+	private static final class RecordingParser extends ASTBatchParser {
+		private final long fBudget;
+		private int fBatches;
+
+		RecordingParser(long budget) {
+			super(true);
+			fBudget= budget;
+		}
+
+		protected long getSourceBudget() {
+			return fBudget;
+		}
+
+		protected ASTParser createParser(IJavaProject project) {
+			fBatches++;
+			return super.createParser(project);
+		}
+	}
+
+	private IJavaProject fJProject1;
+	private IJavaProject fJProject2;
+
+	public ASTBatchParserTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		fJProject2= JavaProjectHelper.createJavaProject("TestProject2", "bin");
+		assertNotNull("jre is null", JavaProjectHelper.addRTJar(fJProject1));
+		assertNotNull("jre is null", JavaProjectHelper.addRTJar(fJProject2));
+	}
+
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+		JavaProjectHelper.delete(fJProject2);
+	}
+
+	private static ICompilationUnit[] createUnits(IJavaProject project, int count) throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(project, "src");
+		IPackageFragment pack= root.createPackageFragment("p", true, null);
+		ICompilationUnit[] result= new ICompilationUnit[count];
+		for (int i= 0; i < count; i++)
+			result[i]= pack.createCompilationUnit("A" + i + ".java", "package p;\npublic class A" + i + " {\n}\n", true, null);
+		return result;
+	}
+
+	/*
+	 * Parses the given units and returns them in the order they have been accepted.
+	 */
+	private static List<ICompilationUnit> parse(ASTBatchParser parser, ICompilationUnit[] units) {
+		final List<ICompilationUnit> accepted= new ArrayList<ICompilationUnit>();
+		parser.createASTs(units, new String[0], new ASTRequestor() {
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				assertNotNull(ast);
+				accepted.add(source);
+			}
+		}, null);
+		return accepted;
+	}
+
+	private static void assertAcceptedOnce(ICompilationUnit[] units, List<ICompilationUnit> accepted) {
+		assertEquals(units.length, accepted.size());
+		for (int i= 0; i < units.length; i++)
+			assertTrue(accepted.contains(units[i]));
+	}
+
+	public void testOneBatchPerUnit() throws Exception {
+		ICompilationUnit[] units= createUnits(fJProject1, UNIT_COUNT);
+		// a batch contains at least one unit, whatever the budget
+		RecordingParser parser= new RecordingParser(0);
+		assertAcceptedOnce(units, parse(parser, units));
+		assertEquals(UNIT_COUNT, parser.fBatches);
+	}
+
+	public void testOneBatch() throws Exception {
+		ICompilationUnit[] units= createUnits(fJProject1, UNIT_COUNT);
+		RecordingParser parser= new RecordingParser(Long.MAX_VALUE / 8);
+		assertAcceptedOnce(units, parse(parser, units));
+		assertEquals(1, parser.fBatches);
+	}
+
+	public void testOneBatchPerProject() throws Exception {
+		ICompilationUnit[] units1= createUnits(fJProject1, UNIT_COUNT);
+		ICompilationUnit[] units2= createUnits(fJProject2, UNIT_COUNT);
+		ICompilationUnit[] units= new ICompilationUnit[2 * UNIT_COUNT];
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			units[2 * i]= units1[i];
+			units[2 * i + 1]= units2[i];
+		}
+		RecordingParser parser= new RecordingParser(Long.MAX_VALUE / 8);
+		assertAcceptedOnce(units, parse(parser, units));
+		assertEquals(2, parser.fBatches);
+	}
+
+	public void testBudgetSplitsBatches() throws Exception {
+		ICompilationUnit[] units= createUnits(fJProject1, UNIT_COUNT);
+		long size= units[0].getSource().length();
+		// the budget factor stays below 4, so a batch holds less than 4 * 3 units
+		RecordingParser parser= new RecordingParser(3 * size);
+		assertAcceptedOnce(units, parse(parser, units));
+		assertTrue(parser.fBatches >= 2);
+		assertTrue(parser.fBatches <= UNIT_COUNT);
+
+		ASTBatchParser unlimited= new ASTBatchParser(true);
+		assertAcceptedOnce(units, parse(unlimited, units));
+	}
+}
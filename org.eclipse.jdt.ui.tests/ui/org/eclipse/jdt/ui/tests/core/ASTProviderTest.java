@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,8 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 
 import org.eclipse.jdt.ui.JavaUI;
@@ -138,6 +140,111 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	private static ICompilationUnit commit(ICompilationUnit cu, String oldText, String newText) throws Exception {
+		cu.becomeWorkingCopy(null);
+		try {
+			String source= cu.getBuffer().getContents();
+			cu.getBuffer().replace(source.indexOf(oldText), oldText.length(), newText);
+			cu.commitWorkingCopy(true, null);
+		} finally {
+			cu.discardWorkingCopy();
+		}
+		return cu;
+	}
+
+	public void testRecentASTsOfUnchangedUnits() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class A {\n");
+		buf.append("    public int foo() {\n");
+		buf.append("        return 1;\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cuA= pack1.createCompilationUnit("A.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class B {\n");
+		buf.append("    public int bar(A a) {\n");
+		buf.append("        return a.foo();\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cuB= pack1.createCompilationUnit("B.java", buf.toString(), false, null);
+
+		CompilationUnit astA= SharedASTProvider.getAST(cuA, SharedASTProvider.WAIT_YES, null);
+		CompilationUnit astB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+		assertNotNull(astA);
+		assertNotNull(astB);
+		assertSame(astA, SharedASTProvider.getAST(cuA, SharedASTProvider.WAIT_YES, null));
+		assertSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+
+		// a changed method body only evicts the AST of the changed unit
+		commit(cuB, "return a.foo();", "return a.foo() + 1;");
+		assertSame(astA, SharedASTProvider.getAST(cuA, SharedASTProvider.WAIT_YES, null));
+		CompilationUnit newAstB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+		assertNotSame(astB, newAstB);
+		assertSame(newAstB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+		TypeDeclaration typeB= (TypeDeclaration)newAstB.types().get(0);
+		ReturnStatement returnB= (ReturnStatement)typeB.getMethods()[0].getBody().statements().get(0);
+		assertEquals(cuB.getSource().indexOf("return a.foo() + 1;"), returnB.getStartPosition());
+
+		// a changed signature can affect the bindings of the other units
+		commit(cuA, "public int foo()", "public long foo()");
+		assertNotSame(newAstB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+		assertNotSame(astA, SharedASTProvider.getAST(cuA, SharedASTProvider.WAIT_YES, null));
+	}
+
+	public void testRecentASTsOfReconciledUnits() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cuA= pack1.createCompilationUnit("A.java", "package test1;\npublic class A {\n    public int foo() {\n        return 1;\n    }\n}\n", false, null);
+		ICompilationUnit cuB= pack1.createCompilationUnit("B.java", "package test1;\npublic class B {\n    public int bar(A a) {\n        return a.foo();\n    }\n}\n", false, null);
+
+		CompilationUnit astB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+		assertSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+
+		cuA.becomeWorkingCopy(null);
+		try {
+			// a changed method body in a working copy does not affect other units
+			String source= cuA.getBuffer().getContents();
+			cuA.getBuffer().replace(source.indexOf("return 1;"), "return 1;".length(), "return 2;");
+			cuA.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+
+			// other units are resolved against the changed signature of the working copy
+			source= cuA.getBuffer().getContents();
+			cuA.getBuffer().replace(source.indexOf("public int foo()"), "public int foo()".length(), "public long foo()");
+			cuA.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			CompilationUnit newAstB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+			assertNotSame(astB, newAstB);
+			astB= newAstB;
+			assertSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+		} finally {
+			cuA.discardWorkingCopy();
+		}
+
+		// discarding the working copy reverts the signature
+		assertNotSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+	}
+
+	public void testRecentASTsOfRemovedUnits() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cuA= pack1.createCompilationUnit("A.java", "package test1;\npublic class A {\n}\n", false, null);
+		ICompilationUnit cuB= pack1.createCompilationUnit("B.java", "package test1;\npublic class B extends C {\n}\n", false, null);
+
+		CompilationUnit astB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+		assertSame(astB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+
+		// an added unit can resolve the missing types of others
+		pack1.createCompilationUnit("C.java", "package test1;\npublic class C {\n}\n", false, null);
+		CompilationUnit newAstB= SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null);
+		assertNotSame(astB, newAstB);
+		assertSame(newAstB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+
+		cuA.delete(true, null);
+		assertNotSame(newAstB, SharedASTProvider.getAST(cuB, SharedASTProvider.WAIT_YES, null));
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
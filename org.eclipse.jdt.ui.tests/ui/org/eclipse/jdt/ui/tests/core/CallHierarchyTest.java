@@ -20,6 +20,7 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IInitializer;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
@@ -90,6 +91,46 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedSecondLevelMethods, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testCallersCachedAcrossHierarchies() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod1();
+
+        Collection expectedMethods= new ArrayList();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+
+        // removing the call from B must invalidate the cached callers
+        ICompilationUnit cu= helper.getType2().getCompilationUnit();
+        cu.getBuffer().setContents(cu.getSource().replace("method1(); method2();", "method2();"));
+        cu.save(null, true);
+
+        expectedMethods.remove(helper.getMethod3());
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+    }
+
+    public void testFetchCallers() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod1();
+        IMethod secondLevelMethod= helper.getMethod3();
+
+        MethodWrapper wrapper= getSingleCallerRoot(method);
+        CallHierarchy.getDefault().fetchCalls(new MethodWrapper[] { wrapper }, 2, new NullProgressMonitor());
+
+        Collection expectedMethods= new ArrayList();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(secondLevelMethod);
+        MethodWrapper[] calls= wrapper.getCalls(new NullProgressMonitor());
+        helper.assertCalls(expectedMethods, calls);
+
+        Collection expectedSecondLevelMethods= new ArrayList();
+        expectedSecondLevelMethods.add(helper.getMethod4());
+        helper.assertCalls(expectedSecondLevelMethods, helper.findMethodWrapper(secondLevelMethod, calls).getCalls(new NullProgressMonitor()));
+    }
+
     public void testCallersNoResults() throws Exception {
         helper.createSimpleClasses();
 
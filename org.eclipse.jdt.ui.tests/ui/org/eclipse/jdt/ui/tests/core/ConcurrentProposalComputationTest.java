@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalCategory;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerRegistry;
+import org.eclipse.jdt.internal.ui.text.java.ConcurrentProposalComputation;
+
+
+public class ConcurrentProposalComputationTest extends TestCase {
+
+	private static final Class THIS= ConcurrentProposalComputationTest.class;
+
+	private static final String CATEGORY_ID= "org.eclipse.jdt.ui.tests.concurrentProposalCategory";
+
+	private static final String PARTITION= "__concurrent_test_partition";
+
+	private static final long TIMEOUT= 10000;
+
+	private class LateProposalsListener implements ConcurrentProposalComputation.ILateProposalsListener {
+		private final CountDownLatch fArrived= new CountDownLatch(1);
+
+		public void lateProposalsArrived(ConcurrentProposalComputation computation) {
+			fArrived.countDown();
+		}
+
+		boolean await() throws InterruptedException {
+			return fArrived.await(TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+
+		boolean hasArrived() {
+			return fArrived.getCount() == 0;
+		}
+	}
+
+	private List<CompletionProposalCategory> fCategories;
+
+	public ConcurrentProposalComputationTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		List<CompletionProposalCategory> categories= CompletionProposalComputerRegistry.getDefault().getProposalCategories();
+		for (Iterator<CompletionProposalCategory> it= categories.iterator(); it.hasNext();) {
+			CompletionProposalCategory category= it.next();
+			if (CATEGORY_ID.equals(category.getId()))
+				fCategories= Collections.singletonList(category);
+		}
+		assertNotNull("test category not contributed", fCategories);
+		waitUntilIdle();
+	}
+
+	protected void tearDown() throws Exception {
+		ConcurrentProposalComputer.open();
+		super.tearDown();
+	}
+
+	private ConcurrentProposalComputation createComputation(LateProposalsListener listener, long deadline) {
+		ContentAssistInvocationContext context= new ContentAssistInvocationContext(new Document("class A {}"), 9);
+		return new ConcurrentProposalComputation(context, PARTITION, listener, deadline);
+	}
+
+	private static List<String> getDisplayStrings(List<ICompletionProposal> proposals) {
+		List<String> result= new ArrayList<String>();
+		for (Iterator<ICompletionProposal> it= proposals.iterator(); it.hasNext();)
+			result.add(it.next().getDisplayString());
+		return result;
+	}
+
+	/*
+	 * Waits until the computer of the previous test has finished. A new computation is only
+	 * started after the previous one.
+	 */
+	private void waitUntilIdle() throws Exception {
+		ConcurrentProposalComputer.open();
+		ConcurrentProposalComputation computation= createComputation(new LateProposalsListener(), TIMEOUT);
+		assertEquals("computer still busy", 1, computation.compute(fCategories, new NullProgressMonitor()).size());
+	}
+
+	public void testComputeWaitsUntilDeadline() throws Exception {
+		LateProposalsListener listener= new LateProposalsListener();
+		ConcurrentProposalComputation computation= createComputation(listener, TIMEOUT);
+		List<ICompletionProposal> proposals= computation.compute(fCategories, new NullProgressMonitor());
+		assertEquals(Collections.singletonList(ConcurrentProposalComputer.PROPOSAL), getDisplayStrings(proposals));
+		assertFalse(computation.hasLateComputations());
+		assertFalse(listener.hasArrived());
+	}
+
+	public void testLateProposalsAfterDeadline() throws Exception {
+		ConcurrentProposalComputer.close();
+		LateProposalsListener listener= new LateProposalsListener();
+		ConcurrentProposalComputation computation= createComputation(listener, 100);
+		assertEquals(0, computation.compute(fCategories, new NullProgressMonitor()).size());
+		assertTrue(computation.hasLateComputations());
+		assertEquals(0, computation.takeLateProposals().size());
+
+		// late proposals are accepted until the computation is disposed
+		Thread.sleep(100);
+		ConcurrentProposalComputer.open();
+		assertTrue(listener.await());
+		assertFalse(computation.hasLateComputations());
+		assertEquals(Collections.singletonList(ConcurrentProposalComputer.PROPOSAL), getDisplayStrings(computation.takeLateProposals()));
+		assertEquals(0, computation.takeLateProposals().size());
+	}
+
+	public void testBusyComputerIsCalledAgain() throws Exception {
+		ConcurrentProposalComputer.close();
+		LateProposalsListener listener1= new LateProposalsListener();
+		ConcurrentProposalComputation computation1= createComputation(listener1, 0);
+		assertEquals(0, computation1.compute(fCategories, new NullProgressMonitor()).size());
+		assertTrue(computation1.hasLateComputations());
+
+		// the computer is still busy with the first computation
+		LateProposalsListener listener2= new LateProposalsListener();
+		ConcurrentProposalComputation computation2= createComputation(listener2, 0);
+		assertEquals(0, computation2.compute(fCategories, new NullProgressMonitor()).size());
+		assertTrue(computation2.hasLateComputations());
+
+		ConcurrentProposalComputer.open();
+		assertTrue(listener1.await());
+		assertEquals(1, computation1.takeLateProposals().size());
+		assertTrue(listener2.await());
+		assertEquals(1, computation2.takeLateProposals().size());
+	}
+
+	public void testDisposeDropsLateProposals() throws Exception {
+		ConcurrentProposalComputer.close();
+		LateProposalsListener listener= new LateProposalsListener();
+		ConcurrentProposalComputation computation= createComputation(listener, 0);
+		assertEquals(0, computation.compute(fCategories, new NullProgressMonitor()).size());
+		computation.dispose();
+		assertFalse(computation.hasLateComputations());
+
+		ConcurrentProposalComputer.open();
+		waitUntilIdle();
+		assertFalse(listener.hasArrived());
+		assertEquals(0, computation.takeLateProposals().size());
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+
+/**
+ * A concurrent proposal computer that waits for the test to open a gate. It is contributed for
+ * the test partition only, see {@link ConcurrentProposalComputationTest}.
+ */
+public class ConcurrentProposalComputer implements IJavaCompletionProposalComputer {
+
+	public static final String PROPOSAL= "concurrent";
+
+	private static volatile CountDownLatch fgGate;
+
+	/**
+	 * Makes the computations wait until {@link #open()} is called.
+	 */
+	public static void close() {
+		fgGate= new CountDownLatch(1);
+	}
+
+	/**
+	 * Releases the waiting computations and lets the following ones pass.
+	 */
+	public static void open() {
+		CountDownLatch gate= fgGate;
+		fgGate= null;
+		if (gate != null)
+			gate.countDown();
+	}
+
+	public void sessionStarted() {
+	}
+
+	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		CountDownLatch gate= fgGate;
+		if (gate != null) {
+			try {
+				gate.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		List<ICompletionProposal> result= new ArrayList<ICompletionProposal>();
+		result.add(new CompletionProposal(PROPOSAL, context.getInvocationOffset(), 0, PROPOSAL.length()));
+		return result;
+	}
+
+	public List<IContextInformation> computeContextInformation(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		return Collections.emptyList();
+	}
+
+	public String getErrorMessage() {
+		return null;
+	}
+
+	public void sessionEnded() {
+	}
+}
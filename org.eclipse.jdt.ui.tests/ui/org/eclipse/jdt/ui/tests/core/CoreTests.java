@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,11 +37,13 @@ public class CoreTests extends TestCase {
 		suite.addTest(AddImportTest.suite());
 		suite.addTest(SourceActionTests.suite());
 		suite.addTest(ASTNodesInsertTest.suite());
+		suite.addTest(ASTBatchParserTest.suite());
 		suite.addTest(BindingsNameTest.suite());
 		suite.addTest(CallHierarchyTest.suite());
 		suite.addTest(ClassPathDetectorTest.suite());
 		suite.addTest(CodeFormatterUtilTest.suite());
 		suite.addTest(CodeFormatterTest.suite());
+		suite.addTest(ConcurrentProposalComputationTest.suite());
 		suite.addTest(HierarchicalASTVisitorTest.suite());
 		suite.addTest(ImportOrganizeTest.suite());
 		suite.addTest(JavaElementLabelsTest.suite());
@@ -57,10 +59,13 @@ public class CoreTests extends TestCase {
 		suite.addTest(TypeHierarchyTest.suite());
 		suite.addTest(TypeRulesTest.suite());
 		suite.addTest(TypeInfoTest.suite());
+		suite.addTest(TypeNameIndexTest.suite());
+		suite.addTest(ProblemSeverityTreeTest.suite());
 		suite.addTest(StringsTest.suite());
 		suite.addTest(IndentManipulationTest.suite());
 		suite.addTest(SelectionHistoryTest.suite());
 		suite.addTest(ASTProviderTest.suite());
+		suite.addTest(JavadocHTMLCacheTest.suite());
 
 		return new ProjectTestSetup(suite);
 	}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocHTMLCache;
+
+
+public class JavadocHTMLCacheTest extends TestCase {
+
+	private static final Class THIS= JavadocHTMLCacheTest.class;
+
+	private static final IPath LIB= new Path("testresources/mylib.jar");
+
+	private IJavaProject fJProject1;
+
+	private File fLibrary;
+	private File fSource;
+
+	private IType fType;
+
+	public JavadocHTMLCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		// archives outside of the workspace change without a Java element delta
+		fLibrary= copy(JavaTestPlugin.getDefault().getFileInPlugin(LIB), ".jar");
+		fSource= copy(JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381), ".zip");
+		IPackageFragmentRoot root= JavaProjectHelper.addLibrary(fJProject1, Path.fromOSString(fLibrary.getPath()), Path.fromOSString(fSource.getPath()), null);
+		fType= root.getPackageFragment("mylib").getClassFile("Foo.class").getType();
+		JavadocHTMLCache.setStampCheckInterval(0);
+	}
+
+	protected void tearDown() throws Exception {
+		JavadocHTMLCache.setStampCheckInterval(10000);
+		JavaProjectHelper.delete(fJProject1);
+		fLibrary.delete();
+		fSource.delete();
+	}
+
+	private static File copy(File file, String suffix) throws IOException {
+		File copy= File.createTempFile("JavadocHTMLCacheTest", suffix);
+		InputStream in= new FileInputStream(file);
+		try {
+			OutputStream out= new FileOutputStream(copy);
+			try {
+				byte[] buf= new byte[4096];
+				int read;
+				while ((read= in.read(buf)) != -1)
+					out.write(buf, 0, read);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		return copy;
+	}
+
+	private static void waitForSweep() throws InterruptedException {
+		Job.getJobManager().join(JavadocHTMLCache.class, null);
+	}
+
+	public void testNoContent() throws Exception {
+		JavadocHTMLCache cache= JavadocHTMLCache.getInstance();
+		String key1= cache.getKey(fType, "none");
+		String key2= cache.getKey(fType, "empty");
+		assertNull(cache.get(key1));
+
+		cache.put(key1, null);
+		cache.put(key2, "");
+		assertSame(JavadocHTMLCache.NO_CONTENT, cache.get(key1));
+		assertEquals("", cache.get(key2));
+	}
+
+	public void testStaleEntriesAfterArchiveChange() throws Exception {
+		JavadocHTMLCache cache= JavadocHTMLCache.getInstance();
+		String key1= cache.getKey(fType, "member");
+		cache.put(key1, "<p>Foo</p>");
+		waitForSweep();
+		assertEquals("<p>Foo</p>", cache.get(key1));
+
+		assertTrue(fLibrary.setLastModified(fLibrary.lastModified() - 60000));
+		String key2= cache.getKey(fType, "member");
+		assertFalse(key1.equals(key2));
+		waitForSweep();
+		assertNull(cache.get(key2));
+		// the stale entry has been removed from memory and disk
+		assertNull(cache.get(key1));
+	}
+
+	public void testStaleEntriesAfterSourceAttachmentChange() throws Exception {
+		JavadocHTMLCache cache= JavadocHTMLCache.getInstance();
+		String key1= cache.getKey(fType, "memberSource");
+		cache.put(key1, "<p>Foo</p>");
+
+		assertTrue(fSource.setLastModified(fSource.lastModified() - 60000));
+		String key2= cache.getKey(fType, "memberSource");
+		assertFalse(key1.equals(key2));
+		waitForSweep();
+		assertNull(cache.get(key1));
+	}
+}
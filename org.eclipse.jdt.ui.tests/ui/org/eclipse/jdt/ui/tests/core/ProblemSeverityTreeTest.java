@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemSeverityTree;
+
+
+public class ProblemSeverityTreeTest extends TestCase {
+
+	private static final Class THIS= ProblemSeverityTreeTest.class;
+
+	private IJavaProject fJProject1;
+
+	private IFolder fPackFolder;
+
+	private IFolder fSubPackFolder;
+
+	private ProblemSeverityTree fTree;
+
+	public ProblemSeverityTreeTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("p", true, null);
+		IPackageFragment pack2= root1.createPackageFragment("p.q", true, null);
+		fPackFolder= (IFolder) pack1.getResource();
+		fSubPackFolder= (IFolder) pack2.getResource();
+		fTree= new ProblemSeverityTree(ResourcesPlugin.getWorkspace().getRoot());
+	}
+
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+	}
+
+	private static IMarker createProblem(IResource resource, int severity) throws Exception {
+		IMarker marker= resource.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	private IFile createFile(IFolder folder, String name) throws Exception {
+		IFile file= folder.getFile(name);
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		return file;
+	}
+
+	public void testRollup() throws Exception {
+		IFile file1= createFile(fPackFolder, "A.java");
+		IFile file2= createFile(fSubPackFolder, "B.java");
+		createProblem(file1, IMarker.SEVERITY_WARNING);
+		createProblem(file2, IMarker.SEVERITY_ERROR);
+
+		IProject project= fJProject1.getProject();
+		assertEquals(IMarker.SEVERITY_ERROR, fTree.findMaxProblemSeverity(project, IResource.DEPTH_INFINITE));
+		assertEquals(IMarker.SEVERITY_ERROR, fTree.findMaxProblemSeverity(fPackFolder, IResource.DEPTH_INFINITE));
+		assertEquals(-1, fTree.findMaxProblemSeverity(fPackFolder, IResource.DEPTH_ZERO));
+		assertEquals(IMarker.SEVERITY_WARNING, fTree.findMaxProblemSeverity(fPackFolder, IResource.DEPTH_ONE));
+		assertEquals(IMarker.SEVERITY_WARNING, fTree.findMaxPackageProblemSeverity(fPackFolder));
+		assertEquals(IMarker.SEVERITY_ERROR, fTree.findMaxPackageProblemSeverity(fSubPackFolder));
+		assertEquals(-1, fTree.findMaxProblemSeverity(project.getFile(".project"), IResource.DEPTH_ZERO));
+	}
+
+	public void testUpdate() throws Exception {
+		IFile file1= createFile(fPackFolder, "A.java");
+		IFile file2= createFile(fSubPackFolder, "B.java");
+		createProblem(file1, IMarker.SEVERITY_WARNING);
+		IMarker error= createProblem(file2, IMarker.SEVERITY_ERROR);
+
+		IProject project= fJProject1.getProject();
+		assertEquals(IMarker.SEVERITY_ERROR, fTree.findMaxProblemSeverity(project, IResource.DEPTH_INFINITE));
+
+		List<IResource> changed= new ArrayList<IResource>();
+		error.delete();
+		assertTrue(fTree.update(file2, changed));
+		assertTrue(changed.contains(fSubPackFolder));
+		assertTrue(changed.contains(fPackFolder));
+		assertTrue(changed.contains(project));
+		assertEquals(IMarker.SEVERITY_WARNING, fTree.findMaxProblemSeverity(project, IResource.DEPTH_INFINITE));
+		assertEquals(-1, fTree.findMaxProblemSeverity(fSubPackFolder, IResource.DEPTH_INFINITE));
+
+		changed.clear();
+		createProblem(file2, IMarker.SEVERITY_INFO);
+		assertTrue(fTree.update(file2, changed));
+		assertTrue(changed.contains(fSubPackFolder));
+		assertFalse(changed.contains(fPackFolder));
+		assertEquals(IMarker.SEVERITY_WARNING, fTree.findMaxProblemSeverity(fPackFolder, IResource.DEPTH_INFINITE));
+
+		changed.clear();
+		file1.delete(true, null);
+		assertTrue(fTree.update(file1, changed));
+		assertTrue(changed.contains(project));
+		assertEquals(IMarker.SEVERITY_INFO, fTree.findMaxProblemSeverity(project, IResource.DEPTH_INFINITE));
+	}
+
+	public void testUntrackedProject() throws Exception {
+		IFile file1= createFile(fPackFolder, "A.java");
+		createProblem(file1, IMarker.SEVERITY_WARNING);
+		assertFalse(fTree.update(file1, new ArrayList<IResource>()));
+
+		List<IResource> changed= new ArrayList<IResource>();
+		assertEquals(IMarker.SEVERITY_WARNING, fTree.findMaxProblemSeverity(file1, IResource.DEPTH_ZERO));
+		fTree.reset(fJProject1.getProject(), changed);
+		assertTrue(changed.contains(ResourcesPlugin.getWorkspace().getRoot()));
+		assertFalse(fTree.update(file1, new ArrayList<IResource>()));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,6 +29,7 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
@@ -286,7 +287,48 @@ public class TypeHierarchyTest extends TestCase {
 
 	}
 
+	public void testSuperTypeHierarchyCache() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
+
+		ICompilationUnit cu1= pack1.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+
+		ICompilationUnit cu2= pack1.getCompilationUnit("B.java");
+		IType type2= cu2.createType("public class B extends A {\n}\n", null, true, null);
+
+		SuperTypeHierarchyCache.resetStatistics();
 
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertEquals(1, SuperTypeHierarchyCache.getCacheMisses());
 
+		// the hierarchy of B also contains A
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(type1));
+		assertEquals(1, SuperTypeHierarchyCache.getCacheHits());
+
+		cu2.getBuffer().setContents("package pack1;\npublic class B {\n}\n");
+		cu2.save(null, true);
+
+		// the changed hierarchy is evicted and left untouched for its clients
+		ITypeHierarchy hierarchy2= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertNotSame(hierarchy, hierarchy2);
+		assertEquals(2, SuperTypeHierarchyCache.getCacheMisses());
+		assertTrue(hierarchy.contains(type1));
+		assertFalse(hierarchy2.contains(type1));
+
+		ITypeHierarchy hierarchy1= SuperTypeHierarchyCache.getTypeHierarchy(type1);
+		assertNotSame(hierarchy, hierarchy1);
+		assertEquals(3, SuperTypeHierarchyCache.getCacheMisses());
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type1));
+
+		// the Java element delta evicts the hierarchies of removed types
+		cu1.delete(true, null);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type1));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type2));
+
+		// and of types in class path entries that went away
+		JavaProjectHelper.removeSourceContainer(fJavaProject1, "src");
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type2));
+	}
 
 }
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.Locale;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+
+
+public class TypeNameIndexTest extends TestCase {
+
+	private static final Class THIS= TypeNameIndexTest.class;
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragment fPack1;
+
+	public TypeNameIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		assertNotNull("jre is null", JavaProjectHelper.addRTJar(fJProject1));
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack1= root1.createPackageFragment("com.oti", true, null);
+		ICompilationUnit cu1= fPack1.getCompilationUnit("VIndexed.java");
+		cu1.createType("public class VIndexed {\n static class VIndexedInner {\n}\n}\n", null, true, null);
+	}
+
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+		TypeNameIndex.shutdown();
+	}
+
+	private static boolean contains(TypeNameMatch[] matches, String qualifiedName) {
+		for (int i= 0; i < matches.length; i++) {
+			if (qualifiedName.equals(matches[i].getFullyQualifiedName()))
+				return true;
+		}
+		return false;
+	}
+
+	public void testCandidates() throws Exception {
+		TypeNameMatch[] matches= TypeNameIndex.getInstance().getCandidates("vindex", null);
+		assertTrue(contains(matches, "com.oti.VIndexed"));
+		assertTrue(contains(matches, "com.oti.VIndexed.VIndexedInner"));
+		assertFalse(contains(matches, "java.util.Vector"));
+
+		matches= TypeNameIndex.getInstance().getCandidates("VInIn", null);
+		assertTrue(contains(matches, "com.oti.VIndexed"));
+		assertTrue(contains(matches, "java.util.Vector"));
+
+		matches= TypeNameIndex.getInstance().getCandidates("*Indexed", null);
+		assertTrue(contains(matches, "com.oti.VIndexed"));
+		assertTrue(contains(matches, "java.lang.Object"));
+	}
+
+	public void testTurkishLocale() throws Exception {
+		Locale locale= Locale.getDefault();
+		try {
+			// in Turkish, the lower case of 'I' is a dotless i
+			Locale.setDefault(new Locale("tr", "TR"));
+			TypeNameIndex.shutdown();
+			assertTrue(contains(TypeNameIndex.getInstance().getCandidates("vindex", null), "com.oti.VIndexed"));
+			assertTrue(contains(TypeNameIndex.getInstance().getCandidates("VIndex", null), "com.oti.VIndexed"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	public void testAddedAndRemovedUnit() throws Exception {
+		assertFalse(contains(TypeNameIndex.getInstance().getCandidates("VAdded", null), "com.oti.VAdded"));
+
+		ICompilationUnit cu2= fPack1.getCompilationUnit("VAdded.java");
+		cu2.createType("public class VAdded {\n}\n", null, true, null);
+		assertTrue(contains(TypeNameIndex.getInstance().getCandidates("VAdded", null), "com.oti.VAdded"));
+
+		cu2.delete(true, null);
+		assertFalse(contains(TypeNameIndex.getInstance().getCandidates("VAdded", null), "com.oti.VAdded"));
+	}
+
+	public void testRenamedType() throws Exception {
+		ICompilationUnit cu1= fPack1.getCompilationUnit("VIndexed.java");
+		assertTrue(contains(TypeNameIndex.getInstance().getCandidates("VIndexedInner", null), "com.oti.VIndexed.VIndexedInner"));
+
+		cu1.getType("VIndexed").getType("VIndexedInner").rename("VRenamedInner", true, null);
+		assertFalse(contains(TypeNameIndex.getInstance().getCandidates("VIndexedInner", null), "com.oti.VIndexed.VIndexedInner"));
+		assertTrue(contains(TypeNameIndex.getInstance().getCandidates("VRenamed", null), "com.oti.VIndexed.VRenamedInner"));
+	}
+}
@@ -43,6 +43,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerContentProvider;
 import org.eclipse.jdt.internal.ui.util.CoreUtility;
 
 
@@ -276,6 +277,35 @@ public class ContentProviderTests3 extends TestCase {
 		assertEquals("No refreshes", 0, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
 	}
 
+	public void testCoalescePendingUpdates() throws Exception {
+		final PackageExplorerContentProvider provider= (PackageExplorerContentProvider) fProvider;
+		int received= provider.getReceivedUpdateCount();
+		int applied= provider.getAppliedUpdateCount();
+
+		//send the deltas from a background thread so that the updates are queued
+		Thread thread= new Thread() {
+			public void run() {
+				for (int i= 0; i < 2; i++) {
+					IJavaElementDelta delta= TestDelta.createDelta(fPack4, IJavaElementDelta.REMOVED);
+					provider.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+					delta= TestDelta.createCUDelta(new ICompilationUnit[]{fCU2}, fPack6, IJavaElementDelta.REMOVED);
+					provider.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		provider.runPendingUpdates();
+
+		assertEquals("Single refresh", 1, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
+		assertTrue("Correct refresh", fMyPart.wasObjectRefreshed(fRoot1)); //$NON-NLS-1$
+		assertEquals("Single remove", 1, fMyPart.getRemovedObjects().size()); //$NON-NLS-1$
+		assertTrue("Correct remove", fMyPart.getRemovedObjects().contains(fCU2)); //$NON-NLS-1$
+		received= provider.getReceivedUpdateCount() - received;
+		applied= provider.getAppliedUpdateCount() - applied;
+		assertTrue("Redundant updates applied", applied < received); //$NON-NLS-1$
+	}
+
 
 	/*
 	 * @see TestCase#setUp()
@@ -42,10 +42,12 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
@@ -8606,4 +8608,47 @@ public class CleanUpTest extends CleanUpTestCase {
 		assertRefactoringResultAsExpected(new ICompilationUnit[] { cu1, cu2 }, new String[] { expected1, expected2 });
 	}
 
+	public void testAddNLSTagParallel() throws Exception {
+		IPackageFragment[] packs= new IPackageFragment[3];
+		ICompilationUnit[] cus= new ICompilationUnit[6];
+		String[] expected= new String[cus.length];
+		for (int i= 0; i < cus.length; i++) {
+			if (i < packs.length)
+				packs[i]= fSourceFolder.createPackageFragment("test" + i, false, null);
+			IPackageFragment pack= packs[i % packs.length];
+
+			StringBuffer buf= new StringBuffer();
+			buf.append("package " + pack.getElementName() + ";\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    public String s1 = \"\";\n");
+			buf.append("    public void foo() {\n");
+			buf.append("        String s2 = \"\";\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			cus[i]= pack.createCompilationUnit("E" + i + ".java", buf.toString(), false, null);
+
+			buf= new StringBuffer();
+			buf.append("package " + pack.getElementName() + ";\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    public String s1 = \"\"; //$NON-NLS-1$\n");
+			buf.append("    public void foo() {\n");
+			buf.append("        String s2 = \"\"; //$NON-NLS-1$\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			expected[i]= buf.toString();
+		}
+
+		enable(CleanUpConstants.ADD_MISSING_NLS_TAGS);
+
+		CleanUpRefactoring ref= new CleanUpRefactoring();
+		ref.setUseOptionsFromProfile(true);
+		ref.setMaxWorkers(2);
+		ICleanUp[] cleanUps= JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps();
+		performRefactoring(ref, cus, cleanUps);
+
+		for (int i= 0; i < cus.length; i++) {
+			assertEqualString(cus[i].getBuffer().getContents(), expected[i]);
+		}
+	}
+
 }
@@ -16,11 +16,21 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.StringTokenizer;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -45,11 +55,23 @@ public class CallHierarchy {
     private static final String PREF_USE_IMPLEMENTORS= "PREF_USE_IMPLEMENTORS"; //$NON-NLS-1$
     private static final String PREF_USE_FILTERS = "PREF_USE_FILTERS"; //$NON-NLS-1$
     private static final String PREF_FILTERS_LIST = "PREF_FILTERS_LIST"; //$NON-NLS-1$
+    private static final String PREF_PREFETCH_DEPTH = "PREF_PREFETCH_DEPTH"; //$NON-NLS-1$
+
+    /**
+     * Maximal number of concurrent searches of {@link #fetchCalls(MethodWrapper[], int, IProgressMonitor)}.
+     */
+    private static final int MAX_SEARCH_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Maximal number of wrappers {@link #fetchCalls(MethodWrapper[], int, IProgressMonitor)} expands.
+     */
+    private static final int MAX_FETCHED_WRAPPERS = 1000;
 
     private static final String DEFAULT_IGNORE_FILTERS = "java.*,javax.*"; //$NON-NLS-1$
     private static CallHierarchy fgInstance;
     private IJavaSearchScope fSearchScope;
     private StringMatcher[] fFilters;
+    private final CallerSearchCache fCallerSearchCache = new CallerSearchCache();
 
     public static CallHierarchy getDefault() {
         if (fgInstance == null) {
@@ -206,6 +228,7 @@ public class CallHierarchy {
     public void setFilterEnabled(boolean filterEnabled) {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
+        clearCallerSearchCache();
     }
 
     /**
@@ -223,6 +246,123 @@ public class CallHierarchy {
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
+        clearCallerSearchCache();
+    }
+
+    /**
+     * Returns the number of levels the callers of an expanded node are searched in advance.
+     *
+     * @return the prefetch depth, <code>0</code> if no callers are searched in advance
+     * @since 3.9
+     */
+    public int getPrefetchDepth() {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        return settings.getInt(PREF_PREFETCH_DEPTH);
+    }
+
+    /**
+     * Sets the number of levels the callers of an expanded node are searched in advance.
+     *
+     * @param depth the prefetch depth, <code>0</code> to search callers only on demand
+     * @since 3.9
+     */
+    public void setPrefetchDepth(int depth) {
+        IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
+        settings.setValue(PREF_PREFETCH_DEPTH, depth);
+    }
+
+    /**
+     * Returns the workspace wide cache of caller search results.
+     *
+     * @return the cache
+     * @since 3.9
+     */
+    CallerSearchCache getCallerSearchCache() {
+        return fCallerSearchCache;
+    }
+
+    /**
+     * Forgets all cached caller search results.
+     *
+     * @since 3.9
+     */
+    public void clearCallerSearchCache() {
+        fCallerSearchCache.clear();
+    }
+
+    /**
+     * Finds the calls of the given wrappers and, up to the given depth, the calls of their calls.
+     * The wrappers of one level are searched concurrently by a bounded number of threads. The
+     * results are kept in the caches of the hierarchies and of the workspace, so that expanding
+     * the wrappers later on does not search again.
+     *
+     * @param wrappers the wrappers to expand
+     * @param depth the number of levels to expand
+     * @param progressMonitor the progress monitor, only used for cancellation
+     * @throws OperationCanceledException if the monitor has been canceled
+     * @since 3.9
+     */
+    public void fetchCalls(MethodWrapper[] wrappers, int depth, final IProgressMonitor progressMonitor) {
+        final IProgressMonitor monitor = new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return super.isCanceled() || progressMonitor != null && progressMonitor.isCanceled();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_SEARCH_THREADS, new ThreadFactory() {
+            private int fCount;
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Call Hierarchy Search " + ++fCount); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            int fetched = 0;
+            List<MethodWrapper> level = new ArrayList<MethodWrapper>(Arrays.asList(wrappers));
+            for (int i = 0; i < depth && !level.isEmpty() && fetched < MAX_FETCHED_WRAPPERS; i++) {
+                List<Future<MethodWrapper[]>> futures = new ArrayList<Future<MethodWrapper[]>>(level.size());
+                Set<String> submitted = new HashSet<String>();
+                for (Iterator<MethodWrapper> iter = level.iterator(); iter.hasNext() && fetched < MAX_FETCHED_WRAPPERS;) {
+                    final MethodWrapper wrapper = iter.next();
+                    // siblings with the same member share the search result through the hierarchy's cache
+                    if (!wrapper.canHaveChildren() || wrapper.isRecursive() || !submitted.add(wrapper.getMethodCall().getKey()))
+                        continue;
+                    fetched++;
+                    futures.add(executor.submit(new Callable<MethodWrapper[]>() {
+                        public MethodWrapper[] call() {
+                            return wrapper.getCalls(monitor);
+                        }
+                    }));
+                }
+
+                level = new ArrayList<MethodWrapper>();
+                for (Iterator<Future<MethodWrapper[]>> iter = futures.iterator(); iter.hasNext();) {
+                    MethodWrapper[] calls = waitFor(iter.next(), monitor);
+                    if (calls != null)
+                        level.addAll(Arrays.asList(calls));
+                }
+            }
+        } finally {
+            monitor.setCanceled(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private static MethodWrapper[] waitFor(Future<MethodWrapper[]> future, IProgressMonitor monitor) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            monitor.setCanceled(true);
+            throw new OperationCanceledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OperationCanceledException)
+                throw (OperationCanceledException) cause;
+            JavaPlugin.log(cause);
+            return null;
+        }
     }
 
     /**
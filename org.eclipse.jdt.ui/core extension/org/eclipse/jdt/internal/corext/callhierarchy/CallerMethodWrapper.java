@@ -137,8 +137,8 @@ public class CallerMethodWrapper extends MethodWrapper {
 							SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 				}
 			}
+			int limitTo= IJavaSearchConstants.REFERENCES;
 			if (pattern == null) {
-				int limitTo= IJavaSearchConstants.REFERENCES;
 				if (member.getElementType() == IJavaElement.FIELD)
 					limitTo= getFieldSearchMode();
 				pattern= SearchPattern.createPattern(member, limitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
@@ -147,14 +147,22 @@ public class CallerMethodWrapper extends MethodWrapper {
 				return new HashMap<String, MethodCall>(0);
 			}
 
+			IJavaSearchScope defaultSearchScope= getSearchScope();
+			CallerSearchCache cache= CallHierarchy.getDefault().getCallerSearchCache();
+			Map<String, MethodCall> callers= cache.get(member, limitTo, defaultSearchScope);
+			if (callers != null)
+				return callers;
+			int generation= cache.getGeneration();
+
 			SearchEngine searchEngine= new SearchEngine();
 			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
-			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
 			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
 			searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
 					monitor);
-			return searchRequestor.getCallers();
+			callers= searchRequestor.getCallers();
+			cache.put(member, limitTo, defaultSearchScope, callers, generation);
+			return callers;
 
 		} catch (CoreException e) {
 			JavaPlugin.log(e);
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+import org.eclipse.jdt.internal.corext.util.LRUMap;
+
+
+/**
+ * Workspace wide cache for the results of caller searches, keyed by the handle identifier of the
+ * searched member.
+ * <p>
+ * An entry is invalidated when a compilation unit that contains one of the callers is changed or
+ * removed, or when a changed or added compilation unit contains the name of the searched member.
+ * Reconciled primary working copies count as changed, so that the entries match what is searched.
+ * Changes to the class path or to binaries, and changes to many compilation units at once clear
+ * the whole cache. The cache listens to Java element changes from the first search until it is
+ * cleared.
+ * </p>
+ *
+ * @since 3.9
+ */
+final class CallerSearchCache {
+
+	private static final class Entry {
+
+		private final IJavaSearchScope fScope;
+		private final String fName;
+		private final Map<String, MethodCall> fCallers;
+		private final Set<String> fTypeRoots;
+
+		private Entry(IJavaSearchScope scope, IMember member, Map<String, MethodCall> callers) {
+			fScope= scope;
+			fName= member.getElementName();
+			fCallers= callers;
+			fTypeRoots= new HashSet<String>();
+			addTypeRoot(member);
+			for (Iterator<MethodCall> iterator= callers.values().iterator(); iterator.hasNext();)
+				addTypeRoot(iterator.next().getMember());
+		}
+
+		private void addTypeRoot(IMember member) {
+			ITypeRoot typeRoot= member.getTypeRoot();
+			if (typeRoot != null)
+				fTypeRoots.add(typeRoot.getHandleIdentifier());
+		}
+	}
+
+	private static final int MAX_ENTRIES= 500;
+
+	/**
+	 * Maximal number of changed compilation units whose sources are read to find the affected
+	 * entries. The cache is cleared on bigger changes.
+	 */
+	private static final int MAX_READ_UNITS= 20;
+
+	private static final int CLASSPATH_CHANGED= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+			| IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED;
+
+	private final LRUMap<String, Entry> fEntries= new LRUMap<String, Entry>(MAX_ENTRIES);
+
+	/**
+	 * Incremented on every invalidation, so that the results of searches that were running
+	 * concurrently to a change are not cached.
+	 */
+	private int fGeneration;
+
+	private IElementChangedListener fListener;
+
+	private int fHits;
+	private int fMisses;
+
+	/**
+	 * Returns the generation of the cache, to be passed to
+	 * {@link #put(IMember, int, IJavaSearchScope, Map, int)} for the results of a search started
+	 * now.
+	 *
+	 * @return the generation
+	 */
+	synchronized int getGeneration() {
+		if (fListener == null) {
+			fListener= new IElementChangedListener() {
+				public void elementChanged(ElementChangedEvent event) {
+					IJavaElementDelta delta= event.getDelta();
+					// only primary working copies are searched
+					if (event.getType() == ElementChangedEvent.POST_RECONCILE && ((ICompilationUnit) delta.getElement()).getOwner() != null)
+						return;
+					processDelta(delta);
+				}
+			};
+			JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+		return fGeneration;
+	}
+
+	/**
+	 * Returns a copy of the cached callers of the given member.
+	 *
+	 * @param member the searched member
+	 * @param limitTo the search limit, see {@link org.eclipse.jdt.core.search.IJavaSearchConstants}
+	 * @param scope the search scope
+	 * @return a map from handle identifier to {@link MethodCall}, or <code>null</code> if the
+	 *         callers are not cached
+	 */
+	synchronized Map<String, MethodCall> get(IMember member, int limitTo, IJavaSearchScope scope) {
+		Entry entry= fEntries.get(getKey(member, limitTo));
+		if (entry == null || !entry.fScope.equals(scope)) {
+			fMisses++;
+			return null;
+		}
+		fHits++;
+		return new HashMap<String, MethodCall>(entry.fCallers);
+	}
+
+	/**
+	 * Caches the callers of the given member, unless the workspace has been changed since the given
+	 * generation.
+	 *
+	 * @param member the searched member
+	 * @param limitTo the search limit
+	 * @param scope the search scope
+	 * @param callers a map from handle identifier to {@link MethodCall}
+	 * @param generation the generation of the cache when the search started
+	 */
+	synchronized void put(IMember member, int limitTo, IJavaSearchScope scope, Map<String, MethodCall> callers, int generation) {
+		if (generation != fGeneration)
+			return;
+		fEntries.put(getKey(member, limitTo), new Entry(scope, member, new HashMap<String, MethodCall>(callers)));
+	}
+
+	/**
+	 * Removes the cached callers of the given member.
+	 *
+	 * @param member the searched member
+	 */
+	synchronized void remove(IMember member) {
+		String prefix= member.getHandleIdentifier() + '|';
+		for (Iterator<String> iterator= fEntries.keySet().iterator(); iterator.hasNext();) {
+			if (iterator.next().startsWith(prefix))
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	synchronized void clear() {
+		fGeneration++;
+		fEntries.clear();
+		if (fListener != null) {
+			JavaCore.removeElementChangedListener(fListener);
+			fListener= null;
+		}
+	}
+
+	synchronized int getHits() {
+		return fHits;
+	}
+
+	synchronized int getMisses() {
+		return fMisses;
+	}
+
+	synchronized int size() {
+		return fEntries.size();
+	}
+
+	private static String getKey(IMember member, int limitTo) {
+		return member.getHandleIdentifier() + '|' + limitTo;
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		Map<String, ICompilationUnit> changedUnits= new HashMap<String, ICompilationUnit>();
+		Set<String> names= new HashSet<String>();
+		synchronized (this) {
+			// searches running concurrently may have seen the old state
+			fGeneration++;
+			if (fEntries.isEmpty())
+				return;
+			if (!collectChangedUnits(delta, changedUnits)) {
+				clear();
+				return;
+			}
+			for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();) {
+				Entry entry= iterator.next();
+				if (containsAny(entry.fTypeRoots, changedUnits.keySet()))
+					iterator.remove();
+				else
+					names.add(entry.fName);
+			}
+			changedUnits.values().removeAll(Collections.singleton(null));
+			if (names.isEmpty() || changedUnits.isEmpty())
+				return;
+			if (changedUnits.size() > MAX_READ_UNITS) {
+				// e.g. a build or a refactoring, reading all sources costs more than searching again
+				clear();
+				return;
+			}
+		}
+
+		// read the sources outside of the lock, searches must not wait for that
+		Set<String> affectedNames= new HashSet<String>();
+		for (Iterator<ICompilationUnit> iterator= changedUnits.values().iterator(); iterator.hasNext();) {
+			String source;
+			try {
+				source= iterator.next().getSource();
+			} catch (JavaModelException e) {
+				source= null;
+			}
+			if (source == null) {
+				synchronized (this) {
+					clear();
+				}
+				return;
+			}
+			for (Iterator<String> nameIterator= names.iterator(); nameIterator.hasNext();) {
+				String name= nameIterator.next();
+				if (source.indexOf(name) != -1) {
+					affectedNames.add(name);
+					nameIterator.remove();
+				}
+			}
+		}
+		if (affectedNames.isEmpty())
+			return;
+		synchronized (this) {
+			for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();) {
+				if (affectedNames.contains(iterator.next().fName))
+					iterator.remove();
+			}
+		}
+	}
+
+	private static boolean containsAny(Set<String> set, Set<String> elements) {
+		for (Iterator<String> iterator= elements.iterator(); iterator.hasNext();) {
+			if (set.contains(iterator.next()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Collects the compilation units changed by the given delta. The decision is taken from the
+	 * kinds and flags of the delta, no sources are read.
+	 *
+	 * @param delta the delta
+	 * @param changedUnits a map from the handle identifier of a changed compilation unit to the
+	 *            unit, or to <code>null</code> if the unit has been removed
+	 * @return <code>false</code> if the whole cache must be cleared
+	 */
+	private static boolean collectChangedUnits(IJavaElementDelta delta, Map<String, ICompilationUnit> changedUnits) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGED) != 0)
+					return false;
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				collectChangedUnit(delta, changedUnits);
+				return true;
+			default:
+				return false;
+		}
+
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!collectChangedUnits(children[i], changedUnits))
+				return false;
+		}
+		return true;
+	}
+
+	private static void collectChangedUnit(IJavaElementDelta delta, Map<String, ICompilationUnit> changedUnits) {
+		ICompilationUnit cu= (ICompilationUnit) delta.getElement();
+		switch (delta.getKind()) {
+			case IJavaElementDelta.REMOVED:
+				changedUnits.put(cu.getHandleIdentifier(), null);
+				break;
+			case IJavaElementDelta.ADDED:
+				changedUnits.put(cu.getHandleIdentifier(), cu);
+				break;
+			default:
+				// e.g. a working copy has been created or discarded
+				if ((delta.getFlags() & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED)) != 0)
+					changedUnits.put(cu.getHandleIdentifier(), cu);
+		}
+	}
+}
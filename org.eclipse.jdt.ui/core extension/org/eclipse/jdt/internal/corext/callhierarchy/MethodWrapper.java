@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,6 +42,7 @@ public abstract class MethodWrapper extends PlatformObject {
      * A cache of previously found methods. This cache should be searched
      * before adding a "new" method object reference to the list of elements.
      * This way previously found methods won't be searched again.
+     * Shared by all wrappers of a hierarchy, access must be synchronized on the map.
      */
     private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
@@ -79,7 +80,14 @@ public abstract class MethodWrapper extends PlatformObject {
 	    }
 	}
 
-    public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
+    /**
+     * Returns the calls of this member, searching them if necessary. Different wrappers can be
+     * asked concurrently, see {@link CallHierarchy#fetchCalls(MethodWrapper[], int, IProgressMonitor)}.
+     *
+     * @param progressMonitor the progress monitor
+     * @return the wrappers of the calls
+     */
+    public synchronized MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
         if (fElements == null) {
             doFindChildren(progressMonitor);
         }
@@ -202,11 +210,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -216,12 +219,16 @@ public abstract class MethodWrapper extends PlatformObject {
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
     private void doFindChildren(IProgressMonitor progressMonitor) {
-        Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
+        Map<String, MethodCall> existingResults;
+        synchronized (fMethodCache) {
+            existingResults = lookupMethod(getMethodCall());
+            if (existingResults != null && !existingResults.isEmpty()) {
+                fElements = new HashMap<String, MethodCall>();
+                fElements.putAll(existingResults);
+            }
+        }
 
-        if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<String, MethodCall>();
-            fElements.putAll(existingResults);
-        } else {
+        if (fElements == null) {
             initCalls();
 
             if (progressMonitor != null) {
@@ -284,8 +291,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     private void initCalls() {
         this.fElements = new HashMap<String, MethodCall>();
-
-        initCacheForMethod();
     }
 
     /**
@@ -299,12 +304,12 @@ public abstract class MethodWrapper extends PlatformObject {
 
     private void performSearch(IProgressMonitor progressMonitor) {
         fElements = findChildren(progressMonitor);
+        checkCanceled(progressMonitor);
 
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
-
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
+        // publish the complete result at once, other threads must not see a partial one
+        Map<String, MethodCall> cachedCalls = new HashMap<String, MethodCall>(fElements);
+        synchronized (fMethodCache) {
+            getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
         }
     }
 
@@ -312,11 +317,6 @@ public abstract class MethodWrapper extends PlatformObject {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<String, MethodCall>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -365,7 +365,12 @@ public abstract class MethodWrapper extends PlatformObject {
 	 * @since 3.6
 	 */
 	public void removeFromCache() {
-		fElements= null;
-		fMethodCache.remove(getMethodCall().getKey());
+		synchronized (this) {
+			fElements= null;
+		}
+		synchronized (fMethodCache) {
+			fMethodCache.remove(getMethodCall().getKey());
+		}
+		CallHierarchy.getDefault().getCallerSearchCache().remove(getMember());
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.dom;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -17,12 +22,19 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.IBinding;
@@ -33,11 +45,22 @@ import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * <p>
+ * By default, the size of the subsets is fixed and only depends on the maximal heap size. In
+ * adaptive mode, the size of each subset is computed from the estimated size of the sources and
+ * the heap that is still available, and it is adjusted after each subset depending on how much
+ * of the heap is in use. The heap in use is taken from the tenured memory pool as of its last
+ * collection, so that garbage does not shrink the subsets.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
+	private static final boolean DEBUG= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.jdt.ui/debug/ASTBatchParser"));  //$NON-NLS-1$//$NON-NLS-2$
+
+	private static final String DEBUG_PREFIX= "ASTBatchParser > "; //$NON-NLS-1$
+
 	private static final int MAX_AT_ONCE;
 	static {
 		long maxMemory= Runtime.getRuntime().maxMemory();
@@ -64,6 +87,59 @@ public class ASTBatchParser {
 		}
 	}
 
+	/**
+	 * Upper bound for the number of compilation units in one batch in adaptive mode.
+	 */
+	private static final int MAX_ADAPTIVE_AT_ONCE= 2000;
+
+	/**
+	 * Size assumed for a compilation unit whose size can not be determined.
+	 */
+	private static final long DEFAULT_UNIT_SIZE= 8 * 1024;
+
+	/**
+	 * Estimated number of heap bytes retained per byte of source while a batch
+	 * is processed, with and without bindings.
+	 */
+	private static final int HEAP_PER_SOURCE_BYTE_WITH_BINDINGS= 40;
+	private static final int HEAP_PER_SOURCE_BYTE= 12;
+
+	/**
+	 * Heap usage ratios above which the batches shrink and below which they grow.
+	 */
+	private static final double HIGH_USAGE_THRESHOLD= 0.8;
+	private static final double LOW_USAGE_THRESHOLD= 0.5;
+
+	private static final double MIN_SCALE= 1d / 32;
+	private static final double MAX_SCALE= 4d;
+
+	private final boolean fAdaptive;
+
+	/**
+	 * Factor applied to the heap budget of the next batch, adjusted after each batch in
+	 * adaptive mode.
+	 */
+	private double fScale;
+
+	/**
+	 * Creates a batch parser with a fixed batch size.
+	 */
+	public ASTBatchParser() {
+		this(false);
+	}
+
+	/**
+	 * Creates a batch parser.
+	 *
+	 * @param adaptive <code>true</code> to size each batch by the estimated size of its
+	 *            sources and the available heap, <code>false</code> to use a fixed batch size
+	 * @since 3.9
+	 */
+	public ASTBatchParser(boolean adaptive) {
+		fAdaptive= adaptive;
+		fScale= 1d;
+	}
+
 	/**
 	 * Creates ASTs for each compilation unit in <code>units</code>.
 	 * <p>
@@ -96,7 +172,9 @@ public class ASTBatchParser {
 			for (int i= 0; i < splited.length; i++) {
 				ICompilationUnit[] units= splited[i];
 
-				if (units.length <= MAX_AT_ONCE) {
+				if (fAdaptive) {
+					createASTsAdaptive(units, bindingKeys, requestor, monitor);
+				} else if (units.length <= MAX_AT_ONCE) {
 					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
 				} else {
 					List<ICompilationUnit> list= Arrays.asList(units);
@@ -117,6 +195,145 @@ public class ASTBatchParser {
 		}
 	}
 
+	private void createASTsAdaptive(ICompilationUnit[] units, String[] bindingKeys, ASTRequestor requestor, IProgressMonitor monitor) {
+		long[] sizes= new long[units.length];
+		for (int i= 0; i < units.length; i++)
+			sizes[i]= estimateSize(units[i]);
+
+		int cursor= 0;
+		while (cursor < units.length) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+
+			long budget= (long) (getSourceBudget() * fScale);
+
+			int end= cursor;
+			long bytes= 0;
+			do {
+				bytes+= sizes[end];
+				end++;
+			} while (end < units.length && end - cursor < MAX_ADAPTIVE_AT_ONCE && bytes + sizes[end] <= budget);
+
+			ICompilationUnit[] toParse= new ICompilationUnit[end - cursor];
+			System.arraycopy(units, cursor, toParse, 0, toParse.length);
+
+			long start= System.currentTimeMillis();
+			createParser(units[0].getJavaProject()).createASTs(toParse, bindingKeys, requestor, new SubProgressMonitor(monitor, toParse.length));
+			long time= System.currentTimeMillis() - start;
+
+			MemoryUsage usage= getLiveHeapUsage();
+			double ratio= (double) usage.getUsed() / getMaxHeap(usage);
+			if (ratio > HIGH_USAGE_THRESHOLD) {
+				fScale= Math.max(MIN_SCALE, fScale / 2);
+			} else if (ratio < LOW_USAGE_THRESHOLD) {
+				fScale= Math.min(MAX_SCALE, fScale * 1.5);
+			}
+
+			if (DEBUG) {
+				long throughput= time == 0 ? bytes : bytes * 1000 / time;
+				System.out.println(DEBUG_PREFIX + "parsed " + toParse.length + " units (" + bytes + " bytes) in " + time + " ms, " + throughput + " bytes/s, heap usage " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+						+ Math.round(ratio * 100) + "%, next scale " + fScale); //$NON-NLS-1$
+			}
+			cursor= end;
+		}
+	}
+
+	/**
+	 * Returns the number of source bytes the next batch may contain before the budget factor is
+	 * applied. Only used in adaptive mode.
+	 * <p>
+	 * By default, the budget is half of the heap that is not used by live objects, divided by
+	 * the estimated heap needed per byte of source. Subclasses may override.
+	 * </p>
+	 *
+	 * @return the source budget in bytes
+	 * @since 3.9
+	 */
+	protected long getSourceBudget() {
+		int heapPerSourceByte= resolvesBindings() ? HEAP_PER_SOURCE_BYTE_WITH_BINDINGS : HEAP_PER_SOURCE_BYTE;
+		MemoryUsage usage= getLiveHeapUsage();
+		return (getMaxHeap(usage) - usage.getUsed()) / 2 / heapPerSourceByte;
+	}
+
+	/**
+	 * Returns the usage of the tenured memory pool after its last collection. Unlike the current
+	 * heap usage, this does not include the garbage left by previous batches. Falls back to the
+	 * current usage of the pool if it has not been collected yet, and to the current heap usage if
+	 * the virtual machine does not report it.
+	 *
+	 * @return the heap usage by live objects
+	 */
+	private static MemoryUsage getLiveHeapUsage() {
+		List<MemoryPoolMXBean> pools= ManagementFactory.getMemoryPoolMXBeans();
+		for (Iterator<MemoryPoolMXBean> iterator= pools.iterator(); iterator.hasNext();) {
+			MemoryPoolMXBean pool= iterator.next();
+			// only the tenured pool supports usage thresholds, the young pools do not
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+				MemoryUsage usage= pool.getCollectionUsage();
+				if (usage == null)
+					break;
+				// before the first collection, the collection usage is not set yet
+				if (usage.getUsed() == 0 || !hasBeenCollected(pool))
+					return pool.getUsage();
+				return usage;
+			}
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+	}
+
+	private static boolean hasBeenCollected(MemoryPoolMXBean pool) {
+		List<GarbageCollectorMXBean> collectors= ManagementFactory.getGarbageCollectorMXBeans();
+		for (Iterator<GarbageCollectorMXBean> iterator= collectors.iterator(); iterator.hasNext();) {
+			GarbageCollectorMXBean collector= iterator.next();
+			if (collector.getCollectionCount() > 0 && Arrays.asList(collector.getMemoryPoolNames()).contains(pool.getName()))
+				return true;
+		}
+		return false;
+	}
+
+	private static long getMaxHeap(MemoryUsage usage) {
+		long max= usage.getMax();
+		if (max <= 0)
+			max= Runtime.getRuntime().maxMemory();
+		return Math.max(max, usage.getCommitted());
+	}
+
+	private static long estimateSize(ICompilationUnit unit) {
+		try {
+			if (unit.isOpen()) {
+				IBuffer buffer= unit.getBuffer();
+				if (buffer != null)
+					return buffer.getLength();
+			}
+		} catch (JavaModelException e) {
+			// fall back to the file size
+		}
+		IResource resource= unit.getResource();
+		if (resource != null) {
+			IPath location= resource.getLocation();
+			if (location != null) {
+				long length= location.toFile().length();
+				if (length > 0)
+					return length;
+			}
+		}
+		return DEFAULT_UNIT_SIZE;
+	}
+
+	/**
+	 * Tells whether the parsers created by {@link #createParser(IJavaProject)} resolve
+	 * bindings. Only used in adaptive mode to estimate the heap needed by a batch.
+	 * <p>
+	 * Subclasses that create parsers without bindings should override.
+	 * </p>
+	 *
+	 * @return <code>true</code> if the parsers resolve bindings
+	 * @since 3.9
+	 */
+	protected boolean resolvesBindings() {
+		return true;
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
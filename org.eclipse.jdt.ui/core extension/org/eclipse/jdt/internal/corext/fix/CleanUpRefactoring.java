@@ -11,19 +11,33 @@
 package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
@@ -56,6 +70,7 @@ import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
 import org.eclipse.ltk.core.refactoring.TextFileChange;
 
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.JavaModelException;
@@ -199,6 +214,66 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * Serializes the progress reported by the workers of a parallel clean up.
+	 */
+	private static class SynchronizedProgressMonitor extends ProgressMonitorWrapper {
+
+		private boolean fAborted;
+
+		public SynchronizedProgressMonitor(IProgressMonitor monitor) {
+			super(monitor);
+			fAborted= false;
+		}
+
+		/**
+		 * Stops all workers without canceling the wrapped monitor.
+		 */
+		public synchronized void abort() {
+			fAborted= true;
+		}
+
+		@Override
+		public synchronized void beginTask(String name, int totalWork) {
+			super.beginTask(name, totalWork);
+		}
+
+		@Override
+		public synchronized void done() {
+			super.done();
+		}
+
+		@Override
+		public synchronized void internalWorked(double work) {
+			super.internalWorked(work);
+		}
+
+		@Override
+		public synchronized boolean isCanceled() {
+			return fAborted || super.isCanceled();
+		}
+
+		@Override
+		public synchronized void setCanceled(boolean value) {
+			super.setCanceled(value);
+		}
+
+		@Override
+		public synchronized void setTaskName(String name) {
+			super.setTaskName(name);
+		}
+
+		@Override
+		public synchronized void subTask(String name) {
+			super.subTask(name);
+		}
+
+		@Override
+		public synchronized void worked(int work) {
+			super.worked(work);
+		}
+	}
+
 	private final class CleanUpRefactoringProgressMonitor extends SubProgressMonitor {
 
 		private double fRealWork;
@@ -329,13 +404,28 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	private class CleanUpFixpointIterator {
 
 		private List<ParseListElement> fParseList;
+		private final CleanUpTarget[] fTargets;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
 		private final Map<String, String> fCleanUpOptions;
 		private final int fSize;
+		private final int fWorkerCount;
 		private int fIndex;
 
 		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
+			this(targets, cleanUps, targets.length, 1, 1);
+		}
+
+		/**
+		 * @param targets the targets to clean up
+		 * @param cleanUps the clean ups to apply
+		 * @param size the total number of targets reported in progress messages
+		 * @param firstIndex the index reported for the first target in progress messages
+		 * @param workerCount the number of iterators that parse concurrently, they share the heap
+		 *            budget of the batch parser
+		 */
+		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps, int size, int firstIndex, int workerCount) {
+			fTargets= targets;
 			fSolutions= new Hashtable<ICompilationUnit, List<CleanUpChange>>(targets.length);
 			fWorkingCopies= new Hashtable<ICompilationUnit, ICompilationUnit>();
 
@@ -352,8 +442,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 					fCleanUpOptions.putAll(currentCleanUpOption);
 			}
 
-			fSize= targets.length;
-			fIndex= 1;
+			fSize= size;
+			fIndex= firstIndex;
+			fWorkerCount= workerCount;
 		}
 
 		public boolean hasNext() {
@@ -364,66 +455,68 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			List<ICompilationUnit> parseList= new ArrayList<ICompilationUnit>();
 			List<ICompilationUnit> sourceList= new ArrayList<ICompilationUnit>();
 
-			try {
-				for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
-					ParseListElement element= iter.next();
-
-					ICompilationUnit compilationUnit= element.getTarget().getCompilationUnit();
-					if (fSolutions.containsKey(compilationUnit)) {
-						if (fWorkingCopies.containsKey(compilationUnit)) {
-							compilationUnit= fWorkingCopies.get(compilationUnit);
-						} else {
-							compilationUnit= compilationUnit.getWorkingCopy(new WorkingCopyOwner() {}, null);
-							fWorkingCopies.put(compilationUnit.getPrimary(), compilationUnit);
-						}
-						applyChange(compilationUnit, fSolutions.get(compilationUnit.getPrimary()));
-					}
+			for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
+				ParseListElement element= iter.next();
 
-					if (requiresAST(element.getCleanUps())) {
-						parseList.add(compilationUnit);
+				ICompilationUnit compilationUnit= element.getTarget().getCompilationUnit();
+				if (fSolutions.containsKey(compilationUnit)) {
+					if (fWorkingCopies.containsKey(compilationUnit)) {
+						compilationUnit= fWorkingCopies.get(compilationUnit);
 					} else {
-						sourceList.add(compilationUnit);
+						compilationUnit= compilationUnit.getWorkingCopy(new WorkingCopyOwner() {}, null);
+						fWorkingCopies.put(compilationUnit.getPrimary(), compilationUnit);
 					}
+					applyChange(compilationUnit, fSolutions.get(compilationUnit.getPrimary()));
 				}
 
-				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
-				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
-				if (parseList.size() > 0) {
-					ASTBatchParser parser= new ASTBatchParser() {
-						@Override
-						protected ASTParser createParser(IJavaProject project) {
-							ASTParser result= createCleanUpASTParser();
-							result.setProject(project);
-
-							Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
-							options.putAll(fCleanUpOptions);
-							result.setCompilerOptions(options);
-							return result;
-						}
-					};
-					try {
-						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
-						parser.createASTs(units, new String[0], requestor, cuMonitor);
-					} catch (FixCalculationException e) {
-						throw e.getException();
-					}
+				if (requiresAST(element.getCleanUps())) {
+					parseList.add(compilationUnit);
+				} else {
+					sourceList.add(compilationUnit);
 				}
+			}
+
+			CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
+			CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
+			if (parseList.size() > 0) {
+				ASTBatchParser parser= new ASTBatchParser(true) {
+					@Override
+					protected ASTParser createParser(IJavaProject project) {
+						ASTParser result= createCleanUpASTParser();
+						result.setProject(project);
+
+						Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
+						options.putAll(fCleanUpOptions);
+						result.setCompilerOptions(options);
+						return result;
+					}
 
-				for (Iterator<ICompilationUnit> iterator= sourceList.iterator(); iterator.hasNext();) {
-					ICompilationUnit cu= iterator.next();
+					@Override
+					protected long getSourceBudget() {
+						return super.getSourceBudget() / fWorkerCount;
+					}
+				};
+				try {
+					ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
+					parser.createASTs(units, new String[0], requestor, cuMonitor);
+				} catch (FixCalculationException e) {
+					throw e.getException();
+				}
+			}
 
-					monitor.worked(1);
+			for (Iterator<ICompilationUnit> iterator= sourceList.iterator(); iterator.hasNext();) {
+				ICompilationUnit cu= iterator.next();
 
-					requestor.acceptSource(cu);
+				monitor.worked(1);
 
-					if (monitor.isCanceled())
-						throw new OperationCanceledException();
-				}
+				requestor.acceptSource(cu);
 
-				fParseList= requestor.getUndoneElements();
-				fIndex= cuMonitor.getIndex();
-			} finally {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
 			}
+
+			fParseList= requestor.getUndoneElements();
+			fIndex= cuMonitor.getIndex();
 		}
 
 		public void dispose() {
@@ -446,40 +539,55 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			return false;
 		}
 
+		/**
+		 * Returns the changes in the order of the targets passed to this iterator,
+		 * such that the result does not depend on the order in which the ASTs have
+		 * been processed.
+		 *
+		 * @return the changes for all targets with a solution
+		 */
 		public Change[] getResult() {
-
-			Change[] result= new Change[fSolutions.size()];
-			int i=0;
-			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= fSolutions.entrySet().iterator(); iterator.hasNext();) {
-				Entry<ICompilationUnit, List<CleanUpChange>>  entry= iterator.next();
-
-				List<CleanUpChange> changes= entry.getValue();
-				ICompilationUnit unit= entry.getKey();
-
-				int saveMode;
-				if (fLeaveFilesDirty) {
-					saveMode= TextFileChange.LEAVE_DIRTY;
-				} else {
-					saveMode= TextFileChange.KEEP_SAVE_STATE;
-				}
-
-				if (changes.size() == 1) {
-					CleanUpChange change= changes.get(0);
-					change.setSaveMode(saveMode);
-					result[i]= change;
-				} else {
-					MultiStateCompilationUnitChange mscuc= new MultiStateCompilationUnitChange(getChangeName(unit), unit);
-					for (int j= 0; j < changes.size(); j++) {
-						mscuc.addChange(createGroupFreeChange(changes.get(j)));
-					}
-					mscuc.setSaveMode(saveMode);
-					result[i]= mscuc;
+			List<Change> result= new ArrayList<Change>(fSolutions.size());
+			HashSet<ICompilationUnit> added= new HashSet<ICompilationUnit>();
+			for (int i= 0; i < fTargets.length; i++) {
+				ICompilationUnit unit= fTargets[i].getCompilationUnit().getPrimary();
+				if (added.add(unit)) {
+					Change change= getResult(unit);
+					if (change != null)
+						result.add(change);
 				}
+			}
+			return result.toArray(new Change[result.size()]);
+		}
 
-				i++;
+		/**
+		 * @param unit the primary compilation unit
+		 * @return the change for <code>unit</code> or <code>null</code> if there is none
+		 */
+		public Change getResult(ICompilationUnit unit) {
+			List<CleanUpChange> changes= fSolutions.get(unit);
+			if (changes == null)
+				return null;
+
+			int saveMode;
+			if (fLeaveFilesDirty) {
+				saveMode= TextFileChange.LEAVE_DIRTY;
+			} else {
+				saveMode= TextFileChange.KEEP_SAVE_STATE;
 			}
 
-			return result;
+			if (changes.size() == 1) {
+				CleanUpChange change= changes.get(0);
+				change.setSaveMode(saveMode);
+				return change;
+			} else {
+				MultiStateCompilationUnitChange mscuc= new MultiStateCompilationUnitChange(getChangeName(unit), unit);
+				for (int j= 0; j < changes.size(); j++) {
+					mscuc.addChange(createGroupFreeChange(changes.get(j)));
+				}
+				mscuc.setSaveMode(saveMode);
+				return mscuc;
+			}
 		}
 
 		private TextChange createGroupFreeChange(CleanUpChange change) {
@@ -523,6 +631,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private boolean fUseOptionsFromProfile;
 
+	private int fMaxWorkers;
+
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
 	}
@@ -532,12 +642,30 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<ICleanUp>();
 		fProjects= new Hashtable<IJavaProject, List<CleanUpTarget>>();
 		fUseOptionsFromProfile= false;
+		fMaxWorkers= 1;
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
 		fUseOptionsFromProfile= enabled;
 	}
 
+	/**
+	 * Sets the maximal number of worker threads used to clean up the compilation units of
+	 * a project. If more than one worker is allowed, the targets of a project are split by
+	 * package and each part is parsed and fixed by its own worker. The resulting change is
+	 * the same as the one computed by a single worker.
+	 * <p>
+	 * The clean ups added to this refactoring must be able to create fixes for different
+	 * compilation units concurrently if more than one worker is used.
+	 * </p>
+	 *
+	 * @param maxWorkers the maximal number of workers, <code>1</code> to clean up all
+	 *            compilation units in the calling thread
+	 */
+	public void setMaxWorkers(int maxWorkers) {
+		fMaxWorkers= Math.max(1, maxWorkers);
+	}
+
 	public void addCompilationUnit(ICompilationUnit unit) {
 		addCleanUpTarget(new CleanUpTarget(unit));
 	}
@@ -708,6 +836,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	}
 
 	private Change[] cleanUpProject(IJavaProject project, CleanUpTarget[] targets, ICleanUp[] cleanUps, IProgressMonitor monitor) throws CoreException {
+		if (fMaxWorkers > 1) {
+			CleanUpTarget[][] partitions= splitByPackage(targets, fMaxWorkers);
+			if (partitions.length > 1)
+				return cleanUpProject(project, targets, partitions, cleanUps, monitor);
+		}
+
 		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps);
 
 		SubProgressMonitor subMonitor= new SubProgressMonitor(monitor, 2 * targets.length * cleanUps.length);
@@ -725,6 +859,149 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	private Change[] cleanUpProject(IJavaProject project, CleanUpTarget[] targets, CleanUpTarget[][] partitions, ICleanUp[] cleanUps, IProgressMonitor monitor) throws CoreException {
+		SubProgressMonitor subMonitor= new SubProgressMonitor(monitor, 2 * targets.length * cleanUps.length);
+		subMonitor.beginTask("", targets.length); //$NON-NLS-1$
+		subMonitor.subTask(Messages.format(FixMessages.CleanUpRefactoring_Parser_Startup_message, BasicElementLabels.getResourceName(project.getProject())));
+
+		final SynchronizedProgressMonitor workerMonitor= new SynchronizedProgressMonitor(subMonitor);
+		final CleanUpFixpointIterator[] iterators= new CleanUpFixpointIterator[partitions.length];
+		Map<ICompilationUnit, CleanUpFixpointIterator> owners= new HashMap<ICompilationUnit, CleanUpFixpointIterator>();
+		int workerCount= Math.min(fMaxWorkers, partitions.length);
+		int firstIndex= 1;
+		for (int i= 0; i < partitions.length; i++) {
+			iterators[i]= new CleanUpFixpointIterator(partitions[i], cleanUps, targets.length, firstIndex, workerCount);
+			for (int j= 0; j < partitions[i].length; j++) {
+				owners.put(partitions[i][j].getCompilationUnit().getPrimary(), iterators[i]);
+			}
+			firstIndex+= partitions[i].length;
+		}
+
+		ExecutorService executor= Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			private int fCount= 0;
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "Clean Up Worker " + ++fCount); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<Object>> futures= new ArrayList<Future<Object>>(iterators.length);
+			for (int i= 0; i < iterators.length; i++) {
+				final CleanUpFixpointIterator iter= iterators[i];
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() throws CoreException {
+						while (iter.hasNext()) {
+							if (workerMonitor.isCanceled())
+								throw new OperationCanceledException();
+							iter.next(workerMonitor);
+						}
+						return null;
+					}
+				}));
+			}
+
+			for (Iterator<Future<Object>> iterator= futures.iterator(); iterator.hasNext();) {
+				waitFor(iterator.next(), workerMonitor);
+			}
+
+			// merge in the order of the targets to get the same result as a single worker
+			List<Change> result= new ArrayList<Change>();
+			HashSet<ICompilationUnit> added= new HashSet<ICompilationUnit>();
+			for (int i= 0; i < targets.length; i++) {
+				ICompilationUnit unit= targets[i].getCompilationUnit().getPrimary();
+				if (added.add(unit)) {
+					Change change= owners.get(unit).getResult(unit);
+					if (change != null)
+						result.add(change);
+				}
+			}
+			return result.toArray(new Change[result.size()]);
+		} finally {
+			executor.shutdownNow();
+			for (int i= 0; i < iterators.length; i++) {
+				iterators[i].dispose();
+			}
+			subMonitor.done();
+		}
+	}
+
+	private static void waitFor(Future<Object> future, SynchronizedProgressMonitor monitor) throws CoreException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			monitor.abort();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			monitor.abort();
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException)cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if (cause instanceof Error)
+				throw (Error)cause;
+			throw new CoreException(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), cause.getMessage(), cause));
+		}
+	}
+
+	/**
+	 * Splits the targets of a project into at most <code>count</code> parts. All targets of a
+	 * package end up in the same part, the parts are balanced by the number of targets.
+	 *
+	 * @param targets the targets of one project
+	 * @param count the maximal number of parts
+	 * @return the parts, each of them in the order of <code>targets</code>
+	 */
+	private static CleanUpTarget[][] splitByPackage(CleanUpTarget[] targets, int count) {
+		Map<IJavaElement, List<CleanUpTarget>> packages= new LinkedHashMap<IJavaElement, List<CleanUpTarget>>();
+		for (int i= 0; i < targets.length; i++) {
+			IJavaElement pack= targets[i].getCompilationUnit().getParent();
+			List<CleanUpTarget> list= packages.get(pack);
+			if (list == null) {
+				list= new ArrayList<CleanUpTarget>();
+				packages.put(pack, list);
+			}
+			list.add(targets[i]);
+		}
+
+		int size= Math.min(count, packages.size());
+		if (size <= 1)
+			return new CleanUpTarget[][] { targets };
+
+		List<List<CleanUpTarget>> groups= new ArrayList<List<CleanUpTarget>>(packages.values());
+		Collections.sort(groups, new Comparator<List<CleanUpTarget>>() {
+			public int compare(List<CleanUpTarget> o1, List<CleanUpTarget> o2) {
+				return o2.size() - o1.size();
+			}
+		});
+
+		List<Set<CleanUpTarget>> parts= new ArrayList<Set<CleanUpTarget>>(size);
+		for (int i= 0; i < size; i++) {
+			parts.add(new HashSet<CleanUpTarget>());
+		}
+		for (Iterator<List<CleanUpTarget>> iterator= groups.iterator(); iterator.hasNext();) {
+			Set<CleanUpTarget> smallest= parts.get(0);
+			for (int i= 1; i < size; i++) {
+				if (parts.get(i).size() < smallest.size())
+					smallest= parts.get(i);
+			}
+			smallest.addAll(iterator.next());
+		}
+
+		CleanUpTarget[][] result= new CleanUpTarget[size][];
+		for (int i= 0; i < size; i++) {
+			Set<CleanUpTarget> part= parts.get(i);
+			List<CleanUpTarget> ordered= new ArrayList<CleanUpTarget>(part.size());
+			for (int j= 0; j < targets.length; j++) {
+				if (part.contains(targets[j]))
+					ordered.add(targets[j]);
+			}
+			result[i]= ordered.toArray(new CleanUpTarget[ordered.size()]);
+		}
+		return result;
+	}
+
 	private RefactoringStatus setOptionsFromProfile(IJavaProject javaProject, ICleanUp[] cleanUps) {
 		Map<String, String> options= CleanUpPreferenceUtil.loadOptions(new ProjectScope(javaProject.getProject()));
 		if (options == null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,33 +11,53 @@
 package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * The cache holds up to {@link #getCacheCapacity()} hierarchies and evicts the least recently
+ * used one when it is full. Each type contained in a cached hierarchy is indexed, so that the
+ * lookup does not depend on the number of cached hierarchies.
+ * </p>
+ * <p>
+ * Cached hierarchies are never modified, since clients may still be using them. A hierarchy that
+ * is reported as changed by its {@link ITypeHierarchyChangedListener} is evicted, and so are the
+ * hierarchies affected by Java element deltas that remove elements, change class paths or change
+ * super types. The next request builds a new hierarchy.
+ * </p>
  */
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
 		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private IType[] fIndexedTypes;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
-			markAsAccessed();
+			fIndexedTypes= new IType[0];
 		}
 
 		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			fgStaleNotifications++;
 			removeHierarchyEntryFromCache(this);
 		}
 
@@ -45,12 +65,16 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
-		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+		public IType getType() {
+			return fTypeHierarchy.getType();
 		}
 
-		public long getLastAccess() {
-			return fLastAccess;
+		public IType[] getIndexedTypes() {
+			return fIndexedTypes;
+		}
+
+		public void setIndexedTypes(IType[] types) {
+			fIndexedTypes= types;
 		}
 
 		public void dispose() {
@@ -70,14 +94,117 @@ public class SuperTypeHierarchyCache {
 
 	}
 
+	/**
+	 * Evicts the cached hierarchies that are affected by removed elements, class path changes and
+	 * super type changes.
+	 */
+	private static class DeltaListener implements IElementChangedListener {
+
+		public void elementChanged(ElementChangedEvent event) {
+			synchronized (fgHierarchyCache) {
+				if (!fgHierarchyCache.isEmpty())
+					processDelta(event.getDelta());
+			}
+		}
+
+		private void processDelta(IJavaElementDelta delta) {
+			IJavaElement element= delta.getElement();
+			int flags= delta.getFlags();
+			if (delta.getKind() == IJavaElementDelta.REMOVED
+					|| (flags & (IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+				removeHierarchiesOfTypesIn(element);
+				return;
+			}
+			if (element.getElementType() == IJavaElement.TYPE && (flags & IJavaElementDelta.F_SUPER_TYPES) != 0) {
+				removeHierarchiesContaining((IType) element);
+			}
+			if (element.getElementType() > IJavaElement.TYPE)
+				return; // fields, methods, imports and the like don't declare types
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				processDelta(children[i]);
+			}
+		}
+
+		private void removeHierarchiesOfTypesIn(IJavaElement element) {
+			List<HierarchyCacheEntry> toRemove= new ArrayList<HierarchyCacheEntry>();
+			for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.values().iterator(); iter.hasNext();) {
+				HierarchyCacheEntry entry= iter.next();
+				if (isAncestorOrSelf(element, entry.getType()))
+					toRemove.add(entry);
+			}
+			removeHierarchyEntriesFromCache(toRemove);
+		}
+
+		private void removeHierarchiesContaining(IType type) {
+			List<HierarchyCacheEntry> toRemove= new ArrayList<HierarchyCacheEntry>();
+			for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.values().iterator(); iter.hasNext();) {
+				HierarchyCacheEntry entry= iter.next();
+				if (entry.getTypeHierarchy().contains(type))
+					toRemove.add(entry);
+			}
+			removeHierarchyEntriesFromCache(toRemove);
+		}
+
+		private static boolean isAncestorOrSelf(IJavaElement ancestor, IJavaElement element) {
+			for (IJavaElement curr= element; curr != null; curr= curr.getParent()) {
+				if (curr.equals(ancestor))
+					return true;
+			}
+			return false;
+		}
+	}
 
-	private static final int CACHE_SIZE= 8;
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<HierarchyCacheEntry>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<IType, MethodOverrideTester>(CACHE_SIZE);
+	private static final int DEFAULT_CACHE_SIZE= 8;
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static int fgCacheSize= DEFAULT_CACHE_SIZE;
+
+	/**
+	 * Cached hierarchies by focus type, in least recently used order.
+	 */
+	private static LinkedHashMap<IType, HierarchyCacheEntry> fgHierarchyCache= new LinkedHashMap<IType, HierarchyCacheEntry>(DEFAULT_CACHE_SIZE, 0.75f, true);
+
+	/**
+	 * The most recently added cached hierarchy for each type contained in a cached hierarchy.
+	 */
+	private static Map<IType, HierarchyCacheEntry> fgTypeIndex= new HashMap<IType, HierarchyCacheEntry>();
+
+	private static LinkedHashMap<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LinkedHashMap<IType, MethodOverrideTester>(DEFAULT_CACHE_SIZE, 0.75f, true);
+
+	private static volatile int fgCacheHits= 0;
+	private static volatile int fgCacheMisses= 0;
+	private static volatile int fgStaleNotifications= 0;
+
+	private static IElementChangedListener fgDeltaListener;
+
+	/**
+	 * Sets the number of hierarchies and method override testers that are cached.
+	 * Least recently used entries are removed if the cache holds more entries.
+	 *
+	 * @param size the capacity of the cache, must be positive
+	 */
+	public static void setCacheCapacity(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("Cache capacity must be positive: " + size); //$NON-NLS-1$
+
+		synchronized (fgHierarchyCache) {
+			fgCacheSize= size;
+			trimHierarchyCache(null);
+		}
+		synchronized (fgMethodOverrideTesterCache) {
+			trimMethodOverrideTesterCache();
+		}
+	}
+
+	/**
+	 * Returns the number of hierarchies that can be cached.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public static int getCacheCapacity() {
+		return fgCacheSize;
+	}
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -106,12 +233,21 @@ public class SuperTypeHierarchyCache {
 				if (test == null) {
 					test= new MethodOverrideTester(type, hierarchy);
 					fgMethodOverrideTesterCache.put(type, test);
+					trimMethodOverrideTesterCache();
 				}
 			}
 		}
 		return test;
 	}
 
+	private static void trimMethodOverrideTesterCache() {
+		Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator();
+		while (fgMethodOverrideTesterCache.size() > fgCacheSize && iter.hasNext()) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
 	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
 		synchronized (fgMethodOverrideTesterCache) {
 			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
@@ -149,33 +285,64 @@ public class SuperTypeHierarchyCache {
 
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
 		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<HierarchyCacheEntry>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
-				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
+			if (fgDeltaListener == null) {
+				fgDeltaListener= new DeltaListener();
+				JavaCore.addElementChangedListener(fgDeltaListener, ElementChangedEvent.POST_CHANGE);
+			}
+
+			// hierarchies of super types are made obsolete by the new hierarchy
+			IType[] types= hierarchy.getAllTypes();
+			for (int i= 0; i < types.length; i++) {
+				HierarchyCacheEntry obsolete= fgHierarchyCache.get(types[i]);
+				if (obsolete != null)
+					removeHierarchyEntryFromCache(obsolete);
+			}
+
+			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+			fgHierarchyCache.put(hierarchy.getType(), newEntry);
+			index(newEntry);
+			trimHierarchyCache(newEntry);
+		}
+	}
+
+	private static void trimHierarchyCache(HierarchyCacheEntry keep) {
+		List<HierarchyCacheEntry> toRemove= new ArrayList<HierarchyCacheEntry>();
+		int size= fgHierarchyCache.size();
+		for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.values().iterator(); iter.hasNext() && size > fgCacheSize;) {
+			HierarchyCacheEntry entry= iter.next();
+			if (entry != keep) {
+				toRemove.add(entry);
+				size--;
+			}
+		}
+		removeHierarchyEntriesFromCache(toRemove);
+	}
+
+	private static void index(HierarchyCacheEntry entry) {
+		IType[] types= entry.getTypeHierarchy().getAllTypes();
+		for (int i= 0; i < types.length; i++) {
+			fgTypeIndex.put(types[i], entry);
+		}
+		entry.setIndexedTypes(types);
+	}
+
+	private static void unindex(HierarchyCacheEntry entry) {
+		IType[] types= entry.getIndexedTypes();
+		for (int i= 0; i < types.length; i++) {
+			IType type= types[i];
+			if (fgTypeIndex.get(type) == entry) {
+				fgTypeIndex.remove(type);
+				// fall back to another cached hierarchy that contains the type
+				for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.values().iterator(); iter.hasNext();) {
+					HierarchyCacheEntry curr= iter.next();
+					if (curr != entry && curr.getTypeHierarchy() != null && curr.getTypeHierarchy().contains(type)) {
+						fgTypeIndex.put(type, curr);
+						break;
 					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
 				}
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
-			fgHierarchyCache.add(newEntry);
 		}
+		entry.setIndexedTypes(new IType[0]);
 	}
 
 
@@ -191,27 +358,33 @@ public class SuperTypeHierarchyCache {
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
 		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
+			HierarchyCacheEntry entry= fgTypeIndex.get(type);
+			if (entry == null)
+				return null;
+			if (!entry.getTypeHierarchy().exists()) {
+				removeHierarchyEntryFromCache(entry);
+				return findTypeHierarchyInCache(type);
 			}
+			fgHierarchyCache.get(entry.getType()); // mark as accessed
+			return entry.getTypeHierarchy();
+		}
+	}
+
+	private static void removeHierarchyEntriesFromCache(List<HierarchyCacheEntry> entries) {
+		for (int i= 0; i < entries.size(); i++) {
+			removeHierarchyEntryFromCache(entries.get(i));
 		}
-		return null;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
 		synchronized (fgHierarchyCache) {
+			if (entry.getTypeHierarchy() == null)
+				return; // already removed
 			removeMethodOverrideTester(entry.getTypeHierarchy());
+			if (fgHierarchyCache.get(entry.getType()) == entry)
+				fgHierarchyCache.remove(entry.getType());
+			unindex(entry);
 			entry.dispose();
-			fgHierarchyCache.remove(entry);
 		}
 	}
 
@@ -231,4 +404,31 @@ public class SuperTypeHierarchyCache {
 	public static int getCacheMisses() {
 		return fgCacheMisses;
 	}
+
+	/**
+	 * Gets the number of change notifications received for cached hierarchies.
+	 * @return the number of change notifications
+	 */
+	public static int getStaleNotifications() {
+		return fgStaleNotifications;
+	}
+
+	/**
+	 * Gets the number of hierarchies that are currently cached.
+	 * @return the number of cached hierarchies
+	 */
+	public static int getCachedHierarchiesCount() {
+		synchronized (fgHierarchyCache) {
+			return fgHierarchyCache.size();
+		}
+	}
+
+	/**
+	 * Resets the hit, miss and change notification statistics.
+	 */
+	public static void resetStatistics() {
+		fgCacheHits= 0;
+		fgCacheMisses= 0;
+		fgStaleNotifications= 0;
+	}
 }
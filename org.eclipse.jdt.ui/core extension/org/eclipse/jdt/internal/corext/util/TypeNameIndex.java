@@ -0,0 +1,393 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * In-memory index of the names of all types in the workspace, used by the open type dialog.
+ * <p>
+ * The index is built by one search over the workspace when it is first queried. Afterwards it is
+ * kept up to date from Java element deltas: compilation units whose types may have changed are
+ * re-read on the next query, any other structural change (class path, projects, package fragment
+ * roots, packages and class files) drops the index so that it is rebuilt on the next query.
+ * </p>
+ * <p>
+ * The types are sorted by their lower case simple name. A query returns the types whose name
+ * starts with the literal prefix of a name pattern; callers have to match the candidates against
+ * the full pattern.
+ * </p>
+ *
+ * @since 3.9
+ */
+public class TypeNameIndex {
+
+	private static class TypeNameDeltaListener implements IElementChangedListener {
+		public void elementChanged(ElementChangedEvent event) {
+			TypeNameIndex.getInstance().processDelta(event.getDelta());
+		}
+	}
+
+	/**
+	 * A type and its lower case simple name.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		final char[] fKey;
+		final TypeNameMatch fMatch;
+
+		Entry(char[] key, TypeNameMatch match) {
+			fKey= key;
+			fMatch= match;
+		}
+
+		public int compareTo(Entry other) {
+			return compare(fKey, other.fKey);
+		}
+	}
+
+	private static TypeNameIndex fgInstance;
+
+	public static synchronized TypeNameIndex getInstance() {
+		if (fgInstance == null)
+			fgInstance= new TypeNameIndex();
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance= null;
+	}
+
+	private final IElementChangedListener fDeltaListener;
+
+	/** The sorted entries, or <code>null</code> if the index has to be built. Guarded by <code>this</code>. */
+	private Entry[] fEntries;
+	/** Incremented whenever the index is dropped. Guarded by <code>this</code>. */
+	private int fStamp;
+	/** The compilation units whose types have to be re-read. Guarded by <code>this</code>. */
+	private final Set<ICompilationUnit> fDirtyUnits= new LinkedHashSet<ICompilationUnit>();
+	/** Incremented whenever a compilation unit becomes dirty. Guarded by <code>this</code>. */
+	private int fDirtyStamp;
+
+	private TypeNameIndex() {
+		fDeltaListener= new TypeNameDeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener);
+	}
+
+	/**
+	 * Returns the types whose simple name may match the given name pattern. These are all types
+	 * whose simple name starts with the literal prefix of the pattern, ignoring case.
+	 *
+	 * @param namePattern the simple name pattern as understood by {@link TypeInfoFilter}
+	 * @param monitor the progress monitor used if the index has to be built
+	 * @return the candidates, in no particular order
+	 * @throws JavaModelException if the index cannot be built
+	 */
+	public TypeNameMatch[] getCandidates(String namePattern, IProgressMonitor monitor) throws JavaModelException {
+		Entry[] entries= getEntries(monitor);
+		char[] prefix= getLiteralPrefix(namePattern);
+		int start= 0;
+		int end= entries.length;
+		if (prefix.length > 0) {
+			start= lowerBound(entries, prefix);
+			end= start;
+			while (end < entries.length && startsWith(entries[end].fKey, prefix))
+				end++;
+		}
+		TypeNameMatch[] result= new TypeNameMatch[end - start];
+		for (int i= start; i < end; i++)
+			result[i - start]= entries[i].fMatch;
+		return result;
+	}
+
+	/**
+	 * Returns the lower case prefix every simple name matched by the given pattern starts with.
+	 * The prefix ends before the first wildcard, terminator or camel case part.
+	 *
+	 * @param namePattern the name pattern
+	 * @return the prefix, possibly empty
+	 */
+	private static char[] getLiteralPrefix(String namePattern) {
+		int length= 0;
+		while (length < namePattern.length()) {
+			char ch= namePattern.charAt(length);
+			if (!Character.isJavaIdentifierPart(ch) || (length > 0 && Character.isUpperCase(ch)))
+				break;
+			length++;
+		}
+		return toLowerCase(namePattern.substring(0, length));
+	}
+
+	private Entry[] getEntries(IProgressMonitor monitor) throws JavaModelException {
+		Entry[] entries;
+		ICompilationUnit[] dirtyUnits;
+		int stamp;
+		int dirtyStamp;
+		synchronized (this) {
+			entries= fEntries;
+			dirtyUnits= fDirtyUnits.toArray(new ICompilationUnit[fDirtyUnits.size()]);
+			stamp= fStamp;
+			dirtyStamp= fDirtyStamp;
+		}
+		if (entries != null && dirtyUnits.length == 0)
+			return entries;
+
+		if (entries == null)
+			entries= build(monitor);
+		if (dirtyUnits.length > 0)
+			entries= update(entries, dirtyUnits);
+
+		synchronized (this) {
+			if (stamp == fStamp) {
+				fEntries= entries;
+				// units that have become dirty in the meantime are read again next time
+				if (dirtyStamp == fDirtyStamp)
+					fDirtyUnits.clear();
+			}
+		}
+		return entries;
+	}
+
+	private static Entry[] build(IProgressMonitor monitor) throws JavaModelException {
+		final List<Entry> entries= new ArrayList<Entry>();
+		final Map<String, char[]> keys= new HashMap<String, char[]>();
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				String name= match.getSimpleTypeName();
+				char[] interned= keys.get(name);
+				if (interned == null) {
+					interned= toLowerCase(name);
+					keys.put(name, interned);
+				}
+				entries.add(new Entry(interned, match));
+			}
+		};
+		new SearchEngine((WorkingCopyOwner) null).searchAllTypeNames(
+				null,
+				SearchPattern.R_PATTERN_MATCH,
+				null,
+				SearchPattern.R_PATTERN_MATCH,
+				IJavaSearchConstants.TYPE,
+				SearchEngine.createWorkspaceScope(),
+				requestor,
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				monitor);
+		Entry[] result= entries.toArray(new Entry[entries.size()]);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Replaces the types of the given compilation units by their current types.
+	 *
+	 * @param entries the sorted entries
+	 * @param units the compilation units to re-read
+	 * @return the new sorted entries
+	 */
+	private static Entry[] update(Entry[] entries, ICompilationUnit[] units) {
+		Set<ICompilationUnit> unitSet= new HashSet<ICompilationUnit>(Arrays.asList(units));
+		List<Entry> added= new ArrayList<Entry>();
+		for (ICompilationUnit unit : unitSet) {
+			if (!unit.exists())
+				continue;
+			try {
+				IType[] types= unit.getAllTypes();
+				for (int i= 0; i < types.length; i++) {
+					IType type= types[i];
+					TypeNameMatch match= SearchEngine.createTypeNameMatch(type, type.getFlags());
+					added.add(new Entry(toLowerCase(type.getElementName()), match));
+				}
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+		}
+		Collections.sort(added);
+
+		List<Entry> result= new ArrayList<Entry>(entries.length + added.size());
+		int next= 0;
+		for (int i= 0; i < entries.length; i++) {
+			Entry entry= entries[i];
+			if (unitSet.contains(entry.fMatch.getType().getCompilationUnit()))
+				continue;
+			while (next < added.size() && added.get(next).compareTo(entry) < 0)
+				result.add(added.get(next++));
+			result.add(entry);
+		}
+		while (next < added.size())
+			result.add(added.get(next++));
+		return result.toArray(new Entry[result.size()]);
+	}
+
+	/**
+	 * Returns the key of a simple type name. Unlike {@link String#toLowerCase()}, this does not
+	 * depend on the default locale, so keys and prefixes always agree.
+	 *
+	 * @param name the simple type name
+	 * @return the lower case characters of the name
+	 */
+	private static char[] toLowerCase(String name) {
+		char[] result= name.toCharArray();
+		for (int i= 0; i < result.length; i++)
+			result[i]= Character.toLowerCase(result[i]);
+		return result;
+	}
+
+	private synchronized void markDirty(ICompilationUnit unit) {
+		fDirtyUnits.add(unit);
+		fDirtyStamp++;
+	}
+
+	private synchronized void invalidate() {
+		fEntries= null;
+		fDirtyUnits.clear();
+		fStamp++;
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+						| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					invalidate();
+					return;
+				}
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+						| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0) {
+					invalidate();
+					return;
+				}
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				// the units of added or removed packages are not reported
+				if (kind != IJavaElementDelta.CHANGED) {
+					invalidate();
+					return;
+				}
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.CLASS_FILE:
+				invalidate();
+				return;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit unit= (ICompilationUnit) element;
+				if (!JavaModelUtil.isPrimary(unit))
+					return;
+				if (kind != IJavaElementDelta.CHANGED || affectsTypes(delta))
+					markDirty(unit);
+				return;
+			default:
+				return;
+		}
+	}
+
+	private void processChildrenDelta(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++)
+			processDelta(children[i]);
+	}
+
+	/**
+	 * Tells whether a change of a compilation unit or type may have changed the names or
+	 * modifiers of its types.
+	 *
+	 * @param delta the delta of a compilation unit or type
+	 * @return <code>true</code> if the types must be re-read
+	 */
+	private static boolean affectsTypes(IJavaElementDelta delta) {
+		int flags= delta.getFlags();
+		if ((flags & (IJavaElementDelta.F_PRIMARY_WORKING_COPY | IJavaElementDelta.F_PRIMARY_RESOURCE | IJavaElementDelta.F_MODIFIERS)) != 0)
+			return true;
+		if ((flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return true;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			if (child.getElement().getElementType() != IJavaElement.TYPE)
+				continue;
+			if (child.getKind() != IJavaElementDelta.CHANGED || affectsTypes(child))
+				return true;
+		}
+		return false;
+	}
+
+	private static int lowerBound(Entry[] entries, char[] key) {
+		int low= 0;
+		int high= entries.length;
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			if (compare(entries[mid].fKey, key) < 0)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	private static boolean startsWith(char[] name, char[] prefix) {
+		if (name.length < prefix.length)
+			return false;
+		for (int i= 0; i < prefix.length; i++) {
+			if (name[i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static int compare(char[] left, char[] right) {
+		int length= Math.min(left.length, right.length);
+		for (int i= 0; i < length; i++) {
+			if (left[i] != right[i])
+				return left[i] - right[i];
+		}
+		return left.length - right.length;
+	}
+}
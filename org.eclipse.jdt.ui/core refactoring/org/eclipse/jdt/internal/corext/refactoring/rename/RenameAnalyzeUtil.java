@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,12 +16,20 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.core.resources.IResource;
@@ -39,6 +47,7 @@ import org.eclipse.ltk.core.refactoring.TextEditChangeGroup;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.ISourceReference;
 import org.eclipse.jdt.core.JavaModelException;
@@ -55,7 +64,9 @@ import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.VariableDeclaration;
 import org.eclipse.jdt.core.search.FieldDeclarationMatch;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.MethodDeclarationMatch;
+import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.SearchMatch;
 
 import org.eclipse.jdt.internal.corext.SourceRangeFactory;
@@ -69,10 +80,26 @@ import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.util.Messages;
 import org.eclipse.jdt.internal.corext.util.SearchUtils;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
 import org.eclipse.jdt.internal.ui.viewsupport.BasicElementLabels;
 
-class RenameAnalyzeUtil {
+public class RenameAnalyzeUtil {
+
+	/**
+	 * Tells whether the references to the renamed element are only searched again in the
+	 * compilation units that the refactoring changes. This is faster for large workspaces, but does
+	 * not detect references that the rename introduces into unchanged compilation units. It is
+	 * switched on with the <code>org.eclipse.jdt.ui.renameAnalysisInChangedUnitsOnly</code> system
+	 * property.
+	 */
+	static final boolean SEARCH_CHANGED_UNITS_ONLY= Boolean.getBoolean("org.eclipse.jdt.ui.renameAnalysisInChangedUnitsOnly"); //$NON-NLS-1$
+
+	/**
+	 * The number of preview contents that are waiting for their working copy at most, which bounds
+	 * the memory of the contents that have been computed ahead of the reconcilers.
+	 */
+	private static final int MAX_PENDING_CONTENTS= 8;
 
 	private static class ProblemNodeFinder {
 
@@ -181,24 +208,179 @@ class RenameAnalyzeUtil {
 		return null;
 	}
 
-	static ICompilationUnit[] createNewWorkingCopies(ICompilationUnit[] compilationUnitsToModify, TextChangeManager manager, WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
+	/**
+	 * Creates working copies with the contents after the refactoring. The working copies should
+	 * belong to an owner that is dedicated to the analysis, so that they can be reconciled
+	 * independently of each other.
+	 * <p>
+	 * The preview contents are computed in the calling thread, since they need the documents of
+	 * the text changes. The working copies are reconciled on {@link JavaPlugin#getExecutor() the
+	 * thread pool} while the next preview contents are computed. All working copies are needed for
+	 * the search that follows, but only {@link #MAX_PENDING_CONTENTS} contents wait for their
+	 * working copy at the same time.
+	 * </p>
+	 * <p>
+	 * If the method fails or is canceled, the working copies that have been created are discarded.
+	 * </p>
+	 *
+	 * @param compilationUnitsToModify the compilation units
+	 * @param manager the change manager with the changes of the compilation units
+	 * @param owner the owner of the new working copies
+	 * @param pm the progress monitor
+	 * @return the new working copies, in the order of the compilation units
+	 * @throws CoreException if a working copy cannot be created
+	 */
+	public static ICompilationUnit[] createNewWorkingCopies(ICompilationUnit[] compilationUnitsToModify, TextChangeManager manager, WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
+		if (compilationUnitsToModify.length > 1)
+			return createNewWorkingCopiesConcurrently(compilationUnitsToModify, manager, owner, pm);
+
 		pm.beginTask("", compilationUnitsToModify.length); //$NON-NLS-1$
 		ICompilationUnit[] newWorkingCopies= new ICompilationUnit[compilationUnitsToModify.length];
-		for (int i= 0; i < compilationUnitsToModify.length; i++) {
-			ICompilationUnit cu= compilationUnitsToModify[i];
-			newWorkingCopies[i]= createNewWorkingCopy(cu, manager, owner, new SubProgressMonitor(pm, 1));
+		boolean success= false;
+		try {
+			for (int i= 0; i < compilationUnitsToModify.length; i++) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				ICompilationUnit cu= compilationUnitsToModify[i];
+				newWorkingCopies[i]= createNewWorkingCopy(cu, manager, owner, new SubProgressMonitor(pm, 1));
+			}
+			success= true;
+			return newWorkingCopies;
+		} finally {
+			if (!success) {
+				for (int i= 0; i < newWorkingCopies.length; i++) {
+					if (newWorkingCopies[i] != null)
+						newWorkingCopies[i].discardWorkingCopy();
+				}
+			}
+			pm.done();
 		}
-		pm.done();
-		return newWorkingCopies;
+	}
+
+	private static ICompilationUnit[] createNewWorkingCopiesConcurrently(ICompilationUnit[] compilationUnitsToModify, TextChangeManager manager, final WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
+		pm.beginTask("", compilationUnitsToModify.length * 2); //$NON-NLS-1$
+		final Semaphore pendingContents= new Semaphore(MAX_PENDING_CONTENTS);
+		// set when the creation fails, so that the tasks that have not started yet do nothing
+		final AtomicBoolean aborted= new AtomicBoolean();
+		List<Future<ICompilationUnit>> futures= new ArrayList<Future<ICompilationUnit>>(compilationUnitsToModify.length);
+		boolean success= false;
+		try {
+			for (int i= 0; i < compilationUnitsToModify.length; i++) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				final ICompilationUnit cu= compilationUnitsToModify[i];
+				pendingContents.acquire();
+				final String previewContent;
+				try {
+					previewContent= manager.get(cu).getPreviewContent(new NullProgressMonitor());
+				} catch (CoreException e) {
+					pendingContents.release();
+					throw e;
+				}
+				futures.add(JavaPlugin.getDefault().getExecutor().submit(new Callable<ICompilationUnit>() {
+					public ICompilationUnit call() throws JavaModelException {
+						try {
+							if (aborted.get())
+								return null;
+							return createNewWorkingCopy(cu, previewContent, owner, new NullProgressMonitor());
+						} finally {
+							pendingContents.release();
+						}
+					}
+				}));
+				pm.worked(1);
+			}
+
+			ICompilationUnit[] newWorkingCopies= new ICompilationUnit[compilationUnitsToModify.length];
+			for (int i= 0; i < newWorkingCopies.length; i++) {
+				newWorkingCopies[i]= futures.get(i).get();
+				pm.worked(1);
+			}
+			success= true;
+			return newWorkingCopies;
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new JavaModelException(e, IJavaModelStatusConstants.INTERNAL_ERROR);
+		} finally {
+			if (!success) {
+				aborted.set(true);
+				discardWorkingCopies(futures);
+			}
+			pm.done();
+		}
+	}
+
+	/**
+	 * Waits for the given tasks to end and discards the working copies they have created. The tasks
+	 * are not canceled, since a task that is already running would still create its working copy.
+	 *
+	 * @param futures the tasks that create the working copies
+	 */
+	private static void discardWorkingCopies(List<Future<ICompilationUnit>> futures) {
+		boolean interrupted= false;
+		for (Iterator<Future<ICompilationUnit>> iter= futures.iterator(); iter.hasNext();) {
+			Future<ICompilationUnit> future= iter.next();
+			while (true) {
+				try {
+					ICompilationUnit workingCopy= future.get();
+					if (workingCopy != null)
+						workingCopy.discardWorkingCopy();
+					break;
+				} catch (InterruptedException e) {
+					interrupted= true;
+				} catch (ExecutionException e) {
+					// the task has discarded its working copy
+					break;
+				} catch (JavaModelException e) {
+					JavaPlugin.log(e);
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
 	}
 
 	static ICompilationUnit createNewWorkingCopy(ICompilationUnit cu, TextChangeManager manager,
 			WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
-		ICompilationUnit newWc= cu.getWorkingCopy(owner, null);
 		String previewContent= manager.get(cu).getPreviewContent(new NullProgressMonitor());
-		newWc.getBuffer().setContents(previewContent);
-		newWc.reconcile(ICompilationUnit.NO_AST, false, owner, pm);
-		return newWc;
+		return createNewWorkingCopy(cu, previewContent, owner, pm);
+	}
+
+	private static ICompilationUnit createNewWorkingCopy(ICompilationUnit cu, String content, WorkingCopyOwner owner, IProgressMonitor pm) throws JavaModelException {
+		ICompilationUnit newWc= cu.getWorkingCopy(owner, null);
+		boolean success= false;
+		try {
+			newWc.getBuffer().setContents(content);
+			newWc.reconcile(ICompilationUnit.NO_AST, false, owner, pm);
+			success= true;
+			return newWc;
+		} finally {
+			if (!success)
+				newWc.discardWorkingCopy();
+		}
+	}
+
+	/**
+	 * Returns the scope in which the references to the renamed element are searched again.
+	 *
+	 * @param scope the scope of the refactoring
+	 * @param manager the change manager of the refactoring
+	 * @return the given scope, or the changed compilation units if
+	 *         {@link #SEARCH_CHANGED_UNITS_ONLY} is set
+	 */
+	static IJavaSearchScope getNewReferencesScope(IJavaSearchScope scope, TextChangeManager manager) {
+		if (!SEARCH_CHANGED_UNITS_ONLY)
+			return scope;
+		return SearchEngine.createJavaSearchScope(manager.getAllCompilationUnits());
 	}
 
 	private static boolean existsInNewOccurrences(SearchMatch searchResult, SearchResultGroup[] newOccurrences, TextChangeManager manager) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -882,7 +882,7 @@ public class RenameFieldProcessor extends JavaRenameProcessor implements IRefere
 			requestor= new CollectingSearchRequestor();
 
 		SearchPattern newPattern= SearchPattern.createPattern(field, IJavaSearchConstants.REFERENCES);
-		IJavaSearchScope scope= RefactoringScopeFactory.create(fField, true, true);
+		IJavaSearchScope scope= RenameAnalyzeUtil.getNewReferencesScope(RefactoringScopeFactory.create(fField, true, true), fChangeManager);
 		return RefactoringSearchEngine.search(newPattern, owner, scope, requestor, new SubProgressMonitor(pm, 1), status);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -589,7 +589,7 @@ public abstract class RenameMethodProcessor extends JavaRenameProcessor implemen
 
 		SearchPattern refsPattern= RefactoringSearchEngine.createOrPattern(wcNewMethods, IJavaSearchConstants.REFERENCES);
 		SearchParticipant[] searchParticipants= SearchUtils.getDefaultSearchParticipants();
-		IJavaSearchScope scope= RefactoringScopeFactory.create(wcNewMethods);
+		IJavaSearchScope scope= RenameAnalyzeUtil.getNewReferencesScope(RefactoringScopeFactory.create(wcNewMethods), fChangeManager);
 
 		MethodOccurenceCollector requestor;
 		if (getDelegateUpdating()) {
@@ -1272,6 +1272,15 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 	 * @throws CoreException should not happen
 	 */
 	private RefactoringStatus initializeSimilarElementsRenameProcessors(IProgressMonitor progressMonitor, CheckConditionsContext context) throws CoreException {
+		RippleMethodFinder2.HierarchyCache hierarchyCache= new RippleMethodFinder2.HierarchyCache();
+		try {
+			return initializeSimilarElementsRenameProcessors(progressMonitor, context, hierarchyCache);
+		} finally {
+			hierarchyCache.dispose();
+		}
+	}
+
+	private RefactoringStatus initializeSimilarElementsRenameProcessors(IProgressMonitor progressMonitor, CheckConditionsContext context, RippleMethodFinder2.HierarchyCache hierarchyCache) throws CoreException {
 
 		Assert.isNotNull(fPreloadedElementToName);
 		Assert.isNotNull(fPreloadedElementToSelection);
@@ -1363,7 +1372,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (handledTopLevelMethods.contains(currentMethod))
 						continue;
 					handledTopLevelMethods.add(currentMethod);
-					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null);
+					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null, hierarchyCache);
 
 					if (checkForWarnings(warnings, newName, ripples))
 						continue;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,13 +19,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IRegion;
@@ -47,6 +52,8 @@ import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContex
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.corext.util.SearchUtils;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 public class RippleMethodFinder2 {
 
 	private final IMethod fMethod;
@@ -57,10 +64,12 @@ public class RippleMethodFinder2 {
 	private MultiMap<IType, IType> fRootReps;
 	private Map<IType, ITypeHierarchy> fRootHierarchies;
 	private UnionFind fUnionFind;
+	private Set<IType> fUnitedTypes;
 
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
 	private Map<IMethod, SearchMatch> fDeclarationToMatch;
+	private final HierarchyCache fHierarchyCache;
 
 	private static class MultiMap<K, V> {
 		HashMap<K, Collection<V>> fImplementation= new HashMap<K, Collection<V>>();
@@ -78,58 +87,108 @@ public class RippleMethodFinder2 {
 			return fImplementation.get(key);
 		}
 	}
+	/**
+	 * Union-find over the types that declare the method. The types are interned to ids, and the
+	 * partitions are kept in arrays with path compression and union by size.
+	 */
 	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<IType, IType>();
+		private final Map<IType, Integer> fIds= new HashMap<IType, Integer>();
+		private final List<IType> fTypes= new ArrayList<IType>();
+		private int[] fParents= new int[16];
+		private int[] fSizes= new int[16];
 
 		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
+			if (fIds.containsKey(type))
+				return;
+			int id= fTypes.size();
+			if (id == fParents.length) {
+				int[] parents= new int[id * 2];
+				System.arraycopy(fParents, 0, parents, 0, id);
+				fParents= parents;
+				int[] sizes= new int[id * 2];
+				System.arraycopy(fSizes, 0, sizes, 0, id);
+				fSizes= sizes;
+			}
+			fParents[id]= id;
+			fSizes[id]= 1;
+			fIds.put(type, new Integer(id));
+			fTypes.add(type);
 		}
 
-		//path compression:
 		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
+			Integer id= fIds.get(element);
+			if (id == null)
 				return null;
+			return fTypes.get(findRoot(id.intValue()));
+		}
 
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
+		//path compression:
+		private int findRoot(int id) {
+			int root= id;
+			while (fParents[root] != root)
+				root= fParents[root];
+			while (fParents[id] != root) {
+				int next= fParents[id];
+				fParents[id]= root;
+				id= next;
 			}
 			return root;
 		}
 
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
 		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
+			int root1= findRoot(fIds.get(rep1).intValue());
+			int root2= findRoot(fIds.get(rep2).intValue());
+			if (root1 == root2)
+				return;
+			if (fSizes[root1] < fSizes[root2]) {
+				fParents[root1]= root2;
+				fSizes[root2]+= fSizes[root1];
+			} else {
+				fParents[root2]= root1;
+				fSizes[root1]+= fSizes[root2];
+			}
 		}
 	}
 
+	/**
+	 * The type hierarchies of root types that have been computed for the primary working copies,
+	 * shared between the finders of one refactoring. The Java model is not modified while the
+	 * refactoring checks its conditions, so the hierarchies are not updated. The cache must be
+	 * disposed when the refactoring does not need it anymore.
+	 */
+	public static final class HierarchyCache {
+
+		private final Map<IType, ITypeHierarchy> fHierarchies= new HashMap<IType, ITypeHierarchy>();
 
-	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
+		ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor monitor) throws JavaModelException {
+			synchronized (fHierarchies) {
+				ITypeHierarchy hierarchy= fHierarchies.get(type);
+				if (hierarchy != null)
+					return hierarchy;
+			}
+			ITypeHierarchy hierarchy= type.newTypeHierarchy(monitor);
+			synchronized (fHierarchies) {
+				fHierarchies.put(type, hierarchy);
+			}
+			return hierarchy;
+		}
+
+		/**
+		 * Releases the cached hierarchies.
+		 */
+		public void dispose() {
+			synchronized (fHierarchies) {
+				fHierarchies.clear();
+			}
+		}
+	}
+
+
+	private RippleMethodFinder2(IMethod method, boolean excludeBinaries, HierarchyCache hierarchyCache){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
 		fBinaryRefs= null;
+		fHierarchyCache= hierarchyCache;
 	}
 
 	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs) {
@@ -137,6 +196,7 @@ public class RippleMethodFinder2 {
 		fExcludeBinaries= true;
 		fDeclarationToMatch= new HashMap<IMethod, SearchMatch>();
 		fBinaryRefs= binaryRefs;
+		fHierarchyCache= null;
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
@@ -144,7 +204,7 @@ public class RippleMethodFinder2 {
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, excludeBinaries).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, excludeBinaries, null).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
@@ -153,6 +213,28 @@ public class RippleMethodFinder2 {
 		return getRelatedMethods(method, true, pm, owner);
 	}
 
+	/**
+	 * Finds the related methods of the given method, reusing the type hierarchies of the given
+	 * cache if <code>owner</code> is <code>null</code>.
+	 *
+	 * @param method the method
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, can be <code>null</code>
+	 * @param hierarchyCache the hierarchies computed for the same refactoring
+	 * @return the related methods
+	 * @throws CoreException if the search or a hierarchy fails
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, IProgressMonitor pm, WorkingCopyOwner owner, HierarchyCache hierarchyCache) throws CoreException {
+		try{
+			if (! MethodChecks.isVirtual(method))
+				return new IMethod[]{ method };
+
+			return new RippleMethodFinder2(method, true, hierarchyCache).getAllRippleMethods(pm, owner);
+		} finally{
+			pm.done();
+		}
+	}
+
 	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		try {
 			if (! MethodChecks.isVirtual(method))
@@ -247,6 +329,8 @@ public class RippleMethodFinder2 {
 		if (! hasRelatedInterfaces && ! hasAlienInterfaces) //no nasty marriage scenarios without interfaces...
 			return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 
+		computeRootHierarchies(owner, pm);
+
 		//find all subtypes of related types:
 		HashSet<IType> relatedSubTypes= new HashSet<IType>();
 		List<IType> relatedTypesToProcess= new ArrayList<IType>(relatedTypes);
@@ -306,6 +390,7 @@ public class RippleMethodFinder2 {
 		fRootHierarchies= null;
 		fTypeToMethod= null;
 		fUnionFind= null;
+		fUnitedTypes= null;
 
 		return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 	}
@@ -318,7 +403,7 @@ public class RippleMethodFinder2 {
 				IType root= iter.next();
 				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
 				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
+					hierarchy= createRootHierarchy(root, owner, new SubProgressMonitor(monitor, 1));
 					fRootHierarchies.put(root, hierarchy);
 				}
 				if (hierarchy.contains(type))
@@ -328,6 +413,69 @@ public class RippleMethodFinder2 {
 		return null;
 	}
 
+	private ITypeHierarchy createRootHierarchy(IType root, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		if (owner == null && fHierarchyCache != null)
+			return fHierarchyCache.getTypeHierarchy(root, monitor);
+		return root.newTypeHierarchy(owner, monitor);
+	}
+
+	/**
+	 * Computes the type hierarchies of all root types on the thread pool, so that the search for
+	 * married types finds them in {@link #fRootHierarchies}.
+	 *
+	 * @param owner the working copy owner, can be <code>null</code>
+	 * @param pm the progress monitor, only used for cancellation
+	 * @throws JavaModelException if a hierarchy cannot be computed
+	 */
+	private void computeRootHierarchies(final WorkingCopyOwner owner, final IProgressMonitor pm) throws JavaModelException {
+		List<IType> roots= new ArrayList<IType>();
+		for (Iterator<Collection<IType>> iter= fRootReps.fImplementation.values().iterator(); iter.hasNext();) {
+			for (Iterator<IType> iterator= iter.next().iterator(); iterator.hasNext();) {
+				IType root= iterator.next();
+				if (!fRootHierarchies.containsKey(root))
+					roots.add(root);
+			}
+		}
+		if (roots.size() < 2)
+			return;
+
+		final IProgressMonitor monitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return pm.isCanceled();
+			}
+		};
+		List<Future<ITypeHierarchy>> futures= new ArrayList<Future<ITypeHierarchy>>(roots.size());
+		for (Iterator<IType> iter= roots.iterator(); iter.hasNext();) {
+			final IType root= iter.next();
+			futures.add(JavaPlugin.getDefault().getExecutor().submit(new Callable<ITypeHierarchy>() {
+				public ITypeHierarchy call() throws JavaModelException {
+					return createRootHierarchy(root, owner, monitor);
+				}
+			}));
+		}
+		try {
+			for (int i= 0; i < roots.size(); i++)
+				fRootHierarchies.put(roots.get(i), futures.get(i).get());
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new JavaModelException(e, IJavaModelStatusConstants.INTERNAL_ERROR);
+		} finally {
+			for (Iterator<Future<ITypeHierarchy>> iter= futures.iterator(); iter.hasNext();)
+				iter.next().cancel(false);
+		}
+		if (pm.isCanceled())
+			throw new OperationCanceledException();
+	}
+
 	private void findAllDeclarations(IProgressMonitor monitor, WorkingCopyOwner owner) throws CoreException {
 		fDeclarations= new ArrayList<IMethod>();
 
@@ -376,13 +524,14 @@ public class RippleMethodFinder2 {
 	private void createUnionFind() throws JavaModelException {
 		fRootTypes= new HashSet<IType>(fTypeToMethod.keySet());
 		fUnionFind= new UnionFind();
+		fUnitedTypes= new HashSet<IType>();
 		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
 			IType type= iter.next();
 			fUnionFind.init(type);
 		}
 		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
 			IType type= iter.next();
-			uniteWithSupertypes(type, type);
+			uniteWithSupertypes(type);
 		}
 		fRootReps= new MultiMap<IType, IType>();
 		for (Iterator<IType> iter= fRootTypes.iterator(); iter.hasNext();) {
@@ -394,6 +543,18 @@ public class RippleMethodFinder2 {
 		fRootHierarchies= new HashMap<IType, ITypeHierarchy>();
 	}
 
+	/**
+	 * Unites the given type with the supertypes whose method it overrides. A type is only united
+	 * once, since the result does not depend on how the type has been reached.
+	 *
+	 * @param type a type that declares the method
+	 * @throws JavaModelException if the hierarchy cannot be accessed
+	 */
+	private void uniteWithSupertypes(IType type) throws JavaModelException {
+		if (fUnitedTypes.add(type))
+			uniteWithSupertypes(type, type);
+	}
+
 	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
 		IType[] supertypes= fHierarchy.getSupertypes(type);
 		for (int i= 0; i < supertypes.length; i++) {
@@ -410,7 +571,7 @@ public class RippleMethodFinder2 {
 					fUnionFind.union(rep, superRep);
 					// current type is no root anymore
 					fRootTypes.remove(anchor);
-					uniteWithSupertypes(supertype, supertype);
+					uniteWithSupertypes(supertype);
 				} else {
 					//Not overridden -> overriding chain ends here.
 				}
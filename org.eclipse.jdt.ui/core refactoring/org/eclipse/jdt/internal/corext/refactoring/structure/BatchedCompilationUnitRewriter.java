@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.structure;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.TextChange;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+
+/**
+ * Rewrites many compilation units and collects their text changes in a {@link TextChangeManager}.
+ * <p>
+ * The compilation units are grouped by project and parsed with bindings in batches of
+ * {@link #BATCH_SIZE} with {@link ASTParser#createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+ * Each {@link CompilationUnitRewrite} is turned into its text change as soon as it has been
+ * rewritten, so that only the ASTs of one batch are in memory at the same time, independent of the
+ * number of compilation units.
+ * </p>
+ *
+ * @since 3.9
+ */
+public class BatchedCompilationUnitRewriter {
+
+	/**
+	 * The number of compilation units that are parsed together.
+	 */
+	public static final int BATCH_SIZE= 50;
+
+	/**
+	 * Rewrites one compilation unit of a batch.
+	 */
+	public interface IRewriteRequestor {
+
+		/**
+		 * Applies the modifications to the given compilation unit rewrite. The AST of the rewrite
+		 * shares its bindings with the other ASTs of the batch and must not be referenced after
+		 * this method returns.
+		 *
+		 * @param cuRewrite the rewrite of the compilation unit
+		 * @throws CoreException if the compilation unit cannot be rewritten
+		 */
+		void rewrite(CompilationUnitRewrite cuRewrite) throws CoreException;
+	}
+
+	private final IRewriteRequestor fRequestor;
+	private final TextChangeManager fChangeManager;
+
+	/**
+	 * Creates a new rewriter.
+	 *
+	 * @param requestor the requestor that rewrites the compilation units
+	 * @param changeManager the change manager to add the text changes to
+	 */
+	public BatchedCompilationUnitRewriter(IRewriteRequestor requestor, TextChangeManager changeManager) {
+		fRequestor= requestor;
+		fChangeManager= changeManager;
+	}
+
+	/**
+	 * Rewrites the given compilation units.
+	 *
+	 * @param units the compilation units
+	 * @param pm the progress monitor
+	 * @throws CoreException if a compilation unit cannot be rewritten
+	 */
+	public void rewrite(ICompilationUnit[] units, IProgressMonitor pm) throws CoreException {
+		Map<IJavaProject, List<ICompilationUnit>> projects= new LinkedHashMap<IJavaProject, List<ICompilationUnit>>();
+		for (int i= 0; i < units.length; i++) {
+			IJavaProject project= units[i].getJavaProject();
+			List<ICompilationUnit> cus= projects.get(project);
+			if (cus == null) {
+				cus= new ArrayList<ICompilationUnit>();
+				projects.put(project, cus);
+			}
+			cus.add(units[i]);
+		}
+		pm.beginTask("", units.length); //$NON-NLS-1$
+		try {
+			for (Iterator<Entry<IJavaProject, List<ICompilationUnit>>> iter= projects.entrySet().iterator(); iter.hasNext();) {
+				Entry<IJavaProject, List<ICompilationUnit>> entry= iter.next();
+				List<ICompilationUnit> cus= entry.getValue();
+				for (int i= 0; i < cus.size(); i+= BATCH_SIZE) {
+					if (pm.isCanceled())
+						throw new OperationCanceledException();
+					List<ICompilationUnit> batch= cus.subList(i, Math.min(cus.size(), i + BATCH_SIZE));
+					rewriteBatch(entry.getKey(), batch, new SubProgressMonitor(pm, batch.size()));
+				}
+			}
+		} finally {
+			pm.done();
+		}
+	}
+
+	private void rewriteBatch(IJavaProject project, List<ICompilationUnit> batch, final IProgressMonitor pm) throws CoreException {
+		final CoreException[] exception= new CoreException[1];
+		pm.beginTask("", batch.size()); //$NON-NLS-1$
+		try {
+			ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+			parser.setProject(project);
+			parser.setCompilerOptions(RefactoringASTParser.getCompilerOptions(project));
+			parser.setResolveBindings(true);
+			parser.setStatementsRecovery(true);
+			parser.setBindingsRecovery(true);
+			parser.createASTs(batch.toArray(new ICompilationUnit[batch.size()]), new String[0], new ASTRequestor() {
+				@Override
+				public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+					if (exception[0] != null || pm.isCanceled())
+						return;
+					try {
+						CompilationUnitRewrite cuRewrite= new CompilationUnitRewrite(source, ast);
+						fRequestor.rewrite(cuRewrite);
+						TextChange change= cuRewrite.createChange(true);
+						if (change != null)
+							fChangeManager.manage(source, change);
+					} catch (CoreException e) {
+						exception[0]= e;
+					}
+					pm.worked(1);
+				}
+			}, new NullProgressMonitor());
+		} finally {
+			pm.done();
+		}
+		if (exception[0] != null)
+			throw exception[0];
+		if (pm.isCanceled())
+			throw new OperationCanceledException();
+	}
+}
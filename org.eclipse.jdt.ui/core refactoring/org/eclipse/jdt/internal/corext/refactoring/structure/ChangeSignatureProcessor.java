@@ -1386,8 +1386,8 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 		return RefactoringCoreMessages.ChangeSignatureRefactoring_restructure_parameters;
 	}
 
-	private TextChangeManager createChangeManager(IProgressMonitor pm, RefactoringStatus result) throws CoreException {
-		pm.beginTask(RefactoringCoreMessages.ChangeSignatureRefactoring_preview, 2);
+	private TextChangeManager createChangeManager(IProgressMonitor pm, final RefactoringStatus result) throws CoreException {
+		pm.beginTask(RefactoringCoreMessages.ChangeSignatureRefactoring_preview, 3);
 		fChangeManager= new TextChangeManager();
 		boolean isNoArgConstructor= isNoArgConstructor();
 		Map<ICompilationUnit, Set<IType>> namedSubclassMapping= null;
@@ -1397,55 +1397,71 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 		}else{
 			pm.worked(1);
 		}
+		final Map<ICompilationUnit, SearchResultGroup> groups= new HashMap<ICompilationUnit, SearchResultGroup>();
+		List<ICompilationUnit> cus= new ArrayList<ICompilationUnit>();
 		for (int i= 0; i < fOccurrences.length; i++) {
-			if (pm.isCanceled())
-				throw new OperationCanceledException();
 			SearchResultGroup group= fOccurrences[i];
 			ICompilationUnit cu= group.getCompilationUnit();
 			if (cu == null)
 				continue;
-			CompilationUnitRewrite cuRewrite;
+			groups.put(cu, group);
 			if (cu.equals(getCu())) {
-				cuRewrite= fBaseCuRewrite;
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+				updateOccurrences(fBaseCuRewrite, group, namedSubclassMapping, result);
+				TextChange change= fBaseCuRewrite.createChange(true);
+				if (change != null)
+					fChangeManager.manage(cu, change);
 			} else {
-				cuRewrite= new CompilationUnitRewrite(cu);
-				cuRewrite.getASTRewrite().setTargetSourceRangeComputer(new TightSourceRangeComputer());
-			}
-			ASTNode[] nodes= ASTNodeSearchUtil.findNodes(group.getSearchResults(), cuRewrite.getRoot());
-
-			//IntroduceParameterObjectRefactoring needs to update declarations first:
-			List<OccurrenceUpdate<? extends ASTNode>> deferredUpdates= new ArrayList<OccurrenceUpdate<? extends ASTNode>>();
-			for (int j= 0; j < nodes.length; j++) {
-				OccurrenceUpdate<? extends ASTNode> update= createOccurrenceUpdate(nodes[j], cuRewrite, result);
-				if (update instanceof DeclarationUpdate) {
-					update.updateNode();
-				} else {
-					deferredUpdates.add(update);
-				}
-			}
-			for (Iterator<OccurrenceUpdate<? extends ASTNode>> iter= deferredUpdates.iterator(); iter.hasNext();) {
-				iter.next().updateNode();
+				cus.add(cu);
 			}
+		}
+		pm.worked(1);
 
-			if (isNoArgConstructor && namedSubclassMapping.containsKey(cu)){
-				//only non-anonymous subclasses may have noArgConstructors to modify - see bug 43444
-				Set<IType> subtypes= namedSubclassMapping.get(cu);
-				for (Iterator<IType> iter= subtypes.iterator(); iter.hasNext();) {
-					IType subtype= iter.next();
-					AbstractTypeDeclaration subtypeNode= ASTNodeSearchUtil.getAbstractTypeDeclarationNode(subtype, cuRewrite.getRoot());
-					if (subtypeNode != null)
-						modifyImplicitCallsToNoArgConstructor(subtypeNode, cuRewrite);
-				}
+		// the other compilation units are parsed in batches and dropped as soon as their change is created:
+		final Map<ICompilationUnit, Set<IType>> subclassMapping= namedSubclassMapping;
+		BatchedCompilationUnitRewriter rewriter= new BatchedCompilationUnitRewriter(new BatchedCompilationUnitRewriter.IRewriteRequestor() {
+			public void rewrite(CompilationUnitRewrite cuRewrite) throws CoreException {
+				cuRewrite.getASTRewrite().setTargetSourceRangeComputer(new TightSourceRangeComputer());
+				updateOccurrences(cuRewrite, groups.get(cuRewrite.getCu()), subclassMapping, result);
 			}
-			TextChange change= cuRewrite.createChange(true);
-			if (change != null)
-				fChangeManager.manage(cu, change);
-		}
+		}, fChangeManager);
+		rewriter.rewrite(cus.toArray(new ICompilationUnit[cus.size()]), new SubProgressMonitor(pm, 1));
 
 		pm.done();
 		return fChangeManager;
 	}
 
+	private void updateOccurrences(CompilationUnitRewrite cuRewrite, SearchResultGroup group, Map<ICompilationUnit, Set<IType>> namedSubclassMapping, RefactoringStatus result) throws JavaModelException {
+		ICompilationUnit cu= cuRewrite.getCu();
+		ASTNode[] nodes= ASTNodeSearchUtil.findNodes(group.getSearchResults(), cuRewrite.getRoot());
+
+		//IntroduceParameterObjectRefactoring needs to update declarations first:
+		List<OccurrenceUpdate<? extends ASTNode>> deferredUpdates= new ArrayList<OccurrenceUpdate<? extends ASTNode>>();
+		for (int j= 0; j < nodes.length; j++) {
+			OccurrenceUpdate<? extends ASTNode> update= createOccurrenceUpdate(nodes[j], cuRewrite, result);
+			if (update instanceof DeclarationUpdate) {
+				update.updateNode();
+			} else {
+				deferredUpdates.add(update);
+			}
+		}
+		for (Iterator<OccurrenceUpdate<? extends ASTNode>> iter= deferredUpdates.iterator(); iter.hasNext();) {
+			iter.next().updateNode();
+		}
+
+		if (namedSubclassMapping != null && namedSubclassMapping.containsKey(cu)){
+			//only non-anonymous subclasses may have noArgConstructors to modify - see bug 43444
+			Set<IType> subtypes= namedSubclassMapping.get(cu);
+			for (Iterator<IType> iter= subtypes.iterator(); iter.hasNext();) {
+				IType subtype= iter.next();
+				AbstractTypeDeclaration subtypeNode= ASTNodeSearchUtil.getAbstractTypeDeclarationNode(subtype, cuRewrite.getRoot());
+				if (subtypeNode != null)
+					modifyImplicitCallsToNoArgConstructor(subtypeNode, cuRewrite);
+			}
+		}
+	}
+
 	private Map<ICompilationUnit, Set<IType>> createNamedSubclassMapping(IProgressMonitor pm) throws JavaModelException{
 		IType[] subclasses= getCachedTypeHierarchy(new SubProgressMonitor(pm, 1)).getSubclasses(fMethod.getDeclaringType());
 		Map<ICompilationUnit, Set<IType>> result= new HashMap<ICompilationUnit, Set<IType>>();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,9 @@ package org.eclipse.jdt.internal.ui;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.service.prefs.BackingStoreException;
@@ -83,6 +86,7 @@ import org.eclipse.jdt.internal.corext.template.java.SWTContextType;
 import org.eclipse.jdt.internal.corext.util.OpenTypeHistory;
 import org.eclipse.jdt.internal.corext.util.QualifiedTypeNameHistory;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.ui.IContextMenuConstants;
 import org.eclipse.jdt.ui.JavaUI;
@@ -103,6 +107,7 @@ import org.eclipse.jdt.internal.ui.text.PreferencesAdapter;
 import org.eclipse.jdt.internal.ui.text.folding.JavaFoldingStructureProviderRegistry;
 import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavaEditorTextHoverDescriptor;
+import org.eclipse.jdt.internal.ui.text.javadoc.JavadocHTMLCache;
 import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageDescriptorRegistry;
 import org.eclipse.jdt.internal.ui.viewsupport.ImagesOnFileSystemRegistry;
@@ -267,6 +272,12 @@ public class JavaPlugin extends AbstractUIPlugin {
 	 */
 	private IPropertyChangeListener fThemeListener;
 
+	/**
+	 * The thread pool shared by the computations that run concurrently to their caller.
+	 * @since 3.9
+	 */
+	private ExecutorService fExecutor;
+
 	public static JavaPlugin getDefault() {
 		return fgJavaPlugin;
 	}
@@ -620,6 +631,15 @@ public class JavaPlugin extends AbstractUIPlugin {
 			// must add here to guarantee that it is the first in the listener list
 
 			OpenTypeHistory.shutdown();
+			TypeNameIndex.shutdown();
+			JavadocHTMLCache.shutdown();
+
+			synchronized (this) {
+				if (fExecutor != null) {
+					fExecutor.shutdownNow();
+					fExecutor= null;
+				}
+			}
 		} finally {
 			super.stop(context);
 		}
@@ -669,6 +689,30 @@ public class JavaPlugin extends AbstractUIPlugin {
 		return fClassFileDocumentProvider;
 	}
 
+	/**
+	 * Returns the thread pool shared by the computations that run concurrently to their caller,
+	 * like the concurrent code assist computers and the rename analysis. The pool has a few daemon
+	 * threads and is shut down when the plug-in is stopped. Tasks must not wait for other tasks of
+	 * the pool.
+	 *
+	 * @return the shared thread pool
+	 * @since 3.9
+	 */
+	public synchronized ExecutorService getExecutor() {
+		if (fExecutor == null) {
+			int poolSize= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+			fExecutor= Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+				private int fCount;
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Java UI Worker " + ++fCount); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fExecutor;
+	}
+
 	public synchronized WorkingCopyManager getWorkingCopyManager() {
 		if (fWorkingCopyManager == null) {
 			ICompilationUnitDocumentProvider provider= getCompilationUnitDocumentProvider();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -164,10 +164,12 @@ public class IndentAction extends TextEditorAction {
 					if (target != null)
 						target.beginCompoundChange();
 
+					JavaHeuristicScanner scanner= new JavaHeuristicScanner(document);
 					try {
-						JavaHeuristicScanner scanner= new JavaHeuristicScanner(document);
 						JavaIndenter indenter= new JavaIndenter(document, scanner, getJavaProject());
 						final boolean multiLine= nLines > 1;
+						if (multiLine)
+							scanner.beginBatch();
 						boolean hasChanged= false;
 						for (int i= 0; i < nLines; i++) {
 							hasChanged |= indentLine(document, firstLine + i, offset, indenter, scanner, multiLine);
@@ -195,6 +197,7 @@ public class IndentAction extends TextEditorAction {
 						JavaPlugin.log(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IStatus.OK, "ConcurrentModification in IndentAction", e)); //$NON-NLS-1$
 
 					} finally {
+						scanner.endBatch();
 						if (target != null)
 							target.endCompoundChange();
 					}
@@ -263,19 +266,24 @@ public class IndentAction extends TextEditorAction {
 		int numberOfLines= document.getLineOfOffset(offset + length - minusOne) - firstLine + 1;
 
 		int shift= 0;
-		for (int i= 0; i < numberOfLines; i++) {
-			ReplaceData data= computeReplaceData(document, firstLine + i, indenter, scanner, numberOfLines > 1, false, project);
-
-			int replaceLength= data.end - data.offset;
-			String currentIndent= document.get(data.offset, replaceLength);
-
-			// only change the document if it is a real change
-			if (!data.indent.equals(currentIndent)) {
-				edits.add(new ReplaceEdit(data.offset + shift, replaceLength, data.indent));
-				//We need to change the document, the indenter depends on it.
-				document.replace(data.offset, replaceLength, data.indent);
-				shift-= data.indent.length() - replaceLength;
+		scanner.beginBatch();
+		try {
+			for (int i= 0; i < numberOfLines; i++) {
+				ReplaceData data= computeReplaceData(document, firstLine + i, indenter, scanner, numberOfLines > 1, false, project);
+
+				int replaceLength= data.end - data.offset;
+				String currentIndent= document.get(data.offset, replaceLength);
+
+				// only change the document if it is a real change
+				if (!data.indent.equals(currentIndent)) {
+					edits.add(new ReplaceEdit(data.offset + shift, replaceLength, data.indent));
+					//We need to change the document, the indenter depends on it.
+					document.replace(data.offset, replaceLength, data.indent);
+					shift-= data.indent.length() - replaceLength;
+				}
 			}
+		} finally {
+			scanner.endBatch();
 		}
 
 		if (edits.size() == 0)
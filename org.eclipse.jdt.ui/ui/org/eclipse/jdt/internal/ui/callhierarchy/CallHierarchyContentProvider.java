@@ -16,6 +16,7 @@ import java.lang.reflect.InvocationTargetException;
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.operation.IRunnableContext;
 import org.eclipse.jface.operation.IRunnableWithProgress;
@@ -391,7 +392,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      * @see org.eclipse.jface.viewers.IContentProvider#dispose()
      */
     public void dispose() {
-        // Nothing to dispose
+        cancelPrefetchJobs();
     }
 
     /**
@@ -429,6 +430,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
 	 *      java.lang.Object, java.lang.Object)
 	 */
     public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+    	cancelPrefetchJobs();
     	if (oldInput instanceof TreeRoot) {
     		MethodWrapper[] roots = ((TreeRoot) oldInput).getRoots();
    			cancelJobs(roots);
@@ -443,6 +445,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      * @param wrappers the parents to cancel jobs for
      */
     void cancelJobs(MethodWrapper[] wrappers) {
+        cancelPrefetchJobs();
         if (fManager != null && wrappers != null) {
         	for (int i= 0; i < wrappers.length; i++) {
 				MethodWrapper wrapper= wrappers[i];
@@ -454,6 +457,15 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
         }
     }
 
+    /**
+     * Cancels the jobs that search callers in advance for this provider.
+     *
+     * @since 3.9
+     */
+    void cancelPrefetchJobs() {
+        Job.getJobManager().cancel(this);
+    }
+
     /**
      *
      */
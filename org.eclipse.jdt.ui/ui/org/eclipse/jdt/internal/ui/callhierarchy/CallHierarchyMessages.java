@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -67,8 +67,11 @@ public final class CallHierarchyMessages extends NLS {
 	public static String FiltersDialog_filterOnNamesSubCaption;
 	public static String FiltersDialog_maxCallDepth;
 	public static String FiltersDialog_messageMaxCallDepthInvalid;
+	public static String FiltersDialog_prefetchDepth;
+	public static String FiltersDialog_messagePrefetchDepthInvalid;
 	public static String CallHierarchyContentProvider_searchError_title;
 	public static String CallHierarchyContentProvider_searchError_message;
+	public static String DeferredMethodWrapper_prefetch_job;
 	public static String CallHierarchyLabelProvider_constructor_label;
 	public static String CallHierarchyLabelProvider_expandWithConstructorsAction_realCallers;
 	public static String CallHierarchyLabelProvider_root;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,17 @@ package org.eclipse.jdt.internal.ui.callhierarchy;
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.ui.progress.IDeferredWorkbenchAdapter;
 import org.eclipse.ui.progress.IElementCollector;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerMethodWrapper;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
@@ -65,6 +70,41 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
         return getMethodWrapper().getCalls(monitor);
     }
 
+    /**
+     * Searches the callers of the given callers in the background, so that expanding them does not
+     * have to wait for the search. The job belongs to the family of the content provider, see
+     * {@link CallHierarchyContentProvider#cancelPrefetchJobs()}.
+     *
+     * @param calls the callers that have just been fetched
+     * @since 3.9
+     */
+    private void prefetchCalls(final MethodWrapper[] calls) {
+        final CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        final int depth= callHierarchy.getPrefetchDepth();
+        if (depth <= 0 || calls.length == 0 || !(getMethodWrapper() instanceof CallerMethodWrapper))
+            return;
+
+        Job job= new Job(CallHierarchyMessages.DeferredMethodWrapper_prefetch_job) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    callHierarchy.fetchCalls(calls, depth, monitor);
+                } catch (OperationCanceledException e) {
+                    return Status.CANCEL_STATUS;
+                }
+                return Status.OK_STATUS;
+            }
+
+            @Override
+            public boolean belongsTo(Object family) {
+                return family == fProvider;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -76,8 +116,10 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
     	final DeferredMethodWrapper deferredMethodWrapper= (DeferredMethodWrapper)object;
     	try {
             fProvider.startFetching();
-            collector.add((Object[]) deferredMethodWrapper.getCalls(monitor), monitor);
+            MethodWrapper[] calls= (MethodWrapper[]) deferredMethodWrapper.getCalls(monitor);
+            collector.add(calls, monitor);
             collector.done();
+            deferredMethodWrapper.prefetchCalls(calls);
         } catch (OperationCanceledException e) {
         	final MethodWrapper methodWrapper= deferredMethodWrapper.getMethodWrapper();
 			if (!CallHierarchyContentProvider.isExpandWithConstructors(methodWrapper)) {
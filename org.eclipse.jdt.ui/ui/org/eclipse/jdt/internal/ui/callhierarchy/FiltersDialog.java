@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,6 +39,7 @@ class FiltersDialog extends StatusDialog {
     private Button fFilterOnNames;
     private Text fNames;
     private Text fMaxCallDepth;
+    private Text fPrefetchDepth;
 
 
     protected FiltersDialog(Shell parentShell) {
@@ -102,6 +103,23 @@ class FiltersDialog extends StatusDialog {
         GridData gridData = new GridData();
         gridData.widthHint = convertWidthInCharsToPixels(10);
         fMaxCallDepth.setLayoutData(gridData);
+
+        label= new Label(composite, SWT.NONE);
+        label.setFont(composite.getFont());
+        label.setText(CallHierarchyMessages.FiltersDialog_prefetchDepth);
+
+        fPrefetchDepth = new Text(composite, SWT.SINGLE | SWT.BORDER);
+        fPrefetchDepth.setFont(composite.getFont());
+        fPrefetchDepth.setTextLimit(6);
+        fPrefetchDepth.addModifyListener(new ModifyListener() {
+                public void modifyText(ModifyEvent e) {
+                    validateInput();
+                }
+            });
+
+        gridData = new GridData();
+        gridData.widthHint = convertWidthInCharsToPixels(10);
+        fPrefetchDepth.setLayoutData(gridData);
     }
 
     private void createNamesArea(Composite parent) {
@@ -171,6 +189,7 @@ class FiltersDialog extends StatusDialog {
         int maxCallDepth = Integer.parseInt(this.fMaxCallDepth.getText());
 
         CallHierarchyUI.getDefault().setMaxCallDepth(maxCallDepth);
+        CallHierarchy.getDefault().setPrefetchDepth(Integer.parseInt(this.fPrefetchDepth.getText()));
         CallHierarchy.getDefault().setFilters(fNames.getText());
         CallHierarchy.getDefault().setFilterEnabled(fFilterOnNames.getSelection());
     }
@@ -180,6 +199,7 @@ class FiltersDialog extends StatusDialog {
      */
     private void updateUIFromFilter() {
       fMaxCallDepth.setText(String.valueOf(CallHierarchyUI.getDefault().getMaxCallDepth()));
+      fPrefetchDepth.setText(String.valueOf(CallHierarchy.getDefault().getPrefetchDepth()));
       fNames.setText(CallHierarchy.getDefault().getFilters());
       fFilterOnNames.setSelection(CallHierarchy.getDefault().isFilterEnabled());
       updateEnabledState();
@@ -218,10 +238,26 @@ class FiltersDialog extends StatusDialog {
         }
     }
 
+    private boolean isPrefetchDepthValid() {
+        String text= fPrefetchDepth.getText();
+        if (text.length() == 0)
+            return false;
+
+        try {
+            int prefetchDepth= Integer.parseInt(text);
+
+            return (prefetchDepth >= 0 && prefetchDepth <= 9);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     private void validateInput() {
         StatusInfo status= new StatusInfo();
         if (!isMaxCallDepthValid()) {
             status.setError(CallHierarchyMessages.FiltersDialog_messageMaxCallDepthInvalid);
+        } else if (!isPrefetchDepthValid()) {
+            status.setError(CallHierarchyMessages.FiltersDialog_messagePrefetchDepthInvalid);
         }
         updateStatus(status);
     }
@@ -36,6 +36,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -82,13 +83,11 @@ import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaConventions;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeNameMatch;
-import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 import org.eclipse.jdt.core.search.TypeNameRequestor;
 
 import org.eclipse.jdt.internal.corext.util.CollectionsUtil;
@@ -98,6 +97,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -552,34 +552,14 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	@Override
 	protected void fillContentProvider(AbstractContentProvider provider, ItemsFilter itemsFilter, IProgressMonitor progressMonitor) throws CoreException {
 		TypeItemsFilter typeSearchFilter= (TypeItemsFilter) itemsFilter;
-		TypeSearchRequestor requestor= new TypeSearchRequestor(provider, typeSearchFilter);
-		SearchEngine engine= new SearchEngine((WorkingCopyOwner) null);
-		String packPattern= typeSearchFilter.getPackagePattern();
 		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
-
-		/*
-		 * Setting the filter into match everything mode avoids filtering twice
-		 * by the same pattern (the search engine only provides filtered
-		 * matches). For the case when the pattern is a camel case pattern with
-		 * a terminator, the filter is not set to match everything mode because
-		 * jdt.core's SearchPattern does not support that case.
-		 */
-		String typePattern= typeSearchFilter.getNamePattern();
-		int matchRule= typeSearchFilter.getMatchRule();
-		typeSearchFilter.setMatchEverythingMode(true);
-
-		try {
-			engine.searchAllTypeNames(packPattern == null ? null : packPattern.toCharArray(),
-					typeSearchFilter.getPackageFlags(),
-					typePattern.toCharArray(),
-					matchRule,
-					typeSearchFilter.getElementKind(),
-					typeSearchFilter.getSearchScope(),
-					requestor,
-					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
-					progressMonitor);
-		} finally {
-			typeSearchFilter.setMatchEverythingMode(false);
+		TypeNameMatch[] candidates= TypeNameIndex.getInstance().getCandidates(typeSearchFilter.getNamePattern(), progressMonitor);
+		for (int i= 0; i < candidates.length; i++) {
+			if (progressMonitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch match= candidates[i];
+			if (!TypeFilter.isFiltered(match))
+				provider.add(match, typeSearchFilter);
 		}
 	}
 
@@ -1133,8 +1113,6 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	 */
 	private class TypeItemsFilter extends ItemsFilter {
 
-		private boolean fMatchEverything= false;
-
 		private final int fMyTypeFilterVersion= fTypeFilterVersion;
 
 		private final TypeInfoFilter fTypeInfoFilter;
@@ -1218,16 +1196,6 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.matchesFilterExtension(type);
 		}
 
-		/**
-		 * Set filter to "match everything" mode.
-		 *
-		 * @param matchEverything if <code>true</code>, {@link #matchItem(Object)} always returns true.
-		 * 					If <code>false</code>, the filter is enabled.
-		 */
-		public void setMatchEverythingMode(boolean matchEverything) {
-			fMatchEverything= matchEverything;
-		}
-
 		/*
 		 * (non-Javadoc)
 		 *
@@ -1245,9 +1213,6 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		 */
 		@Override
 		public boolean matchItem(Object item) {
-			if (fMatchEverything)
-				return true;
-
 			TypeNameMatch type= (TypeNameMatch) item;
 			return fTypeInfoFilter.matchesHistoryElement(type);
 		}
@@ -1316,42 +1281,6 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		}
 	}
 
-	/**
-	 * A <code>TypeSearchRequestor</code> collects matches filtered using
-	 * <code>TypeItemsFilter</code>. The attached content provider is filled
-	 * on the basis of the collected entries (instances of
-	 * <code>TypeNameMatch</code>).
-	 */
-	private static class TypeSearchRequestor extends TypeNameMatchRequestor {
-		private volatile boolean fStop;
-
-		private final AbstractContentProvider fContentProvider;
-
-		private final TypeItemsFilter fTypeItemsFilter;
-
-		public TypeSearchRequestor(AbstractContentProvider contentProvider, TypeItemsFilter typeItemsFilter) {
-			super();
-			fContentProvider= contentProvider;
-			fTypeItemsFilter= typeItemsFilter;
-		}
-
-		/*
-		 * (non-Javadoc)
-		 *
-		 * @see org.eclipse.jdt.core.search.TypeNameMatchRequestor#acceptTypeNameMatch(org.eclipse.jdt.core.search.TypeNameMatch)
-		 */
-		@Override
-		public void acceptTypeNameMatch(TypeNameMatch match) {
-			if (fStop)
-				return;
-			if (TypeFilter.isFiltered(match))
-				return;
-			if (fTypeItemsFilter.matchesFilterExtension(match))
-				fContentProvider.add(match, fTypeItemsFilter);
-		}
-
-	}
-
 	/**
 	 * Compares TypeItems is used during sorting
 	 */
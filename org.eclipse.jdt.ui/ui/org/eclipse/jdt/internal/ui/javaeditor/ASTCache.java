@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor;
+
+import java.lang.ref.SoftReference;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+
+/**
+ * A cache for the ASTs of recently used type roots that are not (or no longer) the input of the
+ * active Java editor.
+ * <p>
+ * The entries are evicted in least recently used order as soon as the estimated size of all
+ * cached ASTs exceeds the budget. The ASTs are only softly referenced, so that they are
+ * released when the heap runs low.
+ * </p>
+ * <p>
+ * Changes to the Java model only evict the ASTs of the changed type roots, unless the change can
+ * affect the bindings of other ASTs, see {@link #processDelta(IJavaElementDelta, boolean)}.
+ * </p>
+ *
+ * @since 3.9
+ */
+final class ASTCache {
+
+	/**
+	 * The state of a type root's content an AST has been created from.
+	 */
+	static final class Stamp {
+
+		private final long fModificationStamp;
+		private final long fContentStamp;
+
+		private Stamp(long modificationStamp, long contentStamp) {
+			fModificationStamp= modificationStamp;
+			fContentStamp= contentStamp;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Stamp))
+				return false;
+			Stamp other= (Stamp)obj;
+			return fModificationStamp == other.fModificationStamp && fContentStamp == other.fContentStamp;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int)(fModificationStamp ^ fContentStamp);
+		}
+	}
+
+	private static final class Entry {
+
+		private final Stamp fStamp;
+		private final SoftReference<CompilationUnit> fAST;
+		private final long fSize;
+
+		private Entry(Stamp stamp, CompilationUnit ast) {
+			fStamp= stamp;
+			fAST= new SoftReference<CompilationUnit>(ast);
+			fSize= estimateSize(ast);
+		}
+	}
+
+	/**
+	 * Estimated number of bytes retained by an AST with bindings per character of source.
+	 */
+	private static final int BYTES_PER_SOURCE_CHAR= 40;
+
+	/**
+	 * Changes of a package fragment root or above that can affect the bindings of all ASTs.
+	 */
+	private static final int CLASSPATH_CHANGED= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+			| IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED;
+
+	private final LinkedHashMap<ITypeRoot, Entry> fEntries;
+	/**
+	 * The primary working copies whose structure has been changed by a reconcile since they have
+	 * been saved.
+	 */
+	private final Set<IJavaElement> fChangedWorkingCopies= new HashSet<IJavaElement>();
+	private final long fBudget;
+	private long fSize;
+
+	private int fHits;
+	private int fMisses;
+
+	/**
+	 * Creates a new AST cache.
+	 *
+	 * @param budget the maximal estimated size in bytes of all cached ASTs
+	 */
+	ASTCache(long budget) {
+		fEntries= new LinkedHashMap<ITypeRoot, Entry>(16, 0.75f, true);
+		fBudget= budget;
+		fSize= 0;
+	}
+
+	/**
+	 * Returns the stamp of the current content of the given type root.
+	 *
+	 * @param typeRoot the type root
+	 * @return the stamp or <code>null</code> if it can not be determined
+	 */
+	static Stamp getStamp(ITypeRoot typeRoot) {
+		long contentStamp= -1;
+		if (typeRoot instanceof ICompilationUnit) {
+			ICompilationUnit cu= (ICompilationUnit)typeRoot;
+			try {
+				if (cu.isWorkingCopy() && cu.hasUnsavedChanges()) {
+					// only the documents of the file buffers tell whether the content has changed
+					IBuffer buffer= cu.getBuffer();
+					if (!(buffer instanceof DocumentAdapter))
+						return null;
+					IDocument document= ((DocumentAdapter)buffer).getDocument();
+					if (!(document instanceof IDocumentExtension4))
+						return null;
+					long modificationStamp= ((IDocumentExtension4)document).getModificationStamp();
+					if (modificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+						return null;
+					// stamps of different documents may coincide
+					contentStamp= ((long)System.identityHashCode(document) << 32) | (modificationStamp & 0xFFFFFFFFL);
+				}
+			} catch (JavaModelException e) {
+				return null;
+			}
+		}
+
+		IResource resource= typeRoot.getResource();
+		if (resource != null)
+			return new Stamp(resource.getModificationStamp(), contentStamp);
+
+		IPackageFragmentRoot root= (IPackageFragmentRoot)typeRoot.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null)
+			return null;
+		IResource rootResource= root.getResource();
+		if (rootResource != null)
+			return new Stamp(rootResource.getModificationStamp(), contentStamp);
+		return new Stamp(root.getPath().toFile().lastModified(), contentStamp);
+	}
+
+	/**
+	 * Returns the cached AST of the given type root if it has been created from the content with
+	 * the given stamp.
+	 *
+	 * @param typeRoot the type root
+	 * @param stamp the stamp of the current content
+	 * @return the AST or <code>null</code> if there is none
+	 */
+	synchronized CompilationUnit get(ITypeRoot typeRoot, Stamp stamp) {
+		CompilationUnit ast= null;
+		Entry entry= fEntries.get(typeRoot);
+		if (entry != null) {
+			ast= entry.fAST.get();
+			if (ast == null || !entry.fStamp.equals(stamp)) {
+				remove(typeRoot);
+				ast= null;
+			}
+		}
+		if (ast != null)
+			fHits++;
+		else
+			fMisses++;
+		return ast;
+	}
+
+	/**
+	 * Caches the given AST.
+	 *
+	 * @param typeRoot the type root the AST has been created for
+	 * @param stamp the stamp of the content the AST has been created from
+	 * @param ast the AST
+	 */
+	synchronized void put(ITypeRoot typeRoot, Stamp stamp, CompilationUnit ast) {
+		if (stamp == null || ast == null)
+			return;
+
+		remove(typeRoot);
+		Entry entry= new Entry(stamp, ast);
+		if (entry.fSize > fBudget)
+			return;
+
+		fEntries.put(typeRoot, entry);
+		fSize+= entry.fSize;
+
+		Iterator<Entry> iterator= fEntries.values().iterator();
+		while (fSize > fBudget && iterator.hasNext()) {
+			Entry eldest= iterator.next();
+			iterator.remove();
+			fSize-= eldest.fSize;
+		}
+	}
+
+	/**
+	 * Removes the AST of the given type root.
+	 *
+	 * @param typeRoot the type root
+	 */
+	synchronized void remove(ITypeRoot typeRoot) {
+		Entry entry= fEntries.remove(typeRoot);
+		if (entry != null)
+			fSize-= entry.fSize;
+	}
+
+	/**
+	 * Removes all ASTs.
+	 */
+	synchronized void clear() {
+		fEntries.clear();
+		fSize= 0;
+	}
+
+	/**
+	 * Evicts the ASTs that may have become stale by the given change. These are the ASTs of the
+	 * changed type roots. All ASTs are evicted if the bindings of other ASTs can be affected,
+	 * i.e. if the class path changed, if type roots have been added or removed, or if the
+	 * structure of a compilation unit changed in a way that can not be told from the delta.
+	 *
+	 * <p>
+	 * The deltas of reconciled primary working copies are processed as well, since the other ASTs
+	 * are resolved against the working copies. Discarding a working copy whose structure has
+	 * been changed by a reconcile evicts all ASTs.
+	 * </p>
+	 *
+	 * @param delta the delta of a {@link org.eclipse.jdt.core.ElementChangedEvent#POST_CHANGE}
+	 *            event, or of a {@link org.eclipse.jdt.core.ElementChangedEvent#POST_RECONCILE}
+	 *            event of a primary working copy
+	 * @param reconcile <code>true</code> if the delta is the result of a reconcile
+	 */
+	synchronized void processDelta(IJavaElementDelta delta, boolean reconcile) {
+		if (!processDeltaRecursively(delta, reconcile))
+			clear();
+	}
+
+	/**
+	 * Evicts the ASTs of the type roots changed by the given delta.
+	 *
+	 * @param delta the delta
+	 * @param reconcile <code>true</code> if the delta is the result of a reconcile
+	 * @return <code>false</code> if all ASTs must be evicted
+	 */
+	private boolean processDeltaRecursively(IJavaElementDelta delta, boolean reconcile) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & CLASSPATH_CHANGED) != 0)
+					return false;
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+			case IJavaElement.CLASS_FILE:
+				remove((ITypeRoot)element);
+				if (delta.getKind() != IJavaElementDelta.CHANGED)
+					return false;
+				boolean structural= isStructuralChange(delta);
+				int flags= delta.getFlags();
+				if (reconcile) {
+					if (structural)
+						fChangedWorkingCopies.add(element);
+				} else if ((flags & IJavaElementDelta.F_PRIMARY_WORKING_COPY) != 0 && !((ICompilationUnit)element).isWorkingCopy()) {
+					// the discarded working copy reverts to the structure of the saved content
+					structural|= fChangedWorkingCopies.remove(element);
+				} else if ((flags & IJavaElementDelta.F_PRIMARY_RESOURCE) != 0) {
+					fChangedWorkingCopies.remove(element);
+				}
+				return !structural;
+			default:
+				return false;
+		}
+
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!processDeltaRecursively(children[i], reconcile))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells whether the given change of a type root can affect the bindings of other type roots.
+	 * Changes of method bodies, of imports or of the working copy state can not.
+	 *
+	 * @param delta the delta of a changed type root
+	 * @return <code>true</code> if the change can affect other ASTs
+	 */
+	private static boolean isStructuralChange(IJavaElementDelta delta) {
+		int flags= delta.getFlags();
+		if ((flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return true; // the changed members are unknown
+
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta child= children[i];
+			switch (child.getElement().getElementType()) {
+				case IJavaElement.IMPORT_CONTAINER:
+				case IJavaElement.IMPORT_DECLARATION:
+					break;
+				case IJavaElement.TYPE:
+					if (child.getKind() != IJavaElementDelta.CHANGED || (child.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED)) != 0)
+						return true;
+					if (isStructuralChange(child))
+						return true;
+					break;
+				default:
+					// fine-grained deltas do not report changed method bodies, but changed signatures
+					return true;
+			}
+		}
+		return false;
+	}
+
+	synchronized int getHits() {
+		return fHits;
+	}
+
+	synchronized int getMisses() {
+		return fMisses;
+	}
+
+	private static long estimateSize(CompilationUnit ast) {
+		return (long)ast.getLength() * BYTES_PER_SOURCE_CHAR;
+	}
+
+}
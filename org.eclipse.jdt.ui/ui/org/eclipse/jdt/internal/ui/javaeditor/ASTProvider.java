@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,8 +27,12 @@ import org.eclipse.ui.IWorkbenchPartReference;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -48,6 +52,11 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * In addition, the ASTs of recently active or requested
+ * elements are kept in a size-bounded cache as long as their
+ * content does not change.
+ * </p>
  *
  * @since 3.0
  */
@@ -208,10 +217,19 @@ public final class ASTProvider {
 
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
+	/**
+	 * Budget in bytes for the ASTs of recently active or requested Java elements.
+	 */
+	private static final long RECENT_AST_BUDGET= Runtime.getRuntime().maxMemory() / 32;
+
 
 	private ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
+	private ASTCache.Stamp fASTStamp;
+	private ASTCache.Stamp fReconcilingStamp;
+	private final ASTCache fRecentASTs= new ASTCache(RECENT_AST_BUDGET);
+	private IElementChangedListener fElementChangedListener;
 	private ActivationListener fActivationListener;
 	private Object fReconcileLock= new Object();
 	private Object fWaitLock= new Object();
@@ -248,6 +266,18 @@ public final class ASTProvider {
 		IWorkbenchWindow[] windows= PlatformUI.getWorkbench().getWorkbenchWindows();
 		for (int i= 0, length= windows.length; i < length; i++)
 			windows[i].getPartService().addPartListener(fActivationListener);
+
+		// Bindings of the recent ASTs can be stale after changes to the Java model or to primary working copies
+		fElementChangedListener= new IElementChangedListener() {
+			public void elementChanged(ElementChangedEvent event) {
+				IJavaElementDelta delta= event.getDelta();
+				boolean reconcile= event.getType() == ElementChangedEvent.POST_RECONCILE;
+				if (reconcile && ((ICompilationUnit)delta.getElement()).getOwner() != null)
+					return;
+				fRecentASTs.processDelta(delta, reconcile);
+			}
+		};
+		JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
 	}
 
 	void activeJavaEditorChanged(IWorkbenchPart editor) {
@@ -257,14 +287,29 @@ public final class ASTProvider {
 			javaElement= ((JavaEditor)editor).getInputJavaElement();
 
 		synchronized (this) {
+			if (fAST != null && fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement))
+				fRecentASTs.put(fActiveJavaElement, fASTStamp, fAST);
 			fActiveEditor= editor;
 			fActiveJavaElement= javaElement;
-			cache(null, javaElement);
+			cache(null, javaElement, null);
 		}
 
 		if (DEBUG)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "active editor is: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
 
+		if (javaElement != null) {
+			ASTCache.Stamp stamp= ASTCache.getStamp(javaElement);
+			CompilationUnit recent= stamp != null ? fRecentASTs.get(javaElement, stamp) : null;
+			if (recent != null) {
+				synchronized (this) {
+					if (javaElement.equals(fActiveJavaElement) && fAST == null && !isReconciling(javaElement)) {
+						fRecentASTs.remove(javaElement);
+						cache(recent, javaElement, stamp);
+					}
+				}
+			}
+		}
+
 		synchronized (fReconcileLock) {
 			if (fIsReconciling && (fReconcilingJavaElement == null || !fReconcilingJavaElement.equals(javaElement))) {
 				fIsReconciling= false;
@@ -287,6 +332,28 @@ public final class ASTProvider {
 		return ast != null && fAST == ast;
 	}
 
+	/**
+	 * Returns how many times the AST of a Java element other than the active one has been found
+	 * in the cache of recent ASTs.
+	 *
+	 * @return the number of cache hits
+	 * @since 3.9
+	 */
+	public int getRecentASTCacheHits() {
+		return fRecentASTs.getHits();
+	}
+
+	/**
+	 * Returns how many times the AST of a Java element other than the active one has not been
+	 * found in the cache of recent ASTs.
+	 *
+	 * @return the number of cache misses
+	 * @since 3.9
+	 */
+	public int getRecentASTCacheMisses() {
+		return fRecentASTs.getMisses();
+	}
+
 	/**
 	 * Returns whether this AST provider is active on the given
 	 * compilation unit.
@@ -313,11 +380,13 @@ public final class ASTProvider {
 		if (DEBUG)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "about to reconcile: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
 
+		ASTCache.Stamp stamp= ASTCache.getStamp(javaElement);
 		synchronized (fReconcileLock) {
 			fReconcilingJavaElement= javaElement;
+			fReconcilingStamp= stamp;
 			fIsReconciling= true;
 		}
-		cache(null, javaElement);
+		cache(null, javaElement, null);
 	}
 
 	/**
@@ -333,7 +402,7 @@ public final class ASTProvider {
 
 		fAST= null;
 
-		cache(null, null);
+		cache(null, null, null);
 	}
 
 	/**
@@ -372,8 +441,9 @@ public final class ASTProvider {
 	 *
 	 * @param ast the ast
 	 * @param javaElement the java element
+	 * @param stamp the stamp of the content the AST has been created from or <code>null</code>
 	 */
-	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement) {
+	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement, ASTCache.Stamp stamp) {
 
 		if (fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)) {
 			if (DEBUG && javaElement != null) // don't report call from disposeAST()
@@ -388,6 +458,7 @@ public final class ASTProvider {
 			disposeAST();
 
 		fAST= ast;
+		fASTStamp= stamp;
 
 		// Signal AST change
 		synchronized (fWaitLock) {
@@ -415,6 +486,22 @@ public final class ASTProvider {
 			return null;
 
 		boolean isActiveElement;
+		synchronized (this) {
+			isActiveElement= input.equals(fActiveJavaElement);
+		}
+
+		ASTCache.Stamp stamp= null;
+		if (!isActiveElement) {
+			stamp= ASTCache.getStamp(input);
+			CompilationUnit recent= stamp != null ? fRecentASTs.get(input, stamp) : null;
+			if (recent != null) {
+				if (DEBUG)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning recent AST:" + toString(recent) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+				return recent;
+			}
+		}
+
 		synchronized (this) {
 			isActiveElement= input.equals(fActiveJavaElement);
 			if (isActiveElement) {
@@ -493,6 +580,8 @@ public final class ASTProvider {
 					return fAST;
 				} else
 					reconciled(ast, input, null);
+			} else if (ast != null) {
+				fRecentASTs.put(input, stamp, ast);
 			}
 		}
 		return ast;
@@ -586,7 +675,11 @@ public final class ASTProvider {
 		PlatformUI.getWorkbench().removeWindowListener(fActivationListener);
 		fActivationListener= null;
 
+		JavaCore.removeElementChangedListener(fElementChangedListener);
+		fElementChangedListener= null;
+
 		disposeAST();
+		fRecentASTs.clear();
 
 		synchronized (fWaitLock) {
 			fWaitLock.notifyAll();
@@ -621,7 +714,7 @@ public final class ASTProvider {
 
 				return;
 			}
-			cache(ast, javaElement);
+			cache(ast, javaElement, fReconcilingStamp);
 		}
 	}
 
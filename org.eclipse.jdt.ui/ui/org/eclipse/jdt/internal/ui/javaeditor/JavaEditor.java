@@ -49,6 +49,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
@@ -3352,7 +3353,13 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			if (binding != null && markOccurrencesOfType(binding)) {
 				OccurrencesFinder finder= new OccurrencesFinder();
 				if (finder.initialize(astRoot, selectedNode) == null) {
-					locations= finder.getOccurrences();
+					try {
+						locations= finder.getOccurrences(SelectionListenerWithASTManager.getProgressMonitor());
+					} catch (OperationCanceledException e) {
+						// the selection has changed again, mark the occurrences for the next selection
+						fMarkOccurrenceTargetRegion= null;
+						return;
+					}
 				}
 			}
 		}
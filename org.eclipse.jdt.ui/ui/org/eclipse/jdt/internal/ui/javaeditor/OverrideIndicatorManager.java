@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,15 @@
 
 package org.eclipse.jdt.internal.ui.javaeditor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -33,6 +38,8 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
@@ -123,6 +130,43 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 		}
 	}
 
+	/**
+	 * The overridden method of a method, as far as it is shown by an indicator.
+	 *
+	 * @since 3.9
+	 */
+	private static final class OverrideInfo {
+
+		final boolean fIsImplements;
+		final String fText;
+
+		OverrideInfo(boolean isImplements, String text) {
+			fIsImplements= isImplements;
+			fText= text;
+		}
+	}
+
+	/**
+	 * The overridden methods of the methods declared in a type, valid as long as the super types of
+	 * the type do not change.
+	 *
+	 * @since 3.9
+	 */
+	private static final class TypeTable {
+
+		/** The binding keys of all super types. */
+		final Set<String> fSuperTypeKeys;
+		/** Method binding key and modifiers to overridden method, <code>null</code> if none. */
+		final Map<String, OverrideInfo> fMethods= new HashMap<String, OverrideInfo>();
+		/** The entries of the previous reconcile, or <code>null</code>. */
+		Map<String, OverrideInfo> fPreviousMethods;
+
+		TypeTable(Set<String> superTypeKeys, Map<String, OverrideInfo> previousMethods) {
+			fSuperTypeKeys= superTypeKeys;
+			fPreviousMethods= previousMethods;
+		}
+	}
+
 	static final String ANNOTATION_TYPE= "org.eclipse.jdt.ui.overrideIndicator"; //$NON-NLS-1$
 
 	private IAnnotationModel fAnnotationModel;
@@ -130,6 +174,18 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 	private Annotation[] fOverrideAnnotations;
 	private ITypeRoot fJavaElement;
 
+	/**
+	 * The overridden methods by declaring type binding key, kept across reconciles.
+	 * @since 3.9
+	 */
+	private Map<String, TypeTable> fTypeTables= new HashMap<String, TypeTable>();
+	/**
+	 * The signatures of the types declared in the compilation unit by binding key, see
+	 * {@link #getMethodsSignature(ITypeBinding)}.
+	 * @since 3.9
+	 */
+	private Map<String, String> fLocalTypeSignatures= new HashMap<String, String>();
+
 
 	public OverrideIndicatorManager(IAnnotationModel annotationModel, ITypeRoot javaElement, CompilationUnit ast) {
 		Assert.isNotNull(annotationModel);
@@ -172,6 +228,8 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 			return;
 
 		final Map<Annotation, Position> annotationMap= new HashMap<Annotation, Position>(50);
+		final Map<String, TypeTable> tables= new HashMap<String, TypeTable>();
+		invalidateTypeTables(ast);
 
 		ast.accept(new ASTVisitor(false) {
 			/*
@@ -181,24 +239,13 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 			public boolean visit(MethodDeclaration node) {
 				IMethodBinding binding= node.resolveBinding();
 				if (binding != null) {
-					IMethodBinding definingMethod= Bindings.findOverriddenMethod(binding, true);
-					if (definingMethod != null) {
-
-						ITypeBinding definingType= definingMethod.getDeclaringClass();
-						String qualifiedMethodName= definingType.getQualifiedName() + "." + binding.getName(); //$NON-NLS-1$
-
-						boolean isImplements= JdtFlags.isAbstract(definingMethod);
-						String text;
-						if (isImplements)
-							text= Messages.format(JavaEditorMessages.OverrideIndicatorManager_implements, BasicElementLabels.getJavaElementName(qualifiedMethodName));
-						else
-							text= Messages.format(JavaEditorMessages.OverrideIndicatorManager_overrides, BasicElementLabels.getJavaElementName(qualifiedMethodName));
-
+					OverrideInfo info= getOverrideInfo(binding, tables);
+					if (info != null) {
 						SimpleName name= node.getName();
 						Position position= new Position(name.getStartPosition(), name.getLength());
 
 						annotationMap.put(
-								new OverrideIndicator(isImplements, text, binding.getKey()),
+								new OverrideIndicator(info.fIsImplements, info.fText, binding.getKey()),
 								position);
 
 					}
@@ -210,18 +257,201 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 		if (progressMonitor.isCanceled())
 			return;
 
+		for (Iterator<TypeTable> iter= tables.values().iterator(); iter.hasNext();)
+			iter.next().fPreviousMethods= null;
+		fTypeTables= tables;
+		replaceChangedAnnotations(annotationMap);
+	}
+
+	/**
+	 * Finds the method overridden by the given method.
+	 *
+	 * @param binding the method binding
+	 * @return the overridden method or <code>null</code> if the method does not override a method
+	 * @since 3.9
+	 */
+	private static OverrideInfo computeOverrideInfo(IMethodBinding binding) {
+		IMethodBinding definingMethod= Bindings.findOverriddenMethod(binding, true);
+		if (definingMethod == null)
+			return null;
+
+		ITypeBinding definingType= definingMethod.getDeclaringClass();
+		String qualifiedMethodName= definingType.getQualifiedName() + "." + binding.getName(); //$NON-NLS-1$
+
+		boolean isImplements= JdtFlags.isAbstract(definingMethod);
+		String text;
+		if (isImplements)
+			text= Messages.format(JavaEditorMessages.OverrideIndicatorManager_implements, BasicElementLabels.getJavaElementName(qualifiedMethodName));
+		else
+			text= Messages.format(JavaEditorMessages.OverrideIndicatorManager_overrides, BasicElementLabels.getJavaElementName(qualifiedMethodName));
+		return new OverrideInfo(isImplements, text);
+	}
+
+	/**
+	 * Returns the method overridden by the given method from the table of its declaring type.
+	 * The method is only looked up in the super types if the table does not know it from the
+	 * previous reconcile.
+	 *
+	 * @param binding the method binding
+	 * @param tables the type tables of this reconcile, by type binding key
+	 * @return the overridden method or <code>null</code> if the method does not override a method
+	 * @since 3.9
+	 */
+	private OverrideInfo getOverrideInfo(IMethodBinding binding, Map<String, TypeTable> tables) {
+		ITypeBinding type= binding.getDeclaringClass();
+		String typeKey= type.getKey();
+		TypeTable table= tables.get(typeKey);
+		if (table == null) {
+			Set<String> superTypeKeys= new HashSet<String>();
+			ITypeBinding[] superTypes= Bindings.getAllSuperTypes(type);
+			for (int i= 0; i < superTypes.length; i++) {
+				superTypeKeys.add(superTypes[i].getKey());
+				superTypeKeys.add(superTypes[i].getTypeDeclaration().getKey());
+			}
+			TypeTable previous= fTypeTables.get(typeKey);
+			if (previous != null && previous.fSuperTypeKeys.equals(superTypeKeys))
+				table= new TypeTable(superTypeKeys, previous.fMethods);
+			else
+				table= new TypeTable(superTypeKeys, null);
+			tables.put(typeKey, table);
+		}
+
+		String methodKey= binding.getKey() + ':' + binding.getModifiers();
+		if (table.fMethods.containsKey(methodKey))
+			return table.fMethods.get(methodKey);
+		OverrideInfo info;
+		if (table.fPreviousMethods != null && table.fPreviousMethods.containsKey(methodKey))
+			info= table.fPreviousMethods.get(methodKey);
+		else
+			info= computeOverrideInfo(binding);
+		table.fMethods.put(methodKey, info);
+		return info;
+	}
+
+	/**
+	 * Drops the type tables that have a type declared in the given AST as super type whose
+	 * methods have changed since the previous reconcile.
+	 *
+	 * @param ast the compilation unit AST
+	 * @since 3.9
+	 */
+	private void invalidateTypeTables(CompilationUnit ast) {
+		final Map<String, String> signatures= new HashMap<String, String>();
+		ast.accept(new ASTVisitor(false) {
+			/*
+			 * @see org.eclipse.jdt.core.dom.ASTVisitor#preVisit2(org.eclipse.jdt.core.dom.ASTNode)
+			 */
+			@Override
+			public boolean preVisit2(ASTNode node) {
+				ITypeBinding binding= null;
+				if (node instanceof AbstractTypeDeclaration)
+					binding= ((AbstractTypeDeclaration) node).resolveBinding();
+				else if (node instanceof AnonymousClassDeclaration)
+					binding= ((AnonymousClassDeclaration) node).resolveBinding();
+				if (binding != null)
+					signatures.put(binding.getKey(), getMethodsSignature(binding));
+				return true;
+			}
+		});
+
+		Set<String> changed= new HashSet<String>();
+		for (Iterator<Entry<String, String>> iter= signatures.entrySet().iterator(); iter.hasNext();) {
+			Entry<String, String> entry= iter.next();
+			if (!entry.getValue().equals(fLocalTypeSignatures.get(entry.getKey())))
+				changed.add(entry.getKey());
+		}
+		for (Iterator<String> iter= fLocalTypeSignatures.keySet().iterator(); iter.hasNext();) {
+			String key= iter.next();
+			if (!signatures.containsKey(key))
+				changed.add(key);
+		}
+		fLocalTypeSignatures= signatures;
+
+		if (changed.isEmpty())
+			return;
+		for (Iterator<TypeTable> iter= fTypeTables.values().iterator(); iter.hasNext();) {
+			TypeTable table= iter.next();
+			for (Iterator<String> keys= changed.iterator(); keys.hasNext();) {
+				if (table.fSuperTypeKeys.contains(keys.next())) {
+					iter.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a string that changes when a method of the given type is added, removed, or changes
+	 * its signature or modifiers.
+	 *
+	 * @param type the type binding
+	 * @return the signature of the methods
+	 * @since 3.9
+	 */
+	private static String getMethodsSignature(ITypeBinding type) {
+		IMethodBinding[] methods= type.getDeclaredMethods();
+		String[] keys= new String[methods.length];
+		for (int i= 0; i < methods.length; i++)
+			keys[i]= methods[i].getKey() + ':' + methods[i].getModifiers();
+		Arrays.sort(keys);
+		StringBuffer buffer= new StringBuffer();
+		buffer.append(type.isInterface()).append(':').append(type.getModifiers());
+		for (int i= 0; i < keys.length; i++)
+			buffer.append(';').append(keys[i]);
+		return buffer.toString();
+	}
+
+	/**
+	 * Replaces the indicators that have changed by the given ones in one batch. Indicators for
+	 * the same method with the same text and position are kept.
+	 *
+	 * @param annotationMap the new indicators and their positions
+	 * @since 3.9
+	 */
+	private void replaceChangedAnnotations(Map<Annotation, Position> annotationMap) {
 		synchronized (fAnnotationModelLockObject) {
-			if (fAnnotationModel instanceof IAnnotationModelExtension) {
-				((IAnnotationModelExtension)fAnnotationModel).replaceAnnotations(fOverrideAnnotations, annotationMap);
-			} else {
-				removeAnnotations();
-				Iterator<Entry<Annotation, Position>> iter= annotationMap.entrySet().iterator();
-				while (iter.hasNext()) {
-					Entry<Annotation, Position> mapEntry= iter.next();
-					fAnnotationModel.addAnnotation(mapEntry.getKey(), mapEntry.getValue());
+			List<Annotation> removed= new ArrayList<Annotation>();
+			Map<String, OverrideIndicator> previous= new HashMap<String, OverrideIndicator>();
+			if (fOverrideAnnotations != null) {
+				for (int i= 0; i < fOverrideAnnotations.length; i++) {
+					OverrideIndicator indicator= (OverrideIndicator) fOverrideAnnotations[i];
+					OverrideIndicator duplicate= previous.put(indicator.fAstNodeKey, indicator);
+					if (duplicate != null)
+						removed.add(duplicate);
+				}
+			}
+
+			List<Annotation> annotations= new ArrayList<Annotation>(annotationMap.size());
+			Map<Annotation, Position> added= new HashMap<Annotation, Position>();
+			for (Iterator<Entry<Annotation, Position>> iter= annotationMap.entrySet().iterator(); iter.hasNext();) {
+				Entry<Annotation, Position> mapEntry= iter.next();
+				OverrideIndicator indicator= (OverrideIndicator) mapEntry.getKey();
+				OverrideIndicator old= previous.remove(indicator.fAstNodeKey);
+				if (old != null && old.fIsOverwriteIndicator == indicator.fIsOverwriteIndicator && old.getText().equals(indicator.getText())
+						&& mapEntry.getValue().equals(fAnnotationModel.getPosition(old))) {
+					annotations.add(old);
+				} else {
+					if (old != null)
+						removed.add(old);
+					added.put(indicator, mapEntry.getValue());
+					annotations.add(indicator);
+				}
+			}
+			removed.addAll(previous.values());
+
+			if (!removed.isEmpty() || !added.isEmpty()) {
+				if (fAnnotationModel instanceof IAnnotationModelExtension) {
+					((IAnnotationModelExtension)fAnnotationModel).replaceAnnotations(removed.toArray(new Annotation[removed.size()]), added);
+				} else {
+					for (Iterator<Annotation> iter= removed.iterator(); iter.hasNext();)
+						fAnnotationModel.removeAnnotation(iter.next());
+					for (Iterator<Entry<Annotation, Position>> iter= added.entrySet().iterator(); iter.hasNext();) {
+						Entry<Annotation, Position> mapEntry= iter.next();
+						fAnnotationModel.addAnnotation(mapEntry.getKey(), mapEntry.getValue());
+					}
 				}
 			}
-			fOverrideAnnotations= annotationMap.keySet().toArray(new Annotation[annotationMap.keySet().size()]);
+			fOverrideAnnotations= annotations.toArray(new Annotation[annotations.size()]);
 		}
 	}
 
@@ -253,6 +483,8 @@ class OverrideIndicatorManager implements IJavaReconcilingListener {
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#reconciled(CompilationUnit, boolean, IProgressMonitor)
 	 */
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
+		if (forced) // super types in other compilation units may have changed
+			fTypeTables.clear();
 		updateAnnotations(ast, progressMonitor);
 	}
 }
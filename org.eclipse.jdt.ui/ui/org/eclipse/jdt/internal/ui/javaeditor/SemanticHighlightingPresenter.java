@@ -241,6 +241,33 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	/** <code>true</code> iff the current reconcile is canceled. */
 	private boolean fIsCanceled= false;
 
+	/**
+	 * Dirty region lock.
+	 * @since 3.9
+	 */
+	private final Object fDirtyRegionLock= new Object();
+	/**
+	 * Number of document changes since the document has been set.
+	 * @since 3.9
+	 */
+	private int fModificationCount= 0;
+	/**
+	 * Start offset of the region changed since the positions have last been reconciled,
+	 * <code>-1</code> if there is no such region.
+	 * @since 3.9
+	 */
+	private int fDirtyStart= -1;
+	/**
+	 * End offset of the region changed since the positions have last been reconciled.
+	 * @since 3.9
+	 */
+	private int fDirtyEnd= -1;
+	/**
+	 * <code>true</code> iff the positions have never been reconciled with the current document.
+	 * @since 3.9
+	 */
+	private boolean fIsDirtyRegionUnknown= true;
+
 	/**
 	 * Creates and returns a new highlighted position with the given offset, length and highlighting.
 	 * <p>
@@ -271,6 +298,131 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * Adds the current positions with an offset inside the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param range The range
+	 * @since 3.9
+	 */
+	public void addPositions(List<Position> list, IRegion range) {
+		synchronized (fPositionLock) {
+			int start= computeIndexAtOffset(fPositions, range.getOffset());
+			int end= computeIndexAtOffset(fPositions, range.getOffset() + range.getLength());
+			list.addAll(fPositions.subList(start, end));
+		}
+	}
+
+	/**
+	 * Returns the number of changes of the current document. The value is used to tell whether the
+	 * document has been changed since {@link #getDirtyRegion()} has been called.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the modification count
+	 * @since 3.9
+	 */
+	public int getModificationCount() {
+		synchronized (fDirtyRegionLock) {
+			return fModificationCount;
+		}
+	}
+
+	/**
+	 * Returns the smallest region that contains all document changes since the positions have last
+	 * been reconciled, in the coordinates of the current document.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the dirty region, or <code>null</code> if the whole document must be reconciled
+	 * @since 3.9
+	 */
+	public IRegion getDirtyRegion() {
+		synchronized (fDirtyRegionLock) {
+			if (fIsDirtyRegionUnknown || fDirtyStart == -1)
+				return null;
+			return new Region(fDirtyStart, fDirtyEnd - fDirtyStart);
+		}
+	}
+
+	/**
+	 * Tells that the positions have been reconciled with the document content after the given
+	 * number of changes. Clears the dirty region if the document has not been changed since then.
+	 * <p>
+	 * NOTE: Also called from background thread.
+	 * </p>
+	 *
+	 * @param modificationCount the modification count of the reconciled content
+	 * @since 3.9
+	 */
+	public void markReconciled(int modificationCount) {
+		synchronized (fDirtyRegionLock) {
+			if (modificationCount != fModificationCount)
+				return;
+			fIsDirtyRegionUnknown= false;
+			fDirtyStart= -1;
+			fDirtyEnd= -1;
+		}
+	}
+
+	/**
+	 * Extends the dirty region by the given document change.
+	 *
+	 * @param event the document event
+	 * @since 3.9
+	 */
+	private void extendDirtyRegion(DocumentEvent event) {
+		int offset= event.getOffset();
+		int end= offset + event.getLength();
+		String text= event.getText();
+		int newEnd= offset + (text == null ? 0 : text.length());
+
+		synchronized (fDirtyRegionLock) {
+			fModificationCount++;
+			if (fIsDirtyRegionUnknown)
+				return;
+
+			if (fDirtyStart == -1) {
+				fDirtyStart= offset;
+				fDirtyEnd= newEnd;
+				return;
+			}
+
+			// shift the old region into the coordinates of the changed document
+			int delta= newEnd - end;
+			if (fDirtyStart >= end)
+				fDirtyStart+= delta;
+			else if (fDirtyStart > offset)
+				fDirtyStart= offset;
+			if (fDirtyEnd >= end)
+				fDirtyEnd+= delta;
+			else if (fDirtyEnd > offset)
+				fDirtyEnd= newEnd;
+
+			fDirtyStart= Math.min(fDirtyStart, offset);
+			fDirtyEnd= Math.max(fDirtyEnd, newEnd);
+		}
+	}
+
+	/**
+	 * Forgets the dirty region, the whole document must be reconciled next time.
+	 *
+	 * @since 3.9
+	 */
+	private void resetDirtyRegion() {
+		synchronized (fDirtyRegionLock) {
+			fModificationCount++;
+			fIsDirtyRegionUnknown= true;
+			fDirtyStart= -1;
+			fDirtyEnd= -1;
+		}
+	}
+
 	/**
 	 * Create a text presentation in the background.
 	 * <p>
@@ -350,6 +502,39 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		return runnable;
 	}
 
+	/**
+	 * Create a runnable for replacing the positions inside the given range.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 * @param textPresentation the text presentation
+	 * @param addedPositions the added positions, all inside the range
+	 * @param removedPositions the removed positions, all inside the range
+	 * @param range the reconciled range, or <code>null</code> if the whole document has been reconciled
+	 * @param modificationCount the modification count of the reconciled content, or <code>-1</code> if unknown
+	 * @return the runnable or <code>null</code>, if reconciliation should be canceled
+	 * @since 3.9
+	 */
+	public Runnable createUpdateRunnable(final TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions, final IRegion range, final int modificationCount) {
+		if (fSourceViewer == null || textPresentation == null)
+			return null;
+
+		final HighlightedPosition[] added= new SemanticHighlightingManager.HighlightedPosition[addedPositions.size()];
+		addedPositions.toArray(added);
+		final SemanticHighlightingManager.HighlightedPosition[] removed= new SemanticHighlightingManager.HighlightedPosition[removedPositions.size()];
+		removedPositions.toArray(removed);
+
+		if (isCanceled())
+			return null;
+
+		Runnable runnable= new Runnable() {
+			public void run() {
+				updatePresentation(textPresentation, added, removed, range, modificationCount);
+			}
+		};
+		return runnable;
+	}
+
 	/**
 	 * Invalidate the presentation of the positions based on the given added positions and the existing deleted positions.
 	 * Also unregisters the deleted positions from the document and patches the positions of this presenter.
@@ -377,62 +562,13 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		if (document == null)
 			return;
 
-		String positionCategory= getPositionCategory();
-
 		List<HighlightedPosition> removedPositionsList= Arrays.asList(removedPositions);
 
 		try {
 			synchronized (fPositionLock) {
-				List<Position> oldPositions= fPositions;
 				int newSize= Math.max(fPositions.size() + addedPositions.length - removedPositions.length, 10);
-
-				/*
-				 * The following loop is a kind of merge sort: it merges two List<Position>, each
-				 * sorted by position.offset, into one new list. The first of the two is the
-				 * previous list of positions (oldPositions), from which any deleted positions get
-				 * removed on the fly. The second of two is the list of added positions. The result
-				 * is stored in newPositions.
-				 */
 				List<Position> newPositions= new ArrayList<Position>(newSize);
-				Position position= null;
-				Position addedPosition= null;
-				for (int i= 0, j= 0, n= oldPositions.size(), m= addedPositions.length; i < n || position != null || j < m || addedPosition != null;) {
-					// loop variant: i + j < old(i + j)
-
-					// a) find the next non-deleted Position from the old list
-					while (position == null && i < n) {
-						position= oldPositions.get(i++);
-						if (position.isDeleted() || contain(removedPositionsList, position)) {
-							document.removePosition(positionCategory, position);
-							position= null;
-						}
-					}
-
-					// b) find the next Position from the added list
-					if (addedPosition == null && j < m) {
-						addedPosition= addedPositions[j++];
-						document.addPosition(positionCategory, addedPosition);
-					}
-
-					// c) merge: add the next of position/addedPosition with the lower offset
-					if (position != null) {
-						if (addedPosition != null)
-							if (position.getOffset() <= addedPosition.getOffset()) {
-								newPositions.add(position);
-								position= null;
-							} else {
-								newPositions.add(addedPosition);
-								addedPosition= null;
-							}
-						else {
-							newPositions.add(position);
-							position= null;
-						}
-					} else if (addedPosition != null) {
-						newPositions.add(addedPosition);
-						addedPosition= null;
-					}
-				}
+				mergePositions(document, fPositions, addedPositions, removedPositionsList, newPositions);
 				fPositions= newPositions;
 			}
 		} catch (BadPositionCategoryException e) {
@@ -450,6 +586,126 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 			fSourceViewer.invalidateTextPresentation();
 	}
 
+	/**
+	 * Merges the given old positions and added positions, both sorted by offset, into the given
+	 * result list. Deleted and removed positions are unregistered from the document, added ones are
+	 * registered.
+	 *
+	 * @param document the document
+	 * @param oldPositions the old positions
+	 * @param addedPositions the added positions
+	 * @param removedPositionsList the removed positions
+	 * @param newPositions the list to add the merged positions to
+	 * @throws BadPositionCategoryException if the position category is not defined
+	 * @throws BadLocationException if an added position is not inside the document
+	 * @since 3.9
+	 */
+	private void mergePositions(IDocument document, List<Position> oldPositions, HighlightedPosition[] addedPositions, List<HighlightedPosition> removedPositionsList, List<Position> newPositions) throws BadPositionCategoryException, BadLocationException {
+		String positionCategory= getPositionCategory();
+
+		/*
+		 * The following loop is a kind of merge sort: it merges two List<Position>, each
+		 * sorted by position.offset, into one new list. The first of the two is the
+		 * previous list of positions (oldPositions), from which any deleted positions get
+		 * removed on the fly. The second of two is the list of added positions. The result
+		 * is stored in newPositions.
+		 */
+		Position position= null;
+		Position addedPosition= null;
+		for (int i= 0, j= 0, n= oldPositions.size(), m= addedPositions.length; i < n || position != null || j < m || addedPosition != null;) {
+			// loop variant: i + j < old(i + j)
+
+			// a) find the next non-deleted Position from the old list
+			while (position == null && i < n) {
+				position= oldPositions.get(i++);
+				if (position.isDeleted() || contain(removedPositionsList, position)) {
+					document.removePosition(positionCategory, position);
+					position= null;
+				}
+			}
+
+			// b) find the next Position from the added list
+			if (addedPosition == null && j < m) {
+				addedPosition= addedPositions[j++];
+				document.addPosition(positionCategory, addedPosition);
+			}
+
+			// c) merge: add the next of position/addedPosition with the lower offset
+			if (position != null) {
+				if (addedPosition != null)
+					if (position.getOffset() <= addedPosition.getOffset()) {
+						newPositions.add(position);
+						position= null;
+					} else {
+						newPositions.add(addedPosition);
+						addedPosition= null;
+					}
+				else {
+					newPositions.add(position);
+					position= null;
+				}
+			} else if (addedPosition != null) {
+				newPositions.add(addedPosition);
+				addedPosition= null;
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the presentation of the changed positions inside the given range. Only the
+	 * positions inside the range are merged, the other positions are kept unchanged, so that the
+	 * cost is proportional to the size of the range instead of the size of the document.
+	 * <p>
+	 * NOTE: Indirectly called from background thread by UI runnable.
+	 * </p>
+	 * @param textPresentation the text presentation or <code>null</code>, if the presentation should computed in the UI thread
+	 * @param addedPositions the added positions, all inside the range
+	 * @param removedPositions the removed positions, all inside the range
+	 * @param range the reconciled range, or <code>null</code> if the whole document has been reconciled
+	 * @param modificationCount the modification count of the reconciled content, or <code>-1</code> if unknown
+	 * @since 3.9
+	 */
+	public void updatePresentation(TextPresentation textPresentation, HighlightedPosition[] addedPositions, HighlightedPosition[] removedPositions, IRegion range, int modificationCount) {
+		if (range == null) {
+			updatePresentation(textPresentation, addedPositions, removedPositions);
+		} else {
+			if (fSourceViewer == null || isCanceled())
+				return;
+
+			IDocument document= fSourceViewer.getDocument();
+			if (document == null)
+				return;
+
+			List<HighlightedPosition> removedPositionsList= Arrays.asList(removedPositions);
+
+			try {
+				synchronized (fPositionLock) {
+					int start= computeIndexAtOffset(fPositions, range.getOffset());
+					int end= computeIndexAtOffset(fPositions, range.getOffset() + range.getLength());
+					List<Position> oldPositions= fPositions.subList(start, end);
+					List<Position> newPositions= new ArrayList<Position>(oldPositions.size() + addedPositions.length);
+					mergePositions(document, oldPositions, addedPositions, removedPositionsList, newPositions);
+					oldPositions.clear();
+					fPositions.addAll(start, newPositions);
+				}
+			} catch (BadPositionCategoryException e) {
+				// Should not happen
+				JavaPlugin.log(e);
+			} catch (BadLocationException e) {
+				// Should not happen
+				JavaPlugin.log(e);
+			}
+
+			if (textPresentation != null)
+				fSourceViewer.changeTextPresentation(textPresentation, false);
+			else
+				fSourceViewer.invalidateTextPresentation();
+		}
+
+		if (modificationCount != -1 && fSourceViewer != null && !isCanceled())
+			markReconciled(modificationCount);
+	}
+
 //	private void checkOrdering(String s, List positions) {
 //		Position previous= null;
 //		for (int i= 0, n= positions.size(); i < n; i++) {
@@ -590,6 +846,7 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
 	 */
 	public void documentChanged(DocumentEvent event) {
+		extendDirtyRegion(event);
 	}
 
 	/**
@@ -733,6 +990,7 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		synchronized (fPositionLock) {
 			fPositions.clear();
 		}
+		resetDirtyRegion();
 	}
 
 	/**
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import org.eclipse.swt.widgets.Display;
@@ -23,21 +24,28 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.ISourceViewer;
 
 import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -186,14 +194,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(fRemovedPositions, offset), n= fRemovedPositions.size(); i < n; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position == null)
-					continue;
-				if (position.isEqual(offset, length, highlighting)) {
+				if (position.getOffset() > offset)
+					break;
+				if (!fRetainedPositions.get(i) && position.isEqual(offset, length, highlighting)) {
 					isExisting= true;
-					fRemovedPositions.set(i, null);
+					fRetainedPositions.set(i);
 					fNOfRemovedPositions--;
 					break;
 				}
@@ -211,11 +218,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			int end= offset + length;
+			for (int i= computeIndexAtOffset(fRemovedPositions, offset), n= fRemovedPositions.size(); i < n; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position != null && position.isContained(offset, length)) {
-					fRemovedPositions.set(i, null);
+				if (position.getOffset() >= end)
+					break;
+				if (!fRetainedPositions.get(i) && position.isContained(offset, length)) {
+					fRetainedPositions.set(i);
 					fNOfRemovedPositions--;
 				}
 			}
@@ -242,6 +251,24 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<Position>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Indices of the positions in {@link #fRemovedPositions} which are still valid.
+	 * @since 3.9
+	 */
+	private BitSet fRetainedPositions= new BitSet();
+
+	/**
+	 * Dirty region of the document at the time the current reconcile started, <code>null</code>
+	 * if the whole document must be reconciled.
+	 * @since 3.9
+	 */
+	private IRegion fReconcileDirtyRegion;
+	/**
+	 * Modification count of the document at the time the current reconcile started,
+	 * <code>-1</code> if unknown.
+	 * @since 3.9
+	 */
+	private int fReconcileModificationCount= -1;
 
 	/** Background job */
 	private Job fJob;
@@ -276,13 +303,40 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#aboutToBeReconciled()
 	 */
 	public void aboutToBeReconciled() {
-		// Do nothing
+		SemanticHighlightingPresenter presenter= fPresenter;
+		if (presenter == null) {
+			fReconcileDirtyRegion= null;
+			fReconcileModificationCount= -1;
+			return;
+		}
+		// read the count first: a change in between makes the snapshot outdated instead of incomplete
+		fReconcileModificationCount= presenter.getModificationCount();
+		fReconcileDirtyRegion= presenter.getDirtyRegion();
 	}
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#reconciled(CompilationUnit, boolean, IProgressMonitor)
 	 */
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
+		IRegion dirtyRegion= fReconcileDirtyRegion;
+		int modificationCount= fReconcileModificationCount;
+		fReconcileDirtyRegion= null;
+		fReconcileModificationCount= -1;
+		reconciled(ast, forced ? null : dirtyRegion, modificationCount, progressMonitor);
+	}
+
+	/**
+	 * Reconciles the positions with the given AST.
+	 *
+	 * @param ast the AST
+	 * @param dirtyRegion the region of the document changed since the positions have last been
+	 *            reconciled, or <code>null</code> if the whole AST must be reconciled
+	 * @param modificationCount the modification count of the document at the time the AST has been
+	 *            requested, or <code>-1</code> if unknown
+	 * @param progressMonitor the progress monitor
+	 * @since 3.9
+	 */
+	private void reconciled(CompilationUnit ast, IRegion dirtyRegion, int modificationCount, IProgressMonitor progressMonitor) {
 		// ensure at most one thread can be reconciling at any time
 		synchronized (fReconcileLock) {
 			if (fIsReconciling)
@@ -303,11 +357,21 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			if (modificationCount != fJobPresenter.getModificationCount()) {
+				// the document has been changed after the reconcile started, the dirty region does not match the AST
+				dirtyRegion= null;
+				modificationCount= -1;
+			}
+
+			ASTNode[] subtrees= getAffectedSubtrees(ast, dirtyRegion);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			IRegion range= null;
+			if (subtrees.length != 1 || subtrees[0] != ast)
+				range= new Region(subtrees[0].getStartPosition(), subtrees[0].getLength());
+
+			startReconcilingPositions(range);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -326,7 +390,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
 			if (!fJobPresenter.isCanceled())
-				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions, range, modificationCount);
 
 			stopReconcilingPositions();
 		} finally {
@@ -341,20 +405,67 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
+	 * Returns the subtrees that may be affected by the document changes in the given region.
+	 * <p>
+	 * Changes that are strictly inside the body of a method or initializer can not affect the
+	 * bindings outside of that body, so only the body has to be visited. All other changes, and
+	 * changes that lead to syntax errors, can have distant effects and the whole AST is returned.
+	 * </p>
+	 *
 	 * @param node Root node
+	 * @param dirtyRegion the changed region, or <code>null</code> if unknown
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
+	private ASTNode[] getAffectedSubtrees(CompilationUnit node, IRegion dirtyRegion) {
+		if (dirtyRegion == null || hasSyntaxErrors(node))
+			return new ASTNode[] { node };
+
+		int start= dirtyRegion.getOffset();
+		int end= start + dirtyRegion.getLength();
+		ASTNode current= NodeFinder.perform(node, start, dirtyRegion.getLength());
+		while (current != null) {
+			if (current instanceof Block) {
+				ASTNode parent= current.getParent();
+				if (parent instanceof MethodDeclaration || parent instanceof Initializer) {
+					int bodyStart= current.getStartPosition();
+					int bodyEnd= bodyStart + current.getLength();
+					// the braces must not have been touched
+					if (bodyStart < start && end < bodyEnd && (parent.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) == 0)
+						return new ASTNode[] { current };
+					break;
+				}
+			}
+			current= current.getParent();
+		}
 		return new ASTNode[] { node };
 	}
 
+	/**
+	 * @param ast the AST
+	 * @return <code>true</code> iff the AST has syntax errors
+	 * @since 3.9
+	 */
+	private static boolean hasSyntaxErrors(CompilationUnit ast) {
+		IProblem[] problems= ast.getProblems();
+		for (int i= 0; i < problems.length; i++) {
+			if (problems[i].isError() && (problems[i].getID() & IProblem.Syntax) != 0)
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param range the range to reconcile, or <code>null</code> to reconcile all positions
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(IRegion range) {
+		if (range == null)
+			fJobPresenter.addAllPositions(fRemovedPositions);
+		else
+			fJobPresenter.addPositions(fRemovedPositions, range);
 		fNOfRemovedPositions= fRemovedPositions.size();
+		fRetainedPositions.clear();
 	}
 
 	/**
@@ -363,31 +474,57 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
+		// positions outside of the subtrees have not been added to fRemovedPositions, see startReconcilingPositions(IRegion)
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
 		List<Position> newPositions= new ArrayList<Position>(fNOfRemovedPositions);
 		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
-			Position current= oldPositions.get(i);
-			if (current != null)
-				newPositions.add(current);
+			if (!fRetainedPositions.get(i))
+				newPositions.add(oldPositions.get(i));
 		}
 		fRemovedPositions= newPositions;
 	}
 
+	/**
+	 * Returns the index of the first position with an offset equal or greater than the given offset.
+	 *
+	 * @param positions the positions, must be ordered by offset
+	 * @param offset the offset
+	 * @return the index of the first position with an offset equal or greater than the given offset
+	 * @since 3.9
+	 */
+	private static int computeIndexAtOffset(List<Position> positions, int offset) {
+		int i= -1;
+		int j= positions.size();
+		while (j - i > 1) {
+			int k= (i + j) >> 1;
+			if (positions.get(k).getOffset() >= offset)
+				j= k;
+			else
+				i= k;
+		}
+		return j;
+	}
+
 	/**
 	 * Update the presentation.
 	 *
 	 * @param textPresentation the text presentation
 	 * @param addedPositions the added positions
 	 * @param removedPositions the removed positions
+	 * @param range the reconciled range, or <code>null</code> if all positions have been reconciled
+	 * @param modificationCount the modification count of the reconciled content, or <code>-1</code> if unknown
 	 */
-	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions, IRegion range, int modificationCount) {
+		if (addedPositions.isEmpty() && removedPositions.isEmpty()) {
+			// nothing to update, but the document content has been reconciled
+			if (modificationCount != -1)
+				fJobPresenter.markReconciled(modificationCount);
+			return;
+		}
+
+		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions, range, modificationCount);
 		if (runnable == null)
 			return;
 
@@ -416,6 +553,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private void stopReconcilingPositions() {
 		fRemovedPositions.clear();
 		fNOfRemovedPositions= 0;
+		fRetainedPositions.clear();
 		fAddedPositions.clear();
 	}
 
@@ -492,7 +630,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 						if (monitor.isCanceled())
 							return Status.CANCEL_STATUS;
 						CompilationUnit ast= SharedASTProvider.getAST(element, SharedASTProvider.WAIT_YES, monitor);
-						reconciled(ast, false, monitor);
+						reconciled(ast, null, -1, monitor);
 						synchronized (fJobLock) {
 							// allow the job to be gc'ed
 							if (fJob == this)
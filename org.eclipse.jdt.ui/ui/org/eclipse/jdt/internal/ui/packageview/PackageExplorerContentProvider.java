@@ -11,9 +11,15 @@
 package org.eclipse.jdt.internal.ui.packageview;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
@@ -77,6 +83,12 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	protected static final int GRANT_PARENT= 1 << 1;
 	protected static final int PROJECT= 1 << 2;
 
+	/**
+	 * The time in milliseconds the update job may spend on pending updates before it gives the
+	 * display back and reschedules itself.
+	 */
+	private static final long UPDATE_TIME_SLICE= 100;
+
 	private TreeViewer fViewer;
 	private Object fInput;
 	private boolean fIsFlatLayout;
@@ -87,6 +99,11 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 
 	private UIJob fUpdateJob;
 
+	/** The number of updates that have been posted, guarded by <code>this</code>. */
+	private int fReceivedUpdates;
+	/** The number of updates that have been applied to the viewer, guarded by <code>this</code>. */
+	private int fAppliedUpdates;
+
 	/**
 	 * Creates a new content provider for Java elements.
 	 * @param provideMembers if set, members of compilation units and class files are shown
@@ -137,10 +154,11 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 			final boolean hasPendingUpdates;
 			synchronized (this) {
 				hasPendingUpdates= fPendingUpdates != null && !fPendingUpdates.isEmpty();
+				fReceivedUpdates+= runnables.size();
 			}
 			//Are we in the UIThread? If so spin it until we are done
 			if (!hasPendingUpdates && ctrl.getDisplay().getThread() == Thread.currentThread() && !fViewer.isBusy()) {
-				runUpdates(runnables);
+				runUpdates(runnables, -1);
 			} else {
 				synchronized (this) {
 					if (fPendingUpdates == null) {
@@ -161,8 +179,8 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 					TreeViewer viewer= fViewer;
 					if (viewer != null && viewer.isBusy()) {
 						schedule(100); // reschedule when viewer is busy: bug 184991
-					} else {
-						runPendingUpdates();
+					} else if (runPendingUpdates(UPDATE_TIME_SLICE)) {
+						schedule();
 					}
 					return Status.OK_STATUS;
 				}
@@ -176,6 +194,18 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * Run all of the runnables that are the widget updates. Must be called in the display thread.
 	 */
 	public void runPendingUpdates() {
+		runPendingUpdates(-1);
+	}
+
+	/**
+	 * Runs the pending widget updates until the given time slice is used up. The updates that
+	 * have not been run are put back in front of the pending updates. Must be called in the
+	 * display thread.
+	 *
+	 * @param timeSlice the time in milliseconds, or <code>-1</code> to run all updates
+	 * @return <code>true</code> if there are updates left
+	 */
+	private boolean runPendingUpdates(long timeSlice) {
 		Collection<Runnable> pendingUpdates;
 		synchronized (this) {
 			pendingUpdates= fPendingUpdates;
@@ -184,16 +214,158 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		if (pendingUpdates != null && fViewer != null) {
 			Control control = fViewer.getControl();
 			if (control != null && !control.isDisposed()) {
-				runUpdates(pendingUpdates);
+				List<Runnable> remaining= runUpdates(pendingUpdates, timeSlice);
+				if (!remaining.isEmpty()) {
+					synchronized (this) {
+						if (fPendingUpdates != null)
+							remaining.addAll(fPendingUpdates);
+						fPendingUpdates= remaining;
+					}
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Coalesces the given updates and runs them until the given time slice is used up.
+	 *
+	 * @param runnables the updates
+	 * @param timeSlice the time in milliseconds, or <code>-1</code> to run all updates
+	 * @return the coalesced updates that have not been run
+	 */
+	private List<Runnable> runUpdates(Collection<Runnable> runnables, long timeSlice) {
+		List<Runnable> updates= coalesceUpdates(runnables);
+		long end= timeSlice < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeSlice;
+		int applied= 0;
+		try {
+			while (applied < updates.size()) {
+				if (applied > 0 && System.currentTimeMillis() >= end)
+					return new ArrayList<Runnable>(updates.subList(applied, updates.size()));
+				updates.get(applied++).run();
+			}
+		} finally {
+			synchronized (this) {
+				fAppliedUpdates+= applied;
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Removes the redundant updates: refreshes of the same element are merged into the last one,
+	 * only the last remove of an element is kept, adds are only kept if the element is neither
+	 * added to the same parent nor removed later, and updates of elements are dropped if all their
+	 * items in the viewer are below an element that is refreshed. The kept updates stay at their
+	 * original positions.
+	 *
+	 * @param runnables the updates
+	 * @return the remaining updates
+	 */
+	private List<Runnable> coalesceUpdates(Collection<Runnable> runnables) {
+		Map<Object, Boolean> refreshed= new HashMap<Object, Boolean>();
+		for (Iterator<Runnable> iter= runnables.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				RefreshUpdate update= (RefreshUpdate) runnable;
+				for (Iterator<Object> elements= update.fElements.iterator(); elements.hasNext();) {
+					Object element= elements.next();
+					if (update.fUpdateLabels || !refreshed.containsKey(element))
+						refreshed.put(element, Boolean.valueOf(update.fUpdateLabels));
+				}
+			}
+		}
+
+		// walk backwards, so that the last update of an element is the one that is kept
+		List<Runnable> result= new ArrayList<Runnable>(runnables.size());
+		Set<Object> refreshDone= new HashSet<Object>();
+		Set<List<Object>> addDone= new HashSet<List<Object>>();
+		Set<Object> removeDone= new HashSet<Object>();
+		List<Runnable> reversed= new ArrayList<Runnable>(runnables);
+		Collections.reverse(reversed);
+		for (Iterator<Runnable> iter= reversed.iterator(); iter.hasNext();) {
+			Runnable runnable= iter.next();
+			if (runnable instanceof RefreshUpdate) {
+				List<Object> elements= ((RefreshUpdate) runnable).fElements;
+				for (int i= elements.size() - 1; i >= 0; i--) {
+					Object element= elements.get(i);
+					if (!refreshDone.add(element))
+						continue;
+					boolean updateLabels= refreshed.get(element).booleanValue();
+					if (!isRefreshedByAncestor(element, updateLabels, refreshed))
+						result.add(new RefreshUpdate(Collections.singletonList(element), updateLabels));
+				}
+			} else if (runnable instanceof AddUpdate) {
+				AddUpdate update= (AddUpdate) runnable;
+				if (!removeDone.contains(update.fElement) && addDone.add(Arrays.asList(new Object[] { update.fParent, update.fElement }))
+						&& !refreshed.containsKey(update.fParent) && !isRefreshedByAncestor(update.fParent, false, refreshed))
+					result.add(runnable);
+			} else if (runnable instanceof RemoveUpdate) {
+				RemoveUpdate update= (RemoveUpdate) runnable;
+				if (removeDone.add(update.fElement)
+						&& !isRefreshedByAncestor(update.fElement, false, refreshed))
+					result.add(runnable);
+			} else {
+				result.add(runnable);
 			}
 		}
+		Collections.reverse(result);
+		return result;
 	}
 
-	private void runUpdates(Collection<Runnable> runnables) {
-		Iterator<Runnable> runnableIterator = runnables.iterator();
-		while (runnableIterator.hasNext()){
-			runnableIterator.next().run();
+	/**
+	 * Tells whether all items of the given element are below an element that is refreshed.
+	 *
+	 * @param element the element
+	 * @param updateLabels <code>true</code> if the refresh has to update the labels
+	 * @param refreshed the refreshed elements, mapped to whether labels are updated
+	 * @return <code>true</code> if the element is refreshed by the refresh of an ancestor
+	 */
+	private boolean isRefreshedByAncestor(Object element, boolean updateLabels, Map<Object, Boolean> refreshed) {
+		if (element == null || refreshed.isEmpty())
+			return false;
+		Widget[] items= fViewer.testFindItems(element);
+		if (items.length == 0)
+			return false;
+		for (int i= 0; i < items.length; i++) {
+			if (!(items[i] instanceof TreeItem) || items[i].isDisposed())
+				return false;
+			TreeItem parentItem= ((TreeItem) items[i]).getParentItem();
+			boolean found= false;
+			while (parentItem != null && !found) {
+				found= isRefreshed(parentItem.getData(), updateLabels, refreshed);
+				parentItem= parentItem.getParentItem();
+			}
+			if (!found && !isRefreshed(fViewer.getInput(), updateLabels, refreshed))
+				return false;
 		}
+		return true;
+	}
+
+	private static boolean isRefreshed(Object element, boolean updateLabels, Map<Object, Boolean> refreshed) {
+		Boolean labelsUpdated= refreshed.get(element);
+		return labelsUpdated != null && (labelsUpdated.booleanValue() || !updateLabels);
+	}
+
+	/**
+	 * Returns the number of view updates that have been posted since the content provider has
+	 * been created.
+	 *
+	 * @return the number of posted updates
+	 */
+	public synchronized int getReceivedUpdateCount() {
+		return fReceivedUpdates;
+	}
+
+	/**
+	 * Returns the number of view updates that have been applied to the viewer since the content
+	 * provider has been created. Redundant updates are not applied.
+	 *
+	 * @return the number of applied updates
+	 */
+	public synchronized int getAppliedUpdateCount() {
+		return fAppliedUpdates;
 	}
 
 
@@ -945,46 +1117,16 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		return isParent(root, parent);
 	}
 
-	protected void postRefresh(final List<Object> toRefresh, final boolean updateLabels, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			public void run() {
-				Object[] elements= toRefresh.toArray();
-				for (int i= 0; i < elements.length; i++) {
-					Object element= elements[i];
-					if (element == null || fViewer.testFindItems(element).length > 0) {
-						fViewer.refresh(element, updateLabels);
-					}
-				}
-			}
-		});
+	protected void postRefresh(List<Object> toRefresh, boolean updateLabels, Collection<Runnable> runnables) {
+		runnables.add(new RefreshUpdate(toRefresh, updateLabels));
 	}
 
-	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			public void run() {
-				Widget[] items= fViewer.testFindItems(element);
-				for (int i= 0; i < items.length; i++) {
-					Widget item= items[i];
-					if (item instanceof TreeItem && !item.isDisposed()) {
-						TreeItem parentItem= ((TreeItem) item).getParentItem();
-						if (parentItem != null && !parentItem.isDisposed() && parent.equals(parentItem.getData())) {
-							return; // no add, element already added (most likely by a refresh)
-						}
-					}
-				}
-				fViewer.add(parent, element);
-			}
-		});
+	protected void postAdd(Object parent, Object element, Collection<Runnable> runnables) {
+		runnables.add(new AddUpdate(parent, element));
 	}
 
-	protected void postRemove(final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			public void run() {
-				if (fViewer.testFindItems(element).length > 0) {
-					fViewer.remove(element);
-				}
-			}
-		});
+	protected void postRemove(Object element, Collection<Runnable> runnables) {
+		runnables.add(new RemoveUpdate(element));
 	}
 
 	protected void postProjectStateChanged(final Object root, Collection<Runnable> runnables) {
@@ -999,6 +1141,78 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 
+	/**
+	 * Refreshes elements in the viewer. Refreshes are merged and dropped when an ancestor is
+	 * refreshed, see {@link PackageExplorerContentProvider#coalesceUpdates(Collection)}.
+	 */
+	private final class RefreshUpdate implements Runnable {
+
+		final List<Object> fElements;
+		final boolean fUpdateLabels;
+
+		RefreshUpdate(List<Object> elements, boolean updateLabels) {
+			fElements= elements;
+			fUpdateLabels= updateLabels;
+		}
+
+		public void run() {
+			Object[] elements= fElements.toArray();
+			for (int i= 0; i < elements.length; i++) {
+				Object element= elements[i];
+				if (element == null || fViewer.testFindItems(element).length > 0) {
+					fViewer.refresh(element, fUpdateLabels);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds an element to the viewer.
+	 */
+	private final class AddUpdate implements Runnable {
+
+		final Object fParent;
+		final Object fElement;
+
+		AddUpdate(Object parent, Object element) {
+			fParent= parent;
+			fElement= element;
+		}
+
+		public void run() {
+			Widget[] items= fViewer.testFindItems(fElement);
+			for (int i= 0; i < items.length; i++) {
+				Widget item= items[i];
+				if (item instanceof TreeItem && !item.isDisposed()) {
+					TreeItem parentItem= ((TreeItem) item).getParentItem();
+					if (parentItem != null && !parentItem.isDisposed() && fParent.equals(parentItem.getData())) {
+						return; // no add, element already added (most likely by a refresh)
+					}
+				}
+			}
+			fViewer.add(fParent, fElement);
+		}
+	}
+
+	/**
+	 * Removes an element from the viewer.
+	 */
+	private final class RemoveUpdate implements Runnable {
+
+		final Object fElement;
+
+		RemoveUpdate(Object element) {
+			fElement= element;
+		}
+
+		public void run() {
+			if (fViewer.testFindItems(fElement).length > 0) {
+				fViewer.remove(fElement);
+			}
+		}
+	}
+
+
 	/*
 	 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse.jface.util.PropertyChangeEvent)
 	 */
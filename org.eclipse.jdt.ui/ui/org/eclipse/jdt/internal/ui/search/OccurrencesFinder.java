@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.Assignment;
@@ -92,16 +95,44 @@ public class OccurrencesFinder extends ASTVisitor implements IOccurrencesFinder
 		return null;
 	}
 
-	private void performSearch() {
-		if (fResult == null) {
+	private void performSearch(IProgressMonitor monitor) {
+		if (fResult == null && canUseIndex()) {
+			fResult= OccurrencesIndex.getIndex(fRoot, monitor).getOccurrences(fTarget, fReadDescription, fWriteDescription);
+		} else if (fResult == null) {
 			fResult= new ArrayList<OccurrenceLocation>();
 			fWriteUsages= new HashSet<Name>();
 			fRoot.accept(this);
 		}
 	}
 
+	/**
+	 * Tells whether the occurrences can be taken from the {@link OccurrencesIndex} of the AST. The
+	 * static imports of methods are matched by name and are not in the index.
+	 *
+	 * @return <code>true</code> if the index can be used
+	 * @since 3.9
+	 */
+	private boolean canUseIndex() {
+		if (fTargetIsStaticMethodImport || fTarget.getKey() == null)
+			return false;
+		return !(fTarget instanceof IMethodBinding && Modifier.isStatic(fTarget.getModifiers()));
+	}
+
 	public OccurrenceLocation[] getOccurrences() {
-		performSearch();
+		return getOccurrences(null);
+	}
+
+	/**
+	 * Returns the occurrences like {@link #getOccurrences()}, but stops when the given monitor is
+	 * canceled.
+	 *
+	 * @param monitor the progress monitor to check for cancellation, or <code>null</code>
+	 * @return the occurrences or <code>null</code> if there are none
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 * @since 3.9
+	 */
+	public OccurrenceLocation[] getOccurrences(IProgressMonitor monitor) {
+		performSearch(monitor);
 		if (fResult.isEmpty())
 			return null;
 		return fResult.toArray(new OccurrenceLocation[fResult.size()]);
@@ -149,7 +180,7 @@ public class OccurrencesFinder extends ASTVisitor implements IOccurrencesFinder
 		return !addUsage(node, binding);
 	}
 
-	private static boolean isStaticImport(ASTNode node) {
+	static boolean isStaticImport(ASTNode node) {
 		if (!(node instanceof QualifiedName))
 			return false;
 
@@ -285,7 +316,7 @@ public class OccurrencesFinder extends ASTVisitor implements IOccurrencesFinder
 		return null;
 	}
 
-	private IBinding getBindingDeclaration(IBinding binding) {
+	static IBinding getBindingDeclaration(IBinding binding) {
 		switch (binding.getKind()) {
 			case IBinding.TYPE :
 				return ((ITypeBinding)binding).getTypeDeclaration();
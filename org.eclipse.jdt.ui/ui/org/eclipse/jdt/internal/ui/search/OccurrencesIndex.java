@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression.Operator;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder.OccurrenceLocation;
+
+/**
+ * The occurrences of all bindings in an AST, by the key of the binding declaration. The index is
+ * built with one pass over the AST the first time occurrences are looked up in the AST, so that
+ * marking the occurrences of another element in the same AST does not walk the AST again.
+ * <p>
+ * The occurrences are the ones the {@link OccurrencesFinder} finds, except for the static imports
+ * of methods, which the finder still searches itself.
+ * </p>
+ *
+ * @since 3.9
+ */
+final class OccurrencesIndex {
+
+	/** The number of visited nodes after which the indexer checks for cancellation. */
+	private static final int CANCELLATION_CHECK_INTERVAL= 256;
+
+	/** The indexes of the ASTs that are still referenced. Guarded by itself. */
+	private static final Map<CompilationUnit, OccurrencesIndex> fgIndexes= new WeakHashMap<CompilationUnit, OccurrencesIndex>();
+
+	/**
+	 * Returns the index of the given AST, building it if needed. The index is built without
+	 * holding a lock, so that a build that is no longer needed does not block the next lookup.
+	 *
+	 * @param root the AST
+	 * @param monitor the progress monitor to check for cancellation, or <code>null</code>
+	 * @return the index
+	 * @throws OperationCanceledException if the monitor has been canceled while building the
+	 *             index
+	 */
+	static OccurrencesIndex getIndex(CompilationUnit root, IProgressMonitor monitor) {
+		synchronized (fgIndexes) {
+			OccurrencesIndex index= fgIndexes.get(root);
+			if (index != null)
+				return index;
+		}
+		OccurrencesIndex index= new OccurrencesIndex();
+		root.accept(index.new Indexer(monitor));
+		synchronized (fgIndexes) {
+			OccurrencesIndex other= fgIndexes.get(root);
+			if (other != null)
+				return other;
+			fgIndexes.put(root, index);
+		}
+		return index;
+	}
+
+	/**
+	 * The occurrences of one binding as offset, length and write flag triples.
+	 */
+	private static final class Occurrences {
+
+		int[] fData= new int[6];
+		int fSize;
+
+		void add(int offset, int length, boolean isWrite) {
+			if (fSize + 3 > fData.length) {
+				int[] data= new int[fData.length * 2];
+				System.arraycopy(fData, 0, data, 0, fSize);
+				fData= data;
+			}
+			fData[fSize++]= offset;
+			fData[fSize++]= length;
+			fData[fSize++]= isWrite ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Visits the AST like the {@link OccurrencesFinder}, but records the occurrences of all
+	 * bindings. Where the finder does not descend into a qualified name that matches its target,
+	 * the indexer descends but ignores further occurrences of the binding of the qualified name.
+	 */
+	private final class Indexer extends ASTVisitor {
+
+		private final Set<Name> fWriteUsages= new HashSet<Name>();
+		private final List<String> fBlockedKeys= new ArrayList<String>();
+		private final Map<QualifiedName, String> fBlockingNames= new HashMap<QualifiedName, String>();
+
+		private final IProgressMonitor fMonitor;
+		private int fVisitedNodes;
+
+		Indexer(IProgressMonitor monitor) {
+			super(true);
+			fMonitor= monitor;
+		}
+
+		@Override
+		public void preVisit(ASTNode node) {
+			if (fMonitor != null && ++fVisitedNodes % CANCELLATION_CHECK_INTERVAL == 0 && fMonitor.isCanceled())
+				throw new OperationCanceledException();
+		}
+
+		@Override
+		public boolean visit(QualifiedName node) {
+			IBinding binding= node.resolveBinding();
+			String key;
+			if (binding instanceof IVariableBinding && ((IVariableBinding)binding).isField()) {
+				SimpleName name= node.getName();
+				key= addUsage(name, name.resolveBinding());
+			} else if (binding instanceof IMethodBinding && OccurrencesFinder.isStaticImport(node)) {
+				key= null;
+			} else {
+				key= addUsage(node, binding);
+			}
+			if (key != null) {
+				fBlockedKeys.add(key);
+				fBlockingNames.put(node, key);
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(QualifiedName node) {
+			String key= fBlockingNames.remove(node);
+			if (key != null)
+				fBlockedKeys.remove(key);
+		}
+
+		@Override
+		public boolean visit(SimpleName node) {
+			addUsage(node, node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ClassInstanceCreation node) {
+			Type type= node.getType();
+			if (type instanceof ParameterizedType) {
+				type= ((ParameterizedType) type).getType();
+			}
+			if (type instanceof SimpleType) {
+				Name name= ((SimpleType) type).getName();
+				if (name instanceof QualifiedName)
+					name= ((QualifiedName)name).getName();
+				addUsage(name, node.resolveConstructorBinding());
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(Assignment node) {
+			addWrite(getSimpleName(node.getLeftHandSide()));
+			return true;
+		}
+
+		@Override
+		public boolean visit(SingleVariableDeclaration node) {
+			addWrite(node.getName());
+			return true;
+		}
+
+		@Override
+		public boolean visit(VariableDeclarationFragment node) {
+			if (node.getParent() instanceof FieldDeclaration || node.getInitializer() != null)
+				addWrite(node.getName());
+			return true;
+		}
+
+		@Override
+		public boolean visit(PrefixExpression node) {
+			PrefixExpression.Operator operator= node.getOperator();
+			if (operator == Operator.INCREMENT || operator == Operator.DECREMENT)
+				addWrite(getSimpleName(node.getOperand()));
+			return true;
+		}
+
+		@Override
+		public boolean visit(PostfixExpression node) {
+			addWrite(getSimpleName(node.getOperand()));
+			return true;
+		}
+
+		private void addWrite(Name node) {
+			if (node != null)
+				fWriteUsages.add(node);
+		}
+
+		/**
+		 * Records an occurrence of the given binding.
+		 *
+		 * @param node the name
+		 * @param binding the binding of the name, can be <code>null</code>
+		 * @return the key of the binding declaration if the occurrence has been recorded,
+		 *         <code>null</code> otherwise
+		 */
+		private String addUsage(Name node, IBinding binding) {
+			if (binding == null)
+				return null;
+			IBinding declaration= OccurrencesFinder.getBindingDeclaration(binding);
+			String key= declaration.getKey();
+			if (key == null || fBlockedKeys.contains(key))
+				return null;
+			Occurrences occurrences= fOccurrences.get(key);
+			if (occurrences == null) {
+				occurrences= new Occurrences();
+				fOccurrences.put(key, occurrences);
+			}
+			boolean isWrite= declaration instanceof IVariableBinding && fWriteUsages.remove(node);
+			occurrences.add(node.getStartPosition(), node.getLength(), isWrite);
+			return key;
+		}
+
+		private SimpleName getSimpleName(Expression expression) {
+			if (expression instanceof SimpleName)
+				return ((SimpleName)expression);
+			else if (expression instanceof QualifiedName)
+				return (((QualifiedName) expression).getName());
+			else if (expression instanceof FieldAccess)
+				return ((FieldAccess)expression).getName();
+			return null;
+		}
+	}
+
+	private final Map<String, Occurrences> fOccurrences= new HashMap<String, Occurrences>();
+
+	private OccurrencesIndex() {
+	}
+
+	/**
+	 * Returns the occurrences of the given binding declaration.
+	 *
+	 * @param target the binding declaration
+	 * @param readDescription the description of read occurrences
+	 * @param writeDescription the description of write occurrences
+	 * @return the occurrences in the order of the AST
+	 */
+	List<OccurrenceLocation> getOccurrences(IBinding target, String readDescription, String writeDescription) {
+		List<OccurrenceLocation> result= new ArrayList<OccurrenceLocation>();
+		Occurrences occurrences= fOccurrences.get(target.getKey());
+		if (occurrences == null)
+			return result;
+		boolean isVariable= target instanceof IVariableBinding;
+		int[] data= occurrences.fData;
+		for (int i= 0; i < occurrences.fSize; i+= 3) {
+			boolean isWrite= data[i + 2] != 0;
+			int flag= isVariable ? (isWrite ? IOccurrencesFinder.F_WRITE_OCCURRENCE : IOccurrencesFinder.F_READ_OCCURRENCE) : 0;
+			result.add(new OccurrenceLocation(data[i], data[i + 1], flag, isWrite ? writeDescription : readDescription));
+		}
+		return result;
+	}
+}
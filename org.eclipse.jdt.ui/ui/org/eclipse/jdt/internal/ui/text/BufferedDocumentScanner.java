@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,7 +23,9 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 /**
  * A buffered document scanner. The buffer always contains a section
- * of a fixed size of the document to be scanned.
+ * of the document to be scanned. The buffer starts with the given size
+ * and grows up to the given maximum size while the scanner keeps reading,
+ * so that short scans read little and long scans fetch few large sections.
  */
 
 public final class BufferedDocumentScanner implements ICharacterScanner {
@@ -38,7 +40,22 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 	private char[][] fDelimiters;
 
 	/** The buffer. */
-	private final char[] fBuffer;
+	private char[] fBuffer;
+	/**
+	 * The number of characters to read into the buffer at a time.
+	 * @since 3.9
+	 */
+	private int fSize;
+	/**
+	 * The initial size of the buffer.
+	 * @since 3.9
+	 */
+	private final int fInitialSize;
+	/**
+	 * The maximum size of the buffer.
+	 * @since 3.9
+	 */
+	private final int fMaxSize;
 	/** The offset of the buffer within the document. */
 	private int fBufferOffset;
 	/** The valid length of the buffer for access. */
@@ -54,8 +71,24 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 	 * @param size the buffer size
 	 */
 	public BufferedDocumentScanner(int size) {
-		Assert.isTrue(size >= 1);
+		this(size, size);
+	}
+
+	/**
+	 * Creates a new buffered document scanner.
+	 * The buffer size is set to the given number of characters and doubled
+	 * each time the scanner has read the buffer, up to the maximum size.
+	 *
+	 * @param size the initial buffer size
+	 * @param maxSize the maximum buffer size
+	 * @since 3.9
+	 */
+	public BufferedDocumentScanner(int size, int maxSize) {
+		Assert.isTrue(size >= 1 && maxSize >= size);
 		fBuffer= new char[size];
+		fSize= size;
+		fInitialSize= size;
+		fMaxSize= maxSize;
 	}
 
 	/**
@@ -67,10 +100,10 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 
 		fBufferOffset= offset;
 
-		if (fBufferOffset + fBuffer.length > fRangeOffset + fRangeLength)
+		if (fBufferOffset + fSize > fRangeOffset + fRangeLength)
 			fBufferLength= fRangeLength - (fBufferOffset - fRangeOffset);
 		else
-			fBufferLength= fBuffer.length;
+			fBufferLength= fSize;
 
 		try {
 			final String content= fDocument.get(fBufferOffset, fBufferLength);
@@ -97,6 +130,7 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 		for (int i= 0; i < delimiters.length; i++)
 			fDelimiters[i]= delimiters[i].toCharArray();
 
+		fSize= fInitialSize;
 		updateBuffer(offset);
 		fOffset= 0;
 	}
@@ -111,6 +145,11 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 			if (end == fDocument.getLength() || end == fRangeOffset + fRangeLength)
 				return EOF;
 			else {
+				if (fSize < fMaxSize) {
+					fSize= Math.min(2 * fSize, fMaxSize);
+					if (fBuffer.length < fSize)
+						fBuffer= new char[fSize];
+				}
 				updateBuffer(fBufferOffset + fBufferLength);
 				fOffset= 0;
 			}
@@ -145,8 +184,9 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 			if (fBufferOffset == fRangeOffset) {
 				// error: BOF
 			} else {
-				updateBuffer(fBufferOffset - fBuffer.length);
-				fOffset= fBuffer.length - 1;
+				int end= fBufferOffset;
+				updateBuffer(Math.max(fRangeOffset, end - fSize));
+				fOffset= end - fBufferOffset - 1;
 			}
 		} else {
 			--fOffset;
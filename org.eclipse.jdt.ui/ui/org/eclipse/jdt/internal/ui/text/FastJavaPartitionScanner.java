@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,7 +44,7 @@ public class FastJavaPartitionScanner implements IPartitionTokenScanner, IJavaPa
 	private static final int CARRIAGE_RETURN=6; // postfix for STRING, CHARACTER and SINGLE_LINE_COMMENT
 
 	/** The scanner. */
-	private final BufferedDocumentScanner fScanner= new BufferedDocumentScanner(1000);	// faster implementation
+	private final BufferedDocumentScanner fScanner= new BufferedDocumentScanner(1000, 16 * 1024);	// faster implementation
 
 	/** The offset of the last returned token. */
 	private int fTokenOffset;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -261,6 +261,11 @@ public final class JavaHeuristicScanner implements Symbols {
 	 * @since 3.2
 	 */
 	private ITypedRegion fCachedPartition= new TypedRegion(-1, 0, "__no_partition_at_all"); //$NON-NLS-1$
+	/**
+	 * The peers of the document while in batch mode, <code>null</code> otherwise.
+	 * @since 3.9
+	 */
+	private JavaPeerTable fPeerTable;
 
 	/* preset stop conditions */
 	private final StopCondition fNonWSDefaultPart= new NonWhitespaceDefaultPartition();
@@ -292,6 +297,45 @@ public final class JavaHeuristicScanner implements Symbols {
 		this(document, IJavaPartitions.JAVA_PARTITIONING, IDocument.DEFAULT_CONTENT_TYPE);
 	}
 
+	/**
+	 * Starts a batch of scans, for example to indent all lines of a document. In batch mode,
+	 * {@link #findOpeningPeer(int, int, char, char)} looks up parentheses, brackets and braces in
+	 * a table that is built with one forward scan over the document, instead of scanning backward
+	 * each time. The results are the same as outside of batch mode.
+	 * <p>
+	 * Clients must call {@link #endBatch()} when done.
+	 * </p>
+	 *
+	 * @since 3.9
+	 */
+	public void beginBatch() {
+		if (fPeerTable == null)
+			fPeerTable= new JavaPeerTable(fDocument, fPartitioning, fPartition);
+	}
+
+	/**
+	 * Ends a batch of scans started with {@link #beginBatch()}.
+	 *
+	 * @since 3.9
+	 */
+	public void endBatch() {
+		if (fPeerTable != null) {
+			fPeerTable.dispose();
+			fPeerTable= null;
+		}
+	}
+
+	/**
+	 * Tells whether the scanner is in batch mode.
+	 *
+	 * @return <code>true</code> if {@link #beginBatch()} has been called and {@link #endBatch()}
+	 *         has not been called since
+	 * @since 3.9
+	 */
+	public boolean isInBatch() {
+		return fPeerTable != null;
+	}
+
 	/**
 	 * Returns the most recent internal scan position.
 	 *
@@ -612,6 +656,15 @@ public final class JavaHeuristicScanner implements Symbols {
 		Assert.isLegal(start < fDocument.getLength());
 
 		try {
+			if (fPeerTable != null && JavaPeerTable.supports(openingPeer, closingPeer)) {
+				int position= fPeerTable.findOpeningPeer(start, openingPeer, closingPeer);
+				if (position == NOT_FOUND || position <= bound)
+					return NOT_FOUND;
+				fPos= position;
+				fChar= openingPeer;
+				return position;
+			}
+
 			final CharacterMatch match= new CharacterMatch(new char[] {openingPeer, closingPeer});
 			int depth= 1;
 			start += 1;
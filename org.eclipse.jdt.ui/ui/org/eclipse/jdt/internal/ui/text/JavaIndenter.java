@@ -1936,6 +1936,9 @@ public final class JavaIndenter {
 	 */
 	private boolean skipScope(int openToken, int closeToken) {
 
+		if (fScanner.isInBatch() && skipScopeInBatch(openToken))
+			return true;
+
 		int depth= 1;
 
 		while (true) {
@@ -1952,4 +1955,53 @@ public final class JavaIndenter {
 			}
 		}
 	}
+
+	/**
+	 * Skips a scope with the peer table of the scanner, which must be in batch mode. The state
+	 * after a successful call is the same as after {@link #skipScope(int, int)}.
+	 *
+	 * @param openToken the opening peer token
+	 * @return <code>true</code> if a matching token was found, <code>false</code> if the scope
+	 *         has to be skipped token by token, in which case the state is unchanged
+	 * @since 3.9
+	 */
+	private boolean skipScopeInBatch(int openToken) {
+		char openingPeer, closingPeer;
+		switch (openToken) {
+			case Symbols.TokenLPAREN:
+				openingPeer= '(';
+				closingPeer= ')';
+				break;
+			case Symbols.TokenLBRACKET:
+				openingPeer= '[';
+				closingPeer= ']';
+				break;
+			case Symbols.TokenLBRACE:
+				openingPeer= '{';
+				closingPeer= '}';
+				break;
+			default:
+				return false;
+		}
+		if (fPosition == 0)
+			return false;
+
+		int position= fScanner.findOpeningPeer(fPosition - 1, openingPeer, closingPeer);
+		if (position == JavaHeuristicScanner.NOT_FOUND)
+			return false;
+
+		// the token after the opening peer is where the token by token scan came from
+		int previousPosition= fScanner.findNonWhitespaceForward(position + 1, JavaHeuristicScanner.UNBOUND);
+		if (previousPosition == JavaHeuristicScanner.NOT_FOUND)
+			return false;
+		try {
+			fLine= fDocument.getLineOfOffset(position);
+		} catch (BadLocationException e) {
+			fLine= -1;
+		}
+		fToken= openToken;
+		fPosition= position;
+		fPreviousPos= previousPosition;
+		return true;
+	}
 }
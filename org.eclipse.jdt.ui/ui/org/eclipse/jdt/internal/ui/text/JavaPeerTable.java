@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextUtilities;
+
+/**
+ * The positions of the parentheses, brackets and braces in the Java partition of a document,
+ * together with the opening peer each of them is enclosed by. The table is built with one forward
+ * scan over the document and answers {@link JavaHeuristicScanner#findOpeningPeer(int, int, char, char)}
+ * with a binary search instead of a backward scan.
+ * <p>
+ * While the table is installed, it follows changes of the document that only replace the
+ * indentation of lines in ascending order, like the ones applied when indenting a range of lines.
+ * Any other change invalidates the table, which is then built again when queried.
+ * </p>
+ *
+ * @since 3.9
+ */
+final class JavaPeerTable implements IDocumentListener {
+
+	private static final char[] OPENING_PEERS= { '(', '[', '{' };
+	private static final char[] CLOSING_PEERS= { ')', ']', '}' };
+
+	/**
+	 * The peers of one kind in the order of the document.
+	 */
+	private static final class Peers {
+
+		/** The positions of the peers. */
+		int[] fPositions= new int[64];
+		/**
+		 * For each peer, the index of the opening peer that a backward search from just behind the
+		 * peer finds, or <code>-1</code> if there is none.
+		 */
+		int[] fEnclosing= new int[64];
+		int fSize;
+
+		/** The indices of the opening peers that have not been closed yet. */
+		private int[] fStack= new int[16];
+		private int fStackSize;
+
+		void add(int position, boolean isOpening) {
+			if (fSize == fPositions.length) {
+				fPositions= grow(fPositions);
+				fEnclosing= grow(fEnclosing);
+			}
+			int enclosing;
+			if (isOpening) {
+				enclosing= fSize;
+				if (fStackSize == fStack.length)
+					fStack= grow(fStack);
+				fStack[fStackSize++]= fSize;
+			} else if (fStackSize > 0) {
+				// skip the scope of the matching opening peer
+				int match= fStack[--fStackSize];
+				enclosing= match > 0 ? fEnclosing[match - 1] : -1;
+			} else {
+				// all opening peers so far are closed before this peer
+				enclosing= -1;
+			}
+			fPositions[fSize]= position;
+			fEnclosing[fSize]= enclosing;
+			fSize++;
+		}
+
+		/**
+		 * Returns the position of the opening peer a backward search from <code>start</code>
+		 * finds.
+		 *
+		 * @param start the first position to search
+		 * @return the position of the opening peer, or <code>-1</code>
+		 */
+		int findOpeningPeer(int start) {
+			int low= 0;
+			int high= fSize - 1;
+			while (low <= high) {
+				int mid= (low + high) >>> 1;
+				if (fPositions[mid] <= start)
+					low= mid + 1;
+				else
+					high= mid - 1;
+			}
+			if (high < 0)
+				return -1;
+			int enclosing= fEnclosing[high];
+			return enclosing == -1 ? -1 : fPositions[enclosing];
+		}
+
+		private static int[] grow(int[] array) {
+			int[] result= new int[array.length * 2];
+			System.arraycopy(array, 0, result, 0, array.length);
+			return result;
+		}
+	}
+
+	private final IDocument fDocument;
+	private final String fPartitioning;
+	private final String fPartition;
+
+	/** The peers per kind, or <code>null</code> if the table has to be built. */
+	private Peers[] fPeers;
+
+	/*
+	 * The indentation changes since the table has been built. The start of a change is stored in
+	 * the coordinates of the table and of the document, the end of the change in the coordinates
+	 * of the document, and the delta is the length difference of all changes up to the change.
+	 */
+	private int[] fChangeTableStarts= new int[64];
+	private int[] fChangeStarts= new int[64];
+	private int[] fChangeEnds= new int[64];
+	private int[] fChangeDeltas= new int[64];
+	private int fChangeCount;
+
+	/**
+	 * Creates a new peer table and registers it with the document.
+	 *
+	 * @param document the document
+	 * @param partitioning the partitioning of the document
+	 * @param partition the partition to consider peers in
+	 */
+	JavaPeerTable(IDocument document, String partitioning, String partition) {
+		fDocument= document;
+		fPartitioning= partitioning;
+		fPartition= partition;
+		fDocument.addDocumentListener(this);
+	}
+
+	/**
+	 * Unregisters the table from the document.
+	 */
+	void dispose() {
+		fDocument.removeDocumentListener(this);
+		fPeers= null;
+	}
+
+	/**
+	 * Returns whether the table knows the given peers.
+	 *
+	 * @param openingPeer the opening peer character
+	 * @param closingPeer the closing peer character
+	 * @return <code>true</code> if the table can find the peers
+	 */
+	static boolean supports(char openingPeer, char closingPeer) {
+		return getKind(openingPeer, closingPeer) != -1;
+	}
+
+	private static int getKind(char openingPeer, char closingPeer) {
+		for (int i= 0; i < OPENING_PEERS.length; i++) {
+			if (OPENING_PEERS[i] == openingPeer && CLOSING_PEERS[i] == closingPeer)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the position of the opening peer character like a backward search from
+	 * <code>start</code> that skips the scopes introduced by closing peers.
+	 *
+	 * @param start the first position to search
+	 * @param openingPeer the opening peer character, one of <code>'('</code>, <code>'['</code> or
+	 *            <code>'{'</code>
+	 * @param closingPeer the matching closing peer character
+	 * @return the position of the opening peer, or <code>-1</code> if there is none
+	 * @throws BadLocationException if the document cannot be scanned
+	 */
+	int findOpeningPeer(int start, char openingPeer, char closingPeer) throws BadLocationException {
+		if (fPeers == null)
+			build();
+		int position= fPeers[getKind(openingPeer, closingPeer)].findOpeningPeer(toTablePosition(start));
+		return position == -1 ? -1 : toDocumentPosition(position);
+	}
+
+	private void build() throws BadLocationException {
+		Peers[] peers= new Peers[OPENING_PEERS.length];
+		for (int i= 0; i < peers.length; i++)
+			peers[i]= new Peers();
+		ITypedRegion[] partitions= TextUtilities.computePartitioning(fDocument, fPartitioning, 0, fDocument.getLength(), false);
+		for (int i= 0; i < partitions.length; i++) {
+			ITypedRegion partition= partitions[i];
+			if (!fPartition.equals(partition.getType()))
+				continue;
+			int offset= partition.getOffset();
+			String content= fDocument.get(offset, partition.getLength());
+			for (int j= 0; j < content.length(); j++) {
+				char ch= content.charAt(j);
+				for (int kind= 0; kind < OPENING_PEERS.length; kind++) {
+					if (ch == OPENING_PEERS[kind])
+						peers[kind].add(offset + j, true);
+					else if (ch == CLOSING_PEERS[kind])
+						peers[kind].add(offset + j, false);
+				}
+			}
+		}
+		fPeers= peers;
+		fChangeCount= 0;
+	}
+
+	private int toTablePosition(int position) {
+		int change= findLast(fChangeStarts, position);
+		if (change == -1)
+			return position;
+		if (position >= fChangeEnds[change])
+			return position - fChangeDeltas[change];
+		// inside the new indentation, which contains no peers
+		return fChangeTableStarts[change] - 1;
+	}
+
+	private int toDocumentPosition(int position) {
+		int change= findLast(fChangeTableStarts, position);
+		if (change == -1)
+			return position;
+		return position + fChangeDeltas[change];
+	}
+
+	/**
+	 * Returns the index of the last change that starts at or before the given position.
+	 *
+	 * @param starts the start positions of the changes
+	 * @param position the position
+	 * @return the index of the change, or <code>-1</code>
+	 */
+	private int findLast(int[] starts, int position) {
+		int low= 0;
+		int high= fChangeCount - 1;
+		while (low <= high) {
+			int mid= (low + high) >>> 1;
+			if (starts[mid] <= position)
+				low= mid + 1;
+			else
+				high= mid - 1;
+		}
+		return high;
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentAboutToBeChanged(DocumentEvent event) {
+		if (fPeers == null)
+			return;
+		int offset= event.getOffset();
+		int length= event.getLength();
+		String text= event.getText() == null ? "" : event.getText(); //$NON-NLS-1$
+		try {
+			if (!isIndentationChange(offset, length, text)) {
+				fPeers= null;
+				return;
+			}
+		} catch (BadLocationException e) {
+			fPeers= null;
+			return;
+		}
+
+		int delta= text.length() - length;
+		if (delta == 0)
+			return;
+		int previousDelta= fChangeCount > 0 ? fChangeDeltas[fChangeCount - 1] : 0;
+		if (fChangeCount == fChangeStarts.length) {
+			fChangeTableStarts= Peers.grow(fChangeTableStarts);
+			fChangeStarts= Peers.grow(fChangeStarts);
+			fChangeEnds= Peers.grow(fChangeEnds);
+			fChangeDeltas= Peers.grow(fChangeDeltas);
+		}
+		fChangeTableStarts[fChangeCount]= offset - previousDelta;
+		fChangeStarts[fChangeCount]= offset;
+		fChangeEnds[fChangeCount]= offset + text.length();
+		fChangeDeltas[fChangeCount]= previousDelta + delta;
+		fChangeCount++;
+	}
+
+	/**
+	 * Tells whether the change only replaces indentation at the start of a line after the
+	 * previous changes, which neither moves peers relative to each other nor changes the
+	 * partitioning.
+	 *
+	 * @param offset the offset of the change
+	 * @param length the length of the replaced text
+	 * @param text the new text
+	 * @return <code>true</code> if the table can follow the change
+	 * @throws BadLocationException if the document cannot be read
+	 */
+	private boolean isIndentationChange(int offset, int length, String text) throws BadLocationException {
+		if (fChangeCount > 0 && offset < fChangeEnds[fChangeCount - 1])
+			return false;
+		if (offset > 0) {
+			char previous= fDocument.getChar(offset - 1);
+			if (previous != '\n' && previous != '\r')
+				return false;
+		}
+		return isIndentation(fDocument.get(offset, length)) && isIndentation(text);
+	}
+
+	private static boolean isIndentation(String text) {
+		for (int i= 0; i < text.length(); i++) {
+			char ch= text.charAt(i);
+			if (ch != ' ' && ch != '\t')
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentChanged(DocumentEvent event) {
+	}
+}
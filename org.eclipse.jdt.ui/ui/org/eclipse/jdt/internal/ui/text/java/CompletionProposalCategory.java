@@ -275,6 +275,25 @@ public final class CompletionProposalCategory {
 		return false;
 	}
 
+	/**
+	 * Returns the descriptors of the {@link CompletionProposalComputerDescriptor#isConcurrent()
+	 * concurrent} computers of this category in the given partition.
+	 *
+	 * @param partition the partition
+	 * @return the concurrent computer descriptors of this category in the given partition
+	 * @since 3.9
+	 */
+	List<CompletionProposalComputerDescriptor> getConcurrentComputerDescriptors(String partition) {
+		List<CompletionProposalComputerDescriptor> result= new ArrayList<CompletionProposalComputerDescriptor>();
+		List<CompletionProposalComputerDescriptor> descriptors= fRegistry.getProposalComputerDescriptors(partition);
+		for (Iterator<CompletionProposalComputerDescriptor> it= descriptors.iterator(); it.hasNext();) {
+			CompletionProposalComputerDescriptor desc= it.next();
+			if (desc.getCategory() == this && desc.isConcurrent())
+				result.add(desc);
+		}
+		return result;
+	}
+
 	/**
 	 * @return sortOrder
 	 */
@@ -331,12 +350,28 @@ public final class CompletionProposalCategory {
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor) {
+		return computeCompletionProposals(context, partition, monitor, true);
+	}
+
+	/**
+	 * Safely computes completion proposals of the computers of this category, optionally leaving
+	 * out the {@link CompletionProposalComputerDescriptor#isConcurrent() concurrent} computers.
+	 *
+	 * @param context the invocation context passed on to the extension
+	 * @param partition the partition type where to invocation occurred
+	 * @param monitor the progress monitor passed on to the extension
+	 * @param includeConcurrent <code>false</code> to leave out the concurrent computers, which
+	 *            are called by a {@link ConcurrentProposalComputation}
+	 * @return the list of computed completion proposals
+	 * @since 3.9
+	 */
+	List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, String partition, SubProgressMonitor monitor, boolean includeConcurrent) {
 		fLastError= null;
 		List<ICompletionProposal> result= new ArrayList<ICompletionProposal>();
 		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<CompletionProposalComputerDescriptor>(fRegistry.getProposalComputerDescriptors(partition));
 		for (Iterator<CompletionProposalComputerDescriptor> it= descriptors.iterator(); it.hasNext();) {
 			CompletionProposalComputerDescriptor desc= it.next();
-			if (desc.getCategory() == this)
+			if (desc.getCategory() == this && (includeConcurrent || !desc.isConcurrent()))
 				result.addAll(desc.computeCompletionProposals(context, monitor));
 			if (fLastError == null && desc.getErrorMessage() != null)
 				fLastError= desc.getErrorMessage();
@@ -14,8 +14,10 @@ package org.eclipse.jdt.internal.ui.text.java;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.osgi.framework.Bundle;
 
@@ -64,6 +66,8 @@ final class CompletionProposalComputerDescriptor {
 	private static final String ACTIVATE= "activate"; //$NON-NLS-1$
 	/** The extension schema name of the needsSortingAfterFiltering attribute. */
 	private static final String NEEDS_SORTING_AFTER_FILTERING= "needsSortingAfterFiltering"; //$NON-NLS-1$
+	/** The extension schema name of the concurrent attribute. */
+	private static final String CONCURRENT= "concurrent"; //$NON-NLS-1$
 	/** The extension schema name of the partition child elements. */
 	private static final String PARTITION= "partition"; //$NON-NLS-1$
 	/** Set of Java partition types. */
@@ -82,6 +86,13 @@ final class CompletionProposalComputerDescriptor {
 	 * {@link #fIsReportingDelay}.
 	 */
 	private static final long MAX_DELAY= 5000;
+	/**
+	 * The upper bounds of the buckets of the latency histogram in milliseconds, the last bucket
+	 * counts all slower invocations.
+	 *
+	 * @since 3.9
+	 */
+	static final long[] LATENCY_BUCKETS= { 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
 
 	/* log constants */
 	private static final String COMPUTE_COMPLETION_PROPOSALS= "computeCompletionProposals()"; //$NON-NLS-1$
@@ -144,6 +155,36 @@ final class CompletionProposalComputerDescriptor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * Tells whether the computer can compute proposals in a background thread, concurrently to
+	 * the other computers.
+	 *
+	 * @since 3.9
+	 */
+	private final boolean fConcurrent;
+
+	/**
+	 * The number of proposal computations per latency bucket, see {@link #LATENCY_BUCKETS}.
+	 *
+	 * @since 3.9
+	 */
+	private final int[] fLatencyHistogram= new int[LATENCY_BUCKETS.length + 1];
+
+	/**
+	 * Tells whether a computation of the described extension is running in a background thread,
+	 * guarded by <code>this</code>.
+	 *
+	 * @since 3.9
+	 */
+	private boolean fIsComputingConcurrently;
+
+	/**
+	 * The background computations that wait for the running one, guarded by <code>this</code>.
+	 *
+	 * @since 3.9
+	 */
+	private final LinkedList<Runnable> fQueuedConcurrentComputations= new LinkedList<Runnable>();
+
 
 	/**
 	 * Creates a new descriptor.
@@ -189,6 +230,9 @@ final class CompletionProposalComputerDescriptor {
 		String needsSortingAfterFilteringAttribute= element.getAttribute(NEEDS_SORTING_AFTER_FILTERING);
 		fNeedsSortingAfterFiltering= Boolean.valueOf(needsSortingAfterFilteringAttribute).booleanValue();
 
+		String concurrentAttribute= element.getAttribute(CONCURRENT);
+		fConcurrent= Boolean.valueOf(concurrentAttribute).booleanValue();
+
 		fClass= element.getAttribute(CLASS);
 		checkNotNull(fClass, CLASS);
 
@@ -312,6 +356,10 @@ final class CompletionProposalComputerDescriptor {
 	 * Safely computes completion proposals through the described extension. If the extension
 	 * is disabled, throws an exception or otherwise does not adhere to the contract described in
 	 * {@link IJavaCompletionProposalComputer}, an empty list is returned.
+	 * <p>
+	 * Computations of {@link #isConcurrent() concurrent} computers may run in a background
+	 * thread, see {@link #scheduleConcurrentComputation(Runnable, Executor)}.
+	 * </p>
 	 *
 	 * @param context the invocation context passed on to the extension
 	 * @param monitor the progress monitor passed on to the extension
@@ -330,7 +378,9 @@ final class CompletionProposalComputerDescriptor {
 
 			try {
 				PerformanceStats stats= startMeter(context, computer);
+				long start= System.currentTimeMillis();
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
+				recordLatency(System.currentTimeMillis() - start);
 				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
 
 				if (proposals != null) {
@@ -468,6 +518,65 @@ final class CompletionProposalComputerDescriptor {
 		fRegistry.informUser(this, status);
 	}
 
+	/**
+	 * Runs a computation of the described extension on the given executor. If a computation of a
+	 * previous invocation is still running, the computation is queued until that one has finished,
+	 * so that the computer is not called twice at the same time and no pool thread is blocked.
+	 * <p>
+	 * The computation must call {@link #endConcurrentComputation(Executor)} when it has run, also
+	 * if it has been cancelled.
+	 * </p>
+	 *
+	 * @param computation the computation
+	 * @param executor the executor
+	 * @since 3.9
+	 */
+	synchronized void scheduleConcurrentComputation(Runnable computation, Executor executor) {
+		if (fIsComputingConcurrently) {
+			fQueuedConcurrentComputations.add(computation);
+			return;
+		}
+		fIsComputingConcurrently= true;
+		executor.execute(computation);
+	}
+
+	/**
+	 * Runs the next queued computation, see
+	 * {@link #scheduleConcurrentComputation(Runnable, Executor)}.
+	 *
+	 * @param executor the executor
+	 * @since 3.9
+	 */
+	synchronized void endConcurrentComputation(Executor executor) {
+		if (fQueuedConcurrentComputations.isEmpty())
+			fIsComputingConcurrently= false;
+		else
+			executor.execute(fQueuedConcurrentComputations.removeFirst());
+	}
+
+	private void recordLatency(long latency) {
+		int bucket= 0;
+		while (bucket < LATENCY_BUCKETS.length && latency > LATENCY_BUCKETS[bucket])
+			bucket++;
+		synchronized (fLatencyHistogram) {
+			fLatencyHistogram[bucket]++;
+		}
+	}
+
+	/**
+	 * Returns the latency histogram of the proposal computations of the described extension.
+	 *
+	 * @return the number of computations per latency bucket, the bucket <code>i</code> counts
+	 *         the computations that took at most <code>LATENCY_BUCKETS[i]</code> milliseconds
+	 *         and more than the bound of the previous bucket
+	 * @since 3.9
+	 */
+	int[] getLatencyHistogram() {
+		synchronized (fLatencyHistogram) {
+			return fLatencyHistogram.clone();
+		}
+	}
+
 	private PerformanceStats startMeter(Object context, IJavaCompletionProposalComputer computer) {
 		final PerformanceStats stats;
 		if (MEASURE_PERFORMANCE) {
@@ -588,4 +697,15 @@ final class CompletionProposalComputerDescriptor {
 	public boolean isSortingAfterFilteringNeeded() {
 		return fNeedsSortingAfterFiltering;
 	}
+
+	/**
+	 * Returns the <code>concurrent</code> flag of the described extension.
+	 *
+	 * @return <code>true</code> if the described extension can compute completion proposals in a
+	 *         background thread, concurrently to other extensions
+	 * @since 3.9
+	 */
+	public boolean isConcurrent() {
+		return fConcurrent;
+	}
 }
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+
+/**
+ * One invocation of code assist that runs the {@link CompletionProposalComputerDescriptor#isConcurrent()
+ * concurrent} computers on a bounded thread pool while the other computers run in the calling
+ * thread.
+ * <p>
+ * {@link #compute(List, IProgressMonitor)} waits for the concurrent computers until the deadline
+ * has passed and returns the proposals of the computers that have finished by then. Proposals of
+ * the remaining computers are reported to the {@link ILateProposalsListener} as they arrive,
+ * until the computation is disposed. A concurrent computer that is still busy with a previous
+ * invocation is called again once it has finished.
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class ConcurrentProposalComputation {
+
+	/**
+	 * Listener that is informed when proposals have arrived late.
+	 */
+	public interface ILateProposalsListener {
+
+		/**
+		 * Called in a background thread when a computer that has not finished before the deadline
+		 * has finished.
+		 *
+		 * @param computation the computation
+		 */
+		void lateProposalsArrived(ConcurrentProposalComputation computation);
+	}
+
+	/**
+	 * The time in milliseconds after the invocation until which the proposals of the concurrent
+	 * computers are waited for.
+	 */
+	static final long DEADLINE= 500; // ms
+
+	/**
+	 * The proposal computation of a concurrent computer.
+	 */
+	private final class Computation extends FutureTask<List<ICompletionProposal>> {
+
+		private final CompletionProposalCategory fCategory;
+		private final CompletionProposalComputerDescriptor fDescriptor;
+
+		Computation(CompletionProposalCategory category, final CompletionProposalComputerDescriptor descriptor) {
+			super(new Callable<List<ICompletionProposal>>() {
+				public List<ICompletionProposal> call() {
+					return descriptor.computeCompletionProposals(fContext, new NullProgressMonitor());
+				}
+			});
+			fCategory= category;
+			fDescriptor= descriptor;
+		}
+
+		/*
+		 * @see java.util.concurrent.FutureTask#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				fDescriptor.endConcurrentComputation(getExecutor());
+			}
+		}
+
+		/*
+		 * @see java.util.concurrent.FutureTask#done()
+		 */
+		@Override
+		protected void done() {
+			computationDone(this);
+		}
+	}
+
+	private final ContentAssistInvocationContext fContext;
+	private final String fPartition;
+	private final ILateProposalsListener fListener;
+	private final long fDeadline;
+
+	/** The concurrent computations that have not been harvested yet, guarded by <code>this</code>. */
+	private final List<Computation> fPendingComputations= new ArrayList<Computation>();
+	/** The proposals that have arrived late, guarded by <code>this</code>. */
+	private final List<ICompletionProposal> fLateProposals= new ArrayList<ICompletionProposal>();
+	/** <code>true</code> once {@link #compute(List, IProgressMonitor)} has returned, guarded by <code>this</code>. */
+	private boolean fComputed;
+	private boolean fDisposed;
+
+	private boolean fNeedsSortingAfterFiltering;
+	private String fErrorMessage;
+
+	/**
+	 * Creates a new computation.
+	 *
+	 * @param context the invocation context passed on to the computers
+	 * @param partition the partition type where code assist has been invoked
+	 * @param listener the listener to inform about late proposals
+	 * @param deadline the time in milliseconds until which {@link #compute(List, IProgressMonitor)}
+	 *            waits for the concurrent computers
+	 */
+	public ConcurrentProposalComputation(ContentAssistInvocationContext context, String partition, ILateProposalsListener listener, long deadline) {
+		fContext= context;
+		fPartition= partition;
+		fListener= listener;
+		fDeadline= System.currentTimeMillis() + deadline;
+	}
+
+	/**
+	 * Computes the completion proposals of the computers of the given categories. Waits for the
+	 * concurrent computers until the deadline has passed.
+	 *
+	 * @param categories the categories
+	 * @param monitor the progress monitor, one unit of work is consumed per category
+	 * @return the proposals of the computers that have finished, in the order of the categories
+	 */
+	public List<ICompletionProposal> compute(List<CompletionProposalCategory> categories, IProgressMonitor monitor) {
+		List<Computation> computations= new ArrayList<Computation>();
+		for (Iterator<CompletionProposalCategory> it= categories.iterator(); it.hasNext();) {
+			CompletionProposalCategory cat= it.next();
+			for (Iterator<CompletionProposalComputerDescriptor> it2= cat.getConcurrentComputerDescriptors(fPartition).iterator(); it2.hasNext();) {
+				computations.add(new Computation(cat, it2.next()));
+			}
+		}
+		synchronized (this) {
+			fPendingComputations.addAll(computations);
+		}
+		for (Iterator<Computation> it= computations.iterator(); it.hasNext();) {
+			Computation computation= it.next();
+			computation.fDescriptor.scheduleConcurrentComputation(computation, getExecutor());
+		}
+
+		List<ICompletionProposal> proposals= new ArrayList<ICompletionProposal>();
+		for (Iterator<CompletionProposalCategory> it= categories.iterator(); it.hasNext();) {
+			CompletionProposalCategory cat= it.next();
+			List<ICompletionProposal> computed= cat.computeCompletionProposals(fContext, fPartition, new SubProgressMonitor(monitor, 1), false);
+			addProposals(proposals, cat, computed);
+			if (fErrorMessage == null)
+				fErrorMessage= cat.getErrorMessage();
+		}
+
+		for (Iterator<Computation> it= computations.iterator(); it.hasNext();) {
+			long timeout= fDeadline - System.currentTimeMillis();
+			if (timeout <= 0)
+				break;
+			try {
+				it.next().get(timeout, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				break;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				// logged when harvested
+			}
+		}
+
+		synchronized (this) {
+			for (Iterator<Computation> it= computations.iterator(); it.hasNext();) {
+				Computation computation= it.next();
+				if (computation.isDone() && fPendingComputations.remove(computation))
+					addProposals(proposals, computation.fCategory, getProposals(computation));
+			}
+			fComputed= true;
+		}
+		return proposals;
+	}
+
+	private static ExecutorService getExecutor() {
+		return JavaPlugin.getDefault().getExecutor();
+	}
+
+	private void addProposals(List<ICompletionProposal> proposals, CompletionProposalCategory category, List<ICompletionProposal> computed) {
+		proposals.addAll(computed);
+		fNeedsSortingAfterFiltering= fNeedsSortingAfterFiltering || (category.isSortingAfterFilteringNeeded() && !computed.isEmpty());
+	}
+
+	private static List<ICompletionProposal> getProposals(Computation computation) {
+		try {
+			List<ICompletionProposal> computed= computation.get();
+			if (computed != null)
+				return computed;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			JavaPlugin.log(e.getCause());
+		}
+		return new ArrayList<ICompletionProposal>(0);
+	}
+
+	private void computationDone(Computation computation) {
+		synchronized (this) {
+			// computations that finish before compute() returns are harvested by compute()
+			if (!fComputed || fDisposed || !fPendingComputations.remove(computation))
+				return;
+			List<ICompletionProposal> computed= getProposals(computation);
+			if (computed.isEmpty())
+				return;
+			addProposals(fLateProposals, computation.fCategory, computed);
+		}
+		fListener.lateProposalsArrived(this);
+	}
+
+	/**
+	 * Returns and forgets the proposals that have arrived late.
+	 *
+	 * @return the late proposals
+	 */
+	public synchronized List<ICompletionProposal> takeLateProposals() {
+		List<ICompletionProposal> proposals= new ArrayList<ICompletionProposal>(fLateProposals);
+		fLateProposals.clear();
+		return proposals;
+	}
+
+	/**
+	 * Returns whether there are concurrent computers that have not finished yet.
+	 *
+	 * @return <code>true</code> if late proposals may still arrive
+	 */
+	public synchronized boolean hasLateComputations() {
+		return !fPendingComputations.isEmpty();
+	}
+
+	/**
+	 * Stops reporting late proposals. Computations that have not started yet are cancelled.
+	 * Running computations are not interrupted, as computers are not prepared for that.
+	 */
+	public synchronized void dispose() {
+		fDisposed= true;
+		for (Iterator<Computation> it= fPendingComputations.iterator(); it.hasNext();)
+			it.next().cancel(false);
+		fPendingComputations.clear();
+		fLateProposals.clear();
+	}
+
+	/**
+	 * Returns the invocation context.
+	 *
+	 * @return the invocation context
+	 */
+	public ContentAssistInvocationContext getContext() {
+		return fContext;
+	}
+
+	/**
+	 * Returns whether a category that has contributed proposals requires proposals to be sorted
+	 * again after filtering.
+	 *
+	 * @return <code>true</code> if the proposals must be sorted after filtering
+	 */
+	public synchronized boolean isSortingAfterFilteringNeeded() {
+		return fNeedsSortingAfterFiltering;
+	}
+
+	/**
+	 * Returns the first error message of the computers that have run in the calling thread.
+	 *
+	 * @return the error message, or <code>null</code>
+	 */
+	public String getErrorMessage() {
+		return fErrorMessage;
+	}
+}
@@ -13,6 +13,7 @@
 package org.eclipse.jdt.internal.ui.text.java;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -28,6 +29,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Shell;
 
@@ -47,6 +49,8 @@ import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.JFaceResources;
 
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.ContentAssistEvent;
 import org.eclipse.jface.text.contentassist.ContentAssistant;
@@ -120,6 +124,7 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			}
 
 			fRepetition= 0;
+			fIsSessionActive= true;
 			if (event.assistant instanceof IContentAssistantExtension2) {
 				IContentAssistantExtension2 extension= (IContentAssistantExtension2) event.assistant;
 
@@ -181,6 +186,8 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			fCategoryIteration= null;
 			fRepetition= -1;
 			fIterationGesture= null;
+			fIsSessionActive= false;
+			disposeConcurrentComputation();
 			if (event.assistant instanceof IContentAssistantExtension2) {
 				IContentAssistantExtension2 extension= (IContentAssistantExtension2) event.assistant;
 				extension.setShowEmptyList(false);
@@ -255,6 +262,68 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * Tells whether a code assist session of this processor is active.
+	 *
+	 * @since 3.9
+	 */
+	private boolean fIsSessionActive;
+
+	/**
+	 * The concurrent computation of the proposals that are shown, or <code>null</code> if
+	 * proposals are not computed concurrently.
+	 *
+	 * @since 3.9
+	 */
+	private ConcurrentProposalComputation fConcurrentComputation;
+
+	/**
+	 * The proposals computed by {@link #fConcurrentComputation} so far, including the late ones
+	 * that have already been shown.
+	 *
+	 * @since 3.9
+	 */
+	private List<ICompletionProposal> fConcurrentProposals;
+
+	/**
+	 * The modification stamp of the document when {@link #fConcurrentComputation} was started.
+	 *
+	 * @since 3.9
+	 */
+	private long fConcurrentModificationStamp;
+
+	/**
+	 * The display on which late proposals are shown.
+	 *
+	 * @since 3.9
+	 */
+	private Display fDisplay;
+
+	/**
+	 * Tells whether code assist is re-invoked to add late proposals to the shown ones.
+	 *
+	 * @since 3.9
+	 */
+	private boolean fIsAddingLateProposals;
+
+	/**
+	 * Shows the proposals of a concurrent computation that arrive late.
+	 *
+	 * @since 3.9
+	 */
+	private final ConcurrentProposalComputation.ILateProposalsListener fLateProposalsListener= new ConcurrentProposalComputation.ILateProposalsListener() {
+		public void lateProposalsArrived(final ConcurrentProposalComputation computation) {
+			Display display= fDisplay;
+			if (display == null || display.isDisposed())
+				return;
+			display.asyncExec(new Runnable() {
+				public void run() {
+					showLateProposals(computation);
+				}
+			});
+		}
+	};
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -281,7 +350,15 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		long setup= DEBUG ? System.currentTimeMillis() : 0;
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_collecting_proposals);
-		List<ICompletionProposal> proposals= collectProposals(viewer, offset, monitor, context);
+		List<ICompletionProposal> proposals;
+		if (fIsAddingLateProposals) {
+			fConcurrentProposals.addAll(fConcurrentComputation.takeLateProposals());
+			proposals= new ArrayList<ICompletionProposal>(fConcurrentProposals);
+			fErrorMessage= fConcurrentComputation.getErrorMessage();
+			setNeedsSortingAfterFiltering(fConcurrentComputation.isSortingAfterFilteringNeeded());
+		} else {
+			proposals= collectProposals(viewer, offset, monitor, context);
+		}
 		long collect= DEBUG ? System.currentTimeMillis() : 0;
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_sorting_proposals);
@@ -300,6 +377,13 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			System.err.println("Code Assist (setup):\t" + (setup - start) ); //$NON-NLS-1$
 			System.err.println("Code Assist (collect):\t" + (collect - setup) ); //$NON-NLS-1$
 			System.err.println("Code Assist (sort):\t" + (filter - collect) ); //$NON-NLS-1$
+			if (fConcurrentComputation != null) {
+				List<CompletionProposalComputerDescriptor> descriptors= fComputerRegistry.getProposalComputerDescriptors(fPartition);
+				for (Iterator<CompletionProposalComputerDescriptor> it= descriptors.iterator(); it.hasNext();) {
+					CompletionProposalComputerDescriptor descriptor= it.next();
+					System.err.println("Code Assist (latency of " + descriptor.getName() + "):\t" + Arrays.toString(descriptor.getLatencyHistogram())); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
 		}
 
 		return result;
@@ -320,21 +404,66 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 * @return the list of proposals
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
-		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<ICompletionProposal>();
 		List<CompletionProposalCategory> providers= getCategories();
-		for (Iterator<CompletionProposalCategory> it= providers.iterator(); it.hasNext();) {
-			CompletionProposalCategory cat= it.next();
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
-			proposals.addAll(computed);
-			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
-			if (fErrorMessage == null)
-				fErrorMessage= cat.getErrorMessage();
-		}
+		disposeConcurrentComputation();
+		fConcurrentComputation= new ConcurrentProposalComputation(context, fPartition, fLateProposalsListener, ConcurrentProposalComputation.DEADLINE);
+		fConcurrentModificationStamp= getModificationStamp(viewer.getDocument());
+		fDisplay= Display.getCurrent();
+		proposals.addAll(fConcurrentComputation.compute(providers, monitor));
+		fConcurrentProposals= new ArrayList<ICompletionProposal>(proposals);
+		fErrorMessage= fConcurrentComputation.getErrorMessage();
+		// keep the popup open when only late proposals are to be expected
+		if (fConcurrentComputation.hasLateComputations())
+			fAssistant.setShowEmptyList(true);
+		setNeedsSortingAfterFiltering(fConcurrentComputation.isSortingAfterFilteringNeeded());
+		return proposals;
+	}
+
+	private void setNeedsSortingAfterFiltering(boolean needsSortingAfterFiltering) {
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
 		fNeedsSortingAfterFiltering= needsSortingAfterFiltering;
-		return proposals;
+	}
+
+	/**
+	 * Re-invokes code assist to add the proposals that have arrived late to the shown
+	 * proposals. Nothing happens if the computation is outdated, the session has ended or
+	 * the document has been modified in the meantime.
+	 *
+	 * @param computation the computation whose late proposals have arrived
+	 * @since 3.9
+	 */
+	private void showLateProposals(ConcurrentProposalComputation computation) {
+		if (computation != fConcurrentComputation || !fIsSessionActive)
+			return;
+		ITextViewer viewer= computation.getContext().getViewer();
+		if (viewer == null || getModificationStamp(viewer.getDocument()) != fConcurrentModificationStamp)
+			return;
+
+		// the category iteration must not advance
+		int repetition= fRepetition;
+		fIsAddingLateProposals= true;
+		try {
+			fAssistant.showPossibleCompletions();
+		} finally {
+			fIsAddingLateProposals= false;
+			fRepetition= repetition;
+		}
+	}
+
+	private void disposeConcurrentComputation() {
+		if (fConcurrentComputation != null) {
+			fConcurrentComputation.dispose();
+			fConcurrentComputation= null;
+			fConcurrentProposals= null;
+		}
+	}
+
+	private static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 	}
 
 	/**
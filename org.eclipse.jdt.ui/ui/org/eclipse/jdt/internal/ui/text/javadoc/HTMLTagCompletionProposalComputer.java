@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,8 +19,6 @@ import org.eclipse.swt.graphics.Image;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
-import org.eclipse.core.resources.IFile;
-
 import org.eclipse.jface.viewers.StyledString;
 
 import org.eclipse.jface.text.BadLocationException;
@@ -29,13 +27,9 @@ import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.contentassist.IContextInformation;
 
-import org.eclipse.ui.IEditorInput;
-import org.eclipse.ui.part.FileEditorInput;
-
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.JavaModelException;
 
-import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
 import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
 import org.eclipse.jdt.ui.text.java.IJavadocCompletionProcessor;
@@ -44,6 +38,9 @@ import org.eclipse.jdt.internal.ui.JavaPluginImages;
 import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProposal;
 
 /**
+ * Computes the HTML tag proposals. The computer is contributed as concurrent computer and may
+ * run in a background thread, so that it only uses the invocation context and the document.
+ *
  * @since 3.2 (renamed from JavaDocCompletionEvaluator which got introduced in 2.0)
  */
 public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposalComputer {
@@ -72,6 +69,9 @@ public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposa
 
 	private boolean fRestrictToMatchingCase;
 
+	/** The image of the proposals, fetched in the UI thread. */
+	private Image fImage;
+
 	public HTMLTagCompletionProposalComputer() {
 	}
 
@@ -139,8 +139,7 @@ public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposa
 		ICompilationUnit cu= docContext.getCompilationUnit();
 		if (cu == null)
 			return Collections.emptyList();
-		IEditorInput editorInput= new FileEditorInput((IFile) cu.getResource());
-		fDocument= JavaUI.getDocumentProvider().getDocument(editorInput);
+		fDocument= docContext.getDocument();
 		if (fDocument == null) {
 			return null;
 		}
@@ -170,7 +169,7 @@ public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposa
 			char firstChar= fDocument.getChar(word1Begin);
 			if (firstChar == '<') {
 				String prefix= fDocument.get(word1Begin, fCurrentPos - word1Begin);
-				addProposals(prefix, fgHTMLProposals, JavaPluginImages.IMG_OBJS_HTMLTAG);
+				addProposals(prefix, fgHTMLProposals);
 				return;
 			} else if (!Character.isWhitespace(firstChar)) {
 				return;
@@ -199,16 +198,16 @@ public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposa
 		for (int i= 0; i < fgHTMLProposals.length; i++) {
 			String curr= fgHTMLProposals[i];
 			if (prefixMatches(htmlPrefix, curr)) {
-				fResult.add(createCompletion(curr, prefix, new StyledString(curr), JavaPluginImages.get(JavaPluginImages.IMG_OBJS_HTMLTAG), 0));
+				fResult.add(createCompletion(curr, prefix, new StyledString(curr), fImage, 0));
 			}
 		}
 	}
 
-	private void addProposals(String prefix, String[] choices, String imageName) {
+	private void addProposals(String prefix, String[] choices) {
 		for (int i= 0; i < choices.length; i++) {
 			String curr= choices[i];
 			if (prefixMatches(prefix, curr)) {
-				fResult.add(createCompletion(curr, prefix, new StyledString(curr), JavaPluginImages.get(imageName), 0));
+				fResult.add(createCompletion(curr, prefix, new StyledString(curr), fImage, 0));
 			}
 		}
 	}
@@ -257,5 +256,6 @@ public class HTMLTagCompletionProposalComputer implements IJavaCompletionProposa
      */
     public void sessionStarted() {
     	fErrorMessage= null;
+    	fImage= JavaPluginImages.get(JavaPluginImages.IMG_OBJS_HTMLTAG);
     }
 }
@@ -492,6 +492,20 @@ public class JavadocContentAccess2 {
 	 * @throws JavaModelException is thrown when the element's Javadoc cannot be accessed
 	 */
 	public static String getHTMLContent(IMember member, boolean useAttachedJavadoc) throws JavaModelException {
+		JavadocHTMLCache cache= JavadocHTMLCache.getInstance();
+		String key= cache.getKey(member, useAttachedJavadoc ? "member" : "memberSource"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (key == null)
+			return computeHTMLContent(member, useAttachedJavadoc);
+		Object cached= cache.get(key);
+		if (cached == null) {
+			String content= computeHTMLContent(member, useAttachedJavadoc);
+			cache.put(key, content);
+			return content;
+		}
+		return cached == JavadocHTMLCache.NO_CONTENT ? null : (String) cached;
+	}
+
+	private static String computeHTMLContent(IMember member, boolean useAttachedJavadoc) throws JavaModelException {
 		String sourceJavadoc= getHTMLContentFromSource(member);
 		if (sourceJavadoc == null || sourceJavadoc.length() == 0 || sourceJavadoc.trim().equals("{@inheritDoc}")) { //$NON-NLS-1$
 			if (useAttachedJavadoc) {
@@ -1693,6 +1707,20 @@ public class JavadocContentAccess2 {
 	 * @since 3.9
 	 */
 	public static String getHTMLContent(IPackageFragment packageFragment) throws CoreException {
+		JavadocHTMLCache cache= JavadocHTMLCache.getInstance();
+		String key= cache.getKey(packageFragment, "package"); //$NON-NLS-1$
+		if (key == null)
+			return computeHTMLContent(packageFragment);
+		Object cached= cache.get(key);
+		if (cached == null) {
+			String content= computeHTMLContent(packageFragment);
+			cache.put(key, content);
+			return content;
+		}
+		return cached == JavadocHTMLCache.NO_CONTENT ? null : (String) cached;
+	}
+
+	private static String computeHTMLContent(IPackageFragment packageFragment) throws CoreException {
 		IPackageFragmentRoot root= (IPackageFragmentRoot) packageFragment.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
 
 		//1==> Handle the case when the documentation is present in package-info.java or package-info.class file
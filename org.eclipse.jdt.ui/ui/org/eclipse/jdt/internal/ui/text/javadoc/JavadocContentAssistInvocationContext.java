@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
 public final class JavadocContentAssistInvocationContext extends JavaContentAssistInvocationContext {
 
 	private final int fFlags;
+	private final int fSelectionLength;
 
 	/**
 	 * @param viewer
@@ -34,6 +35,8 @@ public final class JavadocContentAssistInvocationContext extends JavaContentAssi
 	public JavadocContentAssistInvocationContext(ITextViewer viewer, int offset, IEditorPart editor, int flags) {
 		super(viewer, offset, editor);
 		fFlags= flags;
+		// computers may run in a background thread, see CompletionProposalComputerDescriptor#isConcurrent()
+		fSelectionLength= viewer.getSelectedRange().y;
 	}
 
 	/**
@@ -47,12 +50,12 @@ public final class JavadocContentAssistInvocationContext extends JavaContentAssi
 	}
 
 	/**
-	 * Returns the selection length of the viewer.
+	 * Returns the selection length of the viewer when code assist was invoked.
 	 *
 	 * @return the selection length of the viewer
 	 */
 	public int getSelectionLength() {
-		return getViewer().getSelectedRange().y;
+		return fSelectionLength;
 	}
 
 	/*
@@ -0,0 +1,539 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Cache for the Javadoc HTML of the members and packages in archives, such as the JRE and
+ * libraries, which {@link JavadocContentAccess2} would otherwise render again for every hover.
+ * <p>
+ * The cache has two levels: a size-bounded LRU map in memory and a size-bounded store of files
+ * under the state location of the plug-in, which survives restarts. The key of an element consists
+ * of its handle identifier and a stamp of its package fragment root: the time stamp and size of
+ * the archive and of its source attachment, and the Javadoc location. When the archive, the source
+ * attachment or the Javadoc location change, the key changes and stale entries are no longer
+ * found.
+ * </p>
+ * <p>
+ * Archives outside of the workspace and source attachments can change without a Java element
+ * delta, so the stamp of a root is computed again when it has not been checked for a while.
+ * Changes of the class path or of package fragment roots and changed stamps empty the memory
+ * level and start a job that deletes the files whose key is no longer current.
+ * </p>
+ *
+ * @since 3.9
+ */
+public class JavadocHTMLCache {
+
+	private static class JavadocDeltaListener implements IElementChangedListener {
+		public void elementChanged(ElementChangedEvent event) {
+			JavadocHTMLCache.getInstance().processDelta(event.getDelta());
+		}
+	}
+
+	/**
+	 * The stamp of a package fragment root and the time when it has been computed.
+	 */
+	private static class RootStamp {
+		final String fStamp;
+		final long fChecked;
+
+		RootStamp(String stamp, long checked) {
+			fStamp= stamp;
+			fChecked= checked;
+		}
+	}
+
+	/**
+	 * Deletes the files of the disk level whose key is no longer current.
+	 */
+	private class SweepJob extends Job {
+
+		SweepJob() {
+			super(JavadocHTMLCache.class.getName());
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		/*
+		 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+		 */
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			sweep(monitor);
+			return Status.OK_STATUS;
+		}
+
+		/*
+		 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+		 */
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == JavadocHTMLCache.class;
+		}
+	}
+
+	/**
+	 * Returned by {@link #get(String)} if an element is known to have no Javadoc.
+	 */
+	public static final Object NO_CONTENT= new Object();
+
+	private static final int MAX_MEMORY_SIZE= 1 << 20; // chars
+	/** The estimated size of an entry of the memory level in addition to its key and HTML. */
+	private static final int ENTRY_OVERHEAD= 32; // chars
+	private static final long MAX_DISK_SIZE= 16 << 20; // bytes
+	private static final String CACHE_DIR= "javadocCache"; //$NON-NLS-1$
+	private static final String ENCODING= "UTF-8"; //$NON-NLS-1$
+	private static final char SEPARATOR= '\t';
+	private static final long SWEEP_DELAY= 5000; // ms
+
+	private static final int ROOT_CHANGE_FLAGS= IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_SOURCEATTACHED
+			| IJavaElementDelta.F_SOURCEDETACHED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH;
+	private static final int PROJECT_CHANGE_FLAGS= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED;
+
+	private static JavadocHTMLCache fgInstance;
+
+	/** The time in milliseconds after which the stamp of a package fragment root is computed again. */
+	private static long fgStampCheckInterval= 10000;
+
+	/**
+	 * Sets the time after which the stamp of a package fragment root is computed again. Used by
+	 * tests.
+	 *
+	 * @param interval the interval in milliseconds
+	 */
+	public static void setStampCheckInterval(long interval) {
+		fgStampCheckInterval= interval;
+	}
+
+	public static synchronized JavadocHTMLCache getInstance() {
+		if (fgInstance == null)
+			fgInstance= new JavadocHTMLCache();
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance.fSweepJob.cancel();
+		fgInstance= null;
+	}
+
+	private final IElementChangedListener fDeltaListener;
+
+	/** The cached HTML or {@link #NO_CONTENT} in order of access. Guarded by <code>this</code>. */
+	private final LinkedHashMap<String, Object> fContents= new LinkedHashMap<String, Object>(16, 0.75f, true);
+	/**
+	 * The estimated number of characters in {@link #fContents}, including the keys, see
+	 * {@link #getSize(String, Object)}. Guarded by <code>this</code>.
+	 */
+	private int fMemorySize;
+	/** The stamps of the package fragment roots. Guarded by <code>this</code>. */
+	private final Map<IPackageFragmentRoot, RootStamp> fRootStamps= new HashMap<IPackageFragmentRoot, RootStamp>();
+
+	private final Job fSweepJob= new SweepJob();
+
+	/** The directory of the disk level, or <code>null</code> if there is none. */
+	private final File fDirectory;
+	/** The number of bytes on disk, or <code>-1</code> if not known yet. Guarded by <code>fDirectory</code>. */
+	private long fDiskSize= -1;
+
+	private JavadocHTMLCache() {
+		fDirectory= getDirectory();
+		fDeltaListener= new JavadocDeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener);
+		// stamps may have changed since the last session
+		scheduleSweep();
+	}
+
+	private static File getDirectory() {
+		try {
+			File directory= JavaPlugin.getDefault().getStateLocation().append(CACHE_DIR).toFile();
+			if (!directory.exists())
+				directory.mkdir();
+			return directory.isDirectory() ? directory : null;
+		} catch (IllegalStateException e) {
+			// no state location
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the key of the Javadoc of the given element.
+	 *
+	 * @param element a member or package
+	 * @param variant distinguishes different renderings of the same element
+	 * @return the key, or <code>null</code> if the Javadoc of the element is not cached because
+	 *         the element is not in an archive
+	 * @throws JavaModelException if the class path entry of the element cannot be accessed
+	 */
+	public String getKey(IJavaElement element, String variant) throws JavaModelException {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null || !root.isArchive())
+			return null;
+		RootStamp rootStamp;
+		synchronized (this) {
+			rootStamp= fRootStamps.get(root);
+		}
+		long now= System.currentTimeMillis();
+		if (rootStamp == null || now - rootStamp.fChecked >= fgStampCheckInterval) {
+			String stamp= computeStamp(root);
+			boolean changed;
+			synchronized (this) {
+				RootStamp old= fRootStamps.put(root, new RootStamp(stamp, now));
+				changed= old != null && !old.fStamp.equals(stamp);
+			}
+			if (changed)
+				invalidate();
+			rootStamp= new RootStamp(stamp, now);
+		}
+		return variant + SEPARATOR + element.getHandleIdentifier() + SEPARATOR + rootStamp.fStamp;
+	}
+
+	private static String computeStamp(IPackageFragmentRoot root) throws JavaModelException {
+		StringBuffer buf= new StringBuffer();
+		appendFileStamp(buf, root.getResource(), root.getPath());
+		buf.append(':');
+		IPath sourcePath= root.getSourceAttachmentPath();
+		if (sourcePath != null)
+			appendFileStamp(buf, ResourcesPlugin.getWorkspace().getRoot().findMember(sourcePath), sourcePath);
+		buf.append(':');
+		URL javadocLocation= JavaDocLocations.getJavadocBaseLocation(root);
+		if (javadocLocation != null)
+			buf.append(javadocLocation.toExternalForm());
+		return buf.toString();
+	}
+
+	private static void appendFileStamp(StringBuffer buf, IResource resource, IPath path) {
+		File file= resource != null && resource.getLocation() != null ? resource.getLocation().toFile() : path.toFile();
+		buf.append(file.lastModified()).append('/').append(file.length());
+	}
+
+	/**
+	 * Returns the cached Javadoc HTML.
+	 *
+	 * @param key the key of the element
+	 * @return the HTML, {@link #NO_CONTENT} if the element has no Javadoc, or <code>null</code> if
+	 *         nothing is cached
+	 */
+	public Object get(String key) {
+		synchronized (this) {
+			Object content= fContents.get(key);
+			if (content != null)
+				return content;
+		}
+		String content= read(key);
+		if (content != null)
+			putInMemory(key, content);
+		return content;
+	}
+
+	/**
+	 * Caches the Javadoc HTML of an element.
+	 *
+	 * @param key the key of the element
+	 * @param content the HTML, or <code>null</code> if the element has no Javadoc
+	 */
+	public void put(String key, String content) {
+		if (content == null) {
+			putInMemory(key, NO_CONTENT);
+		} else {
+			putInMemory(key, content);
+			write(key, content);
+		}
+	}
+
+	private synchronized void putInMemory(String key, Object content) {
+		Object old= fContents.put(key, content);
+		fMemorySize+= getSize(key, content);
+		if (old != null)
+			fMemorySize-= getSize(key, old);
+		for (Iterator<Map.Entry<String, Object>> iter= fContents.entrySet().iterator(); fMemorySize > MAX_MEMORY_SIZE && iter.hasNext();) {
+			Map.Entry<String, Object> entry= iter.next();
+			fMemorySize-= getSize(entry.getKey(), entry.getValue());
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Returns the estimated size of an entry of the memory level. Entries for elements without
+	 * Javadoc are not free, so that they are evicted as well.
+	 *
+	 * @param key the key
+	 * @param content the HTML or {@link #NO_CONTENT}
+	 * @return the size in characters
+	 */
+	private static int getSize(String key, Object content) {
+		int size= ENTRY_OVERHEAD + key.length();
+		if (content instanceof String)
+			size+= ((String) content).length();
+		return size;
+	}
+
+	/**
+	 * Empties the memory level and deletes the stale files of the disk level after the stamps of
+	 * package fragment roots may have changed.
+	 */
+	private void invalidate() {
+		synchronized (this) {
+			fContents.clear();
+			fMemorySize= 0;
+		}
+		scheduleSweep();
+	}
+
+	private void scheduleSweep() {
+		if (fDirectory != null)
+			fSweepJob.schedule(SWEEP_DELAY);
+	}
+
+	private File getFile(String key) {
+		return new File(fDirectory, Integer.toHexString(key.hashCode()) + '_' + Integer.toHexString(key.length()));
+	}
+
+	/**
+	 * Reads an entry of the disk level. The first line of a file is the key, so that a file whose
+	 * name collides with the one of another key is not taken for it, and so that stale files can be
+	 * found by {@link #sweep(IProgressMonitor)}.
+	 *
+	 * @param key the key of the element
+	 * @return the HTML, or <code>null</code> if not on disk
+	 */
+	private String read(String key) {
+		if (fDirectory == null)
+			return null;
+		synchronized (fDirectory) {
+			File file= getFile(key);
+			if (!file.isFile())
+				return null;
+			Reader reader= null;
+			try {
+				reader= new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+				StringBuffer buf= new StringBuffer();
+				char[] chars= new char[4096];
+				int read;
+				while ((read= reader.read(chars)) != -1)
+					buf.append(chars, 0, read);
+				int separator= buf.indexOf("\n"); //$NON-NLS-1$
+				if (separator == -1 || !key.equals(buf.substring(0, separator)))
+					return null;
+				file.setLastModified(System.currentTimeMillis());
+				return buf.substring(separator + 1);
+			} catch (IOException e) {
+				return null;
+			} finally {
+				if (reader != null) {
+					try {
+						reader.close();
+					} catch (IOException e) {
+						// ignore
+					}
+				}
+			}
+		}
+	}
+
+	private void write(String key, String content) {
+		if (fDirectory == null)
+			return;
+		synchronized (fDirectory) {
+			File file= getFile(key);
+			if (fDiskSize == -1)
+				fDiskSize= computeDiskSize();
+			fDiskSize-= file.length();
+			Writer writer= null;
+			try {
+				writer= new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+				writer.write(key);
+				writer.write('\n');
+				writer.write(content);
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+			} finally {
+				if (writer != null) {
+					try {
+						writer.close();
+					} catch (IOException e) {
+						// ignore
+					}
+				}
+			}
+			fDiskSize+= file.length();
+			if (fDiskSize > MAX_DISK_SIZE)
+				evictFromDisk();
+		}
+	}
+
+	/**
+	 * Deletes the files whose key is no longer the current key of its element. Files of elements in
+	 * closed projects are kept.
+	 *
+	 * @param monitor the progress monitor to check for cancellation
+	 */
+	private void sweep(IProgressMonitor monitor) {
+		File[] files= fDirectory.listFiles();
+		if (files == null)
+			return;
+		for (int i= 0; i < files.length && !monitor.isCanceled(); i++) {
+			String key= readKey(files[i]);
+			if (key != null && isCurrent(key))
+				continue;
+			synchronized (fDirectory) {
+				// the file may have been written again in the meantime
+				String current= readKey(files[i]);
+				if (current != null && !current.equals(key))
+					continue;
+				long length= files[i].length();
+				if (files[i].delete() && fDiskSize != -1)
+					fDiskSize-= length;
+			}
+		}
+	}
+
+	private String readKey(File file) {
+		BufferedReader reader= null;
+		try {
+			reader= new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+			return reader.readLine();
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private boolean isCurrent(String key) {
+		int first= key.indexOf(SEPARATOR);
+		int last= key.lastIndexOf(SEPARATOR);
+		if (first == last)
+			return false;
+		IJavaElement element= JavaCore.create(key.substring(first + 1, last));
+		if (element == null)
+			return false;
+		IJavaProject project= element.getJavaProject();
+		if (project != null && project.getProject().exists() && !project.getProject().isOpen())
+			return true;
+		try {
+			IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+			return root != null && root.exists() && key.equals(getKey(element, key.substring(0, first)));
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
+	private long computeDiskSize() {
+		File[] files= fDirectory.listFiles();
+		long size= 0;
+		if (files != null) {
+			for (int i= 0; i < files.length; i++)
+				size+= files[i].length();
+		}
+		return size;
+	}
+
+	/**
+	 * Deletes the least recently used files until the disk level is a quarter below its maximum
+	 * size.
+	 */
+	private void evictFromDisk() {
+		File[] files= fDirectory.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				long m1= f1.lastModified();
+				long m2= f2.lastModified();
+				return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+			}
+		});
+		fDiskSize= computeDiskSize();
+		for (int i= 0; i < files.length && fDiskSize > MAX_DISK_SIZE / 4 * 3; i++) {
+			long length= files[i].length();
+			if (files[i].delete())
+				fDiskSize-= length;
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		if (affectsJavadoc(delta)) {
+			synchronized (this) {
+				fRootStamps.clear();
+			}
+			invalidate();
+		}
+	}
+
+	private boolean affectsJavadoc(IJavaElementDelta delta) {
+		switch (delta.getElement().getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & PROJECT_CHANGE_FLAGS) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				return delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & ROOT_CHANGE_FLAGS) != 0;
+			default:
+				return false;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (affectsJavadoc(children[i]))
+				return true;
+		}
+		return false;
+	}
+}
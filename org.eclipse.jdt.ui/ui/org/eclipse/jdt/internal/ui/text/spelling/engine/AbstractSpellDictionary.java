@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,9 +25,12 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -104,6 +108,18 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
 
+	/**
+	 * The folder in the plug-in state location that contains the word list indices.
+	 * @since 3.9
+	 */
+	private static final String INDEX_FOLDER= "spelling"; //$NON-NLS-1$
+
+	/**
+	 * The file extension of the word list indices.
+	 * @since 3.9
+	 */
+	private static final String INDEX_FILE_EXTENSION= ".dictionary.index"; //$NON-NLS-1$
+
 	/** The bucket capacity */
 	protected static final int BUCKET_CAPACITY= 4;
 
@@ -128,6 +144,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
+	/**
+	 * The mapped index of the word list or <code>null</code> if the words are in
+	 * {@link #fHashBuckets}.
+	 * @since 3.9
+	 */
+	private CompactSpellDictionaryIndex fIndex;
+
 	/** Is the dictionary already loaded? */
 	private boolean fLoaded= false;
 	/**
@@ -152,6 +175,21 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return 32;
 	}
 
+	/**
+	 * Tells whether the word list is stored in a binary index in the plug-in state location
+	 * after it has been read once, so that it can be memory mapped instead of being read and
+	 * hashed the next time the dictionary is loaded.
+	 * <p>
+	 * Subclasses with large word lists may override.
+	 * </p>
+	 *
+	 * @return <code>true</code> if the word list is indexed
+	 * @since 3.9
+	 */
+	protected boolean isIndexed() {
+		return false;
+	}
+
 	/**
 	 * Returns all candidates with the same phonetic hash.
 	 *
@@ -167,7 +205,25 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		Object candidates= fHashBuckets.get(hashBytes);
+
+		CompactSpellDictionaryIndex index= fIndex;
+		if (index == null)
+			return candidates;
+		List<byte[]> indexed= index.getWords(hashBytes.byteArray, Integer.MAX_VALUE);
+		if (indexed == null)
+			return candidates;
+
+		ArrayList<byte[]> result= new ArrayList<byte[]>(indexed.size() + BUCKET_CAPACITY);
+		result.addAll(indexed);
+		if (candidates instanceof byte[]) {
+			result.add((byte[])candidates);
+		} else if (candidates != null) {
+			@SuppressWarnings("unchecked")
+			ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+			result.addAll(candidateList);
+		}
+		return result;
 	}
 
 	/**
@@ -325,7 +381,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		return fHashBuckets.size() == 0 && (fIndex == null || fIndex.isEmpty());
 	}
 
 	/**
@@ -522,7 +578,26 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
+		final String hash= fHashProvider.getHash(word);
+		final CompactSpellDictionaryIndex mappedIndex= fIndex;
+		if (mappedIndex != null) {
+			try {
+				byte[][] words= new byte[][] { word.getBytes(UTF_8), word.toLowerCase().getBytes(UTF_8) };
+				if (mappedIndex.contains(hash.getBytes(UTF_8), words))
+					return true;
+			} catch (UnsupportedEncodingException e) {
+				JavaPlugin.log(e);
+				return false;
+			}
+		}
+
+		final Object candidates;
+		try {
+			candidates= fHashBuckets.get(new ByteArrayWrapper(hash.getBytes(UTF_8)));
+		} catch (UnsupportedEncodingException e) {
+			JavaPlugin.log(e);
+			return false;
+		}
 		if (candidates == null)
 			return false;
 		else if (candidates instanceof byte[]) {
@@ -596,7 +671,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @see org.eclipse.jdt.ui.text.spelling.engine.ISpellDictionary#isLoaded()
 	 */
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || fHashBuckets.size() > 0 || fIndex != null;
 	}
 
 	/**
@@ -611,6 +686,22 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		 if (!fMustLoad)
 			 return fLoaded;
 
+		CompactSpellDictionaryIndex.SourceStamp stamp= null;
+		if (url != null && isIndexed()) {
+			try {
+				stamp= CompactSpellDictionaryIndex.SourceStamp.of(url);
+				CompactSpellDictionaryIndex index= stamp != null ? CompactSpellDictionaryIndex.open(getIndexFile(url), stamp, getIndexKey(url)) : null;
+				if (index != null) {
+					fIndex= index;
+					fMustLoad= false;
+					return true;
+				}
+			} catch (IOException e) {
+				// read the word list
+				stamp= null;
+			}
+		}
+
 		if (url != null) {
 			InputStream stream= null;
 			int line= 0;
@@ -647,6 +738,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (stamp != null)
+						writeIndex(url, stamp);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -679,6 +772,66 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the file that stores the index of the given word list.
+	 *
+	 * @param url the URL of the word list
+	 * @return the index file
+	 * @since 3.9
+	 */
+	private static File getIndexFile(URL url) {
+		String name= Integer.toHexString(url.toString().hashCode()) + INDEX_FILE_EXTENSION;
+		return JavaPlugin.getDefault().getStateLocation().append(INDEX_FOLDER).append(name).toFile();
+	}
+
+	/**
+	 * Returns the key that describes how the words of the given word list are hashed.
+	 *
+	 * @param url the URL of the word list
+	 * @return the index key
+	 * @since 3.9
+	 */
+	private String getIndexKey(URL url) {
+		return url.toString() + '\n' + getEncoding() + '\n' + fHashProvider.getClass().getName();
+	}
+
+	/**
+	 * Writes the loaded words to the index file of the given word list.
+	 *
+	 * @param url the URL of the word list
+	 * @param stamp the stamp of the word list
+	 * @since 3.9
+	 */
+	private void writeIndex(URL url, CompactSpellDictionaryIndex.SourceStamp stamp) {
+		List<ByteArrayWrapper> hashes= new ArrayList<ByteArrayWrapper>(fHashBuckets.keySet());
+		Collections.sort(hashes, new Comparator<ByteArrayWrapper>() {
+			public int compare(ByteArrayWrapper o1, ByteArrayWrapper o2) {
+				return CompactSpellDictionaryIndex.compare(o1.byteArray, o2.byteArray);
+			}
+		});
+
+		List<byte[]> hashBytes= new ArrayList<byte[]>(hashes.size());
+		List<List<byte[]>> words= new ArrayList<List<byte[]>>(hashes.size());
+		for (int i= 0; i < hashes.size(); i++) {
+			ByteArrayWrapper hash= hashes.get(i);
+			hashBytes.add(hash.byteArray);
+			Object bucket= fHashBuckets.get(hash);
+			if (bucket instanceof byte[]) {
+				words.add(Collections.singletonList((byte[])bucket));
+			} else {
+				@SuppressWarnings("unchecked")
+				List<byte[]> bucketList= (List<byte[]>)bucket;
+				words.add(bucketList);
+			}
+		}
+
+		try {
+			CompactSpellDictionaryIndex.write(getIndexFile(url), stamp, getIndexKey(url), hashBytes, words);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
@@ -720,6 +873,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fIndex= null;
 	}
 
 	/*
@@ -0,0 +1,420 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Read-only phonetic hash table of a spell dictionary, stored in a binary file that is memory
+ * mapped when the dictionary is loaded.
+ * <p>
+ * The file contains the phonetic hashes of the words in sorted order together with the words of
+ * each hash. The lookups are done against the mapped buffer, so that no objects are created for
+ * the words of the dictionary. The file is tagged with the length and the time stamp of the word
+ * list and a key describing how the words have been hashed, and it is ignored if any of them does
+ * not match.
+ * </p>
+ * <p>
+ * Layout (all integers are big-endian):
+ * <pre>
+ * int     magic
+ * int     version
+ * long    length of the word list
+ * long    time stamp of the word list
+ * int     key length, followed by the UTF-8 bytes of the key
+ * int     number of buckets (B)
+ * int     number of words (W)
+ * int[B+1] offset of each bucket's hash in the hash area
+ * int[B+1] index of each bucket's first word
+ * int[W+1] offset of each word in the word area
+ * byte[]  hash area, the hashes in ascending unsigned byte order
+ * byte[]  word area
+ * </pre>
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class CompactSpellDictionaryIndex {
+
+	private static final int MAGIC= 0x4A535044; // "JSPD"
+	private static final int VERSION= 2;
+
+	/** The position of the key length in the header. */
+	private static final int KEY_POSITION= 24;
+
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	private final ByteBuffer fBuffer;
+	private final int fBucketCount;
+	private final int fWordCount;
+	private final int fHashOffsetsStart;
+	private final int fBucketWordsStart;
+	private final int fWordOffsetsStart;
+	private final int fHashAreaStart;
+	private final int fWordAreaStart;
+
+	private CompactSpellDictionaryIndex(ByteBuffer buffer, int position) {
+		fBuffer= buffer;
+		fBucketCount= buffer.getInt(position);
+		fWordCount= buffer.getInt(position + 4);
+		fHashOffsetsStart= position + 8;
+		fBucketWordsStart= fHashOffsetsStart + 4 * (fBucketCount + 1);
+		fWordOffsetsStart= fBucketWordsStart + 4 * (fBucketCount + 1);
+		fHashAreaStart= fWordOffsetsStart + 4 * (fWordCount + 1);
+		fWordAreaStart= fHashAreaStart + buffer.getInt(fHashOffsetsStart + 4 * fBucketCount);
+	}
+
+	/**
+	 * The length and the time stamp of a word list, which tell whether an index is up to date.
+	 */
+	public static final class SourceStamp {
+
+		private final long fLength;
+		private final long fTimeStamp;
+
+		/**
+		 * Creates a source stamp.
+		 *
+		 * @param length the length of the word list in bytes
+		 * @param timeStamp the time stamp of the last modification of the word list
+		 */
+		public SourceStamp(long length, long timeStamp) {
+			fLength= length;
+			fTimeStamp= timeStamp;
+		}
+
+		/**
+		 * Returns the stamp of the word list at the given URL, without reading the word list.
+		 *
+		 * @param url the URL of the word list
+		 * @return the stamp, or <code>null</code> if the length or the time stamp is not known
+		 * @throws IOException if the word list could not be accessed
+		 */
+		public static SourceStamp of(URL url) throws IOException {
+			URLConnection connection= url.openConnection();
+			try {
+				long length= connection.getContentLength();
+				long timeStamp= connection.getLastModified();
+				if (length < 0 || timeStamp <= 0)
+					return null;
+				return new SourceStamp(length, timeStamp);
+			} finally {
+				// getting the header fields may have opened the stream
+				connection.getInputStream().close();
+			}
+		}
+	}
+
+	/**
+	 * Maps the index stored in the given file.
+	 *
+	 * @param file the index file
+	 * @param stamp the stamp of the word list
+	 * @param key the key describing the hashing of the words
+	 * @return the index, or <code>null</code> if the file does not exist, does not match the
+	 *         stamp or the key, or is truncated or corrupt
+	 * @throws IOException if the file could not be read
+	 */
+	public static CompactSpellDictionaryIndex open(File file, SourceStamp stamp, String key) throws IOException {
+		if (!file.isFile())
+			return null;
+
+		RandomAccessFile raf= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel= raf.getChannel();
+			MappedByteBuffer buffer= channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < KEY_POSITION + 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+					|| buffer.getLong(8) != stamp.fLength || buffer.getLong(16) != stamp.fTimeStamp)
+				return null;
+
+			byte[] keyBytes= key.getBytes(UTF_8);
+			int keyLength= buffer.getInt(KEY_POSITION);
+			if (keyLength != keyBytes.length)
+				return null;
+			if (buffer.limit() < KEY_POSITION + 4 + keyLength + 8)
+				return null;
+			for (int i= 0; i < keyLength; i++) {
+				if (buffer.get(KEY_POSITION + 4 + i) != keyBytes[i])
+					return null;
+			}
+			if (!isValid(buffer, KEY_POSITION + 4 + keyLength))
+				return null;
+			return new CompactSpellDictionaryIndex(buffer, KEY_POSITION + 4 + keyLength);
+		} finally {
+			// the mapping stays valid after the channel has been closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Checks that the tables of an index lie within the buffer, that the offsets in the tables are
+	 * ascending, and that the word area ends with the buffer, so that lookups cannot read outside
+	 * of the buffer.
+	 *
+	 * @param buffer the buffer of the index file
+	 * @param position the position of the number of buckets
+	 * @return <code>true</code> if the index is consistent with the size of the file
+	 */
+	private static boolean isValid(ByteBuffer buffer, int position) {
+		long limit= buffer.limit();
+		int bucketCount= buffer.getInt(position);
+		int wordCount= buffer.getInt(position + 4);
+		if (bucketCount < 0 || wordCount < 0)
+			return false;
+		long hashOffsetsStart= position + 8;
+		long bucketWordsStart= hashOffsetsStart + 4L * (bucketCount + 1);
+		long wordOffsetsStart= bucketWordsStart + 4L * (bucketCount + 1);
+		long hashAreaStart= wordOffsetsStart + 4L * (wordCount + 1);
+		if (hashAreaStart > limit)
+			return false;
+		long hashAreaLength= checkAscending(buffer, (int) hashOffsetsStart, bucketCount + 1);
+		if (hashAreaLength < 0 || hashAreaStart + hashAreaLength > limit)
+			return false;
+		if (checkAscending(buffer, (int) bucketWordsStart, bucketCount + 1) != wordCount)
+			return false;
+		long wordAreaLength= checkAscending(buffer, (int) wordOffsetsStart, wordCount + 1);
+		return wordAreaLength >= 0 && hashAreaStart + hashAreaLength + wordAreaLength == limit;
+	}
+
+	/**
+	 * Checks that a table of integers starts with 0 and is ascending.
+	 *
+	 * @param buffer the buffer of the index file
+	 * @param start the position of the table
+	 * @param length the number of integers in the table
+	 * @return the last integer of the table, or <code>-1</code> if the table is not ascending
+	 */
+	private static int checkAscending(ByteBuffer buffer, int start, int length) {
+		int previous= 0;
+		for (int i= 0; i < length; i++) {
+			int value= buffer.getInt(start + 4 * i);
+			if (value < previous || i == 0 && value != 0)
+				return -1;
+			previous= value;
+		}
+		return previous;
+	}
+
+	/**
+	 * Writes an index file.
+	 *
+	 * @param file the index file
+	 * @param stamp the stamp of the word list
+	 * @param key the key describing the hashing of the words
+	 * @param hashes the phonetic hashes in ascending unsigned byte order
+	 * @param words for each hash, the words with that hash
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file, SourceStamp stamp, String key, List<byte[]> hashes, List<List<byte[]>> words) throws IOException {
+		File parent= file.getParentFile();
+		if (parent != null && !parent.isDirectory())
+			parent.mkdirs();
+
+		// write to a temporary file first, so that a concurrent reader never sees a partial index
+		File temp= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+		try {
+			byte[] keyBytes= key.getBytes(UTF_8);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(stamp.fLength);
+			out.writeLong(stamp.fTimeStamp);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+
+			int bucketCount= hashes.size();
+			int wordCount= 0;
+			for (int i= 0; i < bucketCount; i++)
+				wordCount+= words.get(i).size();
+			out.writeInt(bucketCount);
+			out.writeInt(wordCount);
+
+			int offset= 0;
+			for (int i= 0; i < bucketCount; i++) {
+				out.writeInt(offset);
+				offset+= hashes.get(i).length;
+			}
+			out.writeInt(offset);
+
+			int index= 0;
+			for (int i= 0; i < bucketCount; i++) {
+				out.writeInt(index);
+				index+= words.get(i).size();
+			}
+			out.writeInt(index);
+
+			offset= 0;
+			for (int i= 0; i < bucketCount; i++) {
+				List<byte[]> bucket= words.get(i);
+				for (int j= 0; j < bucket.size(); j++) {
+					out.writeInt(offset);
+					offset+= bucket.get(j).length;
+				}
+			}
+			out.writeInt(offset);
+
+			for (int i= 0; i < bucketCount; i++)
+				out.write(hashes.get(i));
+
+			for (int i= 0; i < bucketCount; i++) {
+				List<byte[]> bucket= words.get(i);
+				for (int j= 0; j < bucket.size(); j++)
+					out.write(bucket.get(j));
+			}
+		} finally {
+			out.close();
+		}
+
+		if (file.exists() && !file.delete()) {
+			temp.delete(); // still mapped by another dictionary, keep the old index
+			return;
+		}
+		if (!temp.renameTo(file))
+			temp.delete();
+	}
+
+	/**
+	 * Compares two byte arrays in unsigned lexicographic order, the order of the hashes in the
+	 * index.
+	 *
+	 * @param a the first array
+	 * @param b the second array
+	 * @return a negative number, zero, or a positive number as <code>a</code> is less than, equal
+	 *         to, or greater than <code>b</code>
+	 */
+	public static int compare(byte[] a, byte[] b) {
+		int length= Math.min(a.length, b.length);
+		for (int i= 0; i < length; i++) {
+			int diff= (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (diff != 0)
+				return diff;
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * Tells whether this index contains no words.
+	 *
+	 * @return <code>true</code> if the index is empty
+	 */
+	public boolean isEmpty() {
+		return fWordCount == 0;
+	}
+
+	/**
+	 * Returns the words with the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 bytes of the phonetic hash
+	 * @param limit the maximal number of words to return
+	 * @return the UTF-8 bytes of the words, or <code>null</code> if there are none
+	 */
+	public List<byte[]> getWords(byte[] hash, int limit) {
+		int bucket= findBucket(hash);
+		if (bucket < 0)
+			return null;
+
+		int first= getBucketWord(bucket);
+		int last= Math.min(getBucketWord(bucket + 1), first + limit);
+		List<byte[]> result= new ArrayList<byte[]>(last - first);
+		for (int word= first; word < last; word++) {
+			int start= getWordOffset(word);
+			byte[] bytes= new byte[getWordOffset(word + 1) - start];
+			for (int i= 0; i < bytes.length; i++)
+				bytes[i]= fBuffer.get(fWordAreaStart + start + i);
+			result.add(bytes);
+		}
+		return result;
+	}
+
+	/**
+	 * Tells whether one of the words with the given phonetic hash is equal to one of the given
+	 * words.
+	 *
+	 * @param hash the UTF-8 bytes of the phonetic hash
+	 * @param words the UTF-8 bytes of the words to look for
+	 * @return <code>true</code> if one of the words is contained in the index
+	 */
+	public boolean contains(byte[] hash, byte[][] words) {
+		int bucket= findBucket(hash);
+		if (bucket < 0)
+			return false;
+
+		int last= getBucketWord(bucket + 1);
+		for (int word= getBucketWord(bucket); word < last; word++) {
+			int start= fWordAreaStart + getWordOffset(word);
+			int length= fWordAreaStart + getWordOffset(word + 1) - start;
+			for (int i= 0; i < words.length; i++) {
+				if (equals(start, length, words[i]))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private int findBucket(byte[] hash) {
+		int low= 0;
+		int high= fBucketCount - 1;
+		while (low <= high) {
+			int mid= (low + high) >>> 1;
+			int cmp= compareHash(mid, hash);
+			if (cmp < 0)
+				low= mid + 1;
+			else if (cmp > 0)
+				high= mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	private int compareHash(int bucket, byte[] hash) {
+		int start= fHashAreaStart + fBuffer.getInt(fHashOffsetsStart + 4 * bucket);
+		int length= fHashAreaStart + fBuffer.getInt(fHashOffsetsStart + 4 * (bucket + 1)) - start;
+		int common= Math.min(length, hash.length);
+		for (int i= 0; i < common; i++) {
+			int diff= (fBuffer.get(start + i) & 0xFF) - (hash[i] & 0xFF);
+			if (diff != 0)
+				return diff;
+		}
+		return length - hash.length;
+	}
+
+	private boolean equals(int start, int length, byte[] word) {
+		if (length != word.length)
+			return false;
+		for (int i= 0; i < length; i++) {
+			if (fBuffer.get(start + i) != word[i])
+				return false;
+		}
+		return true;
+	}
+
+	private int getBucketWord(int bucket) {
+		return fBuffer.getInt(fBucketWordsStart + 4 * bucket);
+	}
+
+	private int getWordOffset(int word) {
+		return fBuffer.getInt(fWordOffsetsStart + 4 * word);
+	}
+}
@@ -66,4 +66,13 @@ public class LocaleSensitiveSpellDictionary extends AbstractSpellDictionary {
 	protected int getInitialSize() {
 		return 32 * 1024;
 	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary#isIndexed()
+	 * @since 3.9
+	 */
+	@Override
+	protected boolean isIndexed() {
+		return true;
+	}
 }
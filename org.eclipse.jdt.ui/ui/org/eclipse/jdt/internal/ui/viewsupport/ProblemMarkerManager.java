@@ -11,7 +11,9 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
@@ -22,6 +24,8 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IMarkerDelta;
 import org.eclipse.core.resources.IProject;
@@ -39,6 +43,8 @@ import org.eclipse.jface.text.source.IAnnotationModelListenerExtension;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.progress.UIJob;
 
+import org.eclipse.jdt.core.JavaCore;
+
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.JavaUIMessages;
 import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitAnnotationModelEvent;
@@ -47,6 +53,10 @@ import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitAnnotationModelEven
  * Listens to resource deltas and filters for marker changes of type IMarker.PROBLEM
  * Viewers showing error ticks should register as listener to
  * this type.
+ * <p>
+ * While listeners are registered, the manager maintains a {@link ProblemSeverityTree} and
+ * only notifies the containers whose rolled up problem severity has changed.
+ * </p>
  */
 public class ProblemMarkerManager implements IResourceChangeListener, IAnnotationModelListener , IAnnotationModelListenerExtension {
 
@@ -57,12 +67,20 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 
 		private HashSet<IResource> fChangedElements;
 
-		public ProjectErrorVisitor(HashSet<IResource> changedElements) {
+		private ProblemSeverityTree fSeverityTree;
+
+		public ProjectErrorVisitor(HashSet<IResource> changedElements, ProblemSeverityTree severityTree) {
 			fChangedElements= changedElements;
+			fSeverityTree= severityTree;
 		}
 
 		public boolean visit(IResourceDelta delta) throws CoreException {
 			IResource res= delta.getResource();
+			if (res instanceof IProject && (delta.getKind() == IResourceDelta.REMOVED || (delta.getFlags() & IResourceDelta.OPEN) != 0)) {
+				List<IResource> changedAncestors= new ArrayList<IResource>();
+				fSeverityTree.reset((IProject) res, changedAncestors);
+				addChangedAncestors(changedAncestors);
+			}
 			if (res instanceof IProject && delta.getKind() == IResourceDelta.CHANGED) {
 				IProject project= (IProject) res;
 				if (!project.isAccessible()) {
@@ -77,13 +95,37 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		private void checkInvalidate(IResourceDelta delta, IResource resource) {
 			int kind= delta.getKind();
 			if (kind == IResourceDelta.REMOVED || kind == IResourceDelta.ADDED || (kind == IResourceDelta.CHANGED && isErrorDelta(delta))) {
-				// invalidate the resource and all parents
-				while (resource.getType() != IResource.ROOT && fChangedElements.add(resource)) {
-					resource= resource.getParent();
+				List<IResource> changedAncestors= new ArrayList<IResource>();
+				if (fSeverityTree.update(resource, changedAncestors)) {
+					// invalidate the resource, the parents whose severity has changed and the parents up to
+					// the enclosing package, which also considers the markers of non-Java resources
+					fChangedElements.add(resource);
+					addChangedAncestors(changedAncestors);
+					IContainer parent= resource.getParent();
+					while (parent != null && parent.getType() == IResource.FOLDER && fChangedElements.add(parent)) {
+						if (JavaCore.create((IFolder) parent) != null)
+							break;
+						parent= parent.getParent();
+					}
+					if (parent != null && parent.getType() == IResource.PROJECT)
+						fChangedElements.add(parent);
+				} else {
+					// invalidate the resource and all parents
+					while (resource.getType() != IResource.ROOT && fChangedElements.add(resource)) {
+						resource= resource.getParent();
+					}
 				}
 			}
 		}
 
+		private void addChangedAncestors(List<IResource> changedAncestors) {
+			for (int i= 0; i < changedAncestors.size(); i++) {
+				IResource resource= changedAncestors.get(i);
+				if (resource.getType() != IResource.ROOT)
+					fChangedElements.add(resource);
+			}
+		}
+
 		private boolean isErrorDelta(IResourceDelta delta) {
 			if ((delta.getFlags() & IResourceDelta.MARKERS) != 0) {
 				IMarkerDelta[] markerDeltas= delta.getMarkerDeltas();
@@ -110,10 +152,24 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 
 	private UIJob fNotifierJob;
 
+	private final ProblemSeverityTree fSeverityTree;
+
 	public ProblemMarkerManager() {
 		fListeners= new ListenerList();
 		fResourcesWithMarkerChanges= new HashSet<IResource>();
 		fResourcesWithAnnotationChanges= new HashSet<IResource>();
+		fSeverityTree= new ProblemSeverityTree(JavaPlugin.getWorkspace().getRoot());
+	}
+
+	/**
+	 * Returns the tree of the rolled up problem severities. The tree is only kept up to date while
+	 * listeners are registered.
+	 *
+	 * @return the severity tree, or <code>null</code> if no listeners are registered
+	 * @since 3.9
+	 */
+	public ProblemSeverityTree getSeverityTree() {
+		return fListeners.isEmpty() ? null : fSeverityTree;
 	}
 
 	/*
@@ -125,7 +181,7 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		try {
 			IResourceDelta delta= event.getDelta();
 			if (delta != null)
-				delta.accept(new ProjectErrorVisitor(changedElements));
+				delta.accept(new ProjectErrorVisitor(changedElements, fSeverityTree));
 		} catch (CoreException e) {
 			JavaPlugin.log(e.getStatus());
 		}
@@ -194,6 +250,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		if (fListeners.isEmpty()) {
 			JavaPlugin.getWorkspace().removeResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().removeGlobalAnnotationModelListener(this);
+			// no longer updated from resource deltas
+			fSeverityTree.clear();
 		}
 	}
 
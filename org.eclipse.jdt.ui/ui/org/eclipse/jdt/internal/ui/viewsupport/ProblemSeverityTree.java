@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Maintains the maximum severity of the problem markers on each resource and rolls it up to the
+ * containers, so that the maximum severity under a container is known without walking its
+ * markers.
+ * <p>
+ * The tree only has nodes for resources that have problem markers and their ancestors. A project
+ * is read from its markers the first time it is queried; afterwards the {@link ProblemMarkerManager}
+ * keeps it up to date from the resource deltas. Severities are
+ * {@link IMarker#SEVERITY_INFO}, {@link IMarker#SEVERITY_WARNING}, {@link IMarker#SEVERITY_ERROR}
+ * or <code>-1</code> if there are no problem markers, like
+ * {@link IResource#findMaxProblemSeverity(String, boolean, int)}.
+ * </p>
+ *
+ * @since 3.9
+ */
+public class ProblemSeverityTree {
+
+	private static final class Node {
+
+		final IResource fResource;
+		final Node fParent;
+		/** The children with problems, by name, or <code>null</code>. */
+		Map<String, Node> fChildren;
+		/** The maximum severity of the markers on the resource itself. */
+		int fOwnSeverity= -1;
+		/** The number of children per rolled up severity. */
+		final int[] fChildCounts= new int[IMarker.SEVERITY_ERROR + 1];
+		/** The maximum severity of the markers on the resource and its descendants. */
+		int fSeverity= -1;
+
+		Node(IResource resource, Node parent) {
+			fResource= resource;
+			fParent= parent;
+		}
+
+		int computeSeverity() {
+			for (int severity= IMarker.SEVERITY_ERROR; severity > fOwnSeverity; severity--) {
+				if (fChildCounts[severity] > 0)
+					return severity;
+			}
+			return fOwnSeverity;
+		}
+
+		boolean isEmpty() {
+			return fOwnSeverity == -1 && (fChildren == null || fChildren.isEmpty());
+		}
+	}
+
+	private final Node fRoot;
+	private final Set<IProject> fInitializedProjects= new HashSet<IProject>();
+
+	public ProblemSeverityTree(IWorkspaceRoot root) {
+		fRoot= new Node(root, null);
+	}
+
+	/**
+	 * Returns the maximum severity of the problem markers on the given resource and, depending on
+	 * the depth, its descendants.
+	 *
+	 * @param resource the resource
+	 * @param depth one of {@link IResource#DEPTH_ZERO}, {@link IResource#DEPTH_ONE} or
+	 *            {@link IResource#DEPTH_INFINITE}
+	 * @return the maximum severity or <code>-1</code>
+	 * @throws CoreException if the markers of a project cannot be read
+	 */
+	public synchronized int findMaxProblemSeverity(IResource resource, int depth) throws CoreException {
+		ensureInitialized(resource);
+		Node node= findNode(resource, false);
+		if (node == null)
+			return -1;
+		switch (depth) {
+			case IResource.DEPTH_ZERO:
+				return node.fOwnSeverity;
+			case IResource.DEPTH_ONE:
+				int severity= node.fOwnSeverity;
+				if (node.fChildren != null) {
+					for (Iterator<Node> iter= node.fChildren.values().iterator(); iter.hasNext();)
+						severity= Math.max(severity, iter.next().fOwnSeverity);
+				}
+				return severity;
+			default:
+				return node.fSeverity;
+		}
+	}
+
+	/**
+	 * Returns the maximum severity of the problem markers of a package: the markers on the folder
+	 * itself and on its files, and the markers under its folders that are neither packages nor
+	 * package fragment roots.
+	 *
+	 * @param folder the folder of the package
+	 * @return the maximum severity or <code>-1</code>
+	 * @throws CoreException if the markers of a project cannot be read
+	 */
+	public synchronized int findMaxPackageProblemSeverity(IContainer folder) throws CoreException {
+		ensureInitialized(folder);
+		Node node= findNode(folder, false);
+		if (node == null)
+			return -1;
+		int severity= node.fOwnSeverity;
+		if (node.fChildren != null) {
+			for (Iterator<Node> iter= node.fChildren.values().iterator(); iter.hasNext();) {
+				Node child= iter.next();
+				if (child.fSeverity <= severity)
+					continue;
+				IResource resource= child.fResource;
+				if (resource.getType() == IResource.FOLDER && JavaCore.create((IFolder) resource) != null)
+					continue;
+				severity= child.fSeverity;
+			}
+		}
+		return severity;
+	}
+
+	/**
+	 * Re-reads the severity of the problem markers on the given resource, or forgets the resource
+	 * and its descendants if it does not exist anymore.
+	 *
+	 * @param resource the resource whose markers or existence have changed
+	 * @param changed the collection to add the ancestors to whose rolled up severity has changed
+	 * @return <code>false</code> if the project of the resource is not tracked yet, in which case
+	 *         nothing is known about the rolled up severities
+	 */
+	public synchronized boolean update(IResource resource, List<IResource> changed) {
+		IProject project= resource.getProject();
+		if (project == null || !fInitializedProjects.contains(project))
+			return false;
+		if (!resource.exists()) {
+			remove(resource, changed);
+			return true;
+		}
+		int severity;
+		try {
+			severity= resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		} catch (CoreException e) {
+			severity= -1;
+		}
+		severity= Math.max(-1, Math.min(severity, IMarker.SEVERITY_ERROR));
+		Node node= findNode(resource, severity != -1);
+		if (node != null && node.fOwnSeverity != severity) {
+			node.fOwnSeverity= severity;
+			propagate(node, changed);
+		}
+		return true;
+	}
+
+	/**
+	 * Forgets a project, for example because it has been closed. It is read again when it is
+	 * queried next time.
+	 *
+	 * @param project the project
+	 * @param changed the collection to add the ancestors to whose rolled up severity has changed
+	 */
+	public synchronized void reset(IProject project, List<IResource> changed) {
+		if (fInitializedProjects.remove(project))
+			remove(project, changed);
+	}
+
+	/**
+	 * Forgets all projects.
+	 */
+	public synchronized void clear() {
+		fInitializedProjects.clear();
+		fRoot.fChildren= null;
+		for (int i= 0; i < fRoot.fChildCounts.length; i++)
+			fRoot.fChildCounts[i]= 0;
+		fRoot.fSeverity= -1;
+	}
+
+	private void ensureInitialized(IResource resource) throws CoreException {
+		if (resource.getType() == IResource.ROOT) {
+			IProject[] projects= ((IWorkspaceRoot) resource).getProjects();
+			for (int i= 0; i < projects.length; i++)
+				ensureInitialized(projects[i]);
+		} else {
+			ensureInitialized(resource.getProject());
+		}
+	}
+
+	private void ensureInitialized(IProject project) throws CoreException {
+		if (fInitializedProjects.contains(project) || !project.isAccessible())
+			return;
+		IMarker[] markers= project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		List<Node> nodes= new ArrayList<Node>();
+		for (int i= 0; i < markers.length; i++) {
+			int severity= markers[i].getAttribute(IMarker.SEVERITY, -1);
+			if (severity < IMarker.SEVERITY_INFO || severity > IMarker.SEVERITY_ERROR)
+				continue;
+			Node node= findNode(markers[i].getResource(), true);
+			if (node.fOwnSeverity < severity) {
+				if (node.fOwnSeverity == -1)
+					nodes.add(node);
+				node.fOwnSeverity= severity;
+			}
+		}
+		fInitializedProjects.add(project);
+		List<IResource> changed= new ArrayList<IResource>();
+		for (Iterator<Node> iter= nodes.iterator(); iter.hasNext();)
+			propagate(iter.next(), changed);
+	}
+
+	private Node findNode(IResource resource, boolean create) {
+		String[] segments= resource.getFullPath().segments();
+		Node node= fRoot;
+		for (int i= 0; i < segments.length; i++) {
+			Node child= node.fChildren != null ? node.fChildren.get(segments[i]) : null;
+			if (child == null) {
+				if (!create)
+					return null;
+				IResource childResource;
+				if (i == segments.length - 1)
+					childResource= resource;
+				else if (i == 0)
+					childResource= ((IWorkspaceRoot) fRoot.fResource).getProject(segments[i]);
+				else
+					childResource= ((IContainer) node.fResource).getFolder(new Path(segments[i]));
+				child= new Node(childResource, node);
+				if (node.fChildren == null)
+					node.fChildren= new HashMap<String, Node>();
+				node.fChildren.put(segments[i], child);
+			}
+			node= child;
+		}
+		return node;
+	}
+
+	private void remove(IResource resource, List<IResource> changed) {
+		Node node= findNode(resource, false);
+		if (node == null || node.fParent == null)
+			return;
+		Node parent= node.fParent;
+		parent.fChildren.remove(resource.getName());
+		if (node.fSeverity != -1) {
+			parent.fChildCounts[node.fSeverity]--;
+			propagate(parent, changed);
+		}
+	}
+
+	/**
+	 * Recomputes the rolled up severity of the given node and its ancestors until it does not
+	 * change anymore, and prunes the nodes that have no problems left.
+	 *
+	 * @param node the node whose own severity or children have changed
+	 * @param changed the collection to add the resources to whose rolled up severity has changed
+	 */
+	private void propagate(Node node, List<IResource> changed) {
+		Node current= node;
+		while (current != null) {
+			int oldSeverity= current.fSeverity;
+			int newSeverity= current.computeSeverity();
+			Node parent= current.fParent;
+			if (parent != null && current.isEmpty())
+				parent.fChildren.remove(current.fResource.getName());
+			if (oldSeverity == newSeverity)
+				return;
+			current.fSeverity= newSeverity;
+			changed.add(current.fResource);
+			if (parent != null) {
+				if (oldSeverity != -1)
+					parent.fChildCounts[oldSeverity]--;
+				if (newSeverity != -1)
+					parent.fChildCounts[newSeverity]++;
+			}
+			current= parent;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -60,6 +60,42 @@ public class SelectionListenerWithASTManager {
 	}
 
 
+	/**
+	 * The job that computes the AST and informs the listeners of a part.
+	 *
+	 * @since 3.9
+	 */
+	private final static class InformJob extends Job {
+
+		private final PartListenerGroup fGroup;
+		private final ITypeRoot fTypeRoot;
+		private final ITextSelection fSelection;
+		/** The progress monitor of the running job. */
+		private volatile IProgressMonitor fMonitor;
+
+		InformJob(PartListenerGroup group, ITypeRoot typeRoot, ITextSelection selection) {
+			super(JavaUIMessages.SelectionListenerWithASTManager_job_title);
+			fGroup= group;
+			fTypeRoot= typeRoot;
+			fSelection= selection;
+		}
+
+		@Override
+		public IStatus run(IProgressMonitor monitor) {
+			if (monitor == null) {
+				monitor= new NullProgressMonitor();
+			}
+			fMonitor= monitor;
+			try {
+				synchronized (fGroup.fJobLock) {
+					return fGroup.calculateASTandInform(fTypeRoot, fSelection, monitor);
+				}
+			} finally {
+				fMonitor= null;
+			}
+		}
+	}
+
 	private final static class PartListenerGroup {
 		private ITextEditor fPart;
 		private ISelectionListener fPostSelectionListener;
@@ -145,17 +181,7 @@ public class SelectionListenerWithASTManager {
 			final ITypeRoot typeRoot= (ITypeRoot) input;
 
 
-			fCurrentJob= new Job(JavaUIMessages.SelectionListenerWithASTManager_job_title) {
-				@Override
-				public IStatus run(IProgressMonitor monitor) {
-					if (monitor == null) {
-						monitor= new NullProgressMonitor();
-					}
-					synchronized (fJobLock) {
-						return calculateASTandInform(typeRoot, selection, monitor);
-					}
-				}
-			};
+			fCurrentJob= new InformJob(this, typeRoot, selection);
 			fCurrentJob.setPriority(Job.DECORATE);
 			fCurrentJob.setSystem(true);
 			fCurrentJob.schedule();
@@ -192,6 +218,19 @@ public class SelectionListenerWithASTManager {
 
 	private Map<ITextEditor, PartListenerGroup> fListenerGroups;
 
+	/**
+	 * Returns the progress monitor of the job that informs the listeners, so that a listener can
+	 * stop its work when the selection has changed again.
+	 *
+	 * @return the progress monitor, or <code>null</code> if not called by the job that informs the
+	 *         listeners
+	 * @since 3.9
+	 */
+	public static IProgressMonitor getProgressMonitor() {
+		Job job= Job.getJobManager().currentJob();
+		return job instanceof InformJob ? ((InformJob) job).fMonitor : null;
+	}
+
 	private SelectionListenerWithASTManager() {
 		fListenerGroups= new HashMap<ITextEditor, PartListenerGroup>();
 	}
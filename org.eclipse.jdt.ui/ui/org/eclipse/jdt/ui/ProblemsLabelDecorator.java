@@ -20,6 +20,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.ListenerList;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -61,6 +62,7 @@ import org.eclipse.jdt.internal.ui.JavaPluginImages;
 import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageDescriptorRegistry;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageImageDescriptor;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemSeverityTree;
 
 /**
  * LabelDecorator that decorates an element's image with error and warning overlays that
@@ -296,7 +298,7 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 					return ERRORTICK_BUILDPATH_ERROR;
 				}
 			}
-			severity= res.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
+			severity= findMaxProblemSeverity(res, depth);
 		} else {
 			IMarker[] markers= res.findMarkers(IMarker.PROBLEM, true, depth);
 			if (markers != null && markers.length > 0) {
@@ -319,6 +321,22 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 		return 0;
 	}
 
+	/**
+	 * Returns the maximum severity of the problem markers on the resource. Uses the rolled up
+	 * severities of the problem marker manager if it maintains them.
+	 *
+	 * @param res the resource
+	 * @param depth the depth
+	 * @return the maximum severity or <code>-1</code>
+	 * @throws CoreException if the markers cannot be read
+	 */
+	private static int findMaxProblemSeverity(IResource res, int depth) throws CoreException {
+		ProblemSeverityTree severityTree= JavaPlugin.getDefault().getProblemMarkerManager().getSeverityTree();
+		if (severityTree != null)
+			return severityTree.findMaxProblemSeverity(res, depth);
+		return res.findMaxProblemSeverity(IMarker.PROBLEM, true, depth);
+	}
+
 	private int getPackageErrorTicksFromMarkers(IPackageFragment pack) throws CoreException {
 		// Packages are special: They must not consider markers on subpackages.
 		
@@ -327,6 +345,17 @@ public class ProblemsLabelDecorator implements ILabelDecorator, ILightweightLabe
 			return 0;
 		}
 		
+		ProblemSeverityTree severityTree= JavaPlugin.getDefault().getProblemMarkerManager().getSeverityTree();
+		if (severityTree != null) {
+			int severity= severityTree.findMaxPackageProblemSeverity((IContainer) res);
+			if (severity == IMarker.SEVERITY_ERROR) {
+				return ERRORTICK_ERROR;
+			} else if (severity == IMarker.SEVERITY_WARNING) {
+				return ERRORTICK_WARNING;
+			}
+			return 0;
+		}
+
 		// markers on package itself (e.g. missing @NonNullByDefault)
 		int severity= res.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
 		if (severity == IMarker.SEVERITY_ERROR)
@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.text.edits.ReplaceEdit;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.PerformChangeOperation;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.ConcurrentChangeValidator;
+
+public class CompositeChangeTests extends TestCase {
+
+	private static final int FILE_COUNT= 6;
+
+	private SimpleTestProject fProject;
+	private List fDisposed;
+	private List fValidated;
+
+	private class RecordingTextFileChange extends TextFileChange {
+		public RecordingTextFileChange(String name, IFile file) {
+			super(name, file);
+		}
+		public void dispose() {
+			super.dispose();
+			fDisposed.add(getName());
+		}
+	}
+
+	private class RecordingNullChange extends NullChange {
+		public RecordingNullChange(String name) {
+			super(name);
+		}
+		public Change perform(IProgressMonitor pm) throws CoreException {
+			return new NullChange(getName());
+		}
+		public void dispose() {
+			super.dispose();
+			fDisposed.add(getName());
+		}
+	}
+
+	private class ValidatingChange extends Change {
+		private final int fIndex;
+		private final RefactoringStatus fStatus;
+		private final CoreException fException;
+		public ValidatingChange(int index, RefactoringStatus status, CoreException exception) {
+			fIndex= index;
+			fStatus= status;
+			fException= exception;
+		}
+		public String getName() {
+			return "change" + fIndex;
+		}
+		public void initializeValidationData(IProgressMonitor pm) {
+		}
+		public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			synchronized (fValidated) {
+				fValidated.add(new Integer(fIndex));
+			}
+			if (fException != null)
+				throw fException;
+			return fStatus;
+		}
+		public boolean isValidationIndependent() {
+			return true;
+		}
+		public Change perform(IProgressMonitor pm) throws CoreException {
+			return null;
+		}
+		public Object getModifiedElement() {
+			return null;
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= new SimpleTestProject();
+		fDisposed= new ArrayList();
+		fValidated= new ArrayList();
+	}
+
+	protected void tearDown() throws Exception {
+		ConcurrentChangeValidator.setEnabled(false);
+		fProject.delete();
+		super.tearDown();
+	}
+
+	private static String getOldContent(int i) {
+		return "old\r\ncontent " + i + "\n";
+	}
+
+	private static String getNewContent(int i) {
+		return "new\r\ncontent " + i + "\n";
+	}
+
+	private IFile[] createFiles(String prefix) throws CoreException {
+		IFile[] files= new IFile[FILE_COUNT];
+		for (int i= 0; i < files.length; i++)
+			files[i]= fProject.createFile(fProject.getProject(), prefix + i + ".txt", getOldContent(i));
+		return files;
+	}
+
+	/*
+	 * Creates a composite change of text file changes with a change in the middle that does not
+	 * modify a file.
+	 */
+	private CompositeChange createChange(IFile[] files) {
+		CompositeChange result= new CompositeChange("composite");
+		for (int i= 0; i < files.length; i++) {
+			if (i == files.length / 2)
+				result.add(new RecordingNullChange("null"));
+			TextFileChange change= new RecordingTextFileChange("file" + i, files[i]);
+			change.setEdit(new ReplaceEdit(0, 3, "new"));
+			result.add(change);
+		}
+		return result;
+	}
+
+	private static Change perform(Change change) throws CoreException {
+		change.initializeValidationData(new NullProgressMonitor());
+		PerformChangeOperation operation= new PerformChangeOperation(change);
+		ResourcesPlugin.getWorkspace().run(operation, new NullProgressMonitor());
+		assertTrue(operation.changeExecuted());
+		return operation.getUndoChange();
+	}
+
+	private void assertContents(IFile[] files, boolean changed) throws Exception {
+		for (int i= 0; i < files.length; i++)
+			assertEquals(changed ? getNewContent(i) : getOldContent(i), fProject.getContent(files[i]));
+	}
+
+	/*
+	 * Performs a composite change and its undo and returns the names of the disposed children
+	 * followed by the names of the children of the undo change.
+	 */
+	private List performAndUndo(String prefix) throws Exception {
+		fDisposed.clear();
+		IFile[] files= createFiles(prefix);
+		Change undo= perform(createChange(files));
+		assertContents(files, true);
+
+		List result= new ArrayList(fDisposed);
+		Change[] undoChildren= ((CompositeChange) undo).getChildren();
+		for (int i= 0; i < undoChildren.length; i++)
+			result.add(undoChildren[i].getName());
+
+		Change redo= perform(undo);
+		assertNotNull(redo);
+		assertContents(files, false);
+		return result;
+	}
+
+	public void testPerformAndUndo() throws Exception {
+		List expected= Arrays.asList(new String[] {
+				"file0", "file1", "file2", "null", "file3", "file4", "file5",
+				"file5", "file4", "file3", "null", "file2", "file1", "file0" });
+		assertEquals(expected, performAndUndo("sequential"));
+	}
+
+	/*
+	 * Creates a composite change with more children than needed for the concurrent validation.
+	 * Every child reports a warning, except the one with the given index, which reports the given
+	 * status or throws the given exception.
+	 */
+	private CompositeChange createValidatingChange(int special, RefactoringStatus status, CoreException exception) {
+		CompositeChange result= new CompositeChange("composite");
+		for (int i= 0; i < 3 * ConcurrentChangeValidator.MIN_CHANGES; i++) {
+			if (i == special)
+				result.add(new ValidatingChange(i, status, exception));
+			else
+				result.add(new ValidatingChange(i, RefactoringStatus.createWarningStatus("warning" + i), null));
+		}
+		return result;
+	}
+
+	private static List getMessages(RefactoringStatus status) {
+		List result= new ArrayList();
+		RefactoringStatusEntry[] entries= status.getEntries();
+		for (int i= 0; i < entries.length; i++)
+			result.add(entries[i].getMessage());
+		return result;
+	}
+
+	private List validate(int special, RefactoringStatus status, CoreException exception, boolean concurrent) throws CoreException {
+		ConcurrentChangeValidator.setEnabled(concurrent);
+		fValidated.clear();
+		CompositeChange change= createValidatingChange(special, status, exception);
+		assertTrue(change.isValidationIndependent());
+		assertEquals(concurrent, ConcurrentChangeValidator.canValidate(Arrays.asList(change.getChildren())));
+		return getMessages(change.isValid(new NullProgressMonitor()));
+	}
+
+	public void testConcurrentValidationOrder() throws Exception {
+		int count= 3 * ConcurrentChangeValidator.MIN_CHANGES;
+		List expected= new ArrayList();
+		for (int i= 0; i < count; i++) {
+			if (i != 5)
+				expected.add("warning" + i);
+		}
+		// a child without a status is treated like an OK status
+		assertEquals(expected, validate(5, null, null, false));
+		assertEquals(expected, validate(5, null, null, true));
+		assertEquals(count, fValidated.size());
+	}
+
+	public void testConcurrentValidationStopsOnFatalError() throws Exception {
+		List expected= Arrays.asList(new String[] { "warning0", "warning1", "fatal" });
+		RefactoringStatus fatal= RefactoringStatus.createFatalErrorStatus("fatal");
+		assertEquals(expected, validate(2, fatal, null, false));
+		assertEquals(3, fValidated.size());
+		// the jobs may have validated further children before the fatal error got reported,
+		// but their statuses must not be merged
+		assertEquals(expected, validate(2, fatal, null, true));
+		assertTrue(fValidated.contains(new Integer(2)));
+	}
+
+	public void testConcurrentValidationRethrowsException() throws Exception {
+		CoreException exception= new CoreException(new Status(IStatus.ERROR, "org.eclipse.ltk.core.refactoring.tests", "failed"));
+		boolean[] modes= { false, true };
+		for (int i= 0; i < modes.length; i++) {
+			try {
+				validate(2, null, exception, modes[i]);
+				fail("exception not propagated");
+			} catch (CoreException e) {
+				assertSame(exception, e);
+			}
+			if (!modes[i])
+				assertEquals(3, fValidated.size());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.DefaultRefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryIndex;
+
+public class RefactoringHistoryIndexTests extends TestCase {
+
+	private File fFolder;
+
+	private RefactoringHistoryIndex fIndex;
+
+	private static RefactoringDescriptorProxy createProxy(long stamp, String description) {
+		return new DefaultRefactoringDescriptorProxy(description, null, stamp);
+	}
+
+	private static void assertProxies(long[] stamps, String[] descriptions, RefactoringDescriptorProxy[] proxies) {
+		assertEquals("Wrong number of refactorings:", stamps.length, proxies.length);
+		for (int index= 0; index < proxies.length; index++) {
+			assertEquals("Wrong time stamp:", stamps[index], proxies[index].getTimeStamp());
+			assertEquals("Wrong description:", descriptions[index], proxies[index].getDescription());
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFolder= File.createTempFile("history", null);
+		fFolder.delete();
+		assertTrue(fFolder.mkdir());
+		fIndex= new RefactoringHistoryIndex(fFolder);
+		fIndex.write(new RefactoringDescriptorProxy[] { createProxy(300, "Third"), createProxy(100, "First"), createProxy(200, "Second \u00e4")});
+	}
+
+	protected void tearDown() throws Exception {
+		fIndex.delete();
+		fFolder.delete();
+		super.tearDown();
+	}
+
+	public void testRead0() throws Exception {
+		assertTrue(fIndex.exists());
+		assertProxies(new long[] { 100, 200, 300}, new String[] { "First", "Second \u00e4", "Third"}, fIndex.read(null, 0, Long.MAX_VALUE));
+	}
+
+	public void testRead1() throws Exception {
+		assertProxies(new long[] { 200, 300}, new String[] { "Second \u00e4", "Third"}, fIndex.read(null, 200, 300));
+		assertProxies(new long[] { 200}, new String[] { "Second \u00e4"}, fIndex.read(null, 101, 299));
+		assertProxies(new long[0], new String[0], fIndex.read(null, 301, Long.MAX_VALUE));
+		assertProxies(new long[0], new String[0], fIndex.read(null, 0, 99));
+	}
+
+	public void testRead2() throws Exception {
+		RefactoringDescriptorProxy[] proxies= fIndex.read("project", 100, 100);
+		assertEquals(1, proxies.length);
+		assertEquals("project", proxies[0].getProject());
+	}
+
+	public void testAdd0() throws Exception {
+		fIndex.add(400, "Fourth");
+		fIndex.add(400, "Fifth");
+		assertProxies(new long[] { 100, 200, 300, 400, 400}, new String[] { "First", "Second \u00e4", "Third", "Fourth", "Fifth"}, fIndex.read(null, 0, Long.MAX_VALUE));
+	}
+
+	public void testAdd1() throws Exception {
+		fIndex.add(150, "Between");
+		fIndex.add(50, "Before");
+		assertProxies(new long[] { 50, 100, 150, 200, 300}, new String[] { "Before", "First", "Between", "Second \u00e4", "Third"}, fIndex.read(null, 0, Long.MAX_VALUE));
+		assertProxies(new long[] { 150, 200}, new String[] { "Between", "Second \u00e4"}, fIndex.read(null, 101, 200));
+	}
+
+	public void testAdd2() throws Exception {
+		fIndex.add(200, "Second \u00e4");
+		assertProxies(new long[] { 100, 200, 300}, new String[] { "First", "Second \u00e4", "Third"}, fIndex.read(null, 0, Long.MAX_VALUE));
+	}
+
+	public void testRemove0() throws Exception {
+		fIndex.remove(new RefactoringDescriptorProxy[] { createProxy(200, "Second \u00e4")});
+		assertProxies(new long[] { 100, 300}, new String[] { "First", "Third"}, fIndex.read(null, 0, Long.MAX_VALUE));
+		fIndex.add(200, "Again");
+		assertProxies(new long[] { 100, 200, 300}, new String[] { "First", "Again", "Third"}, fIndex.read(null, 0, Long.MAX_VALUE));
+	}
+
+	public void testRemove1() throws Exception {
+		fIndex.remove(new RefactoringDescriptorProxy[] { createProxy(100, "First"), createProxy(300, "Third"), createProxy(400, "Unknown")});
+		assertProxies(new long[] { 200}, new String[] { "Second \u00e4"}, fIndex.read(null, 0, Long.MAX_VALUE));
+	}
+
+	public void testInvalidIndex() throws Exception {
+		FileOutputStream stream= new FileOutputStream(new File(fFolder, RefactoringHistoryIndex.NAME_STAMPS_FILE), true);
+		try {
+			stream.write(new byte[] { 1, 2, 3});
+		} finally {
+			stream.close();
+		}
+		assertFalse(fIndex.exists());
+		try {
+			fIndex.read(null, 0, Long.MAX_VALUE);
+			fail("Invalid index has been read");
+		} catch (IOException exception) {
+			// Expected
+		}
+		fIndex.delete();
+		assertFalse(fIndex.exists());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -239,6 +239,23 @@ public abstract class Change implements IAdaptable {
 	 */
 	public abstract RefactoringStatus isValid(IProgressMonitor pm) throws CoreException, OperationCanceledException;
 
+	/**
+	 * Returns whether <code>isValid</code> of this change neither depends on nor influences
+	 * the validation of other changes and can therefore be called concurrently with
+	 * <code>isValid</code> of other changes. A composite change may then validate its children
+	 * in parallel.
+	 * <p>
+	 * The default implementation returns <code>false</code>. Subclasses may override.
+	 * </p>
+	 *
+	 * @return <code>true</code> if this change can be validated concurrently with other changes
+	 *
+	 * @since 3.6
+	 */
+	public boolean isValidationIndependent() {
+		return false;
+	}
+
 	/**
 	 * Performs this change. If this method is called on an invalid or disabled change
 	 * object the result is unspecified. Changes should in general not respond to
@@ -21,9 +21,11 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.ltk.internal.core.refactoring.ConcurrentChangeValidator;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 
@@ -227,18 +229,28 @@ public class CompositeChange extends Change {
 	 * will not receive the <code>isValid</code> call.
 	 * </p>
 	 * <p>
+	 * If the concurrent validation of changes is switched on and all children are
+	 * {@link Change#isValidationIndependent() independent}, the children are validated
+	 * in parallel. The statuses are still merged in the order of the children.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
 	public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException {
+		if (ConcurrentChangeValidator.canValidate(fChanges))
+			return ConcurrentChangeValidator.validate(fChanges, pm);
 		RefactoringStatus result= new RefactoringStatus();
 		pm.beginTask("", fChanges.size()); //$NON-NLS-1$
 		for (Iterator iter= fChanges.iterator(); iter.hasNext() && !result.hasFatalError();) {
 			Change change= (Change)iter.next();
-			if (change.isEnabled())
+			if (change.isEnabled()) {
+				long start= System.currentTimeMillis();
 				result.merge(change.isValid(new SubProgressMonitor(pm, 1)));
-			else
+				PerformanceStats.getStats(ConcurrentChangeValidator.PERF_IS_VALID, change.getClass().getName()).addRun(System.currentTimeMillis() - start, change.getName());
+			} else {
 				pm.worked(1);
+			}
 			if (pm.isCanceled())
 				throw new OperationCanceledException();
 		}
@@ -480,6 +492,22 @@ public class CompositeChange extends Change {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A composite change is independent if all its children are independent.
+	 * </p>
+	 *
+	 * @since 3.6
+	 */
+	public boolean isValidationIndependent() {
+		for (Iterator iter= fChanges.iterator(); iter.hasNext();) {
+			if (!((Change) iter.next()).isValidationIndependent())
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
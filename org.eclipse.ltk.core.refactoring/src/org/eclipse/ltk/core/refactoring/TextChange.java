@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,10 @@ package org.eclipse.ltk.core.refactoring;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -20,7 +23,13 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.text.edits.CopySourceEdit;
+import org.eclipse.text.edits.CopyTargetEdit;
 import org.eclipse.text.edits.MalformedTreeException;
+import org.eclipse.text.edits.MoveSourceEdit;
+import org.eclipse.text.edits.MoveTargetEdit;
 import org.eclipse.text.edits.MultiTextEdit;
 import org.eclipse.text.edits.TextEdit;
 import org.eclipse.text.edits.TextEditCopier;
@@ -70,6 +79,51 @@ import org.eclipse.ltk.internal.core.refactoring.Changes;
  */
 public abstract class TextChange extends TextEditBasedChange {
 
+	/**
+	 * The full preview content of a text change together with the state it has been computed
+	 * from. The content is identified by the modification stamp of the unmodified file, or else
+	 * by the modification stamp of the document.
+	 */
+	private static final class PreviewCacheEntry {
+		final boolean fFileStamp;
+		final long fModificationStamp;
+		final int fLength;
+		final int fModificationCount;
+		final int fTopLevelEditCount;
+		final String fContent;
+		/** The copier of the executed edits, or <code>null</code> if they have not been kept. */
+		final TextEditCopier fCopier;
+
+		PreviewCacheEntry(boolean fileStamp, long modificationStamp, int length, int modificationCount, int topLevelEditCount, String content, TextEditCopier copier) {
+			fFileStamp= fileStamp;
+			fModificationStamp= modificationStamp;
+			fLength= length;
+			fModificationCount= modificationCount;
+			fTopLevelEditCount= topLevelEditCount;
+			fContent= content;
+			fCopier= copier;
+		}
+
+		boolean isValid(boolean fileStamp, long modificationStamp, int length, int modificationCount, int topLevelEditCount) {
+			return fFileStamp == fileStamp && fModificationStamp == modificationStamp && fLength == length && fModificationCount == modificationCount && fTopLevelEditCount == topLevelEditCount;
+		}
+	}
+
+	/** The number of text changes whose full preview is cached. */
+	private static final int PREVIEW_CACHE_SIZE= 10;
+
+	/**
+	 * The full previews of the most recently previewed text changes, so that showing the preview
+	 * of a change again does not apply all its edits again. Disposing a change evicts its preview.
+	 */
+	private static final Map fgPreviewCache= new LinkedHashMap(PREVIEW_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > PREVIEW_CACHE_SIZE;
+		}
+	};
+
 	private TextEdit fEdit;
 	private TextEditCopier fCopier;
 
@@ -102,6 +156,7 @@ public abstract class TextChange extends TextEditBasedChange {
 		Assert.isTrue(fEdit == null, "Root edit can only be set once"); //$NON-NLS-1$
 		Assert.isTrue(edit != null);
 		fEdit= edit;
+		modified();
 	}
 
 	/**
@@ -165,6 +220,7 @@ public abstract class TextChange extends TextEditBasedChange {
 	public void addEdit(TextEdit edit) throws MalformedTreeException {
 		Assert.isTrue(fEdit != null, "root must exist to add an edit"); //$NON-NLS-1$
 		fEdit.addChild(edit);
+		modified();
 	}
 
 	//---- Document management -----------------------------------------------
@@ -400,7 +456,12 @@ public abstract class TextChange extends TextEditBasedChange {
 	 * @throws CoreException if the preview can't be created
 	 */
 	public IDocument getPreviewDocument(IProgressMonitor pm) throws CoreException {
-		PreviewAndRegion result= getPreviewDocument(ALL_EDITS, pm);
+		IDocument currentDocument= getCurrentDocument(pm);
+		String content= getCachedPreviewContent(currentDocument);
+		if (content != null)
+			return new Document(content);
+		PreviewAndRegion result= getPreviewDocument(ALL_EDITS, currentDocument);
+		cachePreviewContent(currentDocument, result.document.get());
 		return result.document;
 	}
 
@@ -408,7 +469,13 @@ public abstract class TextChange extends TextEditBasedChange {
 	 * {@inheritDoc}
 	 */
 	public String getPreviewContent(IProgressMonitor pm) throws CoreException {
-		return getPreviewDocument(pm).get();
+		IDocument currentDocument= getCurrentDocument(pm);
+		String content= getCachedPreviewContent(currentDocument);
+		if (content == null) {
+			content= getPreviewDocument(ALL_EDITS, currentDocument).document.get();
+			cachePreviewContent(currentDocument, content);
+		}
+		return content;
 	}
 
 	/**
@@ -510,6 +577,9 @@ public abstract class TextChange extends TextEditBasedChange {
 				// Assert.isTrue(root == edits[e].getRoot(), "Wrong root edit"); //$NON-NLS-1$
 			}
 		}
+		String content= getRegionPreviewContent(changeGroups, region, currentRegion, expandRegionToFullLine, surroundingLines, pm);
+		if (content != null)
+			return content;
 		PreviewAndRegion result= getPreviewDocument(changeGroups, pm);
 		int delta;
 		if (result.region == null) {	// all edits were delete edits so no new region
@@ -524,7 +594,11 @@ public abstract class TextChange extends TextEditBasedChange {
 	//---- private helper methods --------------------------------------------------
 
 	private PreviewAndRegion getPreviewDocument(TextEditBasedChangeGroup[] changes, IProgressMonitor pm) throws CoreException {
-		IDocument document= new Document(getCurrentDocument(pm).get());
+		return getPreviewDocument(changes, getCurrentDocument(pm));
+	}
+
+	private PreviewAndRegion getPreviewDocument(TextEditBasedChangeGroup[] changes, IDocument currentDocument) throws CoreException {
+		IDocument document= new Document(currentDocument.get());
 		boolean trackChanges= getKeepPreviewEdits();
 		setKeepPreviewEdits(true);
 		TextEditProcessor processor= changes == ALL_EDITS
@@ -532,7 +606,7 @@ public abstract class TextChange extends TextEditBasedChange {
 			: createTextEditProcessor(document, TextEdit.NONE, changes);
 		try {
 			processor.performEdits();
-			return new PreviewAndRegion(document, getNewRegion(changes));
+			return new PreviewAndRegion(document, getNewRegion(changes, fCopier));
 		} catch (BadLocationException e) {
 			throw Changes.asCoreException(e);
 		} finally {
@@ -540,6 +614,166 @@ public abstract class TextChange extends TextEditBasedChange {
 		}
 	}
 
+	/**
+	 * Returns the preview of the given change groups clipped to the region without copying the
+	 * whole document. Only the edits that overlap the lines around the region are copied and
+	 * executed on a document that contains just these lines.
+	 * <p>
+	 * The edits executed this way do not have the positions of a full preview. The method
+	 * therefore returns <code>null</code> if the executed edits are kept, if the edit tree contains
+	 * move or copy edits, whose source and target might not both overlap the region, and if not all
+	 * edits of the change groups overlap the region.
+	 * </p>
+	 *
+	 * @param changeGroups the change groups to preview
+	 * @param region the region to clip the preview to
+	 * @param currentRegion the region of the edits of the change groups
+	 * @param expandRegionToFullLine whether the region is extended to cover full lines
+	 * @param surroundingLines the number of surrounding lines to add to the region
+	 * @param pm a progress monitor, or <code>null</code>
+	 * @return the preview, or <code>null</code> if it has to be computed on a copy of the whole
+	 *  document
+	 * @throws CoreException if the document can't be acquired or the edits can't be executed
+	 */
+	private String getRegionPreviewContent(TextEditBasedChangeGroup[] changeGroups, IRegion region, IRegion currentRegion, boolean expandRegionToFullLine, int surroundingLines, IProgressMonitor pm) throws CoreException {
+		if (getKeepPreviewEdits() || !(fEdit instanceof MultiTextEdit) || containsSourceOrTargetEdit(fEdit))
+			return null;
+		IDocument document= getCurrentDocument(pm);
+		try {
+			int regionEnd= region.getOffset() + region.getLength();
+			int start;
+			int end;
+			if (expandRegionToFullLine) {
+				// one additional line at the end, since the preview lines are counted from the end of the new region
+				int startLine= Math.max(document.getLineOfOffset(region.getOffset()) - surroundingLines, 0);
+				int endLine= Math.min(document.getLineOfOffset(regionEnd) + surroundingLines + 1, document.getNumberOfLines() - 1);
+				start= document.getLineOffset(startLine);
+				end= document.getLineOffset(endLine) + document.getLineLength(endLine);
+			} else {
+				start= region.getOffset();
+				end= regionEnd;
+			}
+
+			TextEditCopier copier= new TextEditCopier(fEdit);
+			TextEdit copiedRoot= copier.perform();
+			TextEdit[] children= copiedRoot.getChildren();
+			List windowEdits= new ArrayList();
+			for (int i= 0; i < children.length; i++) {
+				TextEdit child= children[i];
+				if (child.getExclusiveEnd() < start || child.getOffset() > end)
+					continue;
+				start= Math.min(start, child.getOffset());
+				end= Math.max(end, child.getExclusiveEnd());
+				windowEdits.add(child);
+			}
+			MultiTextEdit windowRoot= new MultiTextEdit();
+			for (Iterator iter= windowEdits.iterator(); iter.hasNext();) {
+				TextEdit child= (TextEdit) iter.next();
+				copiedRoot.removeChild(child);
+				child.moveTree(-start);
+				windowRoot.addChild(child);
+			}
+
+			List includes= getIncludedEdits(changeGroups);
+			TextEdit[] copies= mapEdits((TextEdit[]) includes.toArray(new TextEdit[includes.size()]), copier);
+			for (int i= 0; i < copies.length; i++) {
+				if (copies[i].getRoot() != windowRoot)
+					return null;
+			}
+			IDocument preview= new Document(document.get(start, end - start));
+			LocalTextEditProcessor processor= new LocalTextEditProcessor(preview, windowRoot, TextEdit.UPDATE_REGIONS);
+			processor.setIncludes(copies);
+			processor.performEdits();
+
+			IRegion newRegion= getNewRegion(changeGroups, copier);
+			int delta;
+			if (newRegion == null) {	// all edits were delete edits so no new region
+				delta= -currentRegion.getLength();
+			} else {
+				delta= newRegion.getLength() - currentRegion.getLength();
+			}
+			return getContent(preview, new Region(region.getOffset() - start, region.getLength() + delta), expandRegionToFullLine, surroundingLines);
+		} catch (BadLocationException e) {
+			throw Changes.asCoreException(e);
+		}
+	}
+
+	private static boolean containsSourceOrTargetEdit(TextEdit edit) {
+		if (edit instanceof MoveSourceEdit || edit instanceof MoveTargetEdit || edit instanceof CopySourceEdit || edit instanceof CopyTargetEdit)
+			return true;
+		TextEdit[] children= edit.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (containsSourceOrTargetEdit(children[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the modification stamp of the file whose content the current document holds, if
+	 * the document has not been modified since it has been read from the file. The stamp
+	 * identifies the content even if the document is created again for every access.
+	 * <p>
+	 * This implementation returns {@link IResource#NULL_STAMP}.
+	 * </p>
+	 *
+	 * @return the modification stamp of the unmodified file, or {@link IResource#NULL_STAMP}
+	 */
+	long getUnmodifiedFileStamp() {
+		return IResource.NULL_STAMP;
+	}
+
+	/**
+	 * Returns the cached full preview if it has been computed from the same content, and no
+	 * edits or change groups have been added and no group has been enabled or disabled since.
+	 * Edits added directly to the root edit are only noticed if they are top level edits. If the
+	 * executed edits are kept, the method also restores the edits of the cached preview.
+	 *
+	 * @param currentDocument the current document
+	 * @return the cached preview content, or <code>null</code>
+	 */
+	private String getCachedPreviewContent(IDocument currentDocument) {
+		if (fEdit == null)
+			return null;
+		long fileStamp= getUnmodifiedFileStamp();
+		long stamp= fileStamp != IResource.NULL_STAMP ? fileStamp : getModificationStamp(currentDocument);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return null;
+		PreviewCacheEntry entry;
+		synchronized (fgPreviewCache) {
+			entry= (PreviewCacheEntry) fgPreviewCache.get(this);
+		}
+		if (entry == null || !entry.isValid(fileStamp != IResource.NULL_STAMP, stamp, currentDocument.getLength(), getModificationCount(), fEdit.getChildrenSize()))
+			return null;
+		if (getKeepPreviewEdits()) {
+			if (entry.fCopier == null)
+				return null;
+			fCopier= entry.fCopier;
+		} else {
+			fCopier= null;
+		}
+		return entry.fContent;
+	}
+
+	private void cachePreviewContent(IDocument currentDocument, String content) {
+		if (fEdit == null)
+			return;
+		long fileStamp= getUnmodifiedFileStamp();
+		long stamp= fileStamp != IResource.NULL_STAMP ? fileStamp : getModificationStamp(currentDocument);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return;
+		PreviewCacheEntry entry= new PreviewCacheEntry(fileStamp != IResource.NULL_STAMP, stamp, currentDocument.getLength(), getModificationCount(), fEdit.getChildrenSize(), content, fCopier);
+		synchronized (fgPreviewCache) {
+			fgPreviewCache.put(this, entry);
+		}
+	}
+
+	private static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
 	private TextEditProcessor createTextEditProcessor(IDocument document, int flags, boolean preview) {
 		if (fEdit == null)
 			return new TextEditProcessor(document, new MultiTextEdit(0,0), flags);
@@ -574,14 +808,7 @@ public abstract class TextChange extends TextEditBasedChange {
 	private TextEditProcessor createTextEditProcessor(IDocument document, int flags, TextEditBasedChangeGroup[] changes) {
 		if (fEdit == null)
 			return new TextEditProcessor(document, new MultiTextEdit(0,0), flags);
-		List includes= new ArrayList(0);
-		for (int c= 0; c < changes.length; c++) {
-			TextEditBasedChangeGroup change= changes[c];
-			Assert.isTrue(change.getTextEditChange() == this);
-			if (change.isEnabled()) {
-				includes.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
-			}
-		}
+		List includes= getIncludedEdits(changes);
 		fCopier= new TextEditCopier(fEdit);
 		TextEdit copiedEdit= fCopier.perform();
 		boolean keep= getKeepPreviewEdits();
@@ -596,6 +823,18 @@ public abstract class TextChange extends TextEditBasedChange {
 		return result;
 	}
 
+	private List getIncludedEdits(TextEditBasedChangeGroup[] changes) {
+		List includes= new ArrayList(0);
+		for (int c= 0; c < changes.length; c++) {
+			TextEditBasedChangeGroup change= changes[c];
+			Assert.isTrue(change.getTextEditChange() == this);
+			if (change.isEnabled()) {
+				includes.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
+			}
+		}
+		return includes;
+	}
+
 	private IRegion getRegion(TextEditBasedChangeGroup[] changes) {
 		if (changes == ALL_EDITS) {
 			if (fEdit == null)
@@ -612,17 +851,17 @@ public abstract class TextChange extends TextEditBasedChange {
 		}
 	}
 
-	private IRegion getNewRegion(TextEditBasedChangeGroup[] changes) {
+	private IRegion getNewRegion(TextEditBasedChangeGroup[] changes, TextEditCopier copier) {
 		if (changes == ALL_EDITS) {
 			if (fEdit == null)
 				return null;
-			return fCopier.getCopy(fEdit).getRegion();
+			return copier.getCopy(fEdit).getRegion();
 		} else {
 			List result= new ArrayList();
 			for (int c= 0; c < changes.length; c++) {
 				TextEdit[] edits= changes[c].getTextEditGroup().getTextEdits();
 				for (int e= 0; e < edits.length; e++) {
-					TextEdit copy= fCopier.getCopy(edits[e]);
+					TextEdit copy= copier.getCopy(edits[e]);
 					if (copy != null)
 						result.add(copy);
 				}
@@ -633,6 +872,16 @@ public abstract class TextChange extends TextEditBasedChange {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void dispose() {
+		synchronized (fgPreviewCache) {
+			fgPreviewCache.remove(this);
+		}
+		super.dispose();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
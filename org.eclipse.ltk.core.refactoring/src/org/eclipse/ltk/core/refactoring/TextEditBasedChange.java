@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -116,6 +116,9 @@ public abstract class TextEditBasedChange extends Change {
 	private List fChangeGroups;
 	private GroupCategorySet fCombiedGroupCategories;
 
+	/** Incremented whenever edits or change groups are added or a group is enabled or disabled */
+	private int fModificationCount;
+
 	/** The name of the change */
 	private String fName;
 
@@ -144,6 +147,23 @@ public abstract class TextEditBasedChange extends Change {
 		fTextType= "txt"; //$NON-NLS-1$
 	}
 
+	/**
+	 * Records that the edits or the enabled change groups of this change have changed, so that
+	 * cached previews are not used anymore.
+	 */
+	void modified() {
+		fModificationCount++;
+	}
+
+	/**
+	 * Returns the number of recorded modifications.
+	 *
+	 * @return the modification count
+	 */
+	int getModificationCount() {
+		return fModificationCount;
+	}
+
 	/**
 	 * Adds a {@link TextEditBasedChangeGroup text edit change group}.
 	 * The edits managed by the given text edit change group must be part of
@@ -154,6 +174,7 @@ public abstract class TextEditBasedChange extends Change {
 	public void addChangeGroup(TextEditBasedChangeGroup group) {
 		Assert.isTrue(group != null);
 		fChangeGroups.add(group);
+		modified();
 		if (fCombiedGroupCategories != null) {
 			fCombiedGroupCategories= GroupCategorySet.union(fCombiedGroupCategories, group.getGroupCategorySet());
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -122,7 +122,10 @@ public class TextEditBasedChangeGroup {
 	 *  as enabled, <code>false</code> to mark it as disabled
 	 */
 	public void setEnabled(boolean enabled) {
-		fIsEnabled= enabled;
+		if (fIsEnabled != enabled) {
+			fIsEnabled= enabled;
+			fChange.modified();
+		}
 	}
 
 	/**
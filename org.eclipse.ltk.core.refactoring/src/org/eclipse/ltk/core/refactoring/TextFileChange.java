@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -37,6 +38,7 @@ import org.eclipse.ltk.internal.core.refactoring.Changes;
 import org.eclipse.ltk.internal.core.refactoring.ContentStamps;
 import org.eclipse.ltk.internal.core.refactoring.Lock;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.Resources;
 
 /**
  * A special {@link TextChange} that operates on a <code>IFile</code>.
@@ -195,15 +197,40 @@ public class TextFileChange extends TextChange {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A text file change only validates its own file. It is not independent if the file is read-only
+	 * and has to be saved, since validating the change then asks the team provider to make the file
+	 * writable, which may need the user interface thread.
+	 * </p>
+	 *
+	 * @since 3.6
+	 */
+	public boolean isValidationIndependent() {
+		return !needsSaving() || !Resources.isReadOnly(fFile);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public void dispose() {
+		super.dispose();
 		if (fValidationState != null) {
 			fValidationState.dispose();
 		}
 	}
 
+	/*
+	 * @see org.eclipse.ltk.core.refactoring.TextChange#getUnmodifiedFileStamp()
+	 */
+	long getUnmodifiedFileStamp() {
+		ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(fFile.getFullPath(), LocationKind.IFILE);
+		if (buffer != null && buffer.isDirty())
+			return IResource.NULL_STAMP;
+		return fFile.getModificationStamp();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
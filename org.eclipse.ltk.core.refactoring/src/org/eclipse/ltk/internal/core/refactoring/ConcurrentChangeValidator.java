@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
+/**
+ * Validates the children of a composite change with a few jobs, for changes whose
+ * {@link Change#isValid(IProgressMonitor)} does not depend on the validation of the other
+ * children.
+ * <p>
+ * The statuses are merged in the order of the children up to the first one with a severity of
+ * {@link RefactoringStatus#FATAL}, like the sequential validation does. No further children are
+ * validated once a fatal error or an exception has been reported by any of the jobs.
+ * </p>
+ * <p>
+ * The concurrent validation is switched off by default. It can be switched on with the
+ * <code>org.eclipse.ltk.core.refactoring.concurrentChangeValidation</code> system property.
+ * </p>
+ *
+ * @since 3.6
+ */
+public final class ConcurrentChangeValidator {
+
+	/**
+	 * Tells whether composite changes validate their children concurrently.
+	 */
+	private static boolean fgEnabled= Boolean.getBoolean("org.eclipse.ltk.core.refactoring.concurrentChangeValidation"); //$NON-NLS-1$
+
+	/**
+	 * The performance event for the validation of a single change, blamed on the class of the
+	 * change.
+	 */
+	public static final String PERF_IS_VALID= "org.eclipse.ltk.core.refactoring/perf/changes/isValid"; //$NON-NLS-1$
+
+	private static final int WORKER_COUNT= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/** The minimal number of children for which starting the jobs pays off. */
+	public static final int MIN_CHANGES= 4 * WORKER_COUNT;
+
+	private final class ValidationJob extends Job {
+
+		ValidationJob() {
+			super(RefactoringCoreMessages.ConcurrentChangeValidator_job_name);
+			setSystem(true);
+			setPriority(Job.SHORT);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			int index;
+			while ((index= nextIndex()) != -1)
+				validate(index);
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final Change[] fChanges;
+	private final RefactoringStatus[] fResults;
+	private final Throwable[] fExceptions;
+	private final long[] fTimes;
+
+	/** The monitor passed to the children, which reports the cancellation of the validation. */
+	private final IProgressMonitor fChildMonitor= new NullProgressMonitor() {
+		public boolean isCanceled() {
+			synchronized (ConcurrentChangeValidator.this) {
+				return fCanceled;
+			}
+		}
+	};
+
+	/** The index of the next child to validate. */
+	private int fNext;
+	/** The number of validated children. */
+	private int fDone;
+	/** <code>true</code> if no further children are validated. */
+	private boolean fStopped;
+	private boolean fCanceled;
+
+	/**
+	 * Switches the concurrent validation on or off. Used by tests.
+	 *
+	 * @param enabled <code>true</code> to validate the children of composite changes concurrently
+	 */
+	public static void setEnabled(boolean enabled) {
+		fgEnabled= enabled;
+	}
+
+	private ConcurrentChangeValidator(List changes) {
+		fChanges= (Change[]) changes.toArray(new Change[changes.size()]);
+		fResults= new RefactoringStatus[fChanges.length];
+		fExceptions= new Throwable[fChanges.length];
+		fTimes= new long[fChanges.length];
+	}
+
+	/**
+	 * Returns whether the given changes can be validated concurrently. This is the case if the
+	 * concurrent validation is enabled, there are enough changes and all of them are
+	 * independent of each other. Changes validated by a validation job are always validated
+	 * sequentially.
+	 *
+	 * @param changes the changes to validate
+	 * @return <code>true</code> if the changes can be validated concurrently
+	 */
+	public static boolean canValidate(List changes) {
+		if (!fgEnabled || changes.size() < MIN_CHANGES || Job.getJobManager().currentJob() instanceof ValidationJob)
+			return false;
+		for (Iterator iter= changes.iterator(); iter.hasNext();) {
+			if (!((Change) iter.next()).isValidationIndependent())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Validates the given changes concurrently.
+	 *
+	 * @param changes the changes to validate
+	 * @param pm a progress monitor
+	 * @return the merged status of the changes
+	 * @throws CoreException if the validation of a change failed
+	 * @throws OperationCanceledException if the validation got canceled
+	 */
+	public static RefactoringStatus validate(List changes, IProgressMonitor pm) throws CoreException {
+		return new ConcurrentChangeValidator(changes).validate(pm);
+	}
+
+	private RefactoringStatus validate(IProgressMonitor pm) throws CoreException {
+		pm.beginTask("", fChanges.length); //$NON-NLS-1$
+		try {
+			for (int i= 0, count= Math.min(WORKER_COUNT, fChanges.length); i < count; i++)
+				new ValidationJob().schedule();
+			waitForJobs(pm);
+			if (fCanceled)
+				throw new OperationCanceledException();
+			return mergeResults();
+		} finally {
+			pm.done();
+		}
+	}
+
+	private void waitForJobs(IProgressMonitor pm) {
+		boolean interrupted= false;
+		int reported= 0;
+		while (true) {
+			int done;
+			synchronized (this) {
+				if (fDone == (fStopped ? fNext : fChanges.length))
+					break;
+				try {
+					wait(100);
+				} catch (InterruptedException e) {
+					interrupted= true;
+					fCanceled= true;
+					fStopped= true;
+				}
+				done= fDone;
+			}
+			pm.worked(done - reported);
+			reported= done;
+			if (pm.isCanceled()) {
+				synchronized (this) {
+					fCanceled= true;
+					fStopped= true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private synchronized int nextIndex() {
+		if (fStopped || fNext == fChanges.length)
+			return -1;
+		return fNext++;
+	}
+
+	private void validate(int index) {
+		Change change= fChanges[index];
+		RefactoringStatus result= null;
+		Throwable exception= null;
+		long start= System.currentTimeMillis();
+		try {
+			if (change.isEnabled())
+				result= change.isValid(fChildMonitor);
+		} catch (Throwable e) {
+			exception= e;
+		} finally {
+			long time= System.currentTimeMillis() - start;
+			// like RefactoringStatus#merge(RefactoringStatus), treat a missing status as OK
+			if (result == null)
+				result= new RefactoringStatus();
+			synchronized (this) {
+				fResults[index]= result;
+				fExceptions[index]= exception;
+				fTimes[index]= time;
+				if (exception != null || result.hasFatalError())
+					fStopped= true;
+				fDone++;
+				notifyAll();
+			}
+		}
+	}
+
+	private RefactoringStatus mergeResults() throws CoreException {
+		RefactoringStatus result= new RefactoringStatus();
+		for (int i= 0; i < fNext && !result.hasFatalError(); i++) {
+			Throwable exception= fExceptions[i];
+			if (exception instanceof CoreException)
+				throw (CoreException) exception;
+			if (exception instanceof RuntimeException)
+				throw (RuntimeException) exception;
+			if (exception instanceof Error)
+				throw (Error) exception;
+			result.merge(fResults[i]);
+			if (fChanges[i].isEnabled())
+				PerformanceStats.getStats(PERF_IS_VALID, fChanges[i].getClass().getName()).addRun(fTimes[i], fChanges[i].getName());
+		}
+		return result;
+	}
+}
@@ -30,6 +30,8 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String CompositeChange_performingChangesTask_name;
 
+	public static String ConcurrentChangeValidator_job_name;
+
 	public static String CreateChangeOperation_unknown_Refactoring;
 
 	public static String DefaultRefactoringDescriptor_cannot_create_refactoring;
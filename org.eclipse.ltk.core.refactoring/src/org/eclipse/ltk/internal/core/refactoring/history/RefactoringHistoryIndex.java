@@ -0,0 +1,432 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Assert;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringSerializationConstants;
+
+/**
+ * Compact, time sorted index of the refactoring descriptors of a refactoring
+ * history location.
+ * <p>
+ * The index consists of two files in the history folder. The stamps file
+ * contains fixed size records sorted by time stamp, which allows to answer
+ * range queries by binary search. The descriptions file contains the
+ * descriptions of the refactorings in the order they have been added, so that
+ * new refactorings are appended to both files without rewriting them.
+ * </p>
+ *
+ * <pre>
+ * stamps file:
+ *   int MAGIC, int VERSION
+ *   record*                 sorted by stamp
+ * record:
+ *   long stamp
+ *   long position           of the description in the descriptions file
+ *
+ * descriptions file:
+ *   (int length, byte[length] UTF-8 description)*
+ * </pre>
+ * <p>
+ * The index only caches the time stamps and descriptions of the history index
+ * tree, which remains the persistent refactoring history. Descriptors are
+ * read from the history tree when they are requested.
+ * </p>
+ *
+ * @since 3.6
+ */
+public final class RefactoringHistoryIndex {
+
+	/** The stamps file name */
+	public static final String NAME_STAMPS_FILE= "refactorings.stamps"; //$NON-NLS-1$
+
+	/** The descriptions file name */
+	public static final String NAME_DESCRIPTIONS_FILE= "refactorings.descriptions"; //$NON-NLS-1$
+
+	/** The magic number of the stamps file */
+	private static final int MAGIC= 0x52484958;
+
+	/** The version of the file format */
+	private static final int VERSION= 1;
+
+	/** The size of the stamps file header */
+	private static final int HEADER_SIZE= 8;
+
+	/** The size of a stamp record */
+	private static final int RECORD_SIZE= 16;
+
+	/** The suffix of temporary files */
+	private static final String SUFFIX_TEMPORARY= ".tmp"; //$NON-NLS-1$
+
+	/** The shared indexes (element type: &lt;File, RefactoringHistoryIndex&gt;) */
+	private static final Map fgIndexes= new HashMap();
+
+	/**
+	 * Returns the shared index of the specified history folder.
+	 *
+	 * @param folder
+	 *            the history folder
+	 * @return the refactoring history index
+	 */
+	public static RefactoringHistoryIndex getIndex(final File folder) {
+		Assert.isNotNull(folder);
+		synchronized (fgIndexes) {
+			RefactoringHistoryIndex index= (RefactoringHistoryIndex) fgIndexes.get(folder);
+			if (index == null) {
+				index= new RefactoringHistoryIndex(folder);
+				fgIndexes.put(folder, index);
+			}
+			return index;
+		}
+	}
+
+	/** The descriptions file */
+	private final File fDescriptionsFile;
+
+	/** The stamps file */
+	private final File fStampsFile;
+
+	/**
+	 * Creates a new refactoring history index.
+	 *
+	 * @param folder
+	 *            the history folder
+	 */
+	public RefactoringHistoryIndex(final File folder) {
+		Assert.isNotNull(folder);
+		fStampsFile= new File(folder, NAME_STAMPS_FILE);
+		fDescriptionsFile= new File(folder, NAME_DESCRIPTIONS_FILE);
+	}
+
+	/**
+	 * Adds a refactoring to the index.
+	 * <p>
+	 * The refactoring is appended if its time stamp is not smaller than the
+	 * most recent one, otherwise the records of the more recent refactorings
+	 * are moved. Nothing happens if the refactoring is already contained in
+	 * the index.
+	 * </p>
+	 *
+	 * @param stamp
+	 *            the time stamp of the refactoring
+	 * @param description
+	 *            the description of the refactoring
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void add(final long stamp, final String description) throws IOException {
+		Assert.isNotNull(description);
+		final RefactoringDescriptorProxy[] existing= read(null, stamp, stamp);
+		for (int index= 0; index < existing.length; index++) {
+			if (existing[index].getDescription().equals(description))
+				return;
+		}
+		final long position= appendDescription(description);
+		final RandomAccessFile file= new RandomAccessFile(fStampsFile, "rw"); //$NON-NLS-1$
+		try {
+			final int count= checkHeader(file);
+			final int index= search(file, count, stamp, true);
+			final ByteArrayOutputStream bytes= new ByteArrayOutputStream((count - index + 1) * RECORD_SIZE);
+			final DataOutputStream output= new DataOutputStream(bytes);
+			output.writeLong(stamp);
+			output.writeLong(position);
+			if (index < count) {
+				final byte[] tail= new byte[(count - index) * RECORD_SIZE];
+				file.seek(HEADER_SIZE + (long) index * RECORD_SIZE);
+				file.readFully(tail);
+				output.write(tail);
+			}
+			file.seek(HEADER_SIZE + (long) index * RECORD_SIZE);
+			file.write(bytes.toByteArray());
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Appends a description to the descriptions file.
+	 *
+	 * @param description
+	 *            the description
+	 * @return the position of the description
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private long appendDescription(final String description) throws IOException {
+		final byte[] bytes= description.getBytes(IRefactoringSerializationConstants.OUTPUT_ENCODING);
+		final RandomAccessFile file= new RandomAccessFile(fDescriptionsFile, "rw"); //$NON-NLS-1$
+		try {
+			final long position= file.length();
+			final ByteArrayOutputStream buffer= new ByteArrayOutputStream(bytes.length + 4);
+			final DataOutputStream output= new DataOutputStream(buffer);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+			file.seek(position);
+			file.write(buffer.toByteArray());
+			return position;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Checks the header of the stamps file.
+	 *
+	 * @param file
+	 *            the stamps file
+	 * @return the number of records
+	 * @throws IOException
+	 *             if the file is not a valid stamps file
+	 */
+	private int checkHeader(final RandomAccessFile file) throws IOException {
+		final long length= file.length();
+		if (length < HEADER_SIZE || (length - HEADER_SIZE) % RECORD_SIZE != 0)
+			throw new IOException("Invalid refactoring history index: " + fStampsFile); //$NON-NLS-1$
+		file.seek(0);
+		if (file.readInt() != MAGIC || file.readInt() != VERSION)
+			throw new IOException("Unsupported refactoring history index: " + fStampsFile); //$NON-NLS-1$
+		return (int) ((length - HEADER_SIZE) / RECORD_SIZE);
+	}
+
+	/**
+	 * Deletes the index files.
+	 */
+	public synchronized void delete() {
+		fStampsFile.delete();
+		fDescriptionsFile.delete();
+	}
+
+	/**
+	 * Does the index exist?
+	 *
+	 * @return <code>true</code> if the index exists and has the current
+	 *         format, <code>false</code> if it has to be written
+	 */
+	public synchronized boolean exists() {
+		if (!fStampsFile.isFile() || !fDescriptionsFile.isFile())
+			return false;
+		try {
+			final RandomAccessFile file= new RandomAccessFile(fStampsFile, "r"); //$NON-NLS-1$
+			try {
+				checkHeader(file);
+				return true;
+			} finally {
+				file.close();
+			}
+		} catch (IOException exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies in the specified time range.
+	 * <p>
+	 * The refactoring descriptor proxies are returned in ascending order of
+	 * their time stamps.
+	 * </p>
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @return An array of refactoring descriptor proxies
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized RefactoringDescriptorProxy[] read(final String project, final long start, final long end) throws IOException {
+		final long[] stamps;
+		final long[] positions;
+		final RandomAccessFile file= new RandomAccessFile(fStampsFile, "r"); //$NON-NLS-1$
+		try {
+			final int count= checkHeader(file);
+			final int first= search(file, count, start, false);
+			final int last= end == Long.MAX_VALUE ? count : search(file, count, end, true);
+			if (first >= last)
+				return new RefactoringDescriptorProxy[0];
+			final byte[] records= new byte[(last - first) * RECORD_SIZE];
+			file.seek(HEADER_SIZE + (long) first * RECORD_SIZE);
+			file.readFully(records);
+			final DataInputStream input= new DataInputStream(new ByteArrayInputStream(records));
+			stamps= new long[last - first];
+			positions= new long[last - first];
+			for (int index= 0; index < stamps.length; index++) {
+				stamps[index]= input.readLong();
+				positions[index]= input.readLong();
+			}
+		} finally {
+			file.close();
+		}
+		long minimum= Long.MAX_VALUE;
+		for (int index= 0; index < positions.length; index++)
+			minimum= Math.min(minimum, positions[index]);
+		final byte[] descriptions;
+		final RandomAccessFile descriptionsFile= new RandomAccessFile(fDescriptionsFile, "r"); //$NON-NLS-1$
+		try {
+			final long length= descriptionsFile.length();
+			if (minimum < 0 || minimum > length)
+				throw new IOException("Invalid refactoring history index: " + fDescriptionsFile); //$NON-NLS-1$
+			descriptions= new byte[(int) (length - minimum)];
+			descriptionsFile.seek(minimum);
+			descriptionsFile.readFully(descriptions);
+		} finally {
+			descriptionsFile.close();
+		}
+		final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[stamps.length];
+		for (int index= 0; index < proxies.length; index++) {
+			final int offset= (int) (positions[index] - minimum);
+			if (offset + 4 > descriptions.length)
+				throw new IOException("Invalid refactoring history index: " + fDescriptionsFile); //$NON-NLS-1$
+			final int length= (descriptions[offset] & 0xff) << 24 | (descriptions[offset + 1] & 0xff) << 16 | (descriptions[offset + 2] & 0xff) << 8 | descriptions[offset + 3] & 0xff;
+			if (length <= 0 || offset + 4 + length > descriptions.length)
+				throw new IOException("Invalid refactoring history index: " + fDescriptionsFile); //$NON-NLS-1$
+			proxies[index]= new DefaultRefactoringDescriptorProxy(new String(descriptions, offset + 4, length, IRefactoringSerializationConstants.OUTPUT_ENCODING), project, stamps[index]);
+		}
+		return proxies;
+	}
+
+	/**
+	 * Removes refactorings from the index.
+	 * <p>
+	 * All refactorings with the time stamp of one of the specified
+	 * refactorings are removed. The index is rewritten without the removed
+	 * descriptions.
+	 * </p>
+	 *
+	 * @param proxies
+	 *            the refactoring descriptor proxies to remove
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void remove(final RefactoringDescriptorProxy[] proxies) throws IOException {
+		final long[] removed= new long[proxies.length];
+		for (int index= 0; index < proxies.length; index++)
+			removed[index]= proxies[index].getTimeStamp();
+		final RefactoringDescriptorProxy[] existing= read(null, 0, Long.MAX_VALUE);
+		final List list= new ArrayList(existing.length);
+		outer: for (int index= 0; index < existing.length; index++) {
+			final long stamp= existing[index].getTimeStamp();
+			for (int current= 0; current < removed.length; current++) {
+				if (removed[current] == stamp)
+					continue outer;
+			}
+			list.add(existing[index]);
+		}
+		if (list.size() < existing.length)
+			write((RefactoringDescriptorProxy[]) list.toArray(new RefactoringDescriptorProxy[list.size()]));
+	}
+
+	/**
+	 * Searches the stamps file for the index of the first record whose time
+	 * stamp is greater than or equal to (or greater than if
+	 * <code>after</code> is set) the specified stamp.
+	 *
+	 * @param file
+	 *            the stamps file
+	 * @param count
+	 *            the number of records
+	 * @param stamp
+	 *            the time stamp to search
+	 * @param after
+	 *            <code>true</code> to skip records with the specified time
+	 *            stamp
+	 * @return the index of the record
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private static int search(final RandomAccessFile file, final int count, final long stamp, final boolean after) throws IOException {
+		int low= 0;
+		int high= count;
+		while (low < high) {
+			final int middle= (low + high) >>> 1;
+			file.seek(HEADER_SIZE + (long) middle * RECORD_SIZE);
+			final long current= file.readLong();
+			if (current < stamp || after && current == stamp)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Writes the index from scratch.
+	 *
+	 * @param proxies
+	 *            the refactoring descriptor proxies of the history
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	public synchronized void write(final RefactoringDescriptorProxy[] proxies) throws IOException {
+		final RefactoringDescriptorProxy[] sorted= new RefactoringDescriptorProxy[proxies.length];
+		System.arraycopy(proxies, 0, sorted, 0, proxies.length);
+		RefactoringHistoryManager.sortRefactoringDescriptorsAscending(sorted);
+		final ByteArrayOutputStream descriptionBytes= new ByteArrayOutputStream(sorted.length * 64);
+		final DataOutputStream descriptions= new DataOutputStream(descriptionBytes);
+		final ByteArrayOutputStream stampBytes= new ByteArrayOutputStream(HEADER_SIZE + sorted.length * RECORD_SIZE);
+		final DataOutputStream stamps= new DataOutputStream(stampBytes);
+		stamps.writeInt(MAGIC);
+		stamps.writeInt(VERSION);
+		for (int index= 0; index < sorted.length; index++) {
+			stamps.writeLong(sorted[index].getTimeStamp());
+			stamps.writeLong(descriptions.size());
+			final byte[] bytes= sorted[index].getDescription().getBytes(IRefactoringSerializationConstants.OUTPUT_ENCODING);
+			descriptions.writeInt(bytes.length);
+			descriptions.write(bytes);
+		}
+		fStampsFile.getParentFile().mkdirs();
+		// the stamps file is replaced last, it refers to the new descriptions
+		fStampsFile.delete();
+		replaceFile(fDescriptionsFile, descriptionBytes.toByteArray());
+		replaceFile(fStampsFile, stampBytes.toByteArray());
+	}
+
+	/**
+	 * Replaces the contents of a file by writing a temporary file first.
+	 *
+	 * @param file
+	 *            the file to replace
+	 * @param contents
+	 *            the new contents
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private static void replaceFile(final File file, final byte[] contents) throws IOException {
+		final File temporary= new File(file.getPath() + SUFFIX_TEMPORARY);
+		final RandomAccessFile output= new RandomAccessFile(temporary, "rw"); //$NON-NLS-1$
+		try {
+			output.setLength(0);
+			output.write(contents);
+		} finally {
+			output.close();
+		}
+		file.delete();
+		if (!temporary.renameTo(file))
+			throw new IOException("Could not write refactoring history index: " + file); //$NON-NLS-1$
+	}
+}
@@ -13,6 +13,7 @@ package org.eclipse.ltk.internal.core.refactoring.history;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -183,6 +184,77 @@ public final class RefactoringHistoryManager {
 		return arguments;
 	}
 
+	/**
+	 * Returns the refactoring history index of the specified history location.
+	 *
+	 * @param store
+	 *            the file store of the history location
+	 * @return the refactoring history index, or <code>null</code> if the
+	 *         history location is not in the local file system
+	 */
+	private static RefactoringHistoryIndex getIndex(final IFileStore store) {
+		try {
+			final File file= store.toLocalFile(EFS.NONE, null);
+			if (file != null)
+				return RefactoringHistoryIndex.getIndex(file);
+		} catch (CoreException exception) {
+			RefactoringCorePlugin.log(exception);
+		}
+		return null;
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies using the refactoring history index
+	 * of the history location.
+	 * <p>
+	 * The index is imported from the history index tree if it does not exist
+	 * yet. If the index cannot be used, the history index tree is read.
+	 * </p>
+	 *
+	 * @param store
+	 *            the file store of the history location
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @param task
+	 *            the task label to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private static void readIndexedRefactoringDescriptorProxies(final IFileStore store, final String project, final Collection collection, final long start, final long end, final IProgressMonitor monitor, final String task) throws CoreException {
+		final RefactoringHistoryIndex index= getIndex(store);
+		if (index != null) {
+			try {
+				monitor.beginTask(task, 10);
+				synchronized (index) {
+					if (!index.exists()) {
+						final Set set= new HashSet();
+						readRefactoringDescriptorProxies(store, null, set, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 9), task);
+						index.write((RefactoringDescriptorProxy[]) set.toArray(new RefactoringDescriptorProxy[set.size()]));
+					}
+					final RefactoringDescriptorProxy[] proxies= index.read(project, start, end);
+					for (int offset= 0; offset < proxies.length; offset++)
+						collection.add(proxies[offset]);
+				}
+				return;
+			} catch (IOException exception) {
+				RefactoringCorePlugin.log(exception);
+				index.delete();
+			} finally {
+				monitor.done();
+			}
+		}
+		readRefactoringDescriptorProxies(store, project, collection, start, end, monitor, task);
+	}
+
 	/**
 	 * Reads refactoring descriptor proxies.
 	 *
@@ -783,6 +855,12 @@ public final class RefactoringHistoryManager {
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
+	/**
+	 * Is the history location owned by the refactoring history service, such
+	 * that it can be indexed?
+	 */
+	private final boolean fIndexed;
+
 	/**
 	 * The non-empty name of the managed project, or <code>null</code> for the
 	 * workspace
@@ -797,12 +875,17 @@ public final class RefactoringHistoryManager {
 	 * @param name
 	 *            the non-empty name of the managed project, or
 	 *            <code>null</code> for the workspace
+	 * @param indexed
+	 *            <code>true</code> to maintain a refactoring history index of
+	 *            the history location, <code>false</code> if the history
+	 *            location may be changed by others, e.g. if it is shared
 	 */
-	RefactoringHistoryManager(final IFileStore store, final String name) {
+	RefactoringHistoryManager(final IFileStore store, final String name, final boolean indexed) {
 		Assert.isNotNull(store);
 		Assert.isTrue(name == null || !"".equals(name)); //$NON-NLS-1$
 		fHistoryStore= store;
 		fProjectName= name;
+		fIndexed= indexed;
 	}
 
 	/**
@@ -870,6 +953,7 @@ public final class RefactoringHistoryManager {
 								writeIndexEntry(index, (RefactoringDescriptorProxy[]) set.toArray(new RefactoringDescriptorProxy[set.size()]), EFS.NONE, new SubProgressMonitor(monitor, 3, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 							} else
 								writeIndexEntry(index, proxies, EFS.APPEND, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+							addIndexEntry(stamp, descriptor.getDescription());
 						}
 					} catch (ParserConfigurationException exception) {
 						throw createCoreException(exception);
@@ -891,6 +975,7 @@ public final class RefactoringHistoryManager {
 						final Document result= transformDescriptor(descriptor, false);
 						writeHistoryEntry(history, result, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 							writeIndexEntry(index, proxies, EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						addIndexEntry(stamp, descriptor.getDescription());
 					} catch (IOException exception) {
 						throw createCoreException(exception);
 					}
@@ -901,6 +986,32 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Adds a refactoring to the refactoring history index, if the index
+	 * exists.
+	 *
+	 * @param stamp
+	 *            the time stamp of the refactoring
+	 * @param description
+	 *            the description of the refactoring
+	 */
+	private void addIndexEntry(final long stamp, final String description) {
+		if (fIndexed) {
+			final RefactoringHistoryIndex index= getIndex(fHistoryStore);
+			if (index != null) {
+				synchronized (index) {
+					try {
+						if (index.exists())
+							index.add(stamp, description);
+					} catch (IOException exception) {
+						RefactoringCorePlugin.log(exception);
+						index.delete();
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns the cached refactoring history document.
 	 *
@@ -975,11 +1086,15 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 200);
 			final Set set= new HashSet();
 			try {
-				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
+					if (fIndexed)
+						readIndexedRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					else
+						readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				}
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					readIndexedRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -991,6 +1106,30 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Removes refactorings from the refactoring history index, if the index
+	 * exists.
+	 *
+	 * @param proxies
+	 *            the refactoring descriptors
+	 */
+	private void removeIndexEntries(final RefactoringDescriptorProxy[] proxies) {
+		if (fIndexed) {
+			final RefactoringHistoryIndex index= getIndex(fHistoryStore);
+			if (index != null) {
+				synchronized (index) {
+					try {
+						if (index.exists())
+							index.remove(proxies);
+					} catch (IOException exception) {
+						RefactoringCorePlugin.log(exception);
+						index.delete();
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Removes refactoring descriptors from the managed history.
 	 * <p>
@@ -1120,6 +1259,7 @@ public final class RefactoringHistoryManager {
 			} finally {
 				subMonitor.done();
 			}
+			removeIndexEntries(proxies);
 		} finally {
 			monitor.done();
 		}
@@ -261,6 +261,9 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							source.copy(destination, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20));
 							source.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+							// shared histories are not indexed
+							destination.getChild(RefactoringHistoryIndex.NAME_STAMPS_FILE).delete(EFS.NONE, null);
+							destination.getChild(RefactoringHistoryIndex.NAME_DESCRIPTIONS_FILE).delete(EFS.NONE, null);
 						}
 					} else {
 						final IFileStore source= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
@@ -1007,15 +1010,15 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 					if (hasSharedRefactoringHistory(project)) {
 						final URI uri= project.getLocationURI();
 						if (uri != null)
-							return getManager(EFS.getStore(uri).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER), name);
+							return getManager(EFS.getStore(uri).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER), name, false);
 					} else
-						return getManager(store.getChild(name), name);
+						return getManager(store.getChild(name), name, true);
 				}
 			} catch (CoreException exception) {
 				// Do nothing
 			}
 		} else
-			return getManager(store.getChild(NAME_WORKSPACE_PROJECT), null);
+			return getManager(store.getChild(NAME_WORKSPACE_PROJECT), null, true);
 		return null;
 	}
 
@@ -1028,13 +1031,17 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 	 * @param name
 	 *            the non-empty project name, or <code>null</code> for the
 	 *            workspace
+	 * @param indexed
+	 *            <code>true</code> if the history location is owned by the
+	 *            refactoring history service and can be indexed,
+	 *            <code>false</code> if it is shared
 	 * @return the refactoring history manager
 	 */
-	private RefactoringHistoryManager getManager(final IFileStore store, final String name) {
+	private RefactoringHistoryManager getManager(final IFileStore store, final String name, final boolean indexed) {
 		Assert.isNotNull(store);
 		RefactoringHistoryManager manager= (RefactoringHistoryManager) fManagerCache.get(store);
 		if (manager == null) {
-			manager= new RefactoringHistoryManager(store, name);
+			manager= new RefactoringHistoryManager(store, name, indexed);
 			fManagerCache.put(store, manager);
 		}
 		return manager;